@@ -0,0 +1,869 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.mapreduce;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.apache.hadoop.io.serializer.Serializer;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.Progress;
+import org.apache.hadoop.util.QuickSort;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.openimaj.hadoop.mapreduce.stage.IdentityReducer;
+import org.openimaj.hadoop.mapreduce.stage.Stage;
+
+/**
+ * Runs the {@link Job} constructed by a {@link Stage} inside this JVM rather
+ * than submitting it to a cluster or the local job runner.
+ * <p>
+ * The job is driven exactly as it is configured: the splits, record readers
+ * and output formats of the job are used, the mapper, combiner and reducer
+ * classes are instantiated per task and the partitioner, sort comparator and
+ * grouping comparator decide where each map output goes and how it is handed
+ * to the reducers. The output directory therefore ends up with the same part
+ * files a submitted job would have written. Map tasks (one per split) and then
+ * reduce tasks (one per reducer the job asks for) are run in parallel on a
+ * fixed pool of threads.
+ * <p>
+ * Map outputs are partitioned into memory. When a map task has buffered more
+ * than the spill threshold the buffers are sorted, combined and written to a
+ * local file. At the end of a map task its remaining buffers become sorted
+ * in-memory runs, unless the runs already held in memory by the whole job
+ * exceed the memory threshold, in which case they are spilled too. Each reducer
+ * merges the runs of its partition.
+ * <p>
+ * Every stage started by a {@link StageRunner} (and therefore by a
+ * {@link MultiStagedJob}) is run this way when {@link #LOCAL_EXECUTION} is set
+ * in its configuration, e.g. by passing
+ * <code>-Dorg.openimaj.hadoop.mapreduce.local=true</code> to the tool.
+ * <p>
+ * Mappers and reducers share the JVM, so any static state they hold is shared
+ * between the concurrently running tasks.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+@SuppressWarnings("unchecked")
+public class LocalStageExecutor {
+	/**
+	 * Configuration key which, when true, runs stages with a
+	 * {@link LocalStageExecutor}
+	 */
+	public static final String LOCAL_EXECUTION = "org.openimaj.hadoop.mapreduce.local";
+	/**
+	 * Configuration key for the number of threads (defaults to the number of
+	 * processors)
+	 */
+	public static final String LOCAL_THREADS = "org.openimaj.hadoop.mapreduce.local.threads";
+	/**
+	 * Configuration key for the number of megabytes a map task buffers before
+	 * spilling (defaults to 64)
+	 */
+	public static final String LOCAL_SPILL_MB = "org.openimaj.hadoop.mapreduce.local.spill.mb";
+	/**
+	 * Configuration key for the number of megabytes of map output held in
+	 * memory for the reducers (defaults to 512)
+	 */
+	public static final String LOCAL_MEMORY_MB = "org.openimaj.hadoop.mapreduce.local.memory.mb";
+
+	private static final String COUNTER_GROUP = LocalStageExecutor.class.getName();
+	private static final String JOB_TRACKER = "local";
+	private static final AtomicInteger JOB_IDS = new AtomicInteger();
+
+	private final int nThreads;
+	private final long spillBytes;
+	private final long memoryBytes;
+
+	/**
+	 * @param nThreads
+	 *            the number of tasks to run at once
+	 * @param spillBytes
+	 *            the number of bytes a map task may buffer before spilling
+	 * @param memoryBytes
+	 *            the number of bytes of map output held in memory for the
+	 *            reducers
+	 */
+	public LocalStageExecutor(int nThreads, long spillBytes, long memoryBytes) {
+		this.nThreads = Math.max(1, nThreads);
+		this.spillBytes = spillBytes;
+		this.memoryBytes = memoryBytes;
+	}
+
+	/**
+	 * @param conf
+	 * @return whether {@link #LOCAL_EXECUTION} is set
+	 */
+	public static boolean isEnabled(Configuration conf) {
+		return conf.getBoolean(LOCAL_EXECUTION, false);
+	}
+
+	/**
+	 * @param conf
+	 * @return an executor configured with {@link #LOCAL_THREADS},
+	 *         {@link #LOCAL_SPILL_MB} and {@link #LOCAL_MEMORY_MB}
+	 */
+	public static LocalStageExecutor fromConfiguration(Configuration conf) {
+		final int threads = conf.getInt(LOCAL_THREADS, Runtime.getRuntime().availableProcessors());
+		final long spill = conf.getLong(LOCAL_SPILL_MB, 64) << 20;
+		final long memory = conf.getLong(LOCAL_MEMORY_MB, 512) << 20;
+		return new LocalStageExecutor(threads, spill, memory);
+	}
+
+	/**
+	 * Run a job to completion
+	 *
+	 * @param job
+	 *            a job as constructed by
+	 *            {@link Stage#stage(org.apache.hadoop.fs.Path[], org.apache.hadoop.fs.Path, Configuration)}
+	 * @return a completed job whose {@link Job#getCounters()} holds the counts
+	 *         of all tasks, suitable for {@link Stage#finished(Job)}
+	 * @throws Exception
+	 */
+	public Job run(Job job) throws Exception {
+		final LocalRun run = new LocalRun(job);
+		final ExecutorService service = Executors.newFixedThreadPool(nThreads);
+		try {
+			return run.execute(service);
+		} finally {
+			service.shutdown();
+			run.release();
+		}
+	}
+
+	private class LocalRun {
+		private final Job job;
+		private final Configuration conf;
+		private final int jobId;
+		private final int nReduces;
+		// records are only handed between the job's own classes, so these are
+		// typed on Object
+		private final Class<? extends InputFormat<Object, Object>> inputFormatClass;
+		private final Class<? extends OutputFormat<Object, Object>> outputFormatClass;
+		private final Class<? extends Mapper<Object, Object, Object, Object>> mapperClass;
+		private final Class<? extends Reducer<Object, Object, Object, Object>> reducerClass;
+		private final Class<? extends Reducer<Object, Object, Object, Object>> combinerClass;
+		private final Class<? extends Partitioner<Object, Object>> partitionerClass;
+		private final Class<Object> keyClass;
+		private final Class<Object> valueClass;
+		private final List<SortedRun>[] runs;
+		private final AtomicLong inMemory = new AtomicLong();
+		private File spillDir;
+
+		LocalRun(Job job) throws Exception {
+			this.job = job;
+			this.conf = job.getConfiguration();
+			this.jobId = JOB_IDS.incrementAndGet();
+			this.nReduces = job.getNumReduceTasks();
+			this.inputFormatClass = (Class<? extends InputFormat<Object, Object>>) job.getInputFormatClass();
+			this.outputFormatClass = (Class<? extends OutputFormat<Object, Object>>) job.getOutputFormatClass();
+			this.mapperClass = (Class<? extends Mapper<Object, Object, Object, Object>>) job.getMapperClass();
+			this.reducerClass = (Class<? extends Reducer<Object, Object, Object, Object>>) job.getReducerClass();
+			this.partitionerClass = (Class<? extends Partitioner<Object, Object>>) job.getPartitionerClass();
+			this.keyClass = (Class<Object>) job.getMapOutputKeyClass();
+			this.valueClass = (Class<Object>) job.getMapOutputValueClass();
+
+			// combining with the identity gives the same records back
+			final Class<? extends Reducer<Object, Object, Object, Object>> combiner = (Class<? extends Reducer<Object, Object, Object, Object>>) job
+					.getCombinerClass();
+			if (combiner == null || combiner.equals(IdentityReducer.class) || combiner.equals(Reducer.class))
+				this.combinerClass = null;
+			else
+				this.combinerClass = combiner;
+
+			this.runs = (List<SortedRun>[]) new List<?>[nReduces];
+			for (int i = 0; i < nReduces; i++)
+				runs[i] = Collections.synchronizedList(new ArrayList<SortedRun>());
+		}
+
+		// cleanupJob rather than commitJob, which older hadoop doesn't have
+		@SuppressWarnings("deprecation")
+		Job execute(ExecutorService service) throws Exception {
+			final OutputFormat<?, ?> output = ReflectionUtils.newInstance(outputFormatClass, conf);
+			output.checkOutputSpecs(job);
+			final OutputCommitter jobCommitter = output.getOutputCommitter(new TaskAttemptContext(conf,
+					new TaskAttemptID(JOB_TRACKER, jobId, true, 0, 0)));
+			jobCommitter.setupJob(job);
+
+			final InputFormat<?, ?> input = ReflectionUtils.newInstance(inputFormatClass, conf);
+			final List<InputSplit> splits = input.getSplits(job);
+			if (nReduces > 0) {
+				spillDir = File.createTempFile("stage-" + jobId + "-", ".spill");
+				spillDir.delete();
+				spillDir.mkdirs();
+			}
+
+			final Counters counters = new Counters();
+			final List<Callable<Counters>> maps = new ArrayList<Callable<Counters>>();
+			for (int i = 0; i < splits.size(); i++)
+				maps.add(new MapTask(i, splits.get(i)));
+			collect(service.invokeAll(maps), counters);
+
+			final List<Callable<Counters>> reduces = new ArrayList<Callable<Counters>>();
+			for (int i = 0; i < nReduces; i++)
+				reduces.add(new ReduceTask(i));
+			collect(service.invokeAll(reduces), counters);
+
+			jobCommitter.cleanupJob(job);
+			return new CompletedJob(conf, counters);
+		}
+
+		void release() {
+			for (final List<SortedRun> partitionRuns : runs) {
+				synchronized (partitionRuns) {
+					for (final SortedRun run : partitionRuns)
+						run.release();
+					partitionRuns.clear();
+				}
+			}
+			if (spillDir != null) {
+				final File[] left = spillDir.listFiles();
+				if (left != null)
+					for (final File f : left)
+						f.delete();
+				spillDir.delete();
+			}
+		}
+
+		private JobConf taskConf(TaskAttemptID id) {
+			final JobConf taskConf = new JobConf(conf);
+			taskConf.set("mapred.task.id", id.toString());
+			taskConf.setBoolean("mapred.task.is.map", id.isMap());
+			taskConf.setInt("mapred.task.partition", id.getTaskID().getId());
+			return taskConf;
+		}
+
+		/**
+		 * Sort a partition buffer and run the combiner over it
+		 */
+		private RecordBuffer sortAndCombine(RecordBuffer buffer, JobConf taskConf, TaskAttemptID id,
+				LocalReporter reporter) throws IOException, InterruptedException
+		{
+			final RawComparator<Object> comparator = taskConf.getOutputKeyComparator();
+			buffer.sort(comparator);
+			if (combinerClass == null)
+				return buffer;
+
+			final RecordBuffer combined = new RecordBuffer();
+			final Reducer<Object, Object, Object, Object> combiner = ReflectionUtils.newInstance(combinerClass, taskConf);
+			final Reducer<Object, Object, Object, Object>.Context context = combiner.new Context(taskConf, id, buffer.iterator(),
+					reporter.getCounter(COUNTER_GROUP, "COMBINE_INPUT_GROUPS"),
+					reporter.getCounter(COUNTER_GROUP, "COMBINE_INPUT_RECORDS"),
+					new BufferWriter(taskConf, combined), null, reporter, comparator, keyClass, valueClass);
+			combiner.run(context);
+			return combined;
+		}
+
+		private SortedRun keep(RecordBuffer sorted, boolean spill) throws IOException {
+			if (!spill) {
+				final long bytes = sorted.bytes();
+				if (inMemory.addAndGet(bytes) <= memoryBytes)
+					return new MemoryRun(sorted, inMemory);
+				inMemory.addAndGet(-bytes);
+			}
+			final File file = File.createTempFile("run", ".bin", spillDir);
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),
+					1 << 16));
+			try {
+				sorted.writeTo(out);
+			} finally {
+				out.close();
+			}
+			return new FileRun(file, sorted.size());
+		}
+
+		private class MapTask implements Callable<Counters> {
+			private final int index;
+			private final InputSplit split;
+
+			MapTask(int index, InputSplit split) {
+				this.index = index;
+				this.split = split;
+			}
+
+			@Override
+			public Counters call() throws Exception {
+				final TaskAttemptID id = new TaskAttemptID(JOB_TRACKER, jobId, true, index, 0);
+				final JobConf taskConf = taskConf(id);
+				final TaskAttemptContext context = new TaskAttemptContext(taskConf, id);
+				final LocalReporter reporter = new LocalReporter();
+
+				final InputFormat<Object, Object> input = ReflectionUtils.newInstance(inputFormatClass, taskConf);
+				final RecordReader<Object, Object> reader = input.createRecordReader(split, context);
+				reader.initialize(split, context);
+
+				final OutputFormat<Object, Object> output = ReflectionUtils.newInstance(outputFormatClass, taskConf);
+				final OutputCommitter committer = output.getOutputCommitter(context);
+				final RecordWriter<Object, Object> writer;
+				if (nReduces == 0) {
+					committer.setupTask(context);
+					writer = output.getRecordWriter(context);
+				}
+				else {
+					writer = new Collector(taskConf, id, reporter);
+				}
+
+				final Mapper<Object, Object, Object, Object> mapper = ReflectionUtils.newInstance(mapperClass, taskConf);
+				final Mapper<Object, Object, Object, Object>.Context mapContext = mapper.new Context(taskConf, id, reader, writer, committer, reporter,
+						split);
+				try {
+					mapper.run(mapContext);
+				} finally {
+					reader.close();
+				}
+				writer.close(context);
+				if (nReduces == 0 && committer.needsTaskCommit(context))
+					committer.commitTask(context);
+				return reporter.counters;
+			}
+		}
+
+		/**
+		 * Partitions and buffers the output of a map task
+		 */
+		private class Collector extends RecordWriter<Object, Object> {
+			private final JobConf taskConf;
+			private final TaskAttemptID id;
+			private final LocalReporter reporter;
+			private final Partitioner<Object, Object> partitioner;
+			private final Serializer<Object> keySerializer;
+			private final Serializer<Object> valueSerializer;
+			private final DataOutputBuffer record = new DataOutputBuffer();
+			private final RecordBuffer[] buffers = new RecordBuffer[nReduces];
+			private long buffered = 0;
+
+			Collector(JobConf taskConf, TaskAttemptID id, LocalReporter reporter) throws IOException {
+				this.taskConf = taskConf;
+				this.id = id;
+				this.reporter = reporter;
+				this.partitioner = ReflectionUtils.newInstance(partitionerClass, taskConf);
+				final SerializationFactory factory = new SerializationFactory(taskConf);
+				this.keySerializer = factory.getSerializer(keyClass);
+				this.valueSerializer = factory.getSerializer(valueClass);
+				keySerializer.open(record);
+				valueSerializer.open(record);
+				for (int i = 0; i < nReduces; i++)
+					buffers[i] = new RecordBuffer();
+			}
+
+			@Override
+			public void write(Object key, Object value) throws IOException, InterruptedException {
+				record.reset();
+				keySerializer.serialize(key);
+				final int keyLength = record.getLength();
+				valueSerializer.serialize(value);
+				final int partition = partitioner.getPartition(key, value, nReduces);
+				buffers[partition].add(record.getData(), keyLength, record.getLength() - keyLength);
+				buffered += record.getLength() + RecordBuffer.META_BYTES;
+				if (buffered >= spillBytes)
+					flush(true);
+			}
+
+			private void flush(boolean spill) throws IOException, InterruptedException {
+				for (int i = 0; i < nReduces; i++) {
+					if (buffers[i].size() == 0)
+						continue;
+					runs[i].add(keep(sortAndCombine(buffers[i], taskConf, id, reporter), spill));
+					buffers[i] = new RecordBuffer();
+				}
+				buffered = 0;
+			}
+
+			@Override
+			public void close(TaskAttemptContext context) throws IOException, InterruptedException {
+				flush(false);
+				keySerializer.close();
+				valueSerializer.close();
+			}
+		}
+
+		private class ReduceTask implements Callable<Counters> {
+			private final int partition;
+
+			ReduceTask(int partition) {
+				this.partition = partition;
+			}
+
+			@Override
+			public Counters call() throws Exception {
+				final TaskAttemptID id = new TaskAttemptID(JOB_TRACKER, jobId, false, partition, 0);
+				final JobConf taskConf = taskConf(id);
+				final TaskAttemptContext context = new TaskAttemptContext(taskConf, id);
+				final LocalReporter reporter = new LocalReporter();
+
+				final OutputFormat<Object, Object> output = ReflectionUtils.newInstance(outputFormatClass, taskConf);
+				final OutputCommitter committer = output.getOutputCommitter(context);
+				committer.setupTask(context);
+				final RecordWriter<Object, Object> writer = output.getRecordWriter(context);
+
+				final List<SortedRun> partitionRuns = runs[partition];
+				final List<RawKeyValueIterator> iterators = new ArrayList<RawKeyValueIterator>();
+				synchronized (partitionRuns) {
+					for (final SortedRun run : partitionRuns)
+						iterators.add(run.open());
+				}
+				final RawKeyValueIterator input = new MergingIterator(iterators, taskConf.getOutputKeyComparator());
+
+				final Reducer<Object, Object, Object, Object> reducer = ReflectionUtils.newInstance(reducerClass, taskConf);
+				final Reducer<Object, Object, Object, Object>.Context reduceContext = reducer.new Context(taskConf, id, input,
+						reporter.getCounter(COUNTER_GROUP, "REDUCE_INPUT_GROUPS"),
+						reporter.getCounter(COUNTER_GROUP, "REDUCE_INPUT_RECORDS"),
+						writer, committer, reporter, taskConf.getOutputValueGroupingComparator(), keyClass, valueClass);
+				try {
+					reducer.run(reduceContext);
+				} finally {
+					input.close();
+					synchronized (partitionRuns) {
+						for (final SortedRun run : partitionRuns)
+							run.release();
+						partitionRuns.clear();
+					}
+				}
+				writer.close(context);
+				if (committer.needsTaskCommit(context))
+					committer.commitTask(context);
+				return reporter.counters;
+			}
+		}
+
+		/**
+		 * Serialises the output of a combiner into a {@link RecordBuffer}
+		 */
+		private class BufferWriter extends RecordWriter<Object, Object> {
+			private final RecordBuffer buffer;
+			private final Serializer<Object> keySerializer;
+			private final Serializer<Object> valueSerializer;
+			private final DataOutputBuffer record = new DataOutputBuffer();
+
+			BufferWriter(Configuration taskConf, RecordBuffer buffer) throws IOException {
+				this.buffer = buffer;
+				final SerializationFactory factory = new SerializationFactory(taskConf);
+				this.keySerializer = factory.getSerializer(keyClass);
+				this.valueSerializer = factory.getSerializer(valueClass);
+				keySerializer.open(record);
+				valueSerializer.open(record);
+			}
+
+			@Override
+			public void write(Object key, Object value) throws IOException {
+				record.reset();
+				keySerializer.serialize(key);
+				final int keyLength = record.getLength();
+				valueSerializer.serialize(value);
+				buffer.add(record.getData(), keyLength, record.getLength() - keyLength);
+			}
+
+			@Override
+			public void close(TaskAttemptContext context) throws IOException {
+				keySerializer.close();
+				valueSerializer.close();
+			}
+		}
+	}
+
+	private static void collect(List<Future<Counters>> results, Counters counters) throws IOException,
+			InterruptedException
+	{
+		for (final Future<Counters> result : results) {
+			try {
+				counters.incrAllCounters(result.get());
+			} catch (final ExecutionException e) {
+				throw new IOException("A local task failed", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Serialised key value pairs in one contiguous buffer, sortable in place
+	 * by the raw comparator of the job
+	 */
+	static class RecordBuffer {
+		static final int META_BYTES = 12;
+		private final DataOutputBuffer data = new DataOutputBuffer();
+		// key start, key length, value length per record
+		private int[] meta = new int[3 * 64];
+		private int count = 0;
+
+		void add(byte[] bytes, int keyLength, int valueLength) throws IOException {
+			if (3 * count + 3 > meta.length) {
+				final int[] grown = new int[meta.length * 2];
+				System.arraycopy(meta, 0, grown, 0, meta.length);
+				meta = grown;
+			}
+			meta[3 * count] = data.getLength();
+			meta[3 * count + 1] = keyLength;
+			meta[3 * count + 2] = valueLength;
+			data.write(bytes, 0, keyLength + valueLength);
+			count++;
+		}
+
+		int size() {
+			return count;
+		}
+
+		long bytes() {
+			return data.getLength() + (long) count * META_BYTES;
+		}
+
+		void sort(final RawComparator<?> comparator) {
+			final byte[] bytes = data.getData();
+			new QuickSort().sort(new IndexedSortable() {
+				@Override
+				public int compare(int i, int j) {
+					return comparator.compare(bytes, meta[3 * i], meta[3 * i + 1], bytes, meta[3 * j], meta[3 * j + 1]);
+				}
+
+				@Override
+				public void swap(int i, int j) {
+					for (int k = 0; k < 3; k++) {
+						final int tmp = meta[3 * i + k];
+						meta[3 * i + k] = meta[3 * j + k];
+						meta[3 * j + k] = tmp;
+					}
+				}
+			}, 0, count);
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+			final byte[] bytes = data.getData();
+			for (int i = 0; i < count; i++) {
+				out.writeInt(meta[3 * i + 1]);
+				out.writeInt(meta[3 * i + 2]);
+				out.write(bytes, meta[3 * i], meta[3 * i + 1] + meta[3 * i + 2]);
+			}
+		}
+
+		RawKeyValueIterator iterator() {
+			return new RawKeyValueIterator() {
+				private final DataInputBuffer key = new DataInputBuffer();
+				private final DataInputBuffer value = new DataInputBuffer();
+				private final Progress progress = new Progress();
+				private int current = -1;
+
+				@Override
+				public boolean next() {
+					if (current + 1 >= count)
+						return false;
+					current++;
+					final byte[] bytes = data.getData();
+					final int start = meta[3 * current];
+					final int keyLength = meta[3 * current + 1];
+					key.reset(bytes, start, keyLength);
+					value.reset(bytes, start + keyLength, meta[3 * current + 2]);
+					return true;
+				}
+
+				@Override
+				public DataInputBuffer getKey() {
+					return key;
+				}
+
+				@Override
+				public DataInputBuffer getValue() {
+					return value;
+				}
+
+				@Override
+				public Progress getProgress() {
+					return progress;
+				}
+
+				@Override
+				public void close() {
+				}
+			};
+		}
+	}
+
+	private static abstract class SortedRun {
+		abstract RawKeyValueIterator open() throws IOException;
+
+		abstract void release();
+	}
+
+	private static class MemoryRun extends SortedRun {
+		private RecordBuffer buffer;
+		private final AtomicLong inMemory;
+
+		MemoryRun(RecordBuffer buffer, AtomicLong inMemory) {
+			this.buffer = buffer;
+			this.inMemory = inMemory;
+		}
+
+		@Override
+		RawKeyValueIterator open() {
+			return buffer.iterator();
+		}
+
+		@Override
+		void release() {
+			if (buffer != null) {
+				inMemory.addAndGet(-buffer.bytes());
+				buffer = null;
+			}
+		}
+	}
+
+	private static class FileRun extends SortedRun {
+		private final File file;
+		private final int count;
+
+		FileRun(File file, int count) {
+			this.file = file;
+			this.count = count;
+		}
+
+		@Override
+		RawKeyValueIterator open() throws IOException {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+			return new RawKeyValueIterator() {
+				private final DataInputBuffer key = new DataInputBuffer();
+				private final DataInputBuffer value = new DataInputBuffer();
+				private final Progress progress = new Progress();
+				private byte[] bytes = new byte[1024];
+				private int read = 0;
+
+				@Override
+				public boolean next() throws IOException {
+					if (read >= count)
+						return false;
+					read++;
+					final int keyLength = in.readInt();
+					final int valueLength = in.readInt();
+					if (bytes.length < keyLength + valueLength)
+						bytes = new byte[Math.max(keyLength + valueLength, bytes.length * 2)];
+					in.readFully(bytes, 0, keyLength + valueLength);
+					key.reset(bytes, 0, keyLength);
+					value.reset(bytes, keyLength, valueLength);
+					return true;
+				}
+
+				@Override
+				public DataInputBuffer getKey() {
+					return key;
+				}
+
+				@Override
+				public DataInputBuffer getValue() {
+					return value;
+				}
+
+				@Override
+				public Progress getProgress() {
+					return progress;
+				}
+
+				@Override
+				public void close() throws IOException {
+					in.close();
+				}
+			};
+		}
+
+		@Override
+		void release() {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Merges sorted runs into one sorted stream. Equal keys come out in the
+	 * order of their runs.
+	 */
+	private static class MergingIterator implements RawKeyValueIterator {
+		private final List<RawKeyValueIterator> all;
+		private final PriorityQueue<Segment> queue;
+		private final Progress progress = new Progress();
+		private Segment current;
+
+		private static class Segment {
+			final RawKeyValueIterator iterator;
+			final int index;
+
+			Segment(RawKeyValueIterator iterator, int index) {
+				this.iterator = iterator;
+				this.index = index;
+			}
+		}
+
+		MergingIterator(List<RawKeyValueIterator> iterators, final RawComparator<?> comparator) throws IOException {
+			this.all = iterators;
+			this.queue = new PriorityQueue<Segment>(Math.max(1, iterators.size()), new Comparator<Segment>() {
+				@Override
+				public int compare(Segment a, Segment b) {
+					try {
+						final DataInputBuffer ka = a.iterator.getKey();
+						final DataInputBuffer kb = b.iterator.getKey();
+						final int diff = comparator.compare(ka.getData(), ka.getPosition(),
+								ka.getLength() - ka.getPosition(), kb.getData(), kb.getPosition(),
+								kb.getLength() - kb.getPosition());
+						if (diff != 0)
+							return diff;
+					} catch (final IOException e) {
+						throw new RuntimeException(e);
+					}
+					return a.index - b.index;
+				}
+			});
+			for (int i = 0; i < iterators.size(); i++) {
+				if (iterators.get(i).next())
+					queue.add(new Segment(iterators.get(i), i));
+			}
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			if (current != null && current.iterator.next())
+				queue.add(current);
+			current = queue.poll();
+			return current != null;
+		}
+
+		@Override
+		public DataInputBuffer getKey() throws IOException {
+			return current.iterator.getKey();
+		}
+
+		@Override
+		public DataInputBuffer getValue() throws IOException {
+			return current.iterator.getValue();
+		}
+
+		@Override
+		public Progress getProgress() {
+			return progress;
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (final RawKeyValueIterator iterator : all)
+				iterator.close();
+		}
+	}
+
+	private static class LocalReporter extends StatusReporter {
+		final Counters counters = new Counters();
+
+		@Override
+		public Counter getCounter(Enum<?> name) {
+			return counters.findCounter(name);
+		}
+
+		@Override
+		public Counter getCounter(String group, String name) {
+			return counters.findCounter(group, name);
+		}
+
+		@Override
+		public void progress() {
+		}
+
+		@Override
+		public void setStatus(String status) {
+		}
+
+		/**
+		 * Required by the reporters of later Hadoop versions
+		 *
+		 * @return the progress, which isn't tracked
+		 */
+		public float getProgress() {
+			return 0;
+		}
+	}
+
+	/**
+	 * A {@link Job} which has already run, holding the counters of the local
+	 * run
+	 */
+	private static class CompletedJob extends Job {
+		private final Counters counters;
+
+		CompletedJob(Configuration conf, Counters counters) throws IOException {
+			super(conf);
+			this.counters = counters;
+		}
+
+		@Override
+		public Counters getCounters() {
+			return counters;
+		}
+
+		@Override
+		public boolean isComplete() {
+			return true;
+		}
+
+		@Override
+		public boolean isSuccessful() {
+			return true;
+		}
+	}
+}
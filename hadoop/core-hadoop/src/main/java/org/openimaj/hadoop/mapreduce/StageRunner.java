@@ -50,7 +50,11 @@ public abstract class StageRunner extends Configured implements Tool{
 		args(args);
 		Stage<?, ?, ?, ?, ?, ?, ?, ?> thestage = stage();
 		Job job = thestage.stage(inputs(), output(),this.getConf());
-		if(shouldWait()){
+		if(LocalStageExecutor.isEnabled(job.getConfiguration())){
+			// run in this JVM, always waits
+			thestage.finished(LocalStageExecutor.fromConfiguration(job.getConfiguration()).run(job));
+		}
+		else if(shouldWait()){
 			job.waitForCompletion(true);
 			thestage.finished(job);
 		}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.sequencefile;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.HashPartitioner;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Output format writing each reducer's (sorted) output as a {@link MapFile}:
+ * a directory holding the {@link MapFile#DATA_FILE_NAME} sequence file and a
+ * sparse {@link MapFile#INDEX_FILE_NAME} of keys to offsets. Values can then
+ * be looked up by key with a {@link MapFile.Reader} without reading the whole
+ * file. {@link org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat}
+ * reads the directories as ordinary sequence files, so later jobs need not
+ * know the output is indexed.
+ * <p>
+ * The first reducer also records the name of the job's {@link Partitioner}
+ * in {@link #PARTITIONER_FILE}, so {@link #getPartitioner(Path, Configuration)}
+ * can tell which reader holds a key.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ * @param <K> Key type of the {@link MapFile}
+ * @param <V> Value type of the {@link MapFile}
+ */
+public class MapFileOutputFormat<K extends WritableComparable<?>, V extends Writable> extends SequenceFileOutputFormat<K, V> {
+	/**
+	 * Name of the file holding the class name of the job's partitioner. The
+	 * leading underscore hides it from input formats.
+	 */
+	public static final String PARTITIONER_FILE = "_partitioner";
+
+	@Override
+	public RecordWriter<K, V> getRecordWriter(TaskAttemptContext context) throws IOException, InterruptedException {
+		Configuration conf = context.getConfiguration();
+
+		CompressionCodec codec = null;
+		CompressionType compressionType = CompressionType.NONE;
+		if (getCompressOutput(context)) {
+			// find the kind of compression to do
+			compressionType = getOutputCompressionType(context);
+
+			// find the right codec
+			Class<?> codecClass = getOutputCompressorClass(context, DefaultCodec.class);
+			codec = (CompressionCodec) ReflectionUtils.newInstance(codecClass, conf);
+		}
+		// get the path of the temporary output directory
+		final Path file = getDefaultWorkFile(context, "");
+		final FileSystem fs = file.getFileSystem(conf);
+		final boolean first = context.getTaskAttemptID().getTaskID().getId() == 0;
+		final Class<?> partitionerClass;
+		try {
+			partitionerClass = context.getPartitionerClass();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+
+		@SuppressWarnings("unchecked")
+		final MapFile.Writer out = new MapFile.Writer(conf, fs, file.toString(),
+				(Class<? extends WritableComparable<?>>) context.getOutputKeyClass(),
+				context.getOutputValueClass(),
+				compressionType,
+				codec,
+				context);
+
+		return new RecordWriter<K, V>() {
+
+			@Override
+			public void write(K key, V value) throws IOException {
+				out.append(key, value);
+			}
+
+			@Override
+			public void close(TaskAttemptContext context) throws IOException {
+				out.close();
+				if (first) {
+					// committed along with the part
+					FSDataOutputStream partitioner = fs.create(new Path(file.getParent(), PARTITIONER_FILE), true);
+					try {
+						partitioner.writeUTF(partitionerClass.getName());
+					} finally {
+						partitioner.close();
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Open a reader for every {@link MapFile} in a job's output directory. The
+	 * readers are ordered by part number, so a key can only be found in the
+	 * reader of its partition, see {@link #getEntry}.
+	 *
+	 * @param dir the output directory
+	 * @param conf
+	 * @return the readers, one per reducer output
+	 * @throws IOException
+	 */
+	public static MapFile.Reader[] getReaders(Path dir, Configuration conf) throws IOException {
+		FileSystem fs = dir.getFileSystem(conf);
+		Path[] names = FileUtil.stat2Paths(fs.globStatus(new Path(dir, "part*")));
+		Arrays.sort(names);
+
+		MapFile.Reader[] readers = new MapFile.Reader[names.length];
+		for (int i = 0; i < names.length; i++) {
+			readers[i] = new MapFile.Reader(fs, names[i].toString(), conf);
+		}
+		return readers;
+	}
+
+	/**
+	 * @param <K> Key type of the {@link MapFile}s
+	 * @param <V> Value type of the {@link MapFile}s
+	 * @param dir a job's output directory
+	 * @param conf
+	 * @return an instance of the partitioner of the job which wrote the
+	 *         directory, or a {@link HashPartitioner} (the default) if none
+	 *         was recorded
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> Partitioner<K, V> getPartitioner(Path dir, Configuration conf) throws IOException {
+		FileSystem fs = dir.getFileSystem(conf);
+		Path file = new Path(dir, PARTITIONER_FILE);
+		if (!fs.exists(file))
+			return new HashPartitioner<K, V>();
+
+		FSDataInputStream in = fs.open(file);
+		try {
+			return (Partitioner<K, V>) ReflectionUtils.newInstance(conf.getClassByName(in.readUTF()), conf);
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Look a key up in the reader of its partition
+	 *
+	 * @param <K> Key type of the {@link MapFile}s
+	 * @param <V> Value type of the {@link MapFile}s
+	 * @param readers the readers of every part, see {@link #getReaders}
+	 * @param partitioner the partitioner of the job, see {@link #getPartitioner}
+	 * @param key
+	 * @param value filled with the value of the key if it is found
+	 * @return the value or null if the key is not found
+	 * @throws IOException
+	 */
+	public static <K extends WritableComparable<?>, V extends Writable> Writable getEntry(MapFile.Reader[] readers,
+			Partitioner<K, V> partitioner, K key, V value) throws IOException
+	{
+		int part = partitioner.getPartition(key, value, readers.length);
+		return readers[part].get(key, value);
+	}
+
+	/**
+	 * @param dir a job's output directory
+	 * @param conf
+	 * @return true if the "part" outputs in the directory are {@link MapFile}s
+	 * @throws IOException
+	 */
+	public static boolean isMapFileOutput(Path dir, Configuration conf) throws IOException {
+		FileSystem fs = dir.getFileSystem(conf);
+		FileStatus[] parts = fs.globStatus(new Path(dir, "part*"));
+		if (parts == null || parts.length == 0)
+			return false;
+		for (FileStatus part : parts) {
+			if (!part.isDir() || !fs.exists(new Path(part.getPath(), MapFile.INDEX_FILE_NAME)))
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,620 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.sequencefile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.Reader;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * A persistent sidecar index over the keys of a {@link SequenceFile} that
+ * allows records to be found without reading the file from the start. The
+ * index is stored next to the sequence file (see {@link #indexPath(Path)}) and
+ * records the length and modification time of the file it was built from, so
+ * a stale index is rebuilt rather than used.
+ * <p>
+ * If the keys of the file are in sorted order (as the output of a reducer
+ * is) the index holds every {@link #DEFAULT_INTERVAL}th key with the offset of
+ * its record; a lookup is a binary search of these samples followed by a
+ * short forward scan. Otherwise the index holds a hash of every key with the
+ * offset of its record, sorted by hash, so a lookup is a binary search
+ * followed by reads of the (usually single) matching record.
+ * <p>
+ * For uncompressed and record compressed files the offsets are the positions
+ * the {@link Reader} seeks to for a record. For block compressed files an
+ * offset leads to the block holding the record: it is the position of the
+ * reader just before it read the block, which lies after the sync marker of
+ * the previous block and no later than the block's own, so
+ * {@link Reader#sync(long)} from the offset lands exactly on the block. (With
+ * lazy decompression the reader never sits on the block start itself, as it
+ * skips the values of a block only when it reads the next one.) Keys are
+ * matched on their serialised form.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class SequenceFileIndex {
+	/**
+	 * The default number of records between sampled keys of a sorted file
+	 */
+	public static final int DEFAULT_INTERVAL = 128;
+
+	private static final int MAGIC = 0x53464958; // "SFIX"
+	private static final int VERSION = 1;
+
+	private long length;
+	private long modificationTime;
+	private boolean sorted;
+
+	// sorted files: sampled keys and the offsets of their records
+	private byte[][] sampleKeys;
+	private long[] sampleOffsets;
+
+	// unsorted files: every key's hash and the offset of its record
+	private int[] hashes;
+	private long[] offsets;
+
+	private SequenceFileIndex() {
+	}
+
+	/**
+	 * @param sequenceFile
+	 * @return the location of the sidecar index of a sequence file. The name
+	 *         starts with a "." so it is ignored as input by map-reduce jobs.
+	 */
+	public static Path indexPath(Path sequenceFile) {
+		return new Path(sequenceFile.getParent(), "." + sequenceFile.getName() + ".idx");
+	}
+
+	/**
+	 * Read the sidecar index of a sequence file or, if there is no index or it
+	 * is stale, build it and try to write it next to the file. Failing to
+	 * write the index (e.g. on a read only file system) is not an error.
+	 * 
+	 * @param fs
+	 * @param sequenceFile
+	 * @param conf
+	 * @return the index
+	 * @throws IOException
+	 */
+	public static SequenceFileIndex load(FileSystem fs, Path sequenceFile, Configuration conf) throws IOException {
+		SequenceFileIndex index = read(fs, sequenceFile);
+		if (index == null) {
+			index = build(fs, sequenceFile, conf, DEFAULT_INTERVAL);
+			try {
+				index.write(fs, sequenceFile);
+			} catch (final IOException e) {
+				// the index is still usable in memory
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Read the sidecar index of a sequence file
+	 * 
+	 * @param fs
+	 * @param sequenceFile
+	 * @return the index or null if there is none or it does not match the
+	 *         current file
+	 * @throws IOException
+	 */
+	public static SequenceFileIndex read(FileSystem fs, Path sequenceFile) throws IOException {
+		final Path indexFile = indexPath(sequenceFile);
+		if (!fs.exists(indexFile))
+			return null;
+
+		final FileStatus status = fs.getFileStatus(sequenceFile);
+		final DataInputStream in = fs.open(indexFile);
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+
+			final SequenceFileIndex index = new SequenceFileIndex();
+			index.length = in.readLong();
+			index.modificationTime = in.readLong();
+			if (index.length != status.getLen() || index.modificationTime != status.getModificationTime())
+				return null;
+
+			index.sorted = in.readBoolean();
+			final int n = in.readInt();
+			if (index.sorted) {
+				index.sampleKeys = new byte[n][];
+				index.sampleOffsets = new long[n];
+				for (int i = 0; i < n; i++) {
+					index.sampleOffsets[i] = in.readLong();
+					index.sampleKeys[i] = new byte[in.readInt()];
+					in.readFully(index.sampleKeys[i]);
+				}
+			} else {
+				index.hashes = new int[n];
+				index.offsets = new long[n];
+				for (int i = 0; i < n; i++) {
+					index.hashes[i] = in.readInt();
+					index.offsets[i] = in.readLong();
+				}
+			}
+			return index;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Write this index next to the sequence file it was built from
+	 * 
+	 * @param fs
+	 * @param sequenceFile
+	 * @throws IOException
+	 */
+	public void write(FileSystem fs, Path sequenceFile) throws IOException {
+		final DataOutputStream out = fs.create(indexPath(sequenceFile), true);
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(length);
+			out.writeLong(modificationTime);
+			out.writeBoolean(sorted);
+			if (sorted) {
+				out.writeInt(sampleKeys.length);
+				for (int i = 0; i < sampleKeys.length; i++) {
+					out.writeLong(sampleOffsets[i]);
+					out.writeInt(sampleKeys[i].length);
+					out.write(sampleKeys[i]);
+				}
+			} else {
+				out.writeInt(hashes.length);
+				for (int i = 0; i < hashes.length; i++) {
+					out.writeInt(hashes[i]);
+					out.writeLong(offsets[i]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Build the index of a sequence file with a single pass over its keys (two
+	 * if the keys turn out not to be sorted).
+	 * 
+	 * @param fs
+	 * @param sequenceFile
+	 * @param conf
+	 * @param interval
+	 *            the number of records between sampled keys if the file is
+	 *            sorted
+	 * @return the index
+	 * @throws IOException
+	 */
+	public static SequenceFileIndex build(FileSystem fs, Path sequenceFile, Configuration conf, int interval)
+			throws IOException
+	{
+		final FileStatus status = fs.getFileStatus(sequenceFile);
+		SequenceFileIndex index = buildSorted(fs, sequenceFile, conf, interval);
+		if (index == null)
+			index = buildHashed(fs, sequenceFile, conf);
+		index.length = status.getLen();
+		index.modificationTime = status.getModificationTime();
+		return index;
+	}
+
+	private static SequenceFileIndex buildSorted(FileSystem fs, Path sequenceFile, Configuration conf, int interval)
+			throws IOException
+	{
+		final Reader reader = new Reader(fs, sequenceFile, conf);
+		try {
+			final RawComparator<?> comparator = comparator(reader.getKeyClass());
+			if (comparator == null)
+				return null;
+
+			final Writable key = (Writable) ReflectionUtils.newInstance(reader.getKeyClass(), conf);
+			DataOutputBuffer previous = new DataOutputBuffer();
+			DataOutputBuffer current = new DataOutputBuffer();
+			final List<byte[]> keys = new ArrayList<byte[]>();
+			final List<Long> keyOffsets = new ArrayList<Long>();
+
+			final RecordStart start = new RecordStart(reader);
+			long count = 0;
+			while (start.next(key)) {
+				current.reset();
+				key.write(current);
+				if (count > 0 && compareKeys(comparator, previous, current) > 0)
+					return null;
+
+				if (count % interval == 0) {
+					keys.add(Arrays.copyOf(current.getData(), current.getLength()));
+					keyOffsets.add(start.offset);
+				}
+				count++;
+
+				final DataOutputBuffer tmp = previous;
+				previous = current;
+				current = tmp;
+			}
+
+			final SequenceFileIndex index = new SequenceFileIndex();
+			index.sorted = true;
+			index.sampleKeys = keys.toArray(new byte[keys.size()][]);
+			index.sampleOffsets = new long[keyOffsets.size()];
+			for (int i = 0; i < index.sampleOffsets.length; i++)
+				index.sampleOffsets[i] = keyOffsets.get(i);
+			return index;
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static SequenceFileIndex buildHashed(FileSystem fs, Path sequenceFile, Configuration conf)
+			throws IOException
+	{
+		final Reader reader = new Reader(fs, sequenceFile, conf);
+		try {
+			final Writable key = (Writable) ReflectionUtils.newInstance(reader.getKeyClass(), conf);
+			final DataOutputBuffer buffer = new DataOutputBuffer();
+
+			// (hash, record number) packed so a plain sort orders by hash
+			long[] packed = new long[1024];
+			long[] recordOffsets = new long[1024];
+			int count = 0;
+
+			final RecordStart start = new RecordStart(reader);
+			while (start.next(key)) {
+				buffer.reset();
+				key.write(buffer);
+				if (count == packed.length) {
+					packed = Arrays.copyOf(packed, count * 2);
+					recordOffsets = Arrays.copyOf(recordOffsets, count * 2);
+				}
+				final int hash = WritableComparator.hashBytes(buffer.getData(), buffer.getLength());
+				packed[count] = ((long) hash << 32) | count;
+				recordOffsets[count] = start.offset;
+				count++;
+			}
+			Arrays.sort(packed, 0, count);
+
+			final SequenceFileIndex index = new SequenceFileIndex();
+			index.sorted = false;
+			index.hashes = new int[count];
+			index.offsets = new long[count];
+			for (int i = 0; i < count; i++) {
+				index.hashes[i] = (int) (packed[i] >> 32);
+				index.offsets[i] = recordOffsets[(int) packed[i]];
+			}
+			return index;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * @return true if the indexed file was sorted by key, in which case the
+	 *         index holds sampled keys; otherwise it holds key hashes
+	 */
+	public boolean isSorted() {
+		return sorted;
+	}
+
+	/**
+	 * @return the number of entries in the index
+	 */
+	public int size() {
+		return sorted ? sampleKeys.length : hashes.length;
+	}
+
+	/**
+	 * Find the value of the first record with the given key
+	 * 
+	 * @param reader
+	 *            a reader over the indexed file
+	 * @param queryKey
+	 * @param conf
+	 * @return the value or null if there is no such record
+	 * @throws IOException
+	 */
+	public <K extends Writable, V extends Writable> V find(Reader reader, K queryKey, Configuration conf)
+			throws IOException
+	{
+		final List<K> query = new ArrayList<K>(1);
+		query.add(queryKey);
+		return this.<K, V> findAll(reader, query, conf).get(queryKey);
+	}
+
+	/**
+	 * Find the values of many keys with a single forward pass over the file.
+	 * The queries are sorted (by key for a sorted file, by record offset
+	 * otherwise) so the reader only ever seeks forwards.
+	 * 
+	 * @param reader
+	 *            a reader over the indexed file
+	 * @param queryKeys
+	 * @param conf
+	 * @return the value of the first record with each key that was found, in
+	 *         query order
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public <K extends Writable, V extends Writable> Map<K, V> findAll(Reader reader, Collection<K> queryKeys,
+			Configuration conf) throws IOException
+	{
+		final List<K> queries = new ArrayList<K>(queryKeys);
+		final byte[][] queryBytes = new byte[queries.size()][];
+		final DataOutputBuffer buffer = new DataOutputBuffer();
+		for (int i = 0; i < queryBytes.length; i++) {
+			buffer.reset();
+			queries.get(i).write(buffer);
+			queryBytes[i] = Arrays.copyOf(buffer.getData(), buffer.getLength());
+		}
+
+		final Object[] found = new Object[queries.size()];
+		final Class<V> valueClass = (Class<V>) reader.getValueClass();
+		if (sorted)
+			findSorted(reader, queryBytes, found, valueClass, conf);
+		else
+			findHashed(reader, queryBytes, found, valueClass, conf);
+
+		final Map<K, V> ret = new LinkedHashMap<K, V>();
+		for (int i = 0; i < found.length; i++) {
+			if (found[i] != null && !ret.containsKey(queries.get(i)))
+				ret.put(queries.get(i), (V) found[i]);
+		}
+		return ret;
+	}
+
+	private <V extends Writable> void findSorted(Reader reader, final byte[][] queryBytes, Object[] found,
+			Class<V> valueClass, Configuration conf) throws IOException
+	{
+		if (sampleKeys.length == 0)
+			return;
+
+		final RawComparator<?> comparator = comparator(reader.getKeyClass());
+		final Integer[] order = new Integer[queryBytes.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return compareKeys(comparator, queryBytes[o1], queryBytes[o2]);
+			}
+		});
+
+		final Writable key = (Writable) ReflectionUtils.newInstance(reader.getKeyClass(), conf);
+		final DataOutputBuffer current = new DataOutputBuffer();
+		boolean haveCurrent = false;
+		boolean exhausted = false;
+		int lastFound = -1;
+		for (final int q : order) {
+			final byte[] query = queryBytes[q];
+			if (lastFound >= 0 && compareKeys(comparator, queryBytes[lastFound], query) == 0) {
+				// a repeated query, the value of the current record can't be
+				// read twice
+				found[q] = found[lastFound];
+				continue;
+			}
+
+			// the last sample strictly before the query, so that the scan
+			// finds the first of any duplicate keys
+			int sample = lowerBound(comparator, query) - 1;
+			if (sample < 0)
+				sample = 0;
+			if (sampleOffsets[sample] > reader.getPosition() || (!haveCurrent && !exhausted)) {
+				seek(reader, sampleOffsets[sample]);
+				haveCurrent = false;
+				exhausted = false;
+			}
+
+			int cmp = -1;
+			while (!exhausted) {
+				if (!haveCurrent) {
+					if (!reader.next(key)) {
+						exhausted = true;
+						break;
+					}
+					current.reset();
+					key.write(current);
+					haveCurrent = true;
+				}
+				cmp = comparator.compare(current.getData(), 0, current.getLength(), query, 0, query.length);
+				if (cmp >= 0)
+					break;
+				haveCurrent = false;
+			}
+			if (!exhausted && cmp == 0) {
+				final V value = ReflectionUtils.newInstance(valueClass, conf);
+				reader.getCurrentValue(value);
+				found[q] = value;
+				lastFound = q;
+			}
+		}
+	}
+
+	private <V extends Writable> void findHashed(Reader reader, byte[][] queryBytes, Object[] found,
+			Class<V> valueClass, Configuration conf) throws IOException
+	{
+		// gather the candidate record offsets of every query
+		final TreeMap<Long, List<Integer>> candidates = new TreeMap<Long, List<Integer>>();
+		for (int q = 0; q < queryBytes.length; q++) {
+			final int hash = WritableComparator.hashBytes(queryBytes[q], queryBytes[q].length);
+			for (int i = lowerBound(hash); i < hashes.length && hashes[i] == hash; i++) {
+				List<Integer> atOffset = candidates.get(offsets[i]);
+				if (atOffset == null)
+					candidates.put(offsets[i], atOffset = new ArrayList<Integer>());
+				if (!atOffset.contains(q))
+					atOffset.add(q);
+			}
+		}
+
+		final Writable key = (Writable) ReflectionUtils.newInstance(reader.getKeyClass(), conf);
+		final DataOutputBuffer current = new DataOutputBuffer();
+		for (final Map.Entry<Long, List<Integer>> candidate : candidates.entrySet()) {
+			final long offset = candidate.getKey();
+			final List<Integer> pending = new ArrayList<Integer>();
+			for (final int q : candidate.getValue()) {
+				if (found[q] == null)
+					pending.add(q);
+			}
+			if (pending.isEmpty())
+				continue;
+
+			// read only the records found from this offset, i.e. one record
+			// or the records of one compressed block
+			seek(reader, offset);
+			final RecordStart start = new RecordStart(reader);
+			boolean first = true;
+			while (!pending.isEmpty() && start.next(key)) {
+				if (start.started && !first)
+					break;
+				first = false;
+
+				current.reset();
+				key.write(current);
+				V value = null;
+				for (int i = 0; i < pending.size(); i++) {
+					final byte[] query = queryBytes[pending.get(i)];
+					if (WritableComparator.compareBytes(current.getData(), 0, current.getLength(), query, 0,
+							query.length) == 0)
+					{
+						if (value == null) {
+							value = ReflectionUtils.newInstance(valueClass, conf);
+							reader.getCurrentValue(value);
+						}
+						found[pending.remove(i--)] = value;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the first sample not less than the key
+	 */
+	private int lowerBound(RawComparator<?> comparator, byte[] key) {
+		int lo = 0;
+		int hi = sampleKeys.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (compareKeys(comparator, sampleKeys[mid], key) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * @return the first hash entry not less than the hash
+	 */
+	private int lowerBound(int hash) {
+		int lo = 0;
+		int hi = hashes.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (hashes[mid] < hash)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	private static RawComparator<?> comparator(Class<?> keyClass) {
+		if (!WritableComparable.class.isAssignableFrom(keyClass))
+			return null;
+		return WritableComparator.get(keyClass.asSubclass(WritableComparable.class));
+	}
+
+	private static int compareKeys(RawComparator<?> comparator, DataOutputBuffer a, DataOutputBuffer b) {
+		return comparator.compare(a.getData(), 0, a.getLength(), b.getData(), 0, b.getLength());
+	}
+
+	private static int compareKeys(RawComparator<?> comparator, byte[] a, byte[] b) {
+		return comparator.compare(a, 0, a.length, b, 0, b.length);
+	}
+
+	/**
+	 * Move the reader to an offset of the index
+	 */
+	private static void seek(Reader reader, long offset) throws IOException {
+		if (reader.isBlockCompressed())
+			reader.sync(offset);
+		else
+			reader.seek(offset);
+	}
+
+	/**
+	 * Reads records and tracks the offset of the record just read. An
+	 * uncompressed or record compressed file starts a new offset with every
+	 * record; a block compressed file starts one with every block, which the
+	 * reader signals by reading the sync marker at the start of the block.
+	 * The position of the reader is taken before each record, as reading a
+	 * value moves it too.
+	 */
+	private static class RecordStart {
+		private final Reader reader;
+		long offset;
+		boolean started;
+
+		RecordStart(Reader reader) throws IOException {
+			this.reader = reader;
+			this.offset = reader.getPosition();
+		}
+
+		boolean next(Writable key) throws IOException {
+			final long position = reader.getPosition();
+			if (!reader.next(key))
+				return false;
+			started = !reader.isBlockCompressed() || reader.syncSeen();
+			if (started)
+				offset = position;
+			return true;
+		}
+	}
+}
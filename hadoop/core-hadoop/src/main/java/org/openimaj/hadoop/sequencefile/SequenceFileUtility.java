@@ -40,6 +40,8 @@ import java.net.URI;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -94,6 +96,8 @@ public abstract class SequenceFileUtility<K extends Writable, V extends Writable
 
 	protected String uuid;
 
+	protected SequenceFileIndex index;
+
 	public SequenceFileUtility(String uriOrPath, boolean read) throws IOException {
 		setup(convertToURI(uriOrPath), read);
 	}
@@ -1212,7 +1216,31 @@ public abstract class SequenceFileUtility<K extends Writable, V extends Writable
 	}
 
 	/**
-	 * Search for the record identified by queryKey.
+	 * Get the key index of this file, reading it from alongside the file or
+	 * building it (and trying to save it) if there is no up to date index.
+	 * Read mode only.
+	 * 
+	 * @return the index
+	 */
+	public SequenceFileIndex getIndex() {
+		if (!isReader) {
+			throw new UnsupportedOperationException("Cannot index in write mode");
+		}
+
+		if (index == null) {
+			try {
+				index = SequenceFileIndex.load(fileSystem, sequenceFilePath, config);
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Search for the record identified by queryKey. If the offset is 0 the
+	 * file's index is used (see {@link #getIndex()}), otherwise the file is
+	 * scanned from the offset.
 	 * 
 	 * @param queryKey
 	 *            the key.
@@ -1225,17 +1253,19 @@ public abstract class SequenceFileUtility<K extends Writable, V extends Writable
 		if (!isReader) {
 			throw new UnsupportedOperationException("Cannot find key in write mode");
 		}
+		if (offset <= 0) {
+			final Map<K, V> found = find(Collections.singletonList(queryKey));
+			return found.get(queryKey);
+		}
 
 		Reader reader = null;
 		try {
 			reader = createReader();
-			if (offset > 0)
-				reader.seek(offset);
+			reader.seek(offset);
 
 			final K key = ReflectionUtils.newInstance((Class<K>) reader.getKeyClass(), config);
 
 			while (reader.next(key)) {
-				System.out.println(key);
 				if (key.equals(queryKey)) {
 					final V val = ReflectionUtils.newInstance((Class<V>) reader.getValueClass(), config);
 
@@ -1257,8 +1287,7 @@ public abstract class SequenceFileUtility<K extends Writable, V extends Writable
 	}
 
 	/**
-	 * Search for the record identified by queryKey. Uses a linear search from
-	 * the beginning of the file.
+	 * Search for the record identified by queryKey using the file's index.
 	 * 
 	 * @param queryKey
 	 * @return the found value, or null.
@@ -1267,6 +1296,33 @@ public abstract class SequenceFileUtility<K extends Writable, V extends Writable
 		return find(queryKey, 0);
 	}
 
+	/**
+	 * Search for the records identified by many keys at once. The keys are
+	 * looked up in the file's index and sorted, so the file is read in a
+	 * single forward pass however many keys there are.
+	 * 
+	 * @param queryKeys
+	 *            the keys
+	 * @return the value of each key that was found, in query order
+	 */
+	public Map<K, V> find(Collection<K> queryKeys) {
+		final SequenceFileIndex idx = getIndex();
+
+		Reader reader = null;
+		try {
+			reader = createReader();
+			return idx.findAll(reader, queryKeys, config);
+		} catch (final Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (reader != null)
+				try {
+					reader.close();
+				} catch (final IOException e1) {
+				}
+		}
+	}
+
 	/**
 	 * Find a record and write the value to a file.
 	 * 
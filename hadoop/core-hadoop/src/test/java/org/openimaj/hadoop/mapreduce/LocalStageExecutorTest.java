@@ -0,0 +1,376 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.mapreduce;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openimaj.hadoop.mapreduce.stage.Stage;
+import org.openimaj.io.FileUtils;
+
+/**
+ * Test the {@link LocalStageExecutor} with a word count and a secondary sort
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class LocalStageExecutorTest {
+	static class Tokenise extends Mapper<LongWritable, Text, Text, LongWritable> {
+		private static final LongWritable ONE = new LongWritable(1);
+		private final Text word = new Text();
+
+		@Override
+		protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+			for (final String token : value.toString().split(" ")) {
+				word.set(token);
+				context.write(word, ONE);
+			}
+		}
+	}
+
+	static class Sum extends Reducer<Text, LongWritable, Text, LongWritable> {
+		@Override
+		protected void reduce(Text key, Iterable<LongWritable> values, Context context) throws IOException,
+				InterruptedException
+		{
+			long total = 0;
+			for (final LongWritable value : values)
+				total += value.get();
+			context.write(key, new LongWritable(total));
+		}
+	}
+
+	static class WordCount extends Stage<
+			TextInputFormat,
+			TextOutputFormat<Text, LongWritable>,
+			LongWritable, Text,
+			Text, LongWritable,
+			Text, LongWritable>
+	{
+		@Override
+		public Class<? extends Mapper<LongWritable, Text, Text, LongWritable>> mapper() {
+			return Tokenise.class;
+		}
+
+		@Override
+		public Class<? extends Reducer<Text, LongWritable, Text, LongWritable>> combiner() {
+			return Sum.class;
+		}
+
+		@Override
+		public Class<? extends Reducer<Text, LongWritable, Text, LongWritable>> reducer() {
+			return Sum.class;
+		}
+
+		@Override
+		public void setup(Job job) {
+			job.setNumReduceTasks(3);
+		}
+	}
+
+	/**
+	 * Emits "word number" keys so the numbers of a word can be sorted
+	 */
+	static class Pairs extends Mapper<LongWritable, Text, Text, LongWritable> {
+		@Override
+		protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+			final String[] parts = value.toString().split(" ");
+			context.write(value, new LongWritable(Long.parseLong(parts[1])));
+		}
+	}
+
+	/**
+	 * Writes the numbers of each word in the order they arrive
+	 */
+	static class Join extends Reducer<Text, LongWritable, Text, Text> {
+		@Override
+		protected void reduce(Text key, Iterable<LongWritable> values, Context context) throws IOException,
+				InterruptedException
+		{
+			final StringBuilder builder = new StringBuilder();
+			for (final LongWritable value : values) {
+				if (builder.length() > 0)
+					builder.append(",");
+				builder.append(value.get());
+			}
+			context.write(new Text(word(key)), new Text(builder.toString()));
+		}
+	}
+
+	static String word(Object key) {
+		final String pair = key.toString();
+		return pair.substring(0, pair.indexOf(' '));
+	}
+
+	static long number(Object key) {
+		final String pair = key.toString();
+		return Long.parseLong(pair.substring(pair.indexOf(' ') + 1));
+	}
+
+	/**
+	 * Sorts by word, then by number descending
+	 */
+	public static class WordThenNumberDescending extends WritableComparator {
+		/**
+		 * Compares {@link Text}
+		 */
+		public WordThenNumberDescending() {
+			super(Text.class, true);
+		}
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public int compare(WritableComparable a, WritableComparable b) {
+			final int cmp = word(a).compareTo(word(b));
+			if (cmp != 0)
+				return cmp;
+			final long na = number(a);
+			final long nb = number(b);
+			return na > nb ? -1 : na < nb ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Groups by word
+	 */
+	public static class WordGrouping extends WritableComparator {
+		/**
+		 * Compares {@link Text}
+		 */
+		public WordGrouping() {
+			super(Text.class, true);
+		}
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public int compare(WritableComparable a, WritableComparable b) {
+			return word(a).compareTo(word(b));
+		}
+	}
+
+	/**
+	 * Partitions by word
+	 */
+	public static class WordPartitioner extends Partitioner<Text, LongWritable> {
+		@Override
+		public int getPartition(Text key, LongWritable value, int numPartitions) {
+			return (word(key).hashCode() & Integer.MAX_VALUE) % numPartitions;
+		}
+	}
+
+	static class SecondarySort extends Stage<
+			TextInputFormat,
+			TextOutputFormat<Text, Text>,
+			LongWritable, Text,
+			Text, LongWritable,
+			Text, Text>
+	{
+		@Override
+		public Class<? extends Mapper<LongWritable, Text, Text, LongWritable>> mapper() {
+			return Pairs.class;
+		}
+
+		@Override
+		public Class<? extends Reducer<Text, LongWritable, Text, Text>> reducer() {
+			return Join.class;
+		}
+
+		@Override
+		public void setup(Job job) {
+			job.setNumReduceTasks(3);
+			job.setPartitionerClass(WordPartitioner.class);
+			job.setSortComparatorClass(WordThenNumberDescending.class);
+			job.setGroupingComparatorClass(WordGrouping.class);
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File input;
+	private Map<String, Long> expected;
+
+	/**
+	 * Write some random words to count
+	 *
+	 * @throws IOException
+	 */
+	@Before
+	public void setup() throws IOException {
+		input = folder.newFile("input");
+		expected = new HashMap<String, Long>();
+		writeWords(input, new Random(1), 2000, expected);
+	}
+
+	private static void writeWords(File file, Random random, int lines, Map<String, Long> counts) throws IOException {
+		final PrintWriter writer = new PrintWriter(file);
+		for (int line = 0; line < lines; line++) {
+			final StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < 10; i++) {
+				final String word = "word" + random.nextInt(300);
+				final Long count = counts.get(word);
+				counts.put(word, count == null ? 1 : count + 1);
+				if (i > 0)
+					builder.append(" ");
+				builder.append(word);
+			}
+			writer.println(builder);
+		}
+		writer.close();
+	}
+
+	/**
+	 * Count with thresholds small enough to force spills to disk
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testWordCount() throws Exception {
+		final File output = new File(folder.getRoot(), "out");
+		final Job job = new WordCount().stage(new Path[] { new Path(input.getAbsolutePath()) },
+				new Path(output.getAbsolutePath()), new Configuration());
+		new LocalStageExecutor(4, 4096, 8192).run(job);
+
+		assertEquals(expected, readCounts(output));
+	}
+
+	/**
+	 * Count the words of several files, each read by its own map tasks
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMultipleFiles() throws Exception {
+		final Map<String, Long> counts = new HashMap<String, Long>();
+		final Path[] inputs = new Path[3];
+		for (int i = 0; i < inputs.length; i++) {
+			final File file = folder.newFile("input" + i);
+			writeWords(file, new Random(10 + i), 500 + 300 * i, counts);
+			inputs[i] = new Path(file.getAbsolutePath());
+		}
+
+		final File output = new File(folder.getRoot(), "out");
+		final Job job = new WordCount().stage(inputs, new Path(output.getAbsolutePath()), new Configuration());
+		new LocalStageExecutor(4, 4096, 8192).run(job);
+
+		assertEquals(counts, readCounts(output));
+	}
+
+	/**
+	 * The job's partitioner, sort comparator and grouping comparator are
+	 * used, so each word reaches one reduce call with its numbers in
+	 * descending order, even when the records are spilled and merged
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSecondarySort() throws Exception {
+		final Random random = new Random(2);
+		final Map<String, List<Long>> numbers = new HashMap<String, List<Long>>();
+		final File pairs = folder.newFile("pairs");
+		final PrintWriter writer = new PrintWriter(pairs);
+		for (int i = 0; i < 5000; i++) {
+			final String word = "word" + random.nextInt(100);
+			final long number = random.nextInt(100000);
+			writer.println(word + " " + number);
+			List<Long> wordNumbers = numbers.get(word);
+			if (wordNumbers == null)
+				numbers.put(word, wordNumbers = new ArrayList<Long>());
+			wordNumbers.add(number);
+		}
+		writer.close();
+		final Map<String, String> expectedNumbers = new HashMap<String, String>();
+		for (final Map.Entry<String, List<Long>> entry : numbers.entrySet()) {
+			final List<Long> sorted = entry.getValue();
+			Collections.sort(sorted, Collections.reverseOrder());
+			final StringBuilder builder = new StringBuilder();
+			for (final Long number : sorted) {
+				if (builder.length() > 0)
+					builder.append(",");
+				builder.append(number);
+			}
+			expectedNumbers.put(entry.getKey(), builder.toString());
+		}
+
+		final File output = new File(folder.getRoot(), "out");
+		final Job job = new SecondarySort().stage(new Path[] { new Path(pairs.getAbsolutePath()) },
+				new Path(output.getAbsolutePath()), new Configuration());
+		new LocalStageExecutor(4, 4096, 8192).run(job);
+
+		final Map<String, String> found = new HashMap<String, String>();
+		for (int i = 0; i < 3; i++) {
+			final File part = new File(output, "part-r-0000" + i);
+			for (final String line : FileUtils.readlines(new FileInputStream(part))) {
+				final String[] parts = line.split("\t");
+				assertEquals(i, (parts[0].hashCode() & Integer.MAX_VALUE) % 3);
+				assertEquals(null, found.put(parts[0], parts[1]));
+			}
+		}
+		assertEquals(expectedNumbers, found);
+	}
+
+	private static Map<String, Long> readCounts(File output) throws IOException {
+		final Map<String, Long> found = new HashMap<String, Long>();
+		for (int i = 0; i < 3; i++) {
+			final File part = new File(output, "part-r-0000" + i);
+			for (final String line : FileUtils.readlines(new FileInputStream(part))) {
+				final String[] parts = line.split("\t");
+				assertEquals(null, found.put(parts[0], Long.parseLong(parts[1])));
+			}
+		}
+		return found;
+	}
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.sequencefile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.HashPartitioner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openimaj.hadoop.mapreduce.LocalStageExecutor;
+import org.openimaj.hadoop.mapreduce.stage.Stage;
+
+/**
+ * Look up keys across the parts written by a {@link MapFileOutputFormat}
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class MapFileOutputFormatTest {
+	static class Tokenise extends Mapper<LongWritable, Text, Text, LongWritable> {
+		private static final LongWritable ONE = new LongWritable(1);
+		private final Text word = new Text();
+
+		@Override
+		protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+			for (final String token : value.toString().split(" ")) {
+				word.set(token);
+				context.write(word, ONE);
+			}
+		}
+	}
+
+	static class Sum extends Reducer<Text, LongWritable, Text, LongWritable> {
+		@Override
+		protected void reduce(Text key, Iterable<LongWritable> values, Context context) throws IOException,
+				InterruptedException
+		{
+			long total = 0;
+			for (final LongWritable value : values)
+				total += value.get();
+			context.write(key, new LongWritable(total));
+		}
+	}
+
+	/**
+	 * Partitions by the last character of a word, which rarely agrees with
+	 * the hash partitioner
+	 */
+	public static class LastCharacterPartitioner extends Partitioner<Text, LongWritable> {
+		@Override
+		public int getPartition(Text key, LongWritable value, int numPartitions) {
+			final String word = key.toString();
+			return word.charAt(word.length() - 1) % numPartitions;
+		}
+	}
+
+	static class WordCount extends Stage<
+			TextInputFormat,
+			MapFileOutputFormat<Text, LongWritable>,
+			LongWritable, Text,
+			Text, LongWritable,
+			Text, LongWritable>
+	{
+		private Class<? extends Partitioner<Text, LongWritable>> partitioner;
+
+		WordCount(Class<? extends Partitioner<Text, LongWritable>> partitioner) {
+			this.partitioner = partitioner;
+		}
+
+		@Override
+		public Class<? extends Mapper<LongWritable, Text, Text, LongWritable>> mapper() {
+			return Tokenise.class;
+		}
+
+		@Override
+		public Class<? extends Reducer<Text, LongWritable, Text, LongWritable>> reducer() {
+			return Sum.class;
+		}
+
+		@Override
+		public void setup(Job job) {
+			job.setNumReduceTasks(4);
+			if (partitioner != null)
+				job.setPartitionerClass(partitioner);
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File input;
+	private Map<String, Long> expected;
+
+	/**
+	 * Write some random words to count
+	 *
+	 * @throws IOException
+	 */
+	@Before
+	public void setup() throws IOException {
+		input = folder.newFile("input");
+		expected = new HashMap<String, Long>();
+		final Random random = new Random(1);
+		final PrintWriter writer = new PrintWriter(input);
+		for (int line = 0; line < 500; line++) {
+			final StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < 10; i++) {
+				final String word = "word" + random.nextInt(300);
+				final Long count = expected.get(word);
+				expected.put(word, count == null ? 1 : count + 1);
+				if (i > 0)
+					builder.append(" ");
+				builder.append(word);
+			}
+			writer.println(builder);
+		}
+		writer.close();
+	}
+
+	/**
+	 * Every word is found in the part chosen by the job's own partitioner
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testPartitionerLookup() throws Exception {
+		final Path output = count(LastCharacterPartitioner.class);
+		final Partitioner<Text, LongWritable> partitioner = MapFileOutputFormat.getPartitioner(output,
+				new Configuration());
+		assertTrue(partitioner instanceof LastCharacterPartitioner);
+		assertLookups(output, partitioner);
+	}
+
+	/**
+	 * Without a partitioner of its own the job used the hash partitioner
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testDefaultLookup() throws Exception {
+		final Path output = count(null);
+		final Partitioner<Text, LongWritable> partitioner = MapFileOutputFormat.getPartitioner(output,
+				new Configuration());
+		assertTrue(partitioner instanceof HashPartitioner);
+		assertLookups(output, partitioner);
+	}
+
+	private Path count(Class<? extends Partitioner<Text, LongWritable>> partitioner) throws Exception {
+		final Path output = new Path(new File(folder.getRoot(), "out").getAbsolutePath());
+		final Job job = new WordCount(partitioner).stage(new Path[] { new Path(input.getAbsolutePath()) }, output,
+				new Configuration());
+		new LocalStageExecutor(2, 4096, 8192).run(job);
+		assertTrue(MapFileOutputFormat.isMapFileOutput(output, new Configuration()));
+		return output;
+	}
+
+	private void assertLookups(Path output, Partitioner<Text, LongWritable> partitioner) throws IOException {
+		final MapFile.Reader[] readers = MapFileOutputFormat.getReaders(output, new Configuration());
+		assertEquals(4, readers.length);
+		try {
+			final int[] perPart = new int[readers.length];
+			final LongWritable value = new LongWritable();
+			for (final Map.Entry<String, Long> entry : expected.entrySet()) {
+				final Text key = new Text(entry.getKey());
+				assertEquals(value, MapFileOutputFormat.getEntry(readers, partitioner, key, value));
+				assertEquals(entry.getValue().longValue(), value.get());
+				perPart[partitioner.getPartition(key, value, readers.length)]++;
+			}
+			for (final int count : perPart)
+				assertTrue(count > 0);
+			assertNull(MapFileOutputFormat.getEntry(readers, partitioner, new Text("word300"), value));
+		} finally {
+			for (final MapFile.Reader reader : readers)
+				reader.close();
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.sequencefile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.Reader;
+import org.apache.hadoop.io.SequenceFile.Writer;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Text;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test lookups through a {@link SequenceFileIndex}
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class SequenceFileIndexTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private List<String> keys(boolean sorted) {
+		final List<String> keys = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++)
+			keys.add(String.format("key%05d", i * 2));
+		if (!sorted)
+			Collections.shuffle(keys, new Random(1));
+		return keys;
+	}
+
+	private TextBytesSequenceFileUtility write(List<String> keys, CompressionType type) throws IOException {
+		final File f = new File(folder.getRoot(), type + "-" + System.nanoTime() + ".seq");
+		final TextBytesSequenceFileUtility writer = new TextBytesSequenceFileUtility(f.getAbsolutePath(), type);
+		for (final String k : keys)
+			writer.appendData(new Text(k), new BytesWritable(("value-" + k).getBytes()));
+		writer.close();
+		return new TextBytesSequenceFileUtility(f.getAbsolutePath(), true);
+	}
+
+	/**
+	 * Write a block compressed file whose blocks hold blockSize bytes of
+	 * uncompressed keys and values
+	 */
+	private TextBytesSequenceFileUtility write(List<String> keys, int blockSize) throws IOException {
+		final File f = new File(folder.getRoot(), "BLOCK-" + blockSize + "-" + System.nanoTime() + ".seq");
+		final Configuration conf = new Configuration();
+		conf.setInt("io.seqfile.compress.blocksize", blockSize);
+		final FileSystem fs = FileSystem.getLocal(conf);
+		final Writer writer = SequenceFile.createWriter(fs, conf, new Path(f.getAbsolutePath()), Text.class,
+				BytesWritable.class, CompressionType.BLOCK);
+		for (final String k : keys)
+			writer.append(new Text(k), new BytesWritable(("value-" + k).getBytes()));
+		writer.close();
+		return new TextBytesSequenceFileUtility(f.getAbsolutePath(), true);
+	}
+
+	private void check(boolean sorted, CompressionType type) throws IOException {
+		final List<String> keys = keys(sorted);
+		check(sorted, keys, write(keys, type));
+	}
+
+	private void check(boolean sorted, List<String> keys, TextBytesSequenceFileUtility util) throws IOException {
+		assertEquals(sorted, util.getIndex().isSorted());
+
+		for (final String k : keys) {
+			final BytesWritable v = util.find(new Text(k));
+			assertEquals("value-" + k, new String(v.getBytes(), 0, v.getLength()));
+		}
+		assertNull(util.find(new Text("key00001")));
+		assertNull(util.find(new Text("a")));
+		assertNull(util.find(new Text("z")));
+
+		final List<Text> query = new ArrayList<Text>();
+		for (int i = 0; i < 100; i++)
+			query.add(new Text(String.format("key%05d", i * 37)));
+		final Map<Text, BytesWritable> found = util.find(query);
+		for (final Text q : query) {
+			final boolean present = keys.contains(q.toString());
+			assertEquals(present, found.containsKey(q));
+			if (present) {
+				final BytesWritable v = found.get(q);
+				assertEquals("value-" + q, new String(v.getBytes(), 0, v.getLength()));
+			}
+		}
+	}
+
+	/**
+	 * Sorted keys use a sampled index
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testSorted() throws IOException {
+		check(true, CompressionType.NONE);
+		check(true, CompressionType.RECORD);
+		check(true, CompressionType.BLOCK);
+	}
+
+	/**
+	 * Unsorted keys use a hashed index
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testUnsorted() throws IOException {
+		check(false, CompressionType.NONE);
+		check(false, CompressionType.RECORD);
+		check(false, CompressionType.BLOCK);
+	}
+
+	/**
+	 * Small compression blocks, so the offsets lead to many blocks and each
+	 * lookup reads the values of only some records of its block
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testMultipleBlocks() throws IOException {
+		for (final boolean sorted : new boolean[] { true, false }) {
+			final List<String> keys = keys(sorted);
+			final TextBytesSequenceFileUtility util = write(keys, 1024);
+			assertTrue(blocks(util) > 10);
+			check(sorted, keys, util);
+		}
+	}
+
+	private int blocks(TextBytesSequenceFileUtility util) throws IOException {
+		final Reader reader = new Reader(util.fileSystem, util.getSequenceFilePath(), util.config);
+		try {
+			final Text key = new Text();
+			int blocks = 0;
+			while (reader.next(key)) {
+				if (reader.syncSeen())
+					blocks++;
+			}
+			return blocks;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * The index is written next to the file and reused
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testPersisted() throws IOException {
+		final TextBytesSequenceFileUtility util = write(keys(true), CompressionType.BLOCK);
+		final File indexFile = new File(SequenceFileIndex.indexPath(util.getSequenceFilePath()).toUri().getPath());
+		assertFalse(indexFile.exists());
+		util.getIndex();
+		assertTrue(indexFile.exists());
+
+		final SequenceFileIndex read = SequenceFileIndex.read(util.fileSystem, util.getSequenceFilePath());
+		assertEquals(util.getIndex().size(), read.size());
+	}
+}
@@ -29,72 +29,82 @@
  */
 package org.openimaj.hadoop.tools.twitter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.text.ParseException;
 import java.util.List;
 
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.joda.time.DateTime;
-import org.kohsuke.args4j.CmdLineException;
+import org.openimaj.hadoop.tools.HadoopToolsUtil;
 import org.openimaj.tools.twitter.modes.preprocessing.TwitterPreprocessingMode;
 import org.openimaj.tools.twitter.options.AbstractTwitterPreprocessingToolOptions;
-import org.openimaj.twitter.GeneralJSONTwitter;
 import org.openimaj.twitter.USMFStatus;
 
 /**
  * This mapper loads arguments for the {@link AbstractTwitterPreprocessingToolOptions} from the {@link HadoopTwitterPreprocessingTool#ARGS_KEY}
- * variable (once per in memory mapper) and uses these to preprocess tweets.
+ * variable (once per in memory mapper) and uses these to preprocess tweets. Each processed tweet is keyed by the start of its
+ * {@link TimeBucket} period.
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
 public class DateTwitterPreprocessingMapper extends Mapper<LongWritable, Text, LongWritable, Text> {
-	private static HadoopTwitterPreprocessingToolOptions options = null;
-	private static List<TwitterPreprocessingMode<?>> modes = null;
-
-	protected static synchronized void loadOptions(Mapper<LongWritable, Text, LongWritable, Text>.Context context) throws IOException {
-		if (options == null) {
-			try {
-				options = new HadoopTwitterPreprocessingToolOptions(context.getConfiguration().getStrings(HadoopTwitterPreprocessingTool.ARGS_KEY));
-				options.prepare();
-				modes = options.preprocessingMode();
-			} catch (CmdLineException e) {
-				throw new IOException(e);
-			} catch (Exception e) {
-				throw new IOException(e);
-			}
-		}
-	}
+	private HadoopTwitterPreprocessingToolOptions options = null;
+	private List<TwitterPreprocessingMode<?>> modes = null;
+	private TimeBucket timeBucket;
 
 	@Override
 	protected void setup(Mapper<LongWritable, Text, LongWritable, Text>.Context context)throws IOException, InterruptedException{
-		loadOptions(context);
+		try {
+			final String[] args = HadoopToolsUtil.decodeArgs(context.getConfiguration().getStrings(HadoopTwitterPreprocessingTool.ARGS_KEY));
+			options = new HadoopTwitterPreprocessingToolOptions(args);
+			options.prepare();
+			modes = options.preprocessingMode();
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
+		timeBucket = TimeBucket.fromConfiguration(context.getConfiguration());
 	}
 
 	@Override
 	protected void map(LongWritable key, Text value, Mapper<LongWritable, Text, LongWritable, Text>.Context context) throws java.io.IOException, InterruptedException
 	{
-		USMFStatus status = new USMFStatus(GeneralJSONTwitter.class);
+		USMFStatus status = new USMFStatus(options.statusType.type());
 		status.fillFromString(value.toString());
 		if(status.isInvalid()) return;
+		DateTime date;
+		try {
+			date = status.createdAt();
+		} catch (ParseException e) {
+			return;
+		}
+		if(date == null) return;
+
+		if (options.preProcessesSkip(status))
+			return;
 		for (TwitterPreprocessingMode<?> mode : modes) {
-			mode.process(status);
+			try {
+				TwitterPreprocessingMode.results(status, mode);
+			} catch (Exception e) {
+				System.err.println("Failed mode: " + mode);
+			}
 		}
-		StringWriter outTweetString = new StringWriter();
-		PrintWriter outTweetWriter = new PrintWriter(outTweetString);
+		if (options.postProcessesSkip(status))
+			return;
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		PrintWriter outTweetWriter = new PrintWriter(new OutputStreamWriter(baos, "UTF-8"));
 		try {
 			options.ouputMode().output(options.convertToOutputFormat(status), outTweetWriter );
-			DateTime date = status.createdAt();
-			if(date == null) return;
-			DateTime dayDate = new DateTime(date.getYear(), date.getMonthOfYear(), date.getDayOfMonth(),0,0);
-
-			context.write(new LongWritable(dayDate.getMillis()), new Text(outTweetString.getBuffer().toString()));
+			outTweetWriter.flush();
+			context.write(new LongWritable(timeBucket.bucket(date)), new Text(baos.toByteArray()));
 		} catch (Exception e) {
 			System.err.println("Failed to write tweet: " + status.text);
 			System.err.println("With error: ");
 			e.printStackTrace();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -29,20 +29,40 @@
  */
 package org.openimaj.hadoop.tools.twitter;
 
+import java.io.IOException;
+
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.openimaj.hadoop.mapreduce.stage.helper.MultipleOutputReducer;
 
 /**
+ * Writes the tweets of each {@link TimeBucket} period to its own directory,
+ * e.g. output/2012/06/21/part-r-00000
+ *
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class DaySplitReducer extends Reducer<LongWritable, Text, NullWritable, Text> {
-//	protected void reduce(LongWritable key, Iterable<Text> tweets, Reducer<NullWritable,Text,NullWritable,Text>.Context context) throws IOException ,InterruptedException {
-//		for (Text text : tweets) {
-//			MultipleOutputFormat<K, V>
-//			context.write(NullWritable.get(), text);
-//		}
-//	};
+public class DaySplitReducer extends MultipleOutputReducer<LongWritable, Text, NullWritable, Text> {
+	private TimeBucket timeBucket;
+
+	@Override
+	protected void setup(Reducer<LongWritable, Text, NullWritable, Text>.Context context) throws IOException, InterruptedException {
+		super.setup(context);
+		this.timeBucket = TimeBucket.fromConfiguration(context.getConfiguration());
+	}
+
+	@Override
+	protected void reduce(LongWritable bucket, Iterable<Text> tweets, Reducer<LongWritable, Text, NullWritable, Text>.Context context) throws IOException, InterruptedException {
+		final String path = timeBucket.directory(bucket.get()) + "/part";
+		for (final Text tweet : tweets) {
+			this.multiOut.write(NullWritable.get(), tweet, path);
+		}
+	}
+
+	@Override
+	protected void cleanup(Reducer<LongWritable, Text, NullWritable, Text>.Context context) throws IOException, InterruptedException {
+		this.multiOut.close();
+	}
 }
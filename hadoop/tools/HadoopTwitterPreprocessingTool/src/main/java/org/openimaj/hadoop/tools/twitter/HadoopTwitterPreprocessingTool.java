@@ -62,6 +62,10 @@ public class HadoopTwitterPreprocessingTool extends StageRunner {
 
 	@Override
 	public Stage<?, ?, ?, ?, ?, ?, ?, ?> stage() {
+		final TimeBucket timeBucket = options.reducerMode.timeBucket();
+		if (timeBucket != null) {
+			return new TextDaySplitStage(options, args, timeBucket);
+		}
 
 		return new TextStage(){
 			@Override
@@ -69,6 +73,11 @@ public class HadoopTwitterPreprocessingTool extends StageRunner {
 				return SimpleTwitterPreprocessingMapper.class;
 			}
 
+			@Override
+			public void setMapperClass(Job job, Class<? extends Mapper<LongWritable, Text, NullWritable, Text>> mapper) {
+				options.mapperMode().prepareJobMapper(job, mapper);
+			}
+
 			@Override
 			public void setup(Job job) {
 				if(options.reducerMode == ReducerModeOption.NULL){
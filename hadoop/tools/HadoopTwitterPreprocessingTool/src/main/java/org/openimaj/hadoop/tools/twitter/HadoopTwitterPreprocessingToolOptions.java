@@ -89,6 +89,13 @@ public class HadoopTwitterPreprocessingToolOptions extends AbstractTwitterPrepro
 	@Option(name = "--reudcer-mode", aliases = "-redm", required = false, usage = "Choose a reducer mode mode.")
 	ReducerModeOption reducerMode = ReducerModeOption.NULL;
 
+	@Option(
+			name = "--split-reducers",
+			aliases = "-sred",
+			required = false,
+			usage = "The number of reducers writing the periods when the reducer mode splits by time. Each period is written by one reducer.")
+	int splitReducers = 10;
+
 	@Option(
 			name = "--return-immediately",
 			aliases = "-ri",
@@ -109,6 +116,9 @@ public class HadoopTwitterPreprocessingToolOptions extends AbstractTwitterPrepro
 			HadoopToolsUtil.validateInput(this);
 			HadoopToolsUtil.validateOutput(this);
 		}
+		if (this.reducerMode.timeBucket() != null && this.splitReducers <= 0) {
+			throw new CmdLineException(null, "The number of split reducers must be positive");
+		}
 		return true;
 	}
 
@@ -128,4 +138,14 @@ public class HadoopTwitterPreprocessingToolOptions extends AbstractTwitterPrepro
 		return new Path(this.getOutput());
 	}
 
+	/**
+	 * @return the options of the mapper mode, which set how a job runs its
+	 *         mapper
+	 */
+	public MapperMode.Mode mapperMode() {
+		if (this.mapperModeOp == null)
+			this.mapperModeOp = this.mapperMode.getOptions();
+		return this.mapperModeOp;
+	}
+
 }
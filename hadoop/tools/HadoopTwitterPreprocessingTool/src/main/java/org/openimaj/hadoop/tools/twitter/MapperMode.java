@@ -30,6 +30,7 @@
 package org.openimaj.hadoop.tools.twitter;
 
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.lib.map.MultithreadedMapper;
 import org.kohsuke.args4j.CmdLineOptionsProvider;
 import org.kohsuke.args4j.Option;
@@ -48,8 +49,11 @@ enum MapperMode implements CmdLineOptionsProvider {
 		}
 	};
 
+	@Override
+	public abstract Mode getOptions();
+
 	public static class Mode {
-		public void prepareJobMapper(Job job, Class<SimpleTwitterPreprocessingMapper> mapperClass) {
+		public <K1, V1, K2, V2> void prepareJobMapper(Job job, Class<? extends Mapper<K1, V1, K2, V2>> mapperClass) {
 			job.setMapperClass(mapperClass);
 		}
 	}
@@ -59,12 +63,12 @@ enum MapperMode implements CmdLineOptionsProvider {
 				name = "--threads",
 				aliases = "-j",
 				required = false,
-				usage = "Use NUMBER threads per mapper. defaults n processors.",
+				usage = "Use NUMBER threads per mapper. defaults n processors. The threads share one copy of each preprocessing model.",
 				metaVar = "NUMBER")
 		private int concurrency = Runtime.getRuntime().availableProcessors();
 
 		@Override
-		public void prepareJobMapper(Job job, Class<SimpleTwitterPreprocessingMapper> mapperClass) {
+		public <K1, V1, K2, V2> void prepareJobMapper(Job job, Class<? extends Mapper<K1, V1, K2, V2>> mapperClass) {
 			if (concurrency <= 0)
 				concurrency = Runtime.getRuntime().availableProcessors();
 
@@ -46,5 +46,30 @@ public enum ReducerModeOption {
 	 * one output per day
 	 */
 	IDENTITY {
+	},
+	/**
+	 * one directory per day, yyyy/MM/dd
+	 */
+	DAY_SPLIT {
+		@Override
+		public TimeBucket timeBucket() {
+			return TimeBucket.DAY;
+		}
+	},
+	/**
+	 * one directory per hour, yyyy/MM/dd/HH
+	 */
+	HOUR_SPLIT {
+		@Override
+		public TimeBucket timeBucket() {
+			return TimeBucket.HOUR;
+		}
 	};
+
+	/**
+	 * @return the period the output is split by, null if it isn't split
+	 */
+	public TimeBucket timeBucket() {
+		return null;
+	}
 }
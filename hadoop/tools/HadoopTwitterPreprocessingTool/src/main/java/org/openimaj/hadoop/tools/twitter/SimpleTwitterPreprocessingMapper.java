@@ -39,8 +39,10 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.map.MultithreadedMapper;
 import org.kohsuke.args4j.CmdLineException;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
+import org.openimaj.tools.twitter.modes.preprocessing.PreprocessingModels;
 import org.openimaj.tools.twitter.modes.preprocessing.TwitterPreprocessingMode;
 import org.openimaj.tools.twitter.options.AbstractTwitterPreprocessingToolOptions;
 import org.openimaj.twitter.USMFStatus;
@@ -49,7 +51,10 @@ import org.openimaj.twitter.USMFStatus;
  * This mapper loads arguments for the
  * {@link AbstractTwitterPreprocessingToolOptions} from the
  * {@link HadoopTwitterPreprocessingTool#ARGS_KEY} variable (once per in memory
- * mapper) and uses these to preprocess tweets.
+ * mapper) and uses these to preprocess tweets. The modes created are cheap
+ * per-thread workers; the models they use are loaded once per JVM through
+ * {@link PreprocessingModels}, so many of these mappers may run in one
+ * {@link MultithreadedMapper}.
  * 
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  * 
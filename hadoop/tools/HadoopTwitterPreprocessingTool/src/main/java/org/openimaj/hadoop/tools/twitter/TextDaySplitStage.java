@@ -29,13 +29,123 @@
  */
 package org.openimaj.hadoop.tools.twitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.openimaj.hadoop.mapreduce.stage.Stage;
+import org.openimaj.hadoop.tools.HadoopToolsUtil;
+
+/**
+ * Preprocesses tweets and writes them split by time period, one directory per
+ * {@link TimeBucket} period (e.g. output/2012/06/21/). The output is LZO
+ * compressed if requested and GZip compressed otherwise.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class TextDaySplitStage extends Stage<TextInputFormat,TextOutputFormat<NullWritable,Text>,LongWritable,Text,LongWritable,Text,NullWritable,Text> {
+
+	private HadoopTwitterPreprocessingToolOptions options;
+	private String[] args;
+	private TimeBucket timeBucket;
+
+	/**
+	 * @param options the tool options
+	 * @param args the arguments handed to the mappers
+	 * @param timeBucket the period to split by
+	 */
+	public TextDaySplitStage(HadoopTwitterPreprocessingToolOptions options, String[] args, TimeBucket timeBucket) {
+		this.options = options;
+		this.args = args;
+		this.timeBucket = timeBucket;
+	}
+
+	@Override
+	public Class<? extends Mapper<LongWritable, Text, LongWritable, Text>> mapper() {
+		return DateTwitterPreprocessingMapper.class;
+	}
+
+	@Override
+	public void setMapperClass(Job job, Class<? extends Mapper<LongWritable, Text, LongWritable, Text>> mapper) {
+		options.mapperMode().prepareJobMapper(job, mapper);
+	}
+
+	@Override
+	public Class<? extends Reducer<LongWritable, Text, NullWritable, Text>> reducer() {
+		return DaySplitReducer.class;
+	}
+
+	@Override
+	public void setCombinerClass(Job job, Class<? extends Reducer<LongWritable, Text, LongWritable, Text>> combiner) {
+		// tweets can't be combined, don't copy them through an identity combiner
+	}
+
+	@Override
+	public void setup(Job job) throws IOException {
+		job.setPartitionerClass(TimeBucketPartitioner.class);
+		job.setNumReduceTasks(options.splitReducers);
+		timeBucket.configure(job.getConfiguration());
+		job.getConfiguration().setStrings(HadoopTwitterPreprocessingTool.ARGS_KEY, HadoopToolsUtil.encodeArgs(args));
+		if (!lzoCompress()) {
+			TextOutputFormat.setCompressOutput(job, true);
+			TextOutputFormat.setOutputCompressorClass(job, GzipCodec.class);
+		}
+	}
+
+	@Override
+	public boolean lzoCompress() {
+		return options.lzoCompress;
+	}
 
-public class TextDaySplitStage extends Stage<TextInputFormat,TextOutputFormat<NullWritable,Text>,LongWritable,Text,NullWritable,Text,NullWritable,Text> {
+	/**
+	 * Every reducer also opens the job's own output, which is never written
+	 * to; remove those empty files so only the period directories remain
+	 */
+	@Override
+	public void finished(Job job) {
+		try {
+			final Path output = FileOutputFormat.getOutputPath(job);
+			final FileSystem fs = output.getFileSystem(job.getConfiguration());
+			final FileStatus[] parts = fs.globStatus(new Path(output, "part-*"));
+			if (parts == null)
+				return;
+			for (final FileStatus part : parts) {
+				if (!part.isDir() && isEmpty(fs, part, job.getConfiguration()))
+					fs.delete(part.getPath(), false);
+			}
+		} catch (final IOException e) {
+			System.err.println("Couldn't remove empty outputs: " + e.getMessage());
+		}
+	}
 
+	private boolean isEmpty(FileSystem fs, FileStatus part, Configuration conf) throws IOException {
+		if (part.getLen() == 0)
+			return true;
+		// a compressed empty file still has a header, check it holds nothing
+		final CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(part.getPath());
+		if (codec == null)
+			return false;
+		final InputStream in = codec.createInputStream(fs.open(part.getPath()));
+		try {
+			return in.read() == -1;
+		} finally {
+			in.close();
+		}
+	}
 }
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * The periods tweets can be split into when the preprocessed output is
+ * partitioned by time. Periods are in UTC and each has a directory under the
+ * output path, so later jobs can read only the periods they need.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public enum TimeBucket {
+	/**
+	 * One directory per day, yyyy/MM/dd
+	 */
+	DAY("yyyy/MM/dd") {
+		@Override
+		public long bucket(DateTime date) {
+			return date.withZone(DateTimeZone.UTC).dayOfMonth().roundFloorCopy().getMillis();
+		}
+	},
+	/**
+	 * One directory per hour, yyyy/MM/dd/HH
+	 */
+	HOUR("yyyy/MM/dd/HH") {
+		@Override
+		public long bucket(DateTime date) {
+			return date.withZone(DateTimeZone.UTC).hourOfDay().roundFloorCopy().getMillis();
+		}
+	};
+
+	/**
+	 * where the bucket of a time split job is held
+	 */
+	public static final String BUCKET_KEY = "twitter.preprocessing.timebucket";
+
+	private DateTimeFormatter format;
+
+	private TimeBucket(String pattern) {
+		this.format = DateTimeFormat.forPattern(pattern).withZone(DateTimeZone.UTC);
+	}
+
+	/**
+	 * @param date
+	 * @return the start of the period holding the date in milliseconds
+	 */
+	public abstract long bucket(DateTime date);
+
+	/**
+	 * @param bucket
+	 *            the start of a period as given by {@link #bucket(DateTime)}
+	 * @return the directory of the period relative to the output path
+	 */
+	public String directory(long bucket) {
+		return format.print(bucket);
+	}
+
+	/**
+	 * @param conf
+	 *            the configuration to hold this bucket
+	 */
+	public void configure(Configuration conf) {
+		conf.set(BUCKET_KEY, this.name());
+	}
+
+	/**
+	 * @param conf
+	 * @return the bucket held by the configuration, {@link #DAY} if none is
+	 */
+	public static TimeBucket fromConfiguration(Configuration conf) {
+		return TimeBucket.valueOf(conf.get(BUCKET_KEY, DAY.name()));
+	}
+}
@@ -29,6 +29,7 @@
  */
 package org.openimaj.hadoop.tools.twitter;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedOutputStream;
@@ -46,6 +47,9 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.map.MultithreadedMapper;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -169,6 +173,34 @@ public class HadoopTwitterPreprocessingToolTest {
 		perform(outJSON, monthLongTwitterInputFile, "-prf DATE -drng 2010/09/01,2010/11/30", mode);
 	}
 
+	/**
+	 * Split a month of tweets into one directory per day
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testTweetTokJSONDaySplit() throws Exception {
+		final String mode = "TOKENISE";
+		final File outJSON = folder.newFile("tokens-testJSONDaySplit.json");
+		perform(outJSON, monthLongTwitterInputFile, "-redm DAY_SPLIT", mode);
+		final File month = new File(outJSON, "2010/10");
+		assertTrue(month.isDirectory());
+		final File[] days = month.listFiles();
+		assertTrue(days.length > 1);
+		for (final File day : days) {
+			assertTrue(day.getName().matches("[0-9]{2}"));
+			assertTrue(firstPart(day).getName().endsWith(".gz"));
+		}
+		// only the period directories are left at the top
+		final File[] top = outJSON.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith("part");
+			}
+		});
+		assertTrue(top.length == 0);
+	}
+
 	/**
 	 * Using hadoop to tokenise some json tweets
 	 *
@@ -256,6 +288,36 @@ public class HadoopTwitterPreprocessingToolTest {
 		performTest(outJSON, rawTwitterInputFile, "", "PORTER_STEM");
 	}
 
+	/**
+	 * The multithread mapper mode runs the preprocessing mapper inside a
+	 * {@link MultithreadedMapper}
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMultithreadJob() throws Exception {
+		final File outJSON = folder.newFile("tokens-testMultithreadJob.json");
+		final HadoopTwitterPreprocessingTool tool = new HadoopTwitterPreprocessingTool();
+		final String commandArgs = String.format(commandFormat, jsonTwitterInputFile, outJSON,
+				createModes(new String[] { "TOKENISE" }), "APPEND") + " -mm MULTITHREAD -j 3";
+		tool.args(commandArgs.split(" "));
+		final Job job = tool.stage().stage(tool.inputs(), tool.output(), new Configuration());
+		assertEquals(MultithreadedMapper.class, job.getMapperClass());
+		assertEquals(SimpleTwitterPreprocessingMapper.class, MultithreadedMapper.getMapperClass(job));
+		assertEquals(3, MultithreadedMapper.getNumberOfThreads(job));
+	}
+
+	/**
+	 * Tokenise with the preprocessing mapper running in several threads
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMultithreadTokenise() throws Exception {
+		final File outJSON = folder.newFile("tokens-testMultithreadTokenise.json");
+		performTest(outJSON, jsonTwitterInputFile, "-mm MULTITHREAD -j 2", "TOKENISE");
+	}
+
 	private void performTest(File outputFile, File inputFile, String otherargs, String... mode) throws Exception {
 		performTest(outputFile, inputFile, USMFStatus.class, otherargs, mode);
 	}
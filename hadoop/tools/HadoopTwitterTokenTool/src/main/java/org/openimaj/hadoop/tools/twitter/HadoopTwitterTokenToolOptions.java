@@ -45,6 +45,7 @@ import org.openimaj.hadoop.sequencefile.SequenceFileUtility;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
 import org.openimaj.hadoop.tools.twitter.token.mode.TwitterTokenMode;
 import org.openimaj.hadoop.tools.twitter.token.mode.TwitterTokenModeOption;
+import org.openimaj.hadoop.tools.twitter.token.mode.dfidf.DFIDFTokenMode;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.TwitterTokenOutputMode;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.TwitterTokenOutputModeOption;
 import org.openimaj.io.IOUtils;
@@ -255,6 +256,9 @@ public class HadoopTwitterTokenToolOptions extends InOutToolOptions {
 	/**
 	 * If there were any preprocessing arguments, perform the preprocessing and
 	 * use the preprocessing output as the input to the rest of the process.
+	 * An incremental DFIDF run preprocesses its newly arrived input under
+	 * {@link DFIDFTokenMode#INCREMENT_PREPROCESSING_DIR} every time, rather
+	 * than reusing the input preprocessed by an earlier run.
 	 * 
 	 * @throws Exception
 	 */
@@ -264,9 +268,12 @@ public class HadoopTwitterTokenToolOptions extends InOutToolOptions {
 		if (this.preprocessingOptions == null)
 			return;
 
-		final String output = this.getOutput() + "/preprocessing";
+		final boolean increment = this.modeOptionsOp instanceof DFIDFTokenMode
+				&& ((DFIDFTokenMode) this.modeOptionsOp).isIncremental();
+		final String output = this.getOutput() + "/"
+				+ (increment ? DFIDFTokenMode.INCREMENT_PREPROCESSING_DIR : "preprocessing");
 		final boolean outExists = HadoopToolsUtil.fileExists(output);
-		if (!outExists || // if the file doesn't exist
+		if (increment || !outExists || // if the file doesn't exist
 				SequenceFileUtility.getFilePaths(output, "part").length == 0 // or
 																				// no
 																				// part
@@ -82,6 +82,18 @@ public abstract class WritableEnumCounter<T extends Enum<?>> implements ReadWrit
 		this.values.put(type, value);
 	}
 
+	/**
+	 * Add the counts held by another counter to the counts held by this one
+	 * @param other
+	 */
+	public void add(WritableEnumCounter<T> other) {
+		for (Entry<T, Long> typevalue : other.values.entrySet()) {
+			Long current = this.values.get(typevalue.getKey());
+			if(current == null) current = 0l;
+			this.values.put(typevalue.getKey(), current + typevalue.getValue());
+		}
+	}
+
 	@Override
 	public void readASCII(Scanner in) throws IOException {
 		if(!(in.hasNextLine())){
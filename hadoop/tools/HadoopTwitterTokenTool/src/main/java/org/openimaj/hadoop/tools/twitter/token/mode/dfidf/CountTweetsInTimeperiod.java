@@ -532,4 +532,108 @@ public class CountTweetsInTimeperiod extends StageProvider {
 		final Path retPath = new Path(new Path(outpath, CountTweetsInTimeperiod.TIMECOUNT_DIR), TIMEINDEX_FILE);
 		return retPath;
 	}
+
+	/**
+	 * @param outpath
+	 * @return the global stats location
+	 */
+	public static Path constructGlobalStatsPath(Path outpath) {
+		return new Path(new Path(outpath, CountTweetsInTimeperiod.TIMECOUNT_DIR), GLOBAL_STATS_FILE);
+	}
+
+	/**
+	 * Read the global stats written when this stage finished
+	 *
+	 * @param statsPath
+	 * @return the counts of each {@link TextEntryType}
+	 * @throws IOException
+	 */
+	public static WritableEnumCounter<TextEntryType> readGlobalStats(Path statsPath) throws IOException {
+		final FileSystem fs = HadoopToolsUtil.getFileSystem(statsPath);
+		final WritableEnumCounter<TextEntryType> et = new WritableEnumCounter<TextEntryType>() {
+			@Override
+			public TextEntryType valueOf(String str) {
+				return TextEntryType.valueOf(str);
+			}
+		};
+		FSDataInputStream in = null;
+		try {
+			in = fs.open(statsPath);
+			return IOUtils.read(in, et);
+		} finally {
+			if (in != null)
+				in.close();
+		}
+	}
+
+	/**
+	 * Merge the time index of some newly counted data with an existing time
+	 * index. Times found in both have their tweet counts summed (the new data
+	 * may continue the last time period of the old data). Neither index is
+	 * changed, the merged index is written as a single part to a new
+	 * location.
+	 *
+	 * @param existingIndex
+	 *            the existing index, see {@link #constructIndexPath(Path)}
+	 * @param incrementIndex
+	 *            the index of the new data
+	 * @param mergedIndex
+	 *            where the merged index is written
+	 * @return the merged index
+	 * @throws IOException
+	 */
+	public static TimeFrequencyHolder mergeTimeIndex(Path existingIndex, Path incrementIndex, Path mergedIndex)
+			throws IOException
+	{
+		TimeFrequencyHolder merged = readTimeIndex(existingIndex);
+		if (merged == null)
+			merged = new TimeFrequencyHolder();
+		final TimeFrequencyHolder increment = readTimeIndex(incrementIndex);
+		if (increment != null) {
+			final TimeFrequencyHolder into = merged;
+			increment.forEachEntry(new TLongObjectProcedure<TimeFrequency>() {
+				@Override
+				public boolean execute(long time, TimeFrequency tf) {
+					final TimeFrequency held = into.get(time);
+					if (held == null)
+						into.put(time, new TimeFrequency(time, tf.periodFrequency));
+					else
+						held.periodFrequency += tf.periodFrequency;
+					return true;
+				}
+			});
+		}
+		merged.recalculateCumulativeFrequencies();
+
+		final FileSystem fs = HadoopToolsUtil.getFileSystem(mergedIndex);
+		if (fs.exists(mergedIndex))
+			fs.delete(mergedIndex, true);
+		writeTimeIndex(merged, new Path(mergedIndex, "merged"));
+		return merged;
+	}
+
+	/**
+	 * Add the global stats of some newly counted data to an existing global
+	 * stats file, writing the sum to a new file
+	 *
+	 * @param existingStats
+	 * @param incrementStats
+	 * @param mergedStats
+	 *            where the summed stats are written
+	 * @throws IOException
+	 */
+	public static void mergeGlobalStats(Path existingStats, Path incrementStats, Path mergedStats)
+			throws IOException
+	{
+		final WritableEnumCounter<TextEntryType> merged = readGlobalStats(existingStats);
+		merged.add(readGlobalStats(incrementStats));
+
+		final FileSystem fs = HadoopToolsUtil.getFileSystem(mergedStats);
+		final FSDataOutputStream os = fs.create(mergedStats, true);
+		try {
+			IOUtils.writeASCII(os, merged);
+		} finally {
+			os.close();
+		}
+	}
 }
@@ -32,34 +32,44 @@ package org.openimaj.hadoop.tools.twitter.token.mode.dfidf;
 import gnu.trove.procedure.TObjectIntProcedure;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
-import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.kohsuke.args4j.CmdLineException;
 import org.openimaj.hadoop.mapreduce.stage.StageProvider;
+import org.openimaj.hadoop.mapreduce.stage.helper.SequenceFileStage;
 import org.openimaj.hadoop.mapreduce.stage.helper.SimpleSequenceFileStage;
+import org.openimaj.hadoop.sequencefile.MapFileOutputFormat;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
 import org.openimaj.hadoop.tools.twitter.HadoopTwitterTokenToolOptions;
 import org.openimaj.hadoop.tools.twitter.token.mode.TextEntryType;
 import org.openimaj.hadoop.tools.twitter.token.mode.WritableEnumCounter;
 import org.openimaj.hadoop.tools.twitter.token.mode.dfidf.TimeFrequencyHolder.TimeFrequency;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.timeseries.WordDFIDFIndex;
 import org.openimaj.hadoop.tools.twitter.utils.TimeperiodTweetCountWordCount;
 import org.openimaj.hadoop.tools.twitter.utils.TweetCountWordMap;
 import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
 import org.openimaj.io.IOUtils;
+import org.openimaj.io.wrappers.ReadableListBinary;
 import org.openimaj.io.wrappers.WriteableListBinary;
 
 /**
@@ -88,6 +98,7 @@ import org.openimaj.io.wrappers.WriteableListBinary;
 public class CountWordsAcrossTimeperiod extends StageProvider {
 	private String[] nonHadoopArgs;
 	private boolean combinedTimes = false;
+	private boolean indexWords = false;
 
 	/**
 	 * 
@@ -110,6 +121,21 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 		this.combinedTimes = combinedTimes;
 	}
 
+	/**
+	 * @param nonHadoopArgs
+	 * @param combinedTimes
+	 *            whether the mapper expects times entries with values for each
+	 *            word. i.e. combined times
+	 * @param indexWords
+	 *            whether the output should be written as {@link MapFile}s so
+	 *            words can be looked up without a scan (see
+	 *            {@link WordDFIDFIndex})
+	 */
+	public CountWordsAcrossTimeperiod(String[] nonHadoopArgs, boolean combinedTimes, boolean indexWords) {
+		this(nonHadoopArgs, combinedTimes);
+		this.indexWords = indexWords;
+	}
+
 	/**
 	 * arg key
 	 */
@@ -129,7 +155,7 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
 	 * 
 	 */
-	public static class Map extends Mapper<LongWritable, BytesWritable, Text, BytesWritable> {
+	public static class Map extends Mapper<LongWritable, BytesWritable, Text, WritableTimeperiodTweetCountWordCount> {
 
 		/**
 		 * Mapper constructor doesn't do anything (Mapper constructor doesn't
@@ -140,9 +166,12 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 		}
 
 		private static HadoopTwitterTokenToolOptions options;
+		private final WritableTimeperiodTweetCountWordCount timeMap = new WritableTimeperiodTweetCountWordCount();
+		private final Text outword = new Text();
 
 		protected static synchronized void loadOptions(
-				Mapper<LongWritable, BytesWritable, Text, BytesWritable>.Context context) throws IOException
+				Mapper<LongWritable, BytesWritable, Text, WritableTimeperiodTweetCountWordCount>.Context context)
+				throws IOException
 		{
 			if (options == null) {
 				try {
@@ -157,7 +186,7 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 		}
 
 		@Override
-		protected void setup(Mapper<LongWritable, BytesWritable, Text, BytesWritable>.Context context)
+		protected void setup(Mapper<LongWritable, BytesWritable, Text, WritableTimeperiodTweetCountWordCount>.Context context)
 				throws IOException, InterruptedException
 		{
 			loadOptions(context);
@@ -165,24 +194,23 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 
 		@Override
 		protected void map(final LongWritable key, BytesWritable value,
-				final Mapper<LongWritable, BytesWritable, Text, BytesWritable>.Context context)
+				final Mapper<LongWritable, BytesWritable, Text, WritableTimeperiodTweetCountWordCount>.Context context)
 				throws java.io.IOException, InterruptedException
 		{
 
 			final TweetCountWordMap periodCountWordCount = IOUtils.read(new ByteArrayInputStream(value.getBytes()),
 					TweetCountWordMap.class);
+			timeMap.timeperiod = key.get();
+			timeMap.tweetcount = periodCountWordCount.getNTweets();
 			final boolean written = periodCountWordCount.getTweetWordMap().forEachEntry(new TObjectIntProcedure<String>()
 			{
 
 				@Override
 				public boolean execute(String word, int wordCount) {
-					final TimeperiodTweetCountWordCount timeMap = new TimeperiodTweetCountWordCount(key.get(), wordCount,
-							periodCountWordCount.getNTweets());
-					final ByteArrayOutputStream os = new ByteArrayOutputStream();
+					timeMap.wordcount = wordCount;
 					try {
-						IOUtils.writeBinary(os, timeMap);
-						final BytesWritable writeable = new BytesWritable(os.toByteArray());
-						context.write(new Text(word), writeable);
+						outword.set(word);
+						context.write(outword, timeMap);
 					} catch (final IOException e) {
 						return false;
 					} catch (final InterruptedException e) {
@@ -206,7 +234,7 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
 	 * 
 	 */
-	public static class Reduce extends Reducer<Text, BytesWritable, Text, BytesWritable> {
+	public static class Reduce extends Reducer<Text, WritableTimeperiodTweetCountWordCount, Text, BytesWritable> {
 
 		/**
 		 * default construct does nothing
@@ -216,9 +244,9 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 		}
 
 		@Override
-		protected void reduce(Text word, Iterable<BytesWritable> values,
-				Reducer<Text, BytesWritable, Text, BytesWritable>.Context context) throws IOException,
-				InterruptedException
+		protected void reduce(Text word, Iterable<WritableTimeperiodTweetCountWordCount> values,
+				Reducer<Text, WritableTimeperiodTweetCountWordCount, Text, BytesWritable>.Context context)
+				throws IOException, InterruptedException
 		{
 			// read all timeperiods to objects, find the END_TIME instance, hold
 			// the rest
@@ -230,9 +258,9 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 			 */
 			TimeperiodTweetCountWordCount endTime = null;
 			final List<TimeperiodTweetCountWordCount> otherTimes = new ArrayList<TimeperiodTweetCountWordCount>();
-			for (final BytesWritable inputArr : values) {
-				final ByteArrayInputStream stream = new ByteArrayInputStream(inputArr.getBytes());
-				final TimeperiodTweetCountWordCount instance = IOUtils.read(stream, TimeperiodTweetCountWordCount.class);
+			for (final WritableTimeperiodTweetCountWordCount value : values) {
+				// the value is reused, keep a copy
+				final TimeperiodTweetCountWordCount instance = value.copy();
 				if (instance.timeperiod == END_TIME.get())
 					endTime = instance;
 				else
@@ -278,12 +306,12 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
 	 */
 	public static class NonCombinedTimesReducer extends
-			Reducer<Text, BytesWritable, Text, BytesWritable>
+			Reducer<Text, WritableTimeperiodTweetCountWordCount, Text, BytesWritable>
 	{
 
 		private HadoopTwitterTokenToolOptions options;
 		private WritableEnumCounter<TextEntryType> tgs;
-		private TimeFrequencyHolder timeIndex;
+		protected TimeFrequencyHolder timeIndex;
 
 		/**
 		 * default construct does nothing
@@ -292,7 +320,8 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 
 		}
 
-		protected synchronized void loadOptions(Reducer<Text, BytesWritable, Text, BytesWritable>.Context context)
+		protected synchronized void loadOptions(
+				Reducer<Text, WritableTimeperiodTweetCountWordCount, Text, BytesWritable>.Context context)
 				throws IOException
 		{
 			try {
@@ -301,17 +330,7 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 				final Path outpath = HadoopToolsUtil.getOutputPath(options);
 
 				timeIndex = CountTweetsInTimeperiod.readTimeIndex(CountTweetsInTimeperiod.constructIndexPath(outpath));
-				final Path timecountOut = new Path(outpath, CountTweetsInTimeperiod.TIMECOUNT_DIR);
-				final Path statsout = new Path(timecountOut, CountTweetsInTimeperiod.GLOBAL_STATS_FILE);
-				final FileSystem fs = HadoopToolsUtil.getFileSystem(statsout);
-				final WritableEnumCounter<TextEntryType> et = new WritableEnumCounter<TextEntryType>() {
-					@Override
-					public TextEntryType valueOf(String str) {
-						return TextEntryType.valueOf(str);
-					}
-
-				};
-				tgs = IOUtils.read(fs.open(statsout), et);
+				tgs = CountTweetsInTimeperiod.readGlobalStats(CountTweetsInTimeperiod.constructGlobalStatsPath(outpath));
 			} catch (final CmdLineException e) {
 				e.printStackTrace();
 				throw new IOException(e);
@@ -322,16 +341,16 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 		}
 
 		@Override
-		protected void setup(Reducer<Text, BytesWritable, Text, BytesWritable>.Context context) throws IOException,
-				InterruptedException
+		protected void setup(Reducer<Text, WritableTimeperiodTweetCountWordCount, Text, BytesWritable>.Context context)
+				throws IOException, InterruptedException
 		{
 			loadOptions(context);
 		}
 
 		@Override
-		protected void reduce(Text word, Iterable<BytesWritable> values,
-				Reducer<Text, BytesWritable, Text, BytesWritable>.Context context) throws IOException,
-				InterruptedException
+		protected void reduce(Text word, Iterable<WritableTimeperiodTweetCountWordCount> values,
+				Reducer<Text, WritableTimeperiodTweetCountWordCount, Text, BytesWritable>.Context context)
+				throws IOException, InterruptedException
 		{
 			// read all timeperiods to objects, find the END_TIME instance, hold
 			// the rest
@@ -349,9 +368,9 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 			final TreeSet<Long> times = new TreeSet<Long>();
 			final HashMap<Long, TimeperiodTweetCountWordCount> otherTimes = new HashMap<Long, TimeperiodTweetCountWordCount>();
 			System.out.println("STARTING WORD: " + word);
-			for (final BytesWritable inputArr : values) {
-				final ByteArrayInputStream stream = new ByteArrayInputStream(inputArr.getBytes());
-				final TimeperiodTweetCountWordCount instance = IOUtils.read(stream, TimeperiodTweetCountWordCount.class);
+			for (final WritableTimeperiodTweetCountWordCount value : values) {
+				// the value is reused, keep a copy
+				final TimeperiodTweetCountWordCount instance = value.copy();
 				System.out.println("... FOUND TIME INSTANCE:" + instance.timeperiod);
 				if (instance.timeperiod == END_TIME.get())
 				{
@@ -421,9 +440,218 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 		}
 	}
 
+	/**
+	 * The tag of values emitted by the {@link IncrementalMap} holding a
+	 * {@link TimeperiodTweetCountWordCount} of newly arrived data
+	 */
+	static final byte NEW_COUNT = 0;
+	/**
+	 * The tag of values emitted by the {@link IncrementalMap} holding the
+	 * previously computed list of {@link WordDFIDF} for a word
+	 */
+	static final byte PREVIOUS_DFIDF = 1;
+
+	/**
+	 * Configuration key holding the earliest time period of newly arrived data
+	 */
+	public static final String INCREMENT_START_PROP = "org.openimaj.hadoop.tools.twitter.token.mode.dfidf.incrementstart";
+
+	/**
+	 * Configuration key holding the location of the time index merged from
+	 * the old and the newly arrived data
+	 */
+	public static final String INCREMENT_INDEX_PROP = "org.openimaj.hadoop.tools.twitter.token.mode.dfidf.incrementindex";
+
+	/**
+	 * The map of an incremental update. The input is both the output of a
+	 * {@link CountTweetsInTimeperiod} run over newly arrived data (times as
+	 * keys) and the existing output of this stage (words as keys). The new
+	 * counts are written as {@link Map} writes them, the previous DFIDF of
+	 * each word is passed on as is. Each value is tagged with
+	 * {@link #NEW_COUNT} or {@link #PREVIOUS_DFIDF} so the
+	 * {@link IncrementalTimesReducer} can tell them apart. The values stay
+	 * {@link BytesWritable}s so the previous DFIDF of a word which has no new
+	 * counts is never decoded and re-encoded.
+	 * 
+	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+	 * 
+	 */
+	public static class IncrementalMap extends Mapper<Writable, BytesWritable, Text, BytesWritable> {
+		private final TimeperiodTweetCountWordCount timeMap = new TimeperiodTweetCountWordCount();
+		private final DataOutputBuffer outbuffer = new DataOutputBuffer();
+		private final BytesWritable outvalue = new BytesWritable();
+		private final Text outword = new Text();
+
+		/**
+		 * default construct does nothing
+		 */
+		public IncrementalMap() {
+
+		}
+
+		@Override
+		protected void map(Writable key, BytesWritable value,
+				final Mapper<Writable, BytesWritable, Text, BytesWritable>.Context context) throws IOException,
+				InterruptedException
+		{
+			if (key instanceof Text) {
+				outbuffer.reset();
+				outbuffer.writeByte(PREVIOUS_DFIDF);
+				outbuffer.write(value.getBytes(), 0, value.getLength());
+				outvalue.set(outbuffer.getData(), 0, outbuffer.getLength());
+				context.write((Text) key, outvalue);
+				return;
+			}
+			final long time = ((LongWritable) key).get();
+			// the totals across all time are held in the merged global stats
+			if (time == END_TIME.get())
+				return;
+			final TweetCountWordMap periodCountWordCount = IOUtils.read(new ByteArrayInputStream(value.getBytes()),
+					TweetCountWordMap.class);
+			timeMap.timeperiod = time;
+			timeMap.tweetcount = periodCountWordCount.getNTweets();
+			final boolean written = periodCountWordCount.getTweetWordMap().forEachEntry(new TObjectIntProcedure<String>()
+			{
+				@Override
+				public boolean execute(String word, int wordCount) {
+					timeMap.wordcount = wordCount;
+					try {
+						outbuffer.reset();
+						outbuffer.writeByte(NEW_COUNT);
+						timeMap.writeBinary(outbuffer);
+						outvalue.set(outbuffer.getData(), 0, outbuffer.getLength());
+						outword.set(word);
+						context.write(outword, outvalue);
+					} catch (final IOException e) {
+						return false;
+					} catch (final InterruptedException e) {
+						return false;
+					}
+					return true;
+				}
+			});
+			if (!written) {
+				throw new IOException("Couldn't write the TimeperiodTweetCountWordCount object");
+			}
+		}
+	}
+
+	/**
+	 * The reduce of an incremental update. Reads the time index holding the
+	 * merged totals of the old and the new data from
+	 * {@link #INCREMENT_INDEX_PROP} (see
+	 * {@link CountTweetsInTimeperiod#mergeTimeIndex(Path, Path, Path)}).
+	 * <p>
+	 * The DFIDF of a time period depends only on counts up to and including
+	 * that time period, so the previous values of every time period before the
+	 * earliest new time period (held in {@link #INCREMENT_START_PROP}) are
+	 * still correct and are kept as they are. Only the later time periods are
+	 * recomputed, from the previous word counts plus the new word counts.
+	 * Words whose previous values all come before the new data and which do
+	 * not appear in the new data are written out untouched.
+	 * 
+	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+	 */
+	public static class IncrementalTimesReducer extends Reducer<Text, BytesWritable, Text, BytesWritable> {
+		private TimeFrequencyHolder timeIndex;
+		private long incrementStart;
+
+		/**
+		 * default construct does nothing
+		 */
+		public IncrementalTimesReducer() {
+
+		}
+
+		@Override
+		protected void setup(Reducer<Text, BytesWritable, Text, BytesWritable>.Context context) throws IOException,
+				InterruptedException
+		{
+			timeIndex = CountTweetsInTimeperiod.readTimeIndex(new Path(context.getConfiguration().get(
+					INCREMENT_INDEX_PROP)));
+			incrementStart = context.getConfiguration().getLong(INCREMENT_START_PROP, Long.MIN_VALUE);
+		}
+
+		@Override
+		protected void reduce(Text word, Iterable<BytesWritable> values,
+				Reducer<Text, BytesWritable, Text, BytesWritable>.Context context) throws IOException,
+				InterruptedException
+		{
+			byte[] previousBytes = null;
+			final TreeMap<Long, Long> wordCounts = new TreeMap<Long, Long>();
+			final DataInputBuffer in = new DataInputBuffer();
+			final TimeperiodTweetCountWordCount instance = new TimeperiodTweetCountWordCount();
+			for (final BytesWritable inputArr : values) {
+				final byte[] bytes = inputArr.getBytes();
+				if (bytes[0] == PREVIOUS_DFIDF) {
+					previousBytes = Arrays.copyOfRange(bytes, 1, inputArr.getLength());
+				}
+				else {
+					in.reset(bytes, 1, inputArr.getLength() - 1);
+					instance.readBinary(in);
+					addCount(wordCounts, instance.timeperiod, instance.wordcount);
+				}
+			}
+
+			final List<WordDFIDF> previous = new ArrayList<WordDFIDF>();
+			if (previousBytes != null) {
+				IOUtils.deserialize(previousBytes, new ReadableListBinary<Object>(new ArrayList<Object>()) {
+					@Override
+					protected Object readValue(DataInput in) throws IOException {
+						final WordDFIDF idf = new WordDFIDF();
+						idf.readBinary(in);
+						previous.add(idf);
+						return null;
+					}
+				});
+			}
+			if (wordCounts.isEmpty()
+					&& (previous.isEmpty() || previous.get(previous.size() - 1).timeperiod < incrementStart))
+			{
+				if (previousBytes != null)
+					context.write(word, new BytesWritable(previousBytes));
+				return;
+			}
+
+			// keep everything before the new data, continue the word total
+			// from there
+			final List<WordDFIDF> listVersion = new ArrayList<WordDFIDF>();
+			long Twf = 0;
+			for (final WordDFIDF idf : previous) {
+				if (idf.timeperiod < incrementStart) {
+					listVersion.add(idf);
+					Twf = idf.Twf;
+				}
+				else {
+					addCount(wordCounts, idf.timeperiod, idf.wf);
+				}
+			}
+			for (final Entry<Long, Long> timeCount : wordCounts.entrySet()) {
+				final TimeFrequency indexEntry = timeIndex.get(timeCount.getKey());
+				final long Ttf = indexEntry.cumulativeFrequency;
+				final long tf = indexEntry.periodFrequency;
+				final long wf = timeCount.getValue();
+				Twf += wf;
+				listVersion.add(new WordDFIDF(timeCount.getKey(), wf, tf, Twf, Ttf));
+			}
+			final WriteableListBinary<WordDFIDF> writeableCollection = new WriteableListBinary<WordDFIDF>(listVersion) {
+				@Override
+				protected void writeValue(WordDFIDF v, DataOutput out) throws IOException {
+					v.writeBinary(out);
+				}
+			};
+			context.write(word, new BytesWritable(IOUtils.serialize(writeableCollection)));
+		}
+
+		private static void addCount(TreeMap<Long, Long> wordCounts, long time, long count) {
+			final Long current = wordCounts.get(time);
+			wordCounts.put(time, current == null ? count : current + count);
+		}
+	}
+
 	@Override
-	public SimpleSequenceFileStage<LongWritable, BytesWritable, Text, BytesWritable> stage() {
-		return new SimpleSequenceFileStage<LongWritable, BytesWritable, Text, BytesWritable>() {
+	public SequenceFileStage<LongWritable, BytesWritable, Text, WritableTimeperiodTweetCountWordCount, Text, BytesWritable> stage() {
+		return new SequenceFileStage<LongWritable, BytesWritable, Text, WritableTimeperiodTweetCountWordCount, Text, BytesWritable>() {
 			@Override
 			public void setup(Job job) {
 				job.getConfiguration().setStrings(CountWordsAcrossTimeperiod.ARGS_KEY, nonHadoopArgs);
@@ -432,15 +660,20 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 				// work than usual, t
 				if (!CountWordsAcrossTimeperiod.this.combinedTimes)
 					job.setNumReduceTasks(26);
+
+				// reducer output is sorted by word, so it can be written
+				// straight into MapFiles for local lookups
+				if (CountWordsAcrossTimeperiod.this.indexWords)
+					job.setOutputFormatClass(MapFileOutputFormat.class);
 			}
 
 			@Override
-			public Class<? extends Mapper<LongWritable, BytesWritable, Text, BytesWritable>> mapper() {
+			public Class<? extends Mapper<LongWritable, BytesWritable, Text, WritableTimeperiodTweetCountWordCount>> mapper() {
 				return CountWordsAcrossTimeperiod.Map.class;
 			}
 
 			@Override
-			public Class<? extends Reducer<Text, BytesWritable, Text, BytesWritable>> reducer() {
+			public Class<? extends Reducer<Text, WritableTimeperiodTweetCountWordCount, Text, BytesWritable>> reducer() {
 				if (CountWordsAcrossTimeperiod.this.combinedTimes)
 					return CountWordsAcrossTimeperiod.Reduce.class;
 				else
@@ -455,4 +688,50 @@ public class CountWordsAcrossTimeperiod extends StageProvider {
 		};
 	}
 
+
+	/**
+	 * A stage which updates the existing output of this stage with newly
+	 * arrived data, see {@link IncrementalMap} and
+	 * {@link IncrementalTimesReducer}. Only non combined times are supported.
+	 * The inputs of the stage must be the output of a
+	 * {@link CountTweetsInTimeperiod} run over the new data along with the
+	 * part files of the existing output.
+	 * 
+	 * @param incrementStart
+	 *            the earliest time period of the new data
+	 * @param mergedIndex
+	 *            the time index merged from the old and the new data
+	 * @return the incremental stage
+	 */
+	public SimpleSequenceFileStage<Writable, BytesWritable, Text, BytesWritable> incrementalStage(
+			final long incrementStart, final Path mergedIndex)
+	{
+		return new SimpleSequenceFileStage<Writable, BytesWritable, Text, BytesWritable>() {
+			@Override
+			public void setup(Job job) {
+				job.getConfiguration().setStrings(CountWordsAcrossTimeperiod.ARGS_KEY, nonHadoopArgs);
+				job.getConfiguration().setLong(INCREMENT_START_PROP, incrementStart);
+				job.getConfiguration().set(INCREMENT_INDEX_PROP, mergedIndex.toString());
+				job.setNumReduceTasks(26);
+				if (CountWordsAcrossTimeperiod.this.indexWords)
+					job.setOutputFormatClass(MapFileOutputFormat.class);
+			}
+
+			@Override
+			public Class<? extends Mapper<Writable, BytesWritable, Text, BytesWritable>> mapper() {
+				return CountWordsAcrossTimeperiod.IncrementalMap.class;
+			}
+
+			@Override
+			public Class<? extends Reducer<Text, BytesWritable, Text, BytesWritable>> reducer() {
+				return CountWordsAcrossTimeperiod.IncrementalTimesReducer.class;
+			}
+
+			@Override
+			public String outname() {
+				return WORDCOUNT_DIR;
+			}
+		};
+	}
+
 }
@@ -29,9 +29,14 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.mode.dfidf;
 
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.kohsuke.args4j.Option;
 import org.openimaj.hadoop.mapreduce.MultiStagedJob;
+import org.openimaj.hadoop.sequencefile.SequenceFileUtility;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
 import org.openimaj.hadoop.tools.twitter.HadoopTwitterTokenToolOptions;
 import org.openimaj.hadoop.tools.twitter.token.mode.TwitterTokenMode;
@@ -48,6 +53,36 @@ public class DFIDFTokenMode implements TwitterTokenMode {
 	@Option(name = "--time-delta", aliases = "-t", required = false, usage = "The length of a time window in minutes (defaults to 1 hour (60))", metaVar = "STRING")
 	private long timeDelta = 60;
 
+	@Option(name = "--index-words", aliases = "-iw", required = false, usage = "Write the per word DFIDF as indexed MapFiles so individual words can be looked up without a full scan")
+	private boolean indexWords = false;
+
+	@Option(name = "--incremental", aliases = "-inc", required = false, usage = "Treat the input as newly arrived data and fold it into the DFIDF already held in the output, recomputing only the time periods it affects")
+	private boolean incremental = false;
+
+	/**
+	 * where the counts of newly arrived data are held during an incremental
+	 * update
+	 */
+	public static final String INCREMENT_DIR = "increment";
+
+	/**
+	 * where the merged time index and global stats are written during an
+	 * incremental update, under {@link #INCREMENT_DIR}
+	 */
+	public static final String MERGED_DIR = "merged";
+
+	/**
+	 * where the output replaced by an incremental update is held until the
+	 * update is complete, under {@link #INCREMENT_DIR}
+	 */
+	public static final String PREVIOUS_DIR = "previous";
+
+	/**
+	 * where the newly arrived data of an incremental update is preprocessed,
+	 * apart from the input preprocessed by earlier runs
+	 */
+	public static final String INCREMENT_PREPROCESSING_DIR = "preprocessing-increment";
+
 	private boolean combiningReducers = false;
 	private MultiStagedJob stages;
 	private String[] fstage;
@@ -55,15 +90,154 @@ public class DFIDFTokenMode implements TwitterTokenMode {
 	@Override
 	public void perform(final HadoopTwitterTokenToolOptions opts) throws Exception {
 		Path outpath = HadoopToolsUtil.getOutputPath(opts);
+		this.fstage = new String[] { outpath.toString() };
+		if (incremental && hasOutput(new Path(outpath, CountWordsAcrossTimeperiod.WORDCOUNT_DIR))) {
+			performIncremental(opts, outpath);
+			return;
+		}
 		this.stages = new MultiStagedJob(HadoopToolsUtil.getInputPaths(opts), outpath, opts.getArgs());
 
 		// Associate words with time periods and construct the time index
 		stages.queueStage(new CountTweetsInTimeperiod(opts.getNonHadoopArgs(), combiningReducers, timeDelta).stage());
 		// produce the DFIDF per word per time period
-		stages.queueStage(new CountWordsAcrossTimeperiod(opts.getNonHadoopArgs(), combiningReducers).stage());
+		stages.queueStage(new CountWordsAcrossTimeperiod(opts.getNonHadoopArgs(), combiningReducers, indexWords).stage());
 
 		stages.runAll();
-		this.fstage = new String[] { outpath.toString() };
+		// an incremental run with nothing to fold into counts its new data in
+		// full, its preprocessed input is no longer needed
+		if (incremental) {
+			final Path incrementPreprocessing = new Path(outpath, INCREMENT_PREPROCESSING_DIR);
+			HadoopToolsUtil.getFileSystem(incrementPreprocessing).delete(incrementPreprocessing, true);
+		}
+	}
+
+	/**
+	 * Count only the new input, merge its time index and global stats with
+	 * those already in the output and recompute the DFIDF of the time periods
+	 * from the earliest new one onwards. The new per time period word counts
+	 * are then kept alongside the old ones in
+	 * {@link CountTweetsInTimeperiod#TIMECOUNT_DIR}.
+	 * <p>
+	 * Everything is computed under {@link #INCREMENT_DIR} and only swapped
+	 * into the output once the DFIDF stage has succeeded. The replaced output
+	 * is moved aside to {@link #PREVIOUS_DIR} first and is only deleted once
+	 * the swap is complete, so a failed update leaves either the old output
+	 * or a copy of it. The new counts are renamed after the earliest new time
+	 * period, made unique before the swap if an earlier update started at the
+	 * same time period.
+	 */
+	private void performIncremental(HadoopTwitterTokenToolOptions opts, Path outpath) throws Exception {
+		final Path incrementRoot = new Path(outpath, INCREMENT_DIR);
+		final FileSystem fs = HadoopToolsUtil.getFileSystem(incrementRoot);
+		final Path previousRoot = new Path(incrementRoot, PREVIOUS_DIR);
+		if (fs.exists(previousRoot))
+			throw new IOException("An earlier incremental update did not finish, the output it replaced is in "
+					+ previousRoot);
+		if (fs.exists(incrementRoot))
+			fs.delete(incrementRoot, true);
+
+		final MultiStagedJob countStage = new MultiStagedJob(HadoopToolsUtil.getInputPaths(opts), incrementRoot, opts.getArgs());
+		countStage.queueStage(new CountTweetsInTimeperiod(opts.getNonHadoopArgs(), combiningReducers, timeDelta).stage());
+		final Path incrementCounts = countStage.runAll();
+
+		final Path incrementIndexPath = CountTweetsInTimeperiod.constructIndexPath(incrementRoot);
+		final TimeFrequencyHolder incrementIndex = CountTweetsInTimeperiod.readTimeIndex(incrementIndexPath);
+		final Path incrementPreprocessing = new Path(outpath, INCREMENT_PREPROCESSING_DIR);
+		if (incrementIndex == null || incrementIndex.isEmpty()) {
+			System.out.println("No new time periods found, output left as it was");
+			fs.delete(incrementRoot, true);
+			fs.delete(incrementPreprocessing, true);
+			return;
+		}
+		final long[] newTimes = incrementIndex.keys();
+		Arrays.sort(newTimes);
+
+		final Path mergedRoot = new Path(incrementRoot, MERGED_DIR);
+		final Path mergedIndex = CountTweetsInTimeperiod.constructIndexPath(mergedRoot);
+		final Path mergedStats = CountTweetsInTimeperiod.constructGlobalStatsPath(mergedRoot);
+		CountTweetsInTimeperiod.mergeTimeIndex(CountTweetsInTimeperiod.constructIndexPath(outpath), incrementIndexPath,
+				mergedIndex);
+		CountTweetsInTimeperiod.mergeGlobalStats(CountTweetsInTimeperiod.constructGlobalStatsPath(outpath),
+				CountTweetsInTimeperiod.constructGlobalStatsPath(incrementRoot), mergedStats);
+
+		final Path wordsOut = new Path(outpath, CountWordsAcrossTimeperiod.WORDCOUNT_DIR);
+		final Path[] newCounts = SequenceFileUtility.getFilePaths(incrementCounts.toString(), "part");
+		final Path[] oldWords = SequenceFileUtility.getFilePaths(wordsOut.toString(), "part");
+		final Path[] wordInputs = new Path[newCounts.length + oldWords.length];
+		System.arraycopy(newCounts, 0, wordInputs, 0, newCounts.length);
+		System.arraycopy(oldWords, 0, wordInputs, newCounts.length, oldWords.length);
+
+		final MultiStagedJob wordStage = new MultiStagedJob(wordInputs, incrementRoot, opts.getArgs());
+		wordStage.queueStage(new CountWordsAcrossTimeperiod(opts.getNonHadoopArgs(), combiningReducers, indexWords)
+				.incrementalStage(newTimes[0], mergedIndex));
+		final Path newWords = wordStage.runAll();
+
+		final Path timecountOut = new Path(outpath, CountTweetsInTimeperiod.TIMECOUNT_DIR);
+		final String suffix = freeSuffix(fs, timecountOut, newCounts, "-" + newTimes[0]);
+
+		// swap in the updated DFIDF, index and stats, keep the new counts
+		// with the old
+		fs.mkdirs(previousRoot);
+		replace(fs, newWords, wordsOut, new Path(previousRoot, CountWordsAcrossTimeperiod.WORDCOUNT_DIR));
+		replace(fs, mergedIndex, CountTweetsInTimeperiod.constructIndexPath(outpath), new Path(previousRoot,
+				CountTweetsInTimeperiod.TIMEINDEX_FILE));
+		replace(fs, mergedStats, CountTweetsInTimeperiod.constructGlobalStatsPath(outpath), new Path(previousRoot,
+				CountTweetsInTimeperiod.GLOBAL_STATS_FILE));
+		for (final Path part : newCounts) {
+			final Path to = new Path(timecountOut, part.getName() + suffix);
+			if (!fs.rename(part, to))
+				throw new IOException("Couldn't move " + part + " to " + to);
+		}
+		fs.delete(incrementRoot, true);
+		fs.delete(incrementPreprocessing, true);
+	}
+
+	/**
+	 * The first of suffix, suffix-1, suffix-2... which none of the parts can
+	 * be renamed with without replacing a file already in dir. Renaming onto
+	 * an existing file fails on HDFS but silently replaces it on the local
+	 * file system.
+	 */
+	private static String freeSuffix(FileSystem fs, Path dir, Path[] parts, String suffix) throws IOException {
+		String free = suffix;
+		for (int i = 1; taken(fs, dir, parts, free); i++)
+			free = suffix + "-" + i;
+		return free;
+	}
+
+	private static boolean taken(FileSystem fs, Path dir, Path[] parts, String suffix) throws IOException {
+		for (final Path part : parts) {
+			if (fs.exists(new Path(dir, part.getName() + suffix)))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Move current aside and updated into its place. If updated can't be
+	 * moved, current is moved back.
+	 */
+	private static void replace(FileSystem fs, Path updated, Path current, Path aside) throws IOException {
+		if (fs.exists(current) && !fs.rename(current, aside))
+			throw new IOException("Couldn't move " + current + " to " + aside);
+		if (!fs.rename(updated, current)) {
+			if (fs.exists(aside))
+				fs.rename(aside, current);
+			throw new IOException("Couldn't move " + updated + " to " + current);
+		}
+	}
+
+	/**
+	 * @return whether the input is newly arrived data to be folded into the
+	 *         existing output
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	private static boolean hasOutput(Path path) throws IOException {
+		return HadoopToolsUtil.fileExists(path.toString())
+				&& SequenceFileUtility.getFilePaths(path.toString(), "part").length != 0;
 	}
 
 	@Override
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.mode.dfidf;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.openimaj.hadoop.tools.twitter.utils.TimeperiodTweetCountWordCount;
+
+/**
+ * A {@link TimeperiodTweetCountWordCount} which can be shuffled directly. The
+ * serialised form is that of
+ * {@link TimeperiodTweetCountWordCount#writeBinary(DataOutput)}.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class WritableTimeperiodTweetCountWordCount extends TimeperiodTweetCountWordCount implements Writable {
+	/**
+	 * an empty count
+	 */
+	public WritableTimeperiodTweetCountWordCount() {
+	}
+
+	/**
+	 * @return a (non writable) copy of this count, for values which are kept
+	 *         while the reused instance moves on
+	 */
+	public TimeperiodTweetCountWordCount copy() {
+		return new TimeperiodTweetCountWordCount(timeperiod, wordcount, tweetcount);
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		writeBinary(out);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		readBinary(in);
+	}
+}
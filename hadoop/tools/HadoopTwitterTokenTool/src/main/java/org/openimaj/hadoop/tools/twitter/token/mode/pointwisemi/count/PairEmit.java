@@ -32,7 +32,6 @@ package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count;
 import java.io.IOException;
 import java.util.List;
 
-import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
@@ -40,7 +39,6 @@ import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 import org.kohsuke.args4j.CmdLineException;
 import org.openimaj.hadoop.tools.twitter.HadoopTwitterTokenToolOptions;
-import org.openimaj.io.IOUtils;
 import org.openimaj.twitter.USMFStatus;
 
 /**
@@ -48,7 +46,7 @@ import org.openimaj.twitter.USMFStatus;
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class PairEmit extends Mapper<LongWritable, Text, BytesWritable, BytesWritable> {
+public class PairEmit extends Mapper<LongWritable, Text, TokenPairKey, TokenPairCount> {
 	
 	/**
 	 * The string which splits times and places. Constructed to be unlikely to be an actual token (words and punctuation)
@@ -57,8 +55,10 @@ public class PairEmit extends Mapper<LongWritable, Text, BytesWritable, BytesWri
 	private static HadoopTwitterTokenToolOptions options;
 	private static long timeDeltaMillis = DEFAULT_TIME;
 	Logger logger = Logger.getLogger(PairEmit.class);
+	private final TokenPairKey outkey = new TokenPairKey();
+	private final TokenPairCount outcount = new TokenPairCount();
 
-	protected static synchronized void loadOptions(Mapper<LongWritable, Text, BytesWritable, BytesWritable>.Context context) throws IOException {
+	protected static synchronized void loadOptions(Mapper<LongWritable, Text, TokenPairKey, TokenPairCount>.Context context) throws IOException {
 		if (options == null) {
 			try {
 				options = new HadoopTwitterTokenToolOptions(context.getConfiguration().getStrings(HadoopTwitterTokenToolOptions.ARGS_KEY));
@@ -74,12 +74,12 @@ public class PairEmit extends Mapper<LongWritable, Text, BytesWritable, BytesWri
 	}
 
 	@Override
-	protected void setup(Mapper<LongWritable, Text, BytesWritable, BytesWritable>.Context context) throws IOException, InterruptedException {
+	protected void setup(Mapper<LongWritable, Text, TokenPairKey, TokenPairCount>.Context context) throws IOException, InterruptedException {
 		loadOptions(context);
 	}
 	
 	@Override
-	protected void map(LongWritable key, Text value, Mapper<LongWritable,Text,BytesWritable,BytesWritable>.Context context) throws IOException ,InterruptedException {
+	protected void map(LongWritable key, Text value, Mapper<LongWritable,Text,TokenPairKey,TokenPairCount>.Context context) throws IOException ,InterruptedException {
 		List<String> tokens = null;
 		DateTime time = null;
 		try {
@@ -99,22 +99,22 @@ public class PairEmit extends Mapper<LongWritable, Text, BytesWritable, BytesWri
 			String tok2;
 			for (int j = i+1; j < tokens.size(); j++) {
 				tok2 = tokens.get(j);
-				TokenPairCount tpc = null;
 				int cmp = tok1.compareTo(tok2);
 				if(cmp > 0){
-					tpc = new TokenPairCount(tok2, tok1);
+					outcount.set(tok2, tok1);
 				}
 				else{
-					tpc = new TokenPairCount(tok1, tok2);
+					outcount.set(tok1, tok2);
 				}
-				tpc.paircount = 1;
-				BytesWritable keywrite = new BytesWritable(tpc.identifierBinary(timeIndex));
-				context.write(keywrite, new BytesWritable(IOUtils.serialize(tpc)));
+				outcount.paircount = 1;
+				outkey.set(timeIndex, outcount);
+				context.write(outkey, outcount);
 				context.getCounter(PairEnum.PAIR).increment(1);
 			}
-			TokenPairCount tpc = new TokenPairCount(tok1);
-			tpc.paircount = tokens.size() - 1;
-			context.write(new BytesWritable(tpc.identifierBinary(timeIndex)), new BytesWritable(IOUtils.serialize(tpc)));
+			outcount.set(tok1, null);
+			outcount.paircount = tokens.size() - 1;
+			outkey.set(timeIndex, outcount);
+			context.write(outkey, outcount);
 			context.getCounter(PairEnum.UNARY).increment(1);
 		}
 		
@@ -31,10 +31,8 @@ package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count;
 
 import java.io.IOException;
 
-import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.log4j.Logger;
-import org.openimaj.io.IOUtils;
 
 /**
  * Assumes each key is a timeperiod split set of words ordered by single/pair words then by word order.
@@ -47,32 +45,28 @@ import org.openimaj.io.IOUtils;
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class PairEmitCombiner extends Reducer<BytesWritable, BytesWritable, BytesWritable, BytesWritable> {
+public class PairEmitCombiner extends Reducer<TokenPairKey, TokenPairCount, TokenPairKey, TokenPairCount> {
 	
 	Logger logger = Logger.getLogger(PairEmitCombiner.class);
+	private final TokenPairKey outkey = new TokenPairKey();
 	
 	@Override
-	protected void reduce(BytesWritable timeword, Iterable<BytesWritable> paircounts, Reducer<BytesWritable,BytesWritable,BytesWritable,BytesWritable>.Context context) throws IOException ,InterruptedException {
+	protected void reduce(TokenPairKey timeword, Iterable<TokenPairCount> paircounts, Reducer<TokenPairKey,TokenPairCount,TokenPairKey,TokenPairCount>.Context context) throws IOException ,InterruptedException {
 		TokenPairCollector collector = new TokenPairCollector();
-//		
-		long time = TokenPairCount.timeFromBinaryIdentity(timeword.getBytes());
-		
-//		logger.info("Combining time: " + time);
-		for (BytesWritable bytesWritable : paircounts) {
-			TokenPairCount paircount = IOUtils.deserialize(bytesWritable.getBytes(), TokenPairCount.class);
+		long time = timeword.time;
+		for (TokenPairCount paircount : paircounts) {
 			TokenPairCount collectorRet = collector.add(paircount);
 			if(collectorRet != null){
-				context.write(new BytesWritable(collectorRet.identifierBinary(time)), new BytesWritable(IOUtils.serialize(collectorRet)));
-				if(!collectorRet.isSingle){
-					context.getCounter(PairEnum.PAIR_COMBINED).increment(1);
-				}else{
-					context.getCounter(PairEnum.UNARY_COMBINED).increment(1);
-				}
+				emit(time, collectorRet, context);
 			}
 		}
 		// Final write
-		TokenPairCount collectorRet = collector.getCurrent();
-		context.write(new BytesWritable(collectorRet.identifierBinary(time)), new BytesWritable(IOUtils.serialize(collectorRet)));
+		emit(time, collector.getCurrent(), context);
+	}
+
+	private void emit(long time, TokenPairCount collectorRet, Reducer<TokenPairKey,TokenPairCount,TokenPairKey,TokenPairCount>.Context context) throws IOException, InterruptedException {
+		outkey.set(time, collectorRet);
+		context.write(outkey, collectorRet);
 		if(!collectorRet.isSingle){
 			context.getCounter(PairEnum.PAIR_COMBINED).increment(1);
 		}else{
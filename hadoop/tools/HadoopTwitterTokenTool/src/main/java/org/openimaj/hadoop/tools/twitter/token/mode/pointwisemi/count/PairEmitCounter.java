@@ -36,11 +36,9 @@ import java.util.Map;
 
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.log4j.Logger;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
-import org.openimaj.io.IOUtils;
 
 /**
  * The input to this reducer is ordered firstly by unary/pairs then within these sets by word
@@ -51,13 +49,15 @@ import org.openimaj.io.IOUtils;
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class PairEmitCounter extends Reducer<BytesWritable, BytesWritable, BytesWritable, BytesWritable> {
+public class PairEmitCounter extends Reducer<TokenPairKey, TokenPairCount, TokenPairKey, TokenPairUnaryCount> {
 	Map<String,Long> unaryCounts = null;
 	private Path timeperiodCountOutputRoot;
 	Logger logger = Logger.getLogger(PairEmitCounter.class);
+	private final TokenPairKey outkey = new TokenPairKey();
+	private final TokenPairUnaryCount outcount = new TokenPairUnaryCount();
 	
 	@Override
-	protected void setup(Reducer<BytesWritable,BytesWritable,BytesWritable,BytesWritable>.Context context) throws IOException ,InterruptedException {
+	protected void setup(Reducer<TokenPairKey,TokenPairCount,TokenPairKey,TokenPairUnaryCount>.Context context) throws IOException ,InterruptedException {
 		this.timeperiodCountOutputRoot = new Path(context.getConfiguration().get(PairMutualInformation.TIMEPERIOD_COUNT_OUTPUT_ROOT));
 		if(!HadoopToolsUtil.getFileSystem(this.timeperiodCountOutputRoot ).mkdirs(this.timeperiodCountOutputRoot)) throw new IOException("Couldn't create: " + this.timeperiodCountOutputRoot);
 	};
@@ -66,16 +66,15 @@ public class PairEmitCounter extends Reducer<BytesWritable, BytesWritable, Bytes
 		this.unaryCounts = new HashMap<String,Long>();
 	}
 	@Override
-	protected void reduce(BytesWritable timeB, Iterable<BytesWritable> paircounts, Reducer<BytesWritable,BytesWritable,BytesWritable,BytesWritable>.Context context) throws IOException ,InterruptedException {
-		long time = TokenPairCount.timeFromBinaryIdentity(timeB.getBytes());
+	protected void reduce(TokenPairKey timeB, Iterable<TokenPairCount> paircounts, Reducer<TokenPairKey,TokenPairCount,TokenPairKey,TokenPairUnaryCount>.Context context) throws IOException ,InterruptedException {
+		long time = timeB.time;
 		// Prepare the timeperiod output
 		Path timeperiodCountOutput = new Path(timeperiodCountOutputRoot,""+time);
 		
 		long pairsCount = 0;
 		// Start with unary count
 		TokenPairCollector collector = new TokenPairCollector();
-		for (BytesWritable bytesWritable : paircounts) {
-			TokenPairCount newcount = IOUtils.deserialize(bytesWritable.getBytes(), TokenPairCount.class);
+		for (TokenPairCount newcount : paircounts) {
 			TokenPairCount count = collector.add(newcount);
 			if(count!=null){
 				pairsCount += count.paircount;
@@ -90,8 +89,7 @@ public class PairEmitCounter extends Reducer<BytesWritable, BytesWritable, Bytes
 		
 		writeTimeperiodCount(timeperiodCountOutput,pairsCount);
 		
-		for (BytesWritable bytesWritable : paircounts) {
-			TokenPairCount newcount = IOUtils.deserialize(bytesWritable.getBytes(), TokenPairCount.class);
+		for (TokenPairCount newcount : paircounts) {
 			if(newcount.isSingle){
 				// The list was not sorted!
 				throw new IOException("List of TokenPairCounts was not sorted such that ALL singles appeared before pairs");
@@ -111,12 +109,13 @@ public class PairEmitCounter extends Reducer<BytesWritable, BytesWritable, Bytes
 		writer.close();
 	}
 
-	private void emitPairCount(long time, TokenPairCount currentcount, Reducer<BytesWritable,BytesWritable,BytesWritable,BytesWritable>.Context context) throws IOException, InterruptedException {
-		long tok1count = this.unaryCounts.get(currentcount.firstObject());
-		long tok2count = this.unaryCounts.get(currentcount.secondObject());
-		BytesWritable key = new BytesWritable(currentcount.identifierBinary(time));
-		TokenPairUnaryCount tpuc = new TokenPairUnaryCount(currentcount, tok1count,tok2count);
-		context.write(key, new BytesWritable(IOUtils.serialize(tpuc)));
+	private void emitPairCount(long time, TokenPairCount currentcount, Reducer<TokenPairKey,TokenPairCount,TokenPairKey,TokenPairUnaryCount>.Context context) throws IOException, InterruptedException {
+		outcount.set(currentcount.firstObject(), currentcount.secondObject());
+		outcount.paircount = currentcount.paircount;
+		outcount.tok1count = this.unaryCounts.get(currentcount.firstObject());
+		outcount.tok2count = this.unaryCounts.get(currentcount.secondObject());
+		outkey.set(time, outcount);
+		context.write(outkey, outcount);
 	}
 	private void addUnaryWordCount(TokenPairCount currentcount) {
 		this.unaryCounts.put(currentcount.firstObject(), currentcount.paircount);
@@ -41,11 +41,10 @@ import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.openimaj.hadoop.mapreduce.stage.helper.TextByteByteStage;
+import org.openimaj.hadoop.mapreduce.stage.helper.TextSequenceFileStage;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
 import org.openimaj.hadoop.tools.twitter.HadoopTwitterTokenToolOptions;
 import org.openimaj.io.IOUtils;
@@ -54,7 +53,7 @@ import org.openimaj.io.IOUtils;
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class PairMutualInformation extends TextByteByteStage{
+public class PairMutualInformation extends TextSequenceFileStage<TokenPairKey, TokenPairCount, TokenPairKey, TokenPairUnaryCount>{
 
 	/**
 	 * The time delta between time periods
@@ -112,7 +111,7 @@ public class PairMutualInformation extends TextByteByteStage{
 	
 	
 	@Override
-	public Class<? extends Reducer<BytesWritable, BytesWritable, BytesWritable, BytesWritable>> combiner() {
+	public Class<? extends Reducer<TokenPairKey, TokenPairCount, TokenPairKey, TokenPairCount>> combiner() {
 		return PairEmitCombiner.class;
 	}
 	
@@ -123,7 +122,7 @@ public class PairMutualInformation extends TextByteByteStage{
 	}
 	
 	@Override
-	public Class<? extends Reducer<BytesWritable, BytesWritable, BytesWritable, BytesWritable>> reducer() {
+	public Class<? extends Reducer<TokenPairKey, TokenPairCount, TokenPairKey, TokenPairUnaryCount>> reducer() {
 		return PairEmitCounter.class;
 	}
 	
@@ -30,44 +30,51 @@
 package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count;
 
 /**
- * Assumes TokenPairCount instances will be added in order.
+ * Assumes TokenPairCount instances will be added in order. Instances handed to
+ * {@link #add(TokenPairCount)} are copied, so reducers can reuse the value
+ * objects handed to them.
  * 
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
 class TokenPairCollector{
 	private TokenPairCount currentToken;
-	private String currentString;
 
 	public TokenPairCollector(){
 		this.currentToken = null;
-		this.currentString = null;
 	}
 	
 	public TokenPairCount add(TokenPairCount count){
 		if(this.currentToken == null){
-			this.currentToken = count;
-			this.currentString = count.identifier();
-//			System.out.println("Starting with: " + currentString);
+			this.currentToken = copy(count);
 			return null;
 		}
 		
-		String nextid = count.identifier();
-		if(this.currentString.equals(nextid)){
+		if(samePair(this.currentToken, count)){
 			this.currentToken.add(count);
 			return null;
 		}
 		else
 		{
 			TokenPairCount toRet = this.currentToken;
-			this.currentToken = count;
-			this.currentString = count.identifier();
-//			System.out.println("Switching to: " + currentString);
+			this.currentToken = copy(count);
 			return toRet;
 		}
 		
 	}
 
+	private static boolean samePair(TokenPairCount a, TokenPairCount b) {
+		if(a.isSingle != b.isSingle) return false;
+		if(!a.firstObject().equals(b.firstObject())) return false;
+		return a.isSingle || a.secondObject().equals(b.secondObject());
+	}
+
+	private static TokenPairCount copy(TokenPairCount count) {
+		TokenPairCount copy = new TokenPairCount(count.firstObject(), count.isSingle ? null : count.secondObject());
+		copy.paircount = count.paircount;
+		return copy;
+	}
+
 	public boolean isCurrentPair() {
 		return currentToken != null && !currentToken.isSingle;
 	}
@@ -76,4 +83,4 @@ class TokenPairCollector{
 		return this.currentToken;
 	}
 	
-}
\ No newline at end of file
+}
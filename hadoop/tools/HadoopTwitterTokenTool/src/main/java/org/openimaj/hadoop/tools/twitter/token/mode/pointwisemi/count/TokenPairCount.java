@@ -44,6 +44,7 @@ import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.hadoop.io.Writable;
 import org.openimaj.io.IOUtils;
 import org.openimaj.io.ReadWriteable;
 import org.openimaj.util.pair.IndependentPair;
@@ -54,10 +55,12 @@ import org.openimaj.util.pair.Pair;
  * <ul>
  * <li>number of times the pair appears together in a document</li>
  * </ul>
+ * The {@link Writable} form is the same as the binary form so instances can be
+ * shuffled directly (and reused) rather than wrapped in serialised bytes.
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class TokenPairCount extends Pair<String> implements ReadWriteable{
+public class TokenPairCount extends Pair<String> implements ReadWriteable, Writable{
 	
 	private static final String TIMESPLIT = ".AT.";
 	private static Pattern timeSplitPattern = Pattern.compile(TIMESPLIT);
@@ -90,15 +93,35 @@ public class TokenPairCount extends Pair<String> implements ReadWriteable{
 	public TokenPairCount(String tok1) {
 		this(tok1,null);
 	}
+	
+	/**
+	 * Set the tokens of this count, a single count if tok2 is null
+	 * @param tok1
+	 * @param tok2
+	 */
+	public void set(String tok1, String tok2) {
+		this.setFirstObject(tok1);
+		this.setSecondObject(tok2);
+		this.isSingle = tok2 == null;
+	}
 
 	@Override
 	public void readBinary(DataInput in) throws IOException {
 		this.isSingle = in.readBoolean();
 		this.setFirstObject(in.readUTF());
-		if(!isSingle)
-			this.setSecondObject(in.readUTF());
+		this.setSecondObject(isSingle ? null : in.readUTF());
 		this.paircount = in.readLong();
 	}
+	
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		readBinary(in);
+	}
+	
+	@Override
+	public void write(DataOutput out) throws IOException {
+		writeBinary(out);
+	}
 
 	@Override
 	public byte[] binaryHeader() {
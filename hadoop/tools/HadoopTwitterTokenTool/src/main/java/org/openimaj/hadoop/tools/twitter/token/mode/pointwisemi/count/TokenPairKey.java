@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * The shuffle key of a {@link TokenPairCount} in a time period. Keys are
+ * ordered by time, then with unary counts before pairs, then by the tokens.
+ * The serialised form is the time, whether the key is a single token and the
+ * token(s) as UTF, so {@link TokenPairKeyComparator} can order keys without
+ * deserialising them.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class TokenPairKey implements WritableComparable<TokenPairKey> {
+	static {
+		WritableComparator.define(TokenPairKey.class, new TokenPairKeyComparator());
+	}
+
+	/**
+	 * the time period
+	 */
+	public long time;
+	/**
+	 * whether this is the key of a unary count
+	 */
+	public boolean isSingle;
+	/**
+	 * the first token
+	 */
+	public String first;
+	/**
+	 * the second token, null if {@link #isSingle}
+	 */
+	public String second;
+
+	/**
+	 * an empty key
+	 */
+	public TokenPairKey() {
+	}
+
+	/**
+	 * @param time
+	 * @param tpc
+	 */
+	public TokenPairKey(long time, TokenPairCount tpc) {
+		set(time, tpc);
+	}
+
+	/**
+	 * Set this key to the tokens of a count
+	 * 
+	 * @param time
+	 * @param tpc
+	 */
+	public void set(long time, TokenPairCount tpc) {
+		this.time = time;
+		this.isSingle = tpc.isSingle;
+		this.first = tpc.firstObject();
+		this.second = tpc.isSingle ? null : tpc.secondObject();
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeLong(time);
+		out.writeBoolean(isSingle);
+		out.writeUTF(first);
+		if (!isSingle)
+			out.writeUTF(second);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		this.time = in.readLong();
+		this.isSingle = in.readBoolean();
+		this.first = in.readUTF();
+		this.second = isSingle ? null : in.readUTF();
+	}
+
+	@Override
+	public int compareTo(TokenPairKey that) {
+		if (this.time != that.time)
+			return this.time < that.time ? -1 : 1;
+		if (this.isSingle != that.isSingle)
+			return this.isSingle ? -1 : 1;
+		final int cmp = this.first.compareTo(that.first);
+		if (cmp != 0 || this.isSingle)
+			return cmp;
+		return this.second.compareTo(that.second);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof TokenPairKey))
+			return false;
+		return compareTo((TokenPairKey) obj) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = (int) (time ^ (time >>> 32));
+		hash = 31 * hash + first.hashCode();
+		if (!isSingle)
+			hash = 31 * hash + second.hashCode();
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return "T" + time + ":" + first + (isSingle ? "" : "," + second);
+	}
+}
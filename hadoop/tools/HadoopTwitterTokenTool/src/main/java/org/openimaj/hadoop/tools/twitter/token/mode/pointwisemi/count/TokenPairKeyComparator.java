@@ -29,80 +29,51 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.IOException;
-import org.apache.hadoop.io.BytesWritable;
-import org.apache.hadoop.io.RawComparator;
-import org.apache.log4j.Logger;
-
+import org.apache.hadoop.io.WritableComparator;
 
 /**
- * Read a tokenpair and make sure the single words appear before the pair words
+ * Order serialised {@link TokenPairKey}s by time, making sure the single words
+ * appear before the pair words, then by the words. The words are compared as
+ * their (modified) UTF-8 bytes which orders them as {@link String#compareTo}
+ * does for any word without a NUL character.
+ * 
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
- *
+ * 
  */
-public class TokenPairKeyComparator implements RawComparator<BytesWritable> {
-	Logger logger = Logger.getLogger(TokenPairKeyComparator.class);
-	@Override
-	public int compare(BytesWritable o1, BytesWritable o2) {
-		return compareData(o1.getBytes(),0,o1.getLength(),o2.getBytes(),0,o2.getLength());
+public class TokenPairKeyComparator extends WritableComparator {
+	/**
+	 * a comparator of {@link TokenPairKey}s
+	 */
+	public TokenPairKeyComparator() {
+		super(TokenPairKey.class);
 	}
 
 	@Override
 	public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
-		return compareData(b1,s1+4,l1-4,b2,s2+4,l2-4); // Expecting bytes writeable, skip the BytesWritable length
-	}
-	
-	private int compareData(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2){
-		DataInputStream dis1  = null;
-		DataInputStream dis2  = null;
-		try{
-			dis1 = new DataInputStream(new ByteArrayInputStream(b1,s1,l1));
-			dis2 = new DataInputStream(new ByteArrayInputStream(b2,s2,l2));
-			
-			// first check the time, return early if they are not the same time!
-			long time1 = dis1.readLong();
-			long time2 = dis2.readLong();
-			if(time1<time2){
-				return -1;
-			}
-			else if(time1>time2){
-				return 1;
-			}
-			
-			// now check if they are both pair counts, if not, make sure the unary count goes first
-			boolean single1 = dis1.readBoolean();
-			boolean single2 = dis2.readBoolean();
-			if(single1 && !single2){
-				return -1;
-			}
-			else if(!single1 && single2){
-				return 1;
-			}
-			
-			// now either they are both single, or they are both pairs, either way compare the first strings first
-			int cmpFirstString = dis1.readUTF().compareTo(dis2.readUTF());
-			if(single1){
-				return cmpFirstString;
-			}
-			// Both are pairs, were their first strings unequal?
-			if(cmpFirstString != 0){
-				return cmpFirstString;
-			}
-			
-			// Shared the first string! right! now compare the final string!
-			return dis1.readUTF().compareTo(dis2.readUTF());
-		} catch (IOException e) {
-			return 0;
-		}
-		finally{
-			try {
-				dis1.close();
-				dis2.close();
-			} catch (IOException e) {
-				// eep!
-			}
-		}
+		// first check the time, return early if they are not the same time!
+		final long time1 = readLong(b1, s1);
+		final long time2 = readLong(b2, s2);
+		if (time1 != time2)
+			return time1 < time2 ? -1 : 1;
+
+		// now check if they are both pair counts, if not, make sure the unary
+		// count goes first
+		final boolean single1 = b1[s1 + 8] != 0;
+		final boolean single2 = b2[s2 + 8] != 0;
+		if (single1 != single2)
+			return single1 ? -1 : 1;
+
+		// compare the first strings, then the second if both are pairs
+		int p1 = s1 + 9;
+		int p2 = s2 + 9;
+		final int len1 = readUnsignedShort(b1, p1);
+		final int len2 = readUnsignedShort(b2, p2);
+		final int cmpFirstString = compareBytes(b1, p1 + 2, len1, b2, p2 + 2, len2);
+		if (single1 || cmpFirstString != 0)
+			return cmpFirstString;
+
+		p1 += 2 + len1;
+		p2 += 2 + len2;
+		return compareBytes(b1, p1 + 2, readUnsignedShort(b1, p1), b2, p2 + 2, readUnsignedShort(b2, p2));
 	}
 }
@@ -29,37 +29,33 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count;
 
-import java.io.IOException;
-
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.mapreduce.Partitioner;
-import org.apache.log4j.Logger;
-
-public class TokenPairPartitioner extends Partitioner<BytesWritable,BytesWritable> implements Configurable{
 
+/**
+ * Partition {@link TokenPairKey}s by their time period so all the counts of a
+ * time period go to the same reducer
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class TokenPairPartitioner extends Partitioner<TokenPairKey, TokenPairCount> implements Configurable {
 
 	private Configuration conf;
 	private long timedelta;
-	Logger logger = Logger.getLogger(TokenPairPartitioner.class);
 
 	@Override
-	public int getPartition(BytesWritable key, BytesWritable value, int numPartitions) {
-		long time = -1;
-		try {
-			time = TokenPairCount.timeFromBinaryIdentity(key.getBytes());
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		if(timedelta == -1) return (int) (time % numPartitions);
-		else return (int) ((time / timedelta) % numPartitions);
+	public int getPartition(TokenPairKey key, TokenPairCount value, int numPartitions) {
+		final long period = timedelta == -1 ? key.time : key.time / timedelta;
+		// the default time is -1, keep the partition positive
+		return (int) (((period % numPartitions) + numPartitions) % numPartitions);
 	}
 
 	@Override
 	public void setConf(Configuration conf) {
 		this.conf = conf;
-		this.timedelta = conf.getLong(PairMutualInformation.TIMEDELTA,-1);
+		this.timedelta = conf.getLong(PairMutualInformation.TIMEDELTA, -1);
 	}
 
 	@Override
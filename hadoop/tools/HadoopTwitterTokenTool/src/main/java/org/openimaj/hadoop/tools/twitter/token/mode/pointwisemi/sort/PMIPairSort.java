@@ -36,7 +36,6 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.JobConf;
@@ -44,6 +43,8 @@ import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.openimaj.hadoop.mapreduce.stage.helper.SequenceFileTextStage;
+import org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count.TokenPairKey;
+import org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count.TokenPairUnaryCount;
 import org.openimaj.util.pair.IndependentPair;
 
 /**
@@ -51,7 +52,7 @@ import org.openimaj.util.pair.IndependentPair;
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class PMIPairSort extends SequenceFileTextStage<BytesWritable,BytesWritable,BytesWritable,BytesWritable,NullWritable,Text>{
+public class PMIPairSort extends SequenceFileTextStage<TokenPairKey,TokenPairUnaryCount,TimePMIKey,TokenPairUnaryCount,NullWritable,Text>{
 	/**
 	 * The minimum PMI
 	 */
@@ -93,12 +94,12 @@ public class PMIPairSort extends SequenceFileTextStage<BytesWritable,BytesWritab
 	}
 
 	@Override
-	public Class<? extends Mapper<BytesWritable, BytesWritable, BytesWritable, BytesWritable>> mapper() {
+	public Class<? extends Mapper<TokenPairKey, TokenPairUnaryCount, TimePMIKey, TokenPairUnaryCount>> mapper() {
 		return PMISortMapper.class;
 	}
 	
 	@Override
-	public Class<? extends Reducer<BytesWritable, BytesWritable, NullWritable,Text>> reducer() {
+	public Class<? extends Reducer<TimePMIKey, TokenPairUnaryCount, NullWritable,Text>> reducer() {
 		return PMISortReducer.class;
 	}
 	@Override
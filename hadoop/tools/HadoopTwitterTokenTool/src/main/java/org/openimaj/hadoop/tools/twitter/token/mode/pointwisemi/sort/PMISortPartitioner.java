@@ -29,34 +29,23 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.sort;
 
-import java.io.IOException;
-
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.mapreduce.Partitioner;
 import org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count.PairMutualInformation;
+import org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count.TokenPairUnaryCount;
 
-public class PMISortPartitioner extends Partitioner<BytesWritable,BytesWritable> implements Configurable {
+public class PMISortPartitioner extends Partitioner<TimePMIKey,TokenPairUnaryCount> implements Configurable {
 
 
 	private Configuration conf;
 	private Long timedelta;
 
 	@Override
-	public int getPartition(BytesWritable key, BytesWritable value, int numPartitions) {;
-		long time;
-		try {
-			time = PMIPairSort.parseTimeBinary(key.getBytes()).firstObject();
-			if(timedelta == -1) {
-				return (int) (time % numPartitions);
-			}
-			else {
-				return (int) ((time / timedelta) % numPartitions);
-			}
-		} catch (IOException e) {
-		}
-		return 0;
+	public int getPartition(TimePMIKey key, TokenPairUnaryCount value, int numPartitions) {
+		long period = timedelta == -1 ? key.time : key.time / timedelta;
+		// the default time is -1, keep the partition positive
+		return (int) (((period % numPartitions) + numPartitions) % numPartitions);
 	}
 
 	@Override
@@ -29,50 +29,37 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.sort;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.IOException;
-import org.apache.hadoop.io.BytesWritable;
-import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
 
 
 /**
- * Read a tokenpair and make sure the single words appear before the pair words
+ * Group serialised {@link TimePMIKey}s by time alone. The keys are read in
+ * place.
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class PMISortValueGroupingComparator implements RawComparator<BytesWritable> {
+public class PMISortValueGroupingComparator extends WritableComparator {
 
-	@Override
-	public int compare(BytesWritable o1, BytesWritable o2) {
-		return compareData(o1.getBytes(),0,o1.getLength(),o2.getBytes(),0,o2.getLength());
+	/**
+	 * a grouping comparator of {@link TimePMIKey}s
+	 */
+	public PMISortValueGroupingComparator() {
+		super(TimePMIKey.class);
 	}
 
+	@SuppressWarnings("rawtypes")
 	@Override
-	public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
-		return compareData(b1,s1+4,l1-4,b2,s2+4,l2-4);
+	public int compare(WritableComparable a, WritableComparable b) {
+		final long t1 = ((TimePMIKey) a).time;
+		final long t2 = ((TimePMIKey) b).time;
+		return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
 	}
 
-	private int compareData(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
-		DataInputStream dis1 = new DataInputStream(new ByteArrayInputStream(b1,s1,l1));
-		DataInputStream dis2 = new DataInputStream(new ByteArrayInputStream(b2,s2,l2));
-		
-		try {
-			// group up by times first
-			long t1;
-			long t2;
-			t1 = dis1.readLong();
-			t2 = dis2.readLong();
-			
-			if(t1 < t2){
-				return -1;
-			}
-			else if(t1 > t2){
-				return 1;
-			}
-			return 0;
-		} catch (IOException e) {
-		}
-		return 0;
+	@Override
+	public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+		final long t1 = readLong(b1, s1);
+		final long t2 = readLong(b2, s2);
+		return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
 	}
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.sort;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * The shuffle key of the PMI sort, a time period and the PMI of a pair in that
+ * period. Keys are ordered by time and then with the biggest PMI first. The
+ * serialised form is the time and the PMI as a long and a double, so
+ * {@link PMISortKeyComparator} can order keys without deserialising them.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class TimePMIKey implements WritableComparable<TimePMIKey> {
+	static {
+		WritableComparator.define(TimePMIKey.class, new PMISortKeyComparator());
+	}
+
+	/**
+	 * The length of a serialised key
+	 */
+	public static final int LENGTH = 16;
+
+	/**
+	 * the time period
+	 */
+	public long time;
+	/**
+	 * the pmi
+	 */
+	public double pmi;
+
+	/**
+	 * an empty key
+	 */
+	public TimePMIKey() {
+	}
+
+	/**
+	 * @param time
+	 * @param pmi
+	 */
+	public TimePMIKey(long time, double pmi) {
+		set(time, pmi);
+	}
+
+	/**
+	 * @param time
+	 * @param pmi
+	 */
+	public void set(long time, double pmi) {
+		this.time = time;
+		this.pmi = pmi;
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeLong(time);
+		out.writeDouble(pmi);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		this.time = in.readLong();
+		this.pmi = in.readDouble();
+	}
+
+	@Override
+	public int compareTo(TimePMIKey that) {
+		if (this.time != that.time)
+			return this.time < that.time ? -1 : 1;
+		// NOTE: pmi goes biggest first!
+		if (this.pmi > that.pmi)
+			return -1;
+		if (this.pmi < that.pmi)
+			return 1;
+		return 0;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof TimePMIKey))
+			return false;
+		return compareTo((TimePMIKey) obj) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		final long bits = Double.doubleToLongBits(pmi);
+		return 31 * (int) (time ^ (time >>> 32)) + (int) (bits ^ (bits >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "T" + time + ":" + pmi;
+	}
+}
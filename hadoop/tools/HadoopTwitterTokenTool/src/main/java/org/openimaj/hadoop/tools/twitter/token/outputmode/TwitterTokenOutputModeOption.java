@@ -35,6 +35,7 @@ import org.openimaj.hadoop.tools.twitter.HadoopTwitterTokenToolOptions;
 import org.openimaj.hadoop.tools.twitter.token.mode.TwitterTokenMode;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.correlation.CorrelationOutputMode;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.jacard.JacardIndexOutputMode;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.SparseBinaryTokenOutputMode;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.SparseCSVTokenOutputMode;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.stats.StatsOutputMode;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.timeseries.SpecificWordTimeSeries;
@@ -57,6 +58,17 @@ public enum TwitterTokenOutputModeOption implements CmdLineOptionsProvider{
 			return new SparseCSVTokenOutputMode();
 		}
 		
+	},
+	/**
+	 * outputs a binary sparse matrix
+	 */
+	SPARSE_BINARY {
+
+		@Override
+		public TwitterTokenOutputMode getOptions() {
+			return new SparseBinaryTokenOutputMode();
+		}
+
 	},
 	/**
 	 * outputs a SPECIFIC_WORDfile  
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.correlation;
+
+import org.apache.commons.math.MathException;
+import org.apache.commons.math.distribution.TDistribution;
+import org.apache.commons.math.distribution.TDistributionImpl;
+import org.apache.commons.math.stat.correlation.PearsonsCorrelation;
+
+/**
+ * Pearson's correlation of many series against a fixed set of reference
+ * series of the same length, e.g. word time series against stock tickers.
+ * Each reference series is standardised once, to zero mean and unit norm, so
+ * correlating a series against every reference is a pass over the series to
+ * centre it followed by one dot product per reference. The p-values are those
+ * of {@link PearsonsCorrelation#getCorrelationPValues()}, from a single t
+ * distribution shared by every correlation.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class ReferenceSeriesCorrelation {
+	private String[] names;
+	private double[][] standardised;
+	private int length;
+	private TDistribution tDistribution;
+
+	/**
+	 * @param names
+	 *            the name of each reference series
+	 * @param series
+	 *            the reference series, all of the same length
+	 */
+	public ReferenceSeriesCorrelation(String[] names, double[][] series) {
+		this.names = names;
+		this.length = series.length == 0 ? 0 : series[0].length;
+		this.standardised = new double[series.length][];
+		for (int r = 0; r < series.length; r++) {
+			if (series[r].length != length)
+				throw new IllegalArgumentException("Reference series " + names[r] + " has length " + series[r].length
+						+ ", expected " + length);
+			standardised[r] = standardise(series[r]);
+		}
+		if (length > 2)
+			this.tDistribution = new TDistributionImpl(length - 2);
+	}
+
+	/**
+	 * @return the values less their mean, scaled to unit norm. A constant
+	 *         series has no norm and becomes NaN, as its correlation is
+	 *         undefined.
+	 */
+	private static double[] standardise(double[] series) {
+		final double[] ret = new double[series.length];
+		centre(series, ret);
+		double norm = 0;
+		for (int i = 0; i < ret.length; i++)
+			norm += ret[i] * ret[i];
+		norm = Math.sqrt(norm);
+		for (int i = 0; i < ret.length; i++)
+			ret[i] /= norm;
+		return ret;
+	}
+
+	/**
+	 * Fill centred with the values less their mean
+	 *
+	 * @return the mean
+	 */
+	private static double centre(double[] series, double[] centred) {
+		double sum = 0;
+		for (int i = 0; i < series.length; i++)
+			sum += series[i];
+		final double mean = sum / series.length;
+		for (int i = 0; i < series.length; i++)
+			centred[i] = series[i] - mean;
+		return mean;
+	}
+
+	/**
+	 * Correlate a series against every reference series
+	 *
+	 * @param series
+	 *            a series of the same length as the references
+	 * @param corr
+	 *            filled with the correlation against each reference
+	 * @param pval
+	 *            filled with the p-value of each correlation, NaN if there
+	 *            are fewer than 3 values or the p-value can't be calculated
+	 */
+	public void correlate(double[] series, double[] corr, double[] pval) {
+		if (series.length != length)
+			throw new IllegalArgumentException("Series has length " + series.length + ", expected " + length);
+
+		final double[] centred = new double[length];
+		centre(series, centred);
+		double norm = 0;
+		for (int i = 0; i < length; i++)
+			norm += centred[i] * centred[i];
+		norm = Math.sqrt(norm);
+
+		for (int r = 0; r < standardised.length; r++) {
+			final double[] reference = standardised[r];
+			double dot = 0;
+			for (int i = 0; i < length; i++)
+				dot += centred[i] * reference[i];
+			final double c = dot / norm;
+			corr[r] = c;
+			pval[r] = pValue(c);
+		}
+	}
+
+	/**
+	 * @return the p-value of a correlation as
+	 *         {@link PearsonsCorrelation#getCorrelationPValues()}, or NaN
+	 */
+	private double pValue(double corr) {
+		if (tDistribution == null)
+			return Double.NaN;
+		final double t = Math.abs(corr * Math.sqrt((length - 2) / (1 - corr * corr)));
+		try {
+			return 2 * tDistribution.cumulativeProbability(-t);
+		}
+		catch (final MathException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * @return the number of reference series
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * @param r
+	 * @return the name of a reference series
+	 */
+	public String name(int r) {
+		return names[r];
+	}
+
+	/**
+	 * @return the length of every series
+	 */
+	public int length() {
+		return length;
+	}
+}
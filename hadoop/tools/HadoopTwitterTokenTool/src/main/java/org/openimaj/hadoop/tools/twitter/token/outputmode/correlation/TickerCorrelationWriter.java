@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.correlation;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.openimaj.ml.timeseries.series.DoubleTimeSeries;
+import org.openimaj.twitter.finance.YahooFinanceData;
+
+import com.Ostermiller.util.CSVPrinter;
+
+/**
+ * Writes the correlation of word time series against every stock ticker as
+ * CSV rows of word, ticker, correlation and p-value. Used by both
+ * {@link WordTimeperiodValueMapper} and {@link WordValueCorrelationReducer}.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class TickerCorrelationWriter {
+	private final ReferenceSeriesCorrelation correlation;
+
+	/**
+	 * Standardise, once for all words, the tickers in
+	 * {@link YahooFinanceData#labels()} order whose series cover every interval
+	 *
+	 * @param finance
+	 * @param financeSeries
+	 *            the series of each ticker
+	 * @param length
+	 *            the number of intervals
+	 */
+	public TickerCorrelationWriter(YahooFinanceData finance, Map<String, DoubleTimeSeries> financeSeries, int length) {
+		final List<String> names = new ArrayList<String>();
+		final List<double[]> series = new ArrayList<double[]>();
+		for (final String ticker : finance.labels()) {
+			if (!financeSeries.containsKey(ticker))
+				continue;
+			final double[] data = financeSeries.get(ticker).getData();
+			if (data.length != length)
+				continue;
+			names.add(ticker);
+			series.add(data);
+		}
+		this.correlation = new ReferenceSeriesCorrelation(names.toArray(new String[names.size()]),
+				series.toArray(new double[series.size()][]));
+	}
+
+	/**
+	 * Write a CSV row of word, ticker, correlation and p-value for every
+	 * ticker. A p-value which can't be calculated is written as NaN.
+	 *
+	 * @param word
+	 * @param data
+	 *            the word's series over the ticker intervals
+	 * @param context
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void write(String word, double[] data, TaskInputOutputContext<?, ?, NullWritable, Text> context)
+			throws IOException, InterruptedException
+	{
+		if (data.length != correlation.length()) {
+			System.out.println("Word series has length " + data.length + ", expected " + correlation.length());
+			return;
+		}
+		final double[] corr = new double[correlation.size()];
+		final double[] pval = new double[correlation.size()];
+		correlation.correlate(data, corr, pval);
+		for (int i = 0; i < corr.length; i++) {
+			final StringWriter swrit = new StringWriter();
+			final CSVPrinter csvp = new CSVPrinter(swrit);
+			csvp.write(new String[] { word, correlation.name(i), "" + corr[i], "" + pval[i] });
+			csvp.flush();
+			context.write(NullWritable.get(), new Text(swrit.toString()));
+		}
+	}
+}
@@ -31,13 +31,10 @@ package org.openimaj.hadoop.tools.twitter.token.outputmode.correlation;
 
 import java.io.DataInput;
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.commons.math.linear.BlockRealMatrix;
-import org.apache.commons.math.stat.correlation.PearsonsCorrelation;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
@@ -54,8 +51,6 @@ import org.openimaj.ml.timeseries.processor.IntervalSummationProcessor;
 import org.openimaj.ml.timeseries.series.DoubleTimeSeries;
 import org.openimaj.twitter.finance.YahooFinanceData;
 
-import com.Ostermiller.util.CSVPrinter;
-
 /**
  * Separate WordDFIDF entries for each word
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
@@ -67,6 +62,7 @@ public class WordTimeperiodValueMapper extends Mapper<Text, BytesWritable, NullW
 	static YahooFinanceData finance;
 	static Map<String, DoubleTimeSeries> financeSeries;
 	private static IntervalSummationProcessor<WordDFIDF[],WordDFIDF, WordDFIDFTimeSeries> interp;
+	private static TickerCorrelationWriter correlation;
 	protected static synchronized void loadOptions(Mapper<Text, BytesWritable, NullWritable, Text>.Context context) throws IOException {
 		if (finance == null) {
 			Path financeLoc = new Path(context.getConfiguration().getStrings(CorrelateWordTimeSeries.FINANCE_DATA)[0]);
@@ -75,6 +71,7 @@ public class WordTimeperiodValueMapper extends Mapper<Text, BytesWritable, NullW
 			financeSeries = finance.seriesMapInerp(SINGLE_DAY);
 			long[] times = financeSeries.get("High").getTimes();
 			interp = new IntervalSummationProcessor<WordDFIDF[],WordDFIDF, WordDFIDFTimeSeries>(times);
+			correlation = new TickerCorrelationWriter(finance, financeSeries, times.length);
 		}
 	}
 	
@@ -110,28 +107,7 @@ public class WordTimeperiodValueMapper extends Mapper<Text, BytesWritable, NullW
 			}
 		});
 		interp.process(wts);
-		double[][] tocorr = new double[2][];
-		tocorr[0] = wts.doubleTimeSeries().getData();
-		
-		for (String ticker : finance.labels()) {
-			try{
-				if(!financeSeries.containsKey(ticker))continue;
-				tocorr[1] = financeSeries.get(ticker).getData();
-				BlockRealMatrix m = new BlockRealMatrix(tocorr);
-				// Calculate and write pearsons correlation
-				PearsonsCorrelation pcorr = new PearsonsCorrelation(m.transpose());
-				double corr = pcorr.getCorrelationMatrix().getEntry(0, 1);
-				double pval = pcorr.getCorrelationPValues().getEntry(0, 1);
-				StringWriter swrit = new StringWriter();
-				CSVPrinter csvp = new CSVPrinter(swrit);
-				csvp.write(new String[]{word.toString(),ticker,""+corr,""+pval});
-				csvp.flush();
-				context.write(NullWritable.get(), new Text(swrit.toString()));
-			}
-			catch (Exception e) {
-				System.out.println(e.getMessage());
-			}
-		}
+		correlation.write(word.toString(), wts.doubleTimeSeries().getData(), context);
 	};
 	
 }
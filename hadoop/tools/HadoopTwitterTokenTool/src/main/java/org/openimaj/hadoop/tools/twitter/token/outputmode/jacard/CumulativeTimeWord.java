@@ -81,13 +81,14 @@ public class CumulativeTimeWord extends StageAppender{
 	 * 
 	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
 	 */
-	public static class IntersectionUnionMap extends Mapper<Text,BytesWritable,BytesWritable,BooleanWritable>{
+	public static class IntersectionUnionMap extends Mapper<Text,BytesWritable,ReadWritableStringLong,BooleanWritable>{
 		private long eldestTime;
 		private long deltaTime;
+		private final ReadWritableStringLong timeWordPair = new ReadWritableStringLong();
 		
 		public IntersectionUnionMap() { }
 		@Override
-		protected void setup(Mapper<Text,BytesWritable,BytesWritable,BooleanWritable>.Context context) throws IOException ,InterruptedException {
+		protected void setup(Mapper<Text,BytesWritable,ReadWritableStringLong,BooleanWritable>.Context context) throws IOException ,InterruptedException {
 			this.eldestTime = context.getConfiguration().getLong(TIME_ELDEST, -1);
 			this.deltaTime = context.getConfiguration().getLong(TIME_DELTA, -1);
 			if(eldestTime < 0 || deltaTime < 0){
@@ -95,7 +96,8 @@ public class CumulativeTimeWord extends StageAppender{
 			}
 		};
 		@Override
-		protected void map(final Text word, BytesWritable value, final Mapper<Text,BytesWritable,BytesWritable,BooleanWritable>.Context context) throws java.io.IOException ,InterruptedException {
+		protected void map(final Text word, BytesWritable value, final Mapper<Text,BytesWritable,ReadWritableStringLong,BooleanWritable>.Context context) throws java.io.IOException ,InterruptedException {
+			final String currentword = word.toString();
 			IOUtils.deserialize(value.getBytes(), new ReadableListBinary<Object>(new ArrayList<Object>()){
 				private BooleanWritable TRUE_WRITEABLE = new BooleanWritable(true);
 				private BooleanWritable FALSE_WRITEABLE = new BooleanWritable(false);
@@ -105,12 +107,11 @@ public class CumulativeTimeWord extends StageAppender{
 					WordDFIDF idf = new WordDFIDF();
 					idf.readBinary(in);
 					try {
-						String currentword = word.toString();
-						ReadWritableStringLong timeWordPair = new ReadWritableStringLong(currentword, idf.timeperiod);
-						context.write(new BytesWritable(IOUtils.serialize(timeWordPair)),FALSE_WRITEABLE );
+						timeWordPair.set(currentword, idf.timeperiod);
+						context.write(timeWordPair,FALSE_WRITEABLE );
 						for (long futureTime = idf.timeperiod + deltaTime; futureTime <= eldestTime; futureTime+=deltaTime) {
-							ReadWritableStringLong futurePair = new ReadWritableStringLong(currentword, futureTime);
-							context.write(new BytesWritable(IOUtils.serialize(futurePair)),TRUE_WRITEABLE );
+							timeWordPair.set(currentword, futureTime);
+							context.write(timeWordPair,TRUE_WRITEABLE );
 						}
 					} catch (InterruptedException e) {
 						throw new IOException("");
@@ -131,11 +132,12 @@ public class CumulativeTimeWord extends StageAppender{
 	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
 	 *
 	 */
-	public static class IntersectionUnionReduce extends Reducer<BytesWritable,BooleanWritable,LongWritable,BytesWritable>{
+	public static class IntersectionUnionReduce extends Reducer<ReadWritableStringLong,BooleanWritable,LongWritable,ReadWritableBooleanBoolean>{
+		private final LongWritable outtime = new LongWritable();
+		private final ReadWritableBooleanBoolean intersectionUnion = new ReadWritableBooleanBoolean();
 		public IntersectionUnionReduce() {}
 		@Override
-		protected void reduce(BytesWritable wordtimeb, Iterable<BooleanWritable> wordBools, Reducer<BytesWritable,BooleanWritable,LongWritable,BytesWritable>.Context context) throws IOException ,InterruptedException {
-			ReadWritableStringLong wordtime = IOUtils.deserialize(wordtimeb.getBytes(), ReadWritableStringLong.class);
+		protected void reduce(ReadWritableStringLong wordtime, Iterable<BooleanWritable> wordBools, Reducer<ReadWritableStringLong,BooleanWritable,LongWritable,ReadWritableBooleanBoolean>.Context context) throws IOException ,InterruptedException {
 			long time = wordtime.secondObject();
 			boolean seenInPresent = false;
 			boolean seenInPast = false;
@@ -148,8 +150,10 @@ public class CumulativeTimeWord extends StageAppender{
 					break;
 				}
 			}
-			ReadWritableBooleanBoolean intersectionUnion = new ReadWritableBooleanBoolean(seenInPast && seenInPresent,seenInPast || seenInPresent);
-			context.write(new LongWritable(time), new BytesWritable(IOUtils.serialize(intersectionUnion)));
+			intersectionUnion.setFirstObject(seenInPast && seenInPresent);
+			intersectionUnion.setSecondObject(seenInPast || seenInPresent);
+			outtime.set(time);
+			context.write(outtime, intersectionUnion);
 		};
 	}
 	
@@ -159,14 +163,13 @@ public class CumulativeTimeWord extends StageAppender{
 	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
 	 *
 	 */
-	public static class JacardReduce extends Reducer<LongWritable,BytesWritable,NullWritable,Text>{
+	public static class JacardReduce extends Reducer<LongWritable,ReadWritableBooleanBoolean,NullWritable,Text>{
 		public JacardReduce () {}
 		@Override
-		protected void reduce(LongWritable time, Iterable<BytesWritable> inersectionUnionBs, Reducer<LongWritable,BytesWritable,NullWritable,Text>.Context context) throws IOException ,InterruptedException {
+		protected void reduce(LongWritable time, Iterable<ReadWritableBooleanBoolean> inersectionUnions, Reducer<LongWritable,ReadWritableBooleanBoolean,NullWritable,Text>.Context context) throws IOException ,InterruptedException {
 			long intersection = 0;
 			long union = 0;
-			for (BytesWritable intersectionUnionb : inersectionUnionBs) {				
-				ReadWritableBooleanBoolean intersectionUnion = IOUtils.deserialize(intersectionUnionb.getBytes(), ReadWritableBooleanBoolean.class);
+			for (ReadWritableBooleanBoolean intersectionUnion : inersectionUnions) {
 				intersection += intersectionUnion.firstObject() ? 1 : 0;
 				union += intersectionUnion.secondObject() ? 1 : 0;
 			}
@@ -181,8 +184,8 @@ public class CumulativeTimeWord extends StageAppender{
 	protected static final String TIME_ELDEST = "org.openimaj.hadoop.tools.twitter.token.time_eldest";
 	@Override
 	public void stage(MultiStagedJob stages) {
-		SequenceFileStage<Text, BytesWritable, BytesWritable, BooleanWritable, LongWritable, BytesWritable> intersectionunion = 
-		new SequenceFileStage<Text, BytesWritable, BytesWritable, BooleanWritable, LongWritable, BytesWritable>() {
+		SequenceFileStage<Text, BytesWritable, ReadWritableStringLong, BooleanWritable, LongWritable, ReadWritableBooleanBoolean> intersectionunion = 
+		new SequenceFileStage<Text, BytesWritable, ReadWritableStringLong, BooleanWritable, LongWritable, ReadWritableBooleanBoolean>() {
 			@Override
 			public void setup(Job job) {
 				job.getConfiguration().setLong(CumulativeTimeWord.TIME_DELTA, timeDelta);
@@ -190,11 +193,11 @@ public class CumulativeTimeWord extends StageAppender{
 				job.setNumReduceTasks((int) (1.75 * 6 * 8));
 			}
 			@Override
-			public java.lang.Class<? extends org.apache.hadoop.mapreduce.Mapper<Text,BytesWritable,BytesWritable,BooleanWritable>> mapper() {
+			public java.lang.Class<? extends org.apache.hadoop.mapreduce.Mapper<Text,BytesWritable,ReadWritableStringLong,BooleanWritable>> mapper() {
 				return CumulativeTimeWord.IntersectionUnionMap.class;
 			};
 			@Override
-			public Class<? extends Reducer<BytesWritable, BooleanWritable, LongWritable, BytesWritable>> reducer() {
+			public Class<? extends Reducer<ReadWritableStringLong, BooleanWritable, LongWritable, ReadWritableBooleanBoolean>> reducer() {
 				return CumulativeTimeWord.IntersectionUnionReduce.class;
 			}
 		
@@ -204,15 +207,15 @@ public class CumulativeTimeWord extends StageAppender{
 			}
 		};
 		stages.queueStage(intersectionunion);
-		SequenceFileTextStage<LongWritable, BytesWritable, LongWritable, BytesWritable, NullWritable, Text> s =
-		new SequenceFileTextStage<LongWritable, BytesWritable, LongWritable, BytesWritable, NullWritable, Text>() {
+		SequenceFileTextStage<LongWritable, ReadWritableBooleanBoolean, LongWritable, ReadWritableBooleanBoolean, NullWritable, Text> s =
+		new SequenceFileTextStage<LongWritable, ReadWritableBooleanBoolean, LongWritable, ReadWritableBooleanBoolean, NullWritable, Text>() {
 			@Override
 			public void setup(Job job) {
 				job.setNumReduceTasks((int) (1.75 * 6 * 8));
 			}
 			
 			@Override
-			public Class<? extends Reducer<LongWritable, BytesWritable, NullWritable, Text>> reducer() {
+			public Class<? extends Reducer<LongWritable, ReadWritableBooleanBoolean, NullWritable, Text>> reducer() {
 				return CumulativeTimeWord.JacardReduce.class;
 			}
 			
@@ -33,9 +33,17 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import org.apache.hadoop.io.Writable;
 import org.openimaj.io.wrappers.ReadWritableIndependentPair;
 
-final class ReadWritableBooleanBoolean extends ReadWritableIndependentPair<Boolean,Boolean> {
+/**
+ * A pair of booleans. Also a {@link Writable} (with the same binary form) so it
+ * can be shuffled directly.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+final class ReadWritableBooleanBoolean extends ReadWritableIndependentPair<Boolean,Boolean> implements Writable {
 	
 	public ReadWritableBooleanBoolean(){
 		super(null, null);
@@ -63,4 +71,16 @@ final class ReadWritableBooleanBoolean extends ReadWritableIndependentPair<Boole
 	public void writeSecond(DataOutput out,Boolean secondObject) throws IOException {
 		out.writeBoolean(secondObject);
 	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		writeFirst(out, firstObject());
+		writeSecond(out, secondObject());
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		this.setFirstObject(readFirst(in));
+		this.setSecondObject(readSecond(in));
+	}
 }
\ No newline at end of file
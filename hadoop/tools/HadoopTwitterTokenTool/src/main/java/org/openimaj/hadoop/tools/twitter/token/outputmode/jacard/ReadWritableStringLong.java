@@ -33,9 +33,47 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
 import org.openimaj.io.wrappers.ReadWritableIndependentPair;
 
-final class ReadWritableStringLong extends ReadWritableIndependentPair<String, Long> {
+/**
+ * A word and a time. Also a {@link WritableComparable} (with the same binary
+ * form) so it can be shuffled directly; serialised pairs are ordered in place
+ * by {@link Comparator}.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+final class ReadWritableStringLong extends ReadWritableIndependentPair<String, Long> implements WritableComparable<ReadWritableStringLong> {
+	static {
+		WritableComparator.define(ReadWritableStringLong.class, new Comparator());
+	}
+
+	/**
+	 * Orders serialised pairs by the (modified) UTF-8 bytes of the word and
+	 * then by time
+	 */
+	public static class Comparator extends WritableComparator {
+		/**
+		 * a comparator of {@link ReadWritableStringLong}s
+		 */
+		public Comparator() {
+			super(ReadWritableStringLong.class);
+		}
+
+		@Override
+		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+			final int len1 = readUnsignedShort(b1, s1);
+			final int len2 = readUnsignedShort(b2, s2);
+			final int cmp = compareBytes(b1, s1 + 2, len1, b2, s2 + 2, len2);
+			if (cmp != 0)
+				return cmp;
+			final long t1 = readLong(b1, s1 + 2 + len1);
+			final long t2 = readLong(b2, s2 + 2 + len2);
+			return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+		}
+	}
 	
 	public ReadWritableStringLong(){
 		super(null, null);
@@ -63,4 +101,45 @@ final class ReadWritableStringLong extends ReadWritableIndependentPair<String, L
 	public void writeSecond(DataOutput out,Long secondObject) throws IOException {
 		out.writeLong(secondObject);
 	}
+
+	/**
+	 * @param word
+	 * @param time
+	 */
+	public void set(String word, long time) {
+		this.setFirstObject(word);
+		this.setSecondObject(time);
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		writeFirst(out, firstObject());
+		writeSecond(out, secondObject());
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		this.setFirstObject(readFirst(in));
+		this.setSecondObject(readSecond(in));
+	}
+
+	@Override
+	public int compareTo(ReadWritableStringLong that) {
+		final int cmp = this.firstObject().compareTo(that.firstObject());
+		if (cmp != 0)
+			return cmp;
+		return this.secondObject().compareTo(that.secondObject());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof ReadWritableStringLong))
+			return false;
+		return compareTo((ReadWritableStringLong) obj) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * firstObject().hashCode() + secondObject().hashCode();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.openimaj.hadoop.mapreduce.stage.StageProvider;
+import org.openimaj.hadoop.mapreduce.stage.helper.SequenceFileStage;
+import org.openimaj.hadoop.sequencefile.MetadataConfiguration;
+import org.openimaj.hadoop.sequencefile.MetadataSequenceFileOutputFormat;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.matlabio.SparseBinaryToMatrix;
+
+/**
+ * Output the word/time values as a binary sparse matrix: a sequence file of
+ * {@link SparseCountsColumn}s keyed by column index. Stored by time (the
+ * default) each column is a time period holding the counts of its words,
+ * i.e. compressed sparse columns of a words x times matrix; stored by word
+ * each column is a word holding the counts of its time periods, i.e.
+ * compressed sparse rows.
+ * <p>
+ * The orientation and the matrix dimensions are written into the metadata of
+ * every part file. {@link SparseBinaryToMatrix} streams the output into a
+ * .mat file or a memory mappable matrix file.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class BinaryValues extends StageProvider {
+	/**
+	 * whether the matrix is stored by word
+	 */
+	public static final String BY_WORD = "org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.binary_by_word";
+	/**
+	 * metadata key of the orientation, {@link #BY_TIME_ORIENTATION} or
+	 * {@link #BY_WORD_ORIENTATION}
+	 */
+	public static final String ORIENTATION_KEY = "orientation";
+	/**
+	 * metadata key of the number of words in the index
+	 */
+	public static final String WORDS_KEY = "words";
+	/**
+	 * metadata key of the number of times in the index
+	 */
+	public static final String TIMES_KEY = "times";
+	/**
+	 * columns are times
+	 */
+	public static final String BY_TIME_ORIENTATION = "time";
+	/**
+	 * columns are words
+	 */
+	public static final String BY_WORD_ORIENTATION = "word";
+
+	private String outputPath;
+	private int valueReduceSplit;
+	private boolean byWord;
+
+	/**
+	 * @param outputPath
+	 *            the root of the output holding the word and time indexes
+	 * @param valueReduceSplit
+	 *            the number of reducers
+	 * @param byWord
+	 *            whether columns are words rather than times
+	 */
+	public BinaryValues(String outputPath, int valueReduceSplit, boolean byWord) {
+		this.outputPath = outputPath;
+		this.valueReduceSplit = valueReduceSplit;
+		this.byWord = byWord;
+	}
+
+	@Override
+	public SequenceFileStage<Text, BytesWritable, IntWritable, SparseCountsColumn, IntWritable, SparseCountsColumn> stage() {
+		return new SequenceFileStage<Text, BytesWritable, IntWritable, SparseCountsColumn, IntWritable, SparseCountsColumn>() {
+			@Override
+			public void setup(Job job) throws IOException {
+				job.setNumReduceTasks(valueReduceSplit);
+				job.getConfiguration().setStrings(Values.ARGS_KEY, new String[] { outputPath.toString() });
+				job.getConfiguration().setBoolean(BY_WORD, byWord);
+
+				final Map<String, String> metadata = new HashMap<String, String>();
+				metadata.put(ORIENTATION_KEY, byWord ? BY_WORD_ORIENTATION : BY_TIME_ORIENTATION);
+				metadata.put(WORDS_KEY, "" + CompactWordIndex.read(outputPath).size());
+				metadata.put(TIMES_KEY, "" + CompactTimeIndex.read(outputPath).size());
+				MetadataConfiguration.setMetadata(metadata, job.getConfiguration());
+				job.setOutputFormatClass(MetadataSequenceFileOutputFormat.class);
+			}
+
+			@Override
+			public Class<? extends Mapper<Text, BytesWritable, IntWritable, SparseCountsColumn>> mapper() {
+				return MapValuesToColumns.class;
+			}
+
+			@Override
+			public Class<? extends Reducer<IntWritable, SparseCountsColumn, IntWritable, SparseCountsColumn>> combiner() {
+				return ReduceColumns.class;
+			}
+
+			@Override
+			public Class<? extends Reducer<IntWritable, SparseCountsColumn, IntWritable, SparseCountsColumn>> reducer() {
+				return ReduceColumns.class;
+			}
+
+			@Override
+			public String outname() {
+				return "values";
+			}
+		};
+	}
+}
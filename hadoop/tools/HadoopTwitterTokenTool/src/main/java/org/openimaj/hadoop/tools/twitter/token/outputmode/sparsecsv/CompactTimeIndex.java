@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.openimaj.hadoop.tools.HadoopToolsUtil;
+
+import com.Ostermiller.util.CSVParser;
+
+/**
+ * A compact, read only version of the time index written by
+ * {@link TimeIndex}: primitive arrays of the times and their tweet counts in
+ * index (line) order, looked up by binary search over the sorted times.
+ * {@link TimeIndex} writes the index next to the times as
+ * {@link CompactWordIndex#INDEX_FILE}.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class CompactTimeIndex {
+	private static final int MAGIC = 0x43544958; // "CTIX"
+
+	private final long[] times;
+	private final long[] counts;
+	private final long[] sortedTimes;
+	private final int[] sortedLines;
+
+	/**
+	 * @param buffer
+	 *            the index as written by {@link #write(long[], long[], int, OutputStream)}
+	 * @throws IOException
+	 */
+	public CompactTimeIndex(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a compact time index");
+		final int n = buffer.getInt(4);
+		this.times = new long[n];
+		this.counts = new long[n];
+		for (int i = 0; i < n; i++) {
+			times[i] = buffer.getLong(8 + 16 * i);
+			counts[i] = buffer.getLong(16 + 16 * i);
+		}
+
+		// the times are written in order, but don't rely on it
+		this.sortedTimes = new long[n];
+		this.sortedLines = new int[n];
+		boolean inOrder = true;
+		for (int i = 0; i < n; i++) {
+			sortedTimes[i] = times[i];
+			sortedLines[i] = i;
+			inOrder &= i == 0 || times[i - 1] <= times[i];
+		}
+		if (!inOrder) {
+			final Integer[] order = new Integer[n];
+			for (int i = 0; i < n; i++)
+				order[i] = i;
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					final long a = times[o1];
+					final long b = times[o2];
+					return a < b ? -1 : (a == b ? 0 : 1);
+				}
+			});
+			for (int i = 0; i < n; i++) {
+				sortedTimes[i] = times[order[i]];
+				sortedLines[i] = order[i];
+			}
+		}
+	}
+
+	/**
+	 * Load the compact index of a sparse CSV output, building it from the
+	 * times CSV if it was not written
+	 * 
+	 * @param path
+	 *            the root of the output
+	 * @return the index
+	 * @throws IOException
+	 */
+	public static CompactTimeIndex read(String path) throws IOException {
+		final Path indexPath = new Path(path + "/times/" + CompactWordIndex.INDEX_FILE);
+		final FileSystem fs = HadoopToolsUtil.getFileSystem(indexPath);
+		if (!fs.exists(indexPath)) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			writeFromCSV(path, out);
+			return new CompactTimeIndex(ByteBuffer.wrap(out.toByteArray()));
+		}
+		return new CompactTimeIndex(CompactWordIndex.load(fs, indexPath));
+	}
+
+	/**
+	 * Read the times CSV of a sparse CSV output and write its compact index
+	 * 
+	 * @param path
+	 *            the root of the output
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void writeFromCSV(String path, OutputStream out) throws IOException {
+		final Path p = HadoopToolsUtil.getInputPaths(path + "/times")[0];
+		final FileSystem fs = HadoopToolsUtil.getFileSystem(p);
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(p)));
+		try {
+			final CSVParser csvreader = new CSVParser(reader);
+			long[] times = new long[1024];
+			long[] counts = new long[1024];
+			int n = 0;
+			String[] next = null;
+			while ((next = csvreader.getLine()) != null && next.length > 0) {
+				if (n == times.length) {
+					times = Arrays.copyOf(times, n * 2);
+					counts = Arrays.copyOf(counts, n * 2);
+				}
+				times[n] = Long.parseLong(next[0]);
+				counts[n] = Long.parseLong(next[1]);
+				n++;
+			}
+			write(times, counts, n, out);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Write a compact index
+	 * 
+	 * @param times
+	 *            the times in index order
+	 * @param counts
+	 *            the tweet count of each time
+	 * @param n
+	 *            the number of times
+	 * @param os
+	 * @throws IOException
+	 */
+	public static void write(long[] times, long[] counts, int n, OutputStream os) throws IOException {
+		final DataOutputStream out = new DataOutputStream(os);
+		out.writeInt(MAGIC);
+		out.writeInt(n);
+		for (int i = 0; i < n; i++) {
+			out.writeLong(times[i]);
+			out.writeLong(counts[i]);
+		}
+		out.flush();
+	}
+
+	/**
+	 * @return the number of times
+	 */
+	public int size() {
+		return times.length;
+	}
+
+	/**
+	 * @param time
+	 * @return the index (line) of the time or -1 if it is not in the index
+	 */
+	public int indexOf(long time) {
+		final int pos = Arrays.binarySearch(sortedTimes, time);
+		return pos < 0 ? -1 : sortedLines[pos];
+	}
+
+	/**
+	 * @param index
+	 *            the index (line) of a time
+	 * @return the time
+	 */
+	public long time(int index) {
+		return times[index];
+	}
+
+	/**
+	 * @param index
+	 *            the index (line) of a time
+	 * @return the number of tweets in the time
+	 */
+	public long count(int index) {
+		return counts[index];
+	}
+}
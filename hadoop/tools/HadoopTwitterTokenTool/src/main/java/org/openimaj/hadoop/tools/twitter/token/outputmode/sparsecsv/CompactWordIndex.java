@@ -0,0 +1,312 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.openimaj.hadoop.tools.HadoopToolsUtil;
+
+import com.Ostermiller.util.CSVParser;
+
+/**
+ * A compact, read only version of the word index written by
+ * {@link WordIndex}. Rather than a map of boxed pairs the index is a single
+ * buffer holding the UTF-8 bytes of the words in sorted order, an int array of
+ * their offsets, int arrays between sorted position and word index (line
+ * number) and a long array of counts. A word is found by binary search over
+ * its bytes, so {@link Text} keys are looked up without being decoded.
+ * <p>
+ * {@link WordIndex} writes the index next to the words as
+ * {@link #INDEX_FILE}. On a local file system the index is memory mapped,
+ * otherwise it is read in one go into a single byte array.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class CompactWordIndex {
+	/**
+	 * the name of the index file in the words directory
+	 */
+	public static final String INDEX_FILE = "index.bin";
+	private static final int MAGIC = 0x43574958; // "CWIX"
+
+	private final ByteBuffer buffer;
+	private final int size;
+	private final int offsetsStart;
+	private final int linesStart;
+	private final int positionsStart;
+	private final int countsStart;
+	private final int termsStart;
+
+	/**
+	 * @param buffer
+	 *            the index as written by {@link #write(List, long[], OutputStream)}
+	 * @throws IOException
+	 */
+	public CompactWordIndex(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a compact word index");
+		this.size = buffer.getInt(4);
+		this.offsetsStart = 8;
+		this.linesStart = offsetsStart + 4 * (size + 1);
+		this.positionsStart = linesStart + 4 * size;
+		this.countsStart = positionsStart + 4 * size;
+		this.termsStart = countsStart + 8 * size;
+	}
+
+	/**
+	 * Load the compact index of a sparse CSV output, building it from the
+	 * words CSV if it was not written
+	 * 
+	 * @param path
+	 *            the root of the output
+	 * @return the index
+	 * @throws IOException
+	 */
+	public static CompactWordIndex read(String path) throws IOException {
+		final Path indexPath = new Path(path + "/words/" + INDEX_FILE);
+		final FileSystem fs = HadoopToolsUtil.getFileSystem(indexPath);
+		if (!fs.exists(indexPath)) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			writeFromCSV(path, out);
+			return new CompactWordIndex(ByteBuffer.wrap(out.toByteArray()));
+		}
+		return new CompactWordIndex(load(fs, indexPath));
+	}
+
+	static ByteBuffer load(FileSystem fs, Path indexPath) throws IOException {
+		if ("file".equals(fs.getUri().getScheme())) {
+			final RandomAccessFile raf = new RandomAccessFile(new File(indexPath.toUri().getPath()), "r");
+			try {
+				return raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length());
+			} finally {
+				raf.close();
+			}
+		}
+		final int length = (int) fs.getFileStatus(indexPath).getLen();
+		final byte[] bytes = new byte[length];
+		final FSDataInputStream in = fs.open(indexPath);
+		try {
+			in.readFully(bytes);
+		} finally {
+			in.close();
+		}
+		return ByteBuffer.wrap(bytes);
+	}
+
+	/**
+	 * Read the words CSV of a sparse CSV output and write its compact index
+	 * 
+	 * @param path
+	 *            the root of the output
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void writeFromCSV(String path, OutputStream out) throws IOException {
+		final Path p = HadoopToolsUtil.getInputPaths(path + "/words")[0];
+		final FileSystem fs = HadoopToolsUtil.getFileSystem(p);
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(p), "UTF-8"));
+		try {
+			final CSVParser csvreader = new CSVParser(reader);
+			final List<byte[]> words = new ArrayList<byte[]>();
+			long[] counts = new long[1024];
+			String[] next = null;
+			while ((next = csvreader.getLine()) != null && next.length > 0) {
+				if (next.length != 2)
+					continue;
+				if (words.size() == counts.length)
+					counts = Arrays.copyOf(counts, counts.length * 2);
+				counts[words.size()] = Long.parseLong(next[1]);
+				words.add(next[0].getBytes("UTF-8"));
+			}
+			write(words, counts, out);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Write a compact index
+	 * 
+	 * @param words
+	 *            the UTF-8 bytes of the words in index order
+	 * @param counts
+	 *            the count of each word
+	 * @param os
+	 * @throws IOException
+	 */
+	public static void write(final List<byte[]> words, long[] counts, OutputStream os) throws IOException {
+		final int n = words.size();
+		final Integer[] sorted = new Integer[n];
+		for (int i = 0; i < n; i++)
+			sorted[i] = i;
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				final byte[] a = words.get(o1);
+				final byte[] b = words.get(o2);
+				return WritableComparator.compareBytes(a, 0, a.length, b, 0, b.length);
+			}
+		});
+
+		final DataOutputStream out = new DataOutputStream(os);
+		out.writeInt(MAGIC);
+		out.writeInt(n);
+		int offset = 0;
+		out.writeInt(offset);
+		for (int i = 0; i < n; i++) {
+			offset += words.get(sorted[i]).length;
+			out.writeInt(offset);
+		}
+		for (int i = 0; i < n; i++)
+			out.writeInt(sorted[i]);
+		final int[] positions = new int[n];
+		for (int i = 0; i < n; i++)
+			positions[sorted[i]] = i;
+		for (int i = 0; i < n; i++)
+			out.writeInt(positions[i]);
+		for (int i = 0; i < n; i++)
+			out.writeLong(counts[i]);
+		for (int i = 0; i < n; i++)
+			out.write(words.get(sorted[i]));
+		out.flush();
+	}
+
+	/**
+	 * @return the number of words
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param word
+	 * @return the index (line) of the word or -1 if it is not in the index
+	 */
+	public int indexOf(Text word) {
+		return indexOf(word.getBytes(), 0, word.getLength());
+	}
+
+	/**
+	 * @param word
+	 * @return the index (line) of the word or -1 if it is not in the index
+	 */
+	public int indexOf(String word) {
+		try {
+			final byte[] bytes = word.getBytes("UTF-8");
+			return indexOf(bytes, 0, bytes.length);
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @param utf8
+	 * @param start
+	 * @param length
+	 * @return the index (line) of the UTF-8 encoded word or -1 if it is not
+	 *         in the index
+	 */
+	public int indexOf(byte[] utf8, int start, int length) {
+		int lo = 0;
+		int hi = size - 1;
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			final int cmp = compareTerm(mid, utf8, start, length);
+			if (cmp < 0)
+				lo = mid + 1;
+			else if (cmp > 0)
+				hi = mid - 1;
+			else
+				return buffer.getInt(linesStart + 4 * mid);
+		}
+		return -1;
+	}
+
+	private int compareTerm(int sortedPos, byte[] utf8, int start, int length) {
+		final int from = termsStart + buffer.getInt(offsetsStart + 4 * sortedPos);
+		final int to = termsStart + buffer.getInt(offsetsStart + 4 * (sortedPos + 1));
+		final int n = Math.min(to - from, length);
+		for (int i = 0; i < n; i++) {
+			final int a = buffer.get(from + i) & 0xff;
+			final int b = utf8[start + i] & 0xff;
+			if (a != b)
+				return a - b;
+		}
+		return (to - from) - length;
+	}
+
+	/**
+	 * @param index
+	 *            the index (line) of a word
+	 * @return the count of the word
+	 */
+	public long count(int index) {
+		return buffer.getLong(countsStart + 8 * index);
+	}
+
+	/**
+	 * @param index
+	 *            the index (line) of a word
+	 * @return the word
+	 */
+	public String word(int index) {
+		final int sortedPos = buffer.getInt(positionsStart + 4 * index);
+		final int from = termsStart + buffer.getInt(offsetsStart + 4 * sortedPos);
+		final int to = termsStart + buffer.getInt(offsetsStart + 4 * (sortedPos + 1));
+		final byte[] bytes = new byte[to - from];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(from + i);
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -29,28 +29,23 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
 
-import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
 import org.openimaj.io.IOUtils;
 import org.openimaj.io.wrappers.ReadableListBinary;
-import org.openimaj.util.pair.IndependentPair;
 
 /**
  * Emits each word with the total number of times the word was seen
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class MapValuesByTime extends Mapper<Text,BytesWritable,LongWritable,BytesWritable>{
+public class MapValuesByTime extends Mapper<Text,BytesWritable,LongWritable,IndexedWordDFIDF>{
 
 
 	/**
@@ -61,17 +56,19 @@ public class MapValuesByTime extends Mapper<Text,BytesWritable,LongWritable,Byte
 	}
 
 	@Override
-	public void setup(Mapper<Text,BytesWritable,LongWritable,BytesWritable>.Context context) throws IOException, InterruptedException {
+	public void setup(Mapper<Text,BytesWritable,LongWritable,IndexedWordDFIDF>.Context context) throws IOException, InterruptedException {
 		loadOptions(context);
 	}
 	private static String[] options;
-	private static HashMap<String, IndependentPair<Long, Long>> wordIndex;
+	private static CompactWordIndex wordIndex;
+	private final LongWritable outkey = new LongWritable();
+	private final IndexedWordDFIDF outvalue = new IndexedWordDFIDF();
 
-	protected static synchronized void loadOptions(Mapper<Text,BytesWritable,LongWritable,BytesWritable>.Context context) throws IOException {
+	protected static synchronized void loadOptions(Mapper<Text,BytesWritable,LongWritable,IndexedWordDFIDF>.Context context) throws IOException {
 		if (options == null) {
 			try {
 				options = context.getConfiguration().getStrings(Values.ARGS_KEY);
-				wordIndex = WordIndex.readWordCountLines(options[0]);
+				wordIndex = CompactWordIndex.read(options[0]);
 				System.out.println("Wordindex loaded: " + wordIndex.size());
 			} catch (Exception e) {
 				throw new IOException(e);
@@ -80,25 +77,20 @@ public class MapValuesByTime extends Mapper<Text,BytesWritable,LongWritable,Byte
 	}
 
 	@Override
-	public void map(final Text key, BytesWritable value, final Mapper<Text,BytesWritable,LongWritable,BytesWritable>.Context context) throws IOException, InterruptedException{
+	public void map(final Text key, BytesWritable value, final Mapper<Text,BytesWritable,LongWritable,IndexedWordDFIDF>.Context context) throws IOException, InterruptedException{
 		try {
-			if(!wordIndex.containsKey(key.toString())) return;
+			final int wordI = wordIndex.indexOf(key);
+			if(wordI < 0) return;
 			System.out.println("Mapping values for word: " + key);
-			final int wordI = (int)((long)(wordIndex.get(key.toString()).secondObject()));
 			IOUtils.deserialize(value.getBytes(), new ReadableListBinary<Object>(new ArrayList<Object>()){
 				@Override
 				protected Object readValue(DataInput in) throws IOException {
-					WordDFIDF idf = new WordDFIDF();
-					idf.readBinary(in);
-					System.out.println("... Found (" + key + ") at time: " + idf.timeperiod);
-					ByteArrayOutputStream baos = new ByteArrayOutputStream();
-					DataOutputStream dos = new DataOutputStream(baos);
-					idf.writeBinary(dos);
-					dos.writeInt(wordI);
-					dos.flush();
-					dos.close();
+					outvalue.readBinary(in);
+					outvalue.word = wordI;
+					System.out.println("... Found (" + key + ") at time: " + outvalue.timeperiod);
+					outkey.set(outvalue.timeperiod);
 					try {
-						context.write(new LongWritable(idf.timeperiod), new BytesWritable(baos.toByteArray()));
+						context.write(outkey, outvalue);
 					} catch (InterruptedException e) {
 						throw new IOException(e);
 					}
@@ -33,7 +33,6 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.NullWritable;
@@ -42,7 +41,6 @@ import org.apache.hadoop.mapreduce.Mapper;
 import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
 import org.openimaj.io.IOUtils;
 import org.openimaj.io.wrappers.ReadableListBinary;
-import org.openimaj.util.pair.IndependentPair;
 
 import com.Ostermiller.util.CSVPrinter;
 
@@ -54,8 +52,8 @@ import com.Ostermiller.util.CSVPrinter;
 public class MapValuesByWord extends Mapper<Text,BytesWritable,NullWritable,Text>{
 	
 	private static String[] options;
-	private static HashMap<String, IndependentPair<Long, Long>> wordIndex;
-	private static HashMap<Long, IndependentPair<Long, Long>> timeIndex;
+	private static CompactWordIndex wordIndex;
+	private static CompactTimeIndex timeIndex;
 
 	/**
 	 * construct the map instance (do nothing)
@@ -68,8 +66,8 @@ public class MapValuesByWord extends Mapper<Text,BytesWritable,NullWritable,Text
 		if (options == null) {
 			try {
 				options = context.getConfiguration().getStrings(Values.ARGS_KEY);
-				wordIndex = WordIndex.readWordCountLines(options[0]);
-				timeIndex = TimeIndex.readTimeCountLines(options[0]);
+				wordIndex = CompactWordIndex.read(options[0]);
+				timeIndex = CompactTimeIndex.read(options[0]);
 				System.out.println("Wordindex loaded: " + wordIndex.size());
 				System.out.println("timeindex loaded: " + timeIndex.size());
 			} catch (Exception e) {
@@ -88,25 +86,17 @@ public class MapValuesByWord extends Mapper<Text,BytesWritable,NullWritable,Text
 		final StringWriter swriter = new StringWriter();
 		final CSVPrinter writer = new CSVPrinter(swriter);
 		try {
-			IndependentPair<Long, Long> wordIndexPair = wordIndex.get(key.toString());
-			if(key.toString().equals("!")){
-				System.out.println("The string was: " + key);
-				System.out.println("The string's pair was" + wordIndexPair);
-				System.out.println("But the map's value for ! is: " + wordIndex.get("!"));
-			}
-			if(wordIndexPair == null) {
-				
+			final int wordI = wordIndex.indexOf(key);
+			if(wordI < 0) {
 				return;
 			}
-			final long wordI = wordIndexPair.secondObject();
 			IOUtils.deserialize(value.getBytes(), new ReadableListBinary<Object>(new ArrayList<Object>()){
 				@Override
 				protected Object readValue(DataInput in) throws IOException {
 					WordDFIDF idf = new WordDFIDF();
 					idf.readBinary(in);
-					IndependentPair<Long, Long> timePeriod = timeIndex.get(idf.timeperiod);
-					if(timePeriod == null) return new Object();
-					long timeI = timeIndex.get(idf.timeperiod).secondObject();
+					int timeI = timeIndex.indexOf(idf.timeperiod);
+					if(timeI < 0) return new Object();
 					writer.writeln(new String[]{wordI + "",timeI + "",idf.wf + "",idf.tf + "",idf.Twf + "", idf.Ttf + ""});
 					writer.flush();
 					swriter.flush();
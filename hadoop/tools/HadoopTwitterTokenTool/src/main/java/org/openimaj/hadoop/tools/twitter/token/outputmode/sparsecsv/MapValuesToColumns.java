@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
+import org.openimaj.io.IOUtils;
+import org.openimaj.io.wrappers.ReadableListBinary;
+
+/**
+ * Emits the cells of a word's row of the word/time count matrix. When the
+ * matrix is stored by time each cell is emitted as a single cell column keyed
+ * by its time index; when stored by word the whole row is emitted as one
+ * column keyed by the word index.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class MapValuesToColumns extends Mapper<Text, BytesWritable, IntWritable, SparseCountsColumn> {
+	private static String[] options;
+	private static CompactWordIndex wordIndex;
+	private static CompactTimeIndex timeIndex;
+	private static boolean byWord;
+
+	/**
+	 * construct the map instance (do nothing)
+	 */
+	public MapValuesToColumns() {
+	}
+
+	protected static synchronized void loadOptions(Mapper<Text, BytesWritable, IntWritable, SparseCountsColumn>.Context context)
+			throws IOException
+	{
+		if (options == null) {
+			try {
+				options = context.getConfiguration().getStrings(Values.ARGS_KEY);
+				byWord = context.getConfiguration().getBoolean(BinaryValues.BY_WORD, false);
+				wordIndex = CompactWordIndex.read(options[0]);
+				timeIndex = CompactTimeIndex.read(options[0]);
+				System.out.println("Wordindex loaded: " + wordIndex.size());
+				System.out.println("timeindex loaded: " + timeIndex.size());
+			} catch (final Exception e) {
+				throw new IOException(e);
+			}
+		}
+	}
+
+	@Override
+	protected void setup(Mapper<Text, BytesWritable, IntWritable, SparseCountsColumn>.Context context) throws IOException,
+			InterruptedException
+	{
+		loadOptions(context);
+	}
+
+	@Override
+	public void map(final Text key, BytesWritable value,
+			final Mapper<Text, BytesWritable, IntWritable, SparseCountsColumn>.Context context) throws IOException,
+			InterruptedException
+	{
+		final int wordI = wordIndex.indexOf(key);
+		if (wordI < 0)
+			return;
+
+		final IntWritable column = new IntWritable();
+		final SparseCountsColumn cells = new SparseCountsColumn(byWord ? 16 : 1);
+		IOUtils.deserialize(value.getBytes(), new ReadableListBinary<Object>(new ArrayList<Object>()) {
+			@Override
+			protected Object readValue(DataInput in) throws IOException {
+				final WordDFIDF idf = new WordDFIDF();
+				idf.readBinary(in);
+				final int timeI = timeIndex.indexOf(idf.timeperiod);
+				if (timeI < 0)
+					return null;
+
+				if (byWord) {
+					cells.add(timeI, idf);
+				} else {
+					cells.clear();
+					cells.add(wordI, idf);
+					column.set(timeI);
+					try {
+						context.write(column, cells);
+					} catch (final InterruptedException e) {
+						throw new IOException(e);
+					}
+				}
+				return null;
+			}
+		});
+
+		if (byWord && cells.size > 0) {
+			cells.sort();
+			column.set(wordI);
+			context.write(column, cells);
+		}
+	}
+}
@@ -29,25 +29,19 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.nio.channels.Channels;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
-import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
-import org.openimaj.util.pair.IndependentPair;
 
 import com.Ostermiller.util.CSVPrinter;
 import com.jmatio.io.MatFileWriter;
@@ -61,7 +55,7 @@ import com.jmatio.types.MLSparse;
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class ReduceValuesByTime extends Reducer<LongWritable, BytesWritable, NullWritable, Text> {
+public class ReduceValuesByTime extends Reducer<LongWritable, IndexedWordDFIDF, NullWritable, Text> {
 	/**
 	 * construct the reduce instance, do nothing
 	 */
@@ -70,24 +64,24 @@ public class ReduceValuesByTime extends Reducer<LongWritable, BytesWritable, Nul
 	}
 
 	@Override
-	public void setup(Reducer<LongWritable, BytesWritable, NullWritable, Text>.Context context) throws IOException, InterruptedException {
+	public void setup(Reducer<LongWritable, IndexedWordDFIDF, NullWritable, Text>.Context context) throws IOException, InterruptedException {
 		loadOptions(context);
 	}
 
 	private static String[] options;
-	private static HashMap<String, IndependentPair<Long, Long>> wordIndex;
-	private static HashMap<Long, IndependentPair<Long, Long>> timeIndex;
+	private static CompactWordIndex wordIndex;
+	private static CompactTimeIndex timeIndex;
 	private static String valuesLocation;
 	private static boolean matlabOut;
 
-	protected static synchronized void loadOptions(Reducer<LongWritable, BytesWritable, NullWritable, Text>.Context context) throws IOException {
+	protected static synchronized void loadOptions(Reducer<LongWritable, IndexedWordDFIDF, NullWritable, Text>.Context context) throws IOException {
 		if (options == null) {
 			try {
 				options = context.getConfiguration().getStrings(Values.ARGS_KEY);
 				matlabOut = context.getConfiguration().getBoolean(Values.MATLAB_OUT, false);
-				timeIndex = TimeIndex.readTimeCountLines(options[0]);
+				timeIndex = CompactTimeIndex.read(options[0]);
 				if (matlabOut) {
-					wordIndex = WordIndex.readWordCountLines(options[0]);
+					wordIndex = CompactWordIndex.read(options[0]);
 					valuesLocation = options[0] + "/values/values.%d.mat";
 				}
 				System.out.println("timeindex loaded: " + timeIndex.size());
@@ -97,7 +91,7 @@ public class ReduceValuesByTime extends Reducer<LongWritable, BytesWritable, Nul
 		}
 	}
 	@Override
-	public void reduce(LongWritable timeslot, Iterable<BytesWritable> manylines, Reducer<LongWritable, BytesWritable, NullWritable, Text>.Context context) throws IOException, InterruptedException {
+	public void reduce(LongWritable timeslot, Iterable<IndexedWordDFIDF> manylines, Reducer<LongWritable, IndexedWordDFIDF, NullWritable, Text>.Context context) throws IOException, InterruptedException {
 		try {
 			if (matlabOut) {
 				System.out.println("Creating matlab file for timeslot: " + timeslot);
@@ -106,13 +100,9 @@ public class ReduceValuesByTime extends Reducer<LongWritable, BytesWritable, Nul
 			else {
 				final StringWriter swriter = new StringWriter();
 				final CSVPrinter writer = new CSVPrinter(swriter);
-				for (BytesWritable word : manylines) {
-					ByteArrayInputStream bais = new ByteArrayInputStream(word.getBytes());
-					DataInputStream dis = new DataInputStream(bais);
-					WordDFIDF idf = new WordDFIDF();
-					idf.readBinary(dis);
-					int timeI = (int) ((long) timeIndex.get(idf.timeperiod).secondObject());
-					int wordI = dis.readInt();
+				for (IndexedWordDFIDF idf : manylines) {
+					int timeI = timeIndex.indexOf(idf.timeperiod);
+					int wordI = idf.word;
 					writer.writeln(new String[] { wordI + "", timeI + "", idf.wf + "", idf.tf + "", idf.Twf + "", idf.Ttf + "" });
 					writer.flush();
 					swriter.flush();
@@ -127,18 +117,14 @@ public class ReduceValuesByTime extends Reducer<LongWritable, BytesWritable, Nul
 		}
 	}
 
-	private void createWriteToMatlab(LongWritable timeslot, Iterable<BytesWritable> manylines) throws IOException {
+	private void createWriteToMatlab(LongWritable timeslot, Iterable<IndexedWordDFIDF> manylines) throws IOException {
 		System.out.println("Creating matlab file for timeslot: " + timeslot);
 		MLSparse matarr = new MLSparse(String.format("values_%d", timeslot.get()), new int[] { wordIndex.size(), 2 }, 0, wordIndex.size() * 2);
 		long Ttf = 0;
 		long tf = 0;
 		boolean set = false;
-		for (BytesWritable word : manylines) {
-			ByteArrayInputStream bais = new ByteArrayInputStream(word.getBytes());
-			DataInputStream dis = new DataInputStream(bais);
-			WordDFIDF idf = new WordDFIDF();
-			idf.readBinary(dis);
-			int wordI = dis.readInt();
+		for (IndexedWordDFIDF idf : manylines) {
+			int wordI = idf.word;
 			// writer.writeln(new String[]{wordI + "",timeI + "",idf.wf +
 			// "",idf.tf + "",idf.Twf + "", idf.Ttf + ""});
 			// writer.flush();
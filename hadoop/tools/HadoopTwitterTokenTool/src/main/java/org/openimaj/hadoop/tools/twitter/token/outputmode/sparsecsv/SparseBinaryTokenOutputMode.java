@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
+
+import java.io.File;
+
+import org.kohsuke.args4j.Option;
+import org.openimaj.hadoop.mapreduce.stage.Stage;
+import org.openimaj.hadoop.tools.twitter.HadoopTwitterTokenToolOptions;
+import org.openimaj.hadoop.tools.twitter.token.mode.TwitterTokenMode;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.matlabio.SparseBinaryToMatrix;
+
+/**
+ * Create a sparse binary token output. Like the {@link SparseCSVTokenOutputMode}
+ * the directory created contains words/ and times/ indexes, but values/ holds
+ * a binary sparse matrix of counts (see {@link BinaryValues}) rather than six
+ * CSV columns per cell. The matrix can optionally be converted to a .mat file
+ * and/or a memory mappable matrix file once the job is done; both conversions
+ * stream, so matrices larger than the heap can be converted.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class SparseBinaryTokenOutputMode extends SparseCSVTokenOutputMode {
+
+	@Option(name = "--binary-by-word", aliases = "-bbw", required = false, usage = "Store the matrix by word (compressed sparse rows) rather than by time (compressed sparse columns)")
+	boolean byWord = false;
+
+	@Option(name = "--binary-to-matlab", aliases = "-b2mat", required = false, usage = "Convert the binary values to a local .mat file", metaVar = "FILE")
+	String matlabFile = null;
+
+	@Option(name = "--binary-to-mapped", aliases = "-b2map", required = false, usage = "Convert the binary values to a local memory mappable matrix file", metaVar = "FILE")
+	String mappedFile = null;
+
+	@Override
+	public void write(HadoopTwitterTokenToolOptions opts, TwitterTokenMode completedMode) throws Exception {
+		super.write(opts, completedMode);
+
+		final SparseBinaryToMatrix converter = new SparseBinaryToMatrix(outputPath);
+		if (matlabFile != null)
+			converter.writeMatlab(new File(matlabFile));
+		if (mappedFile != null)
+			converter.writeMapped(new File(mappedFile));
+	}
+
+	@Override
+	protected Stage<?, ?, ?, ?, ?, ?, ?, ?> valuesStage() {
+		return new BinaryValues(outputPath, valueSplitReduce, byWord).stage();
+	}
+}
@@ -32,6 +32,7 @@ package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
 import org.apache.hadoop.fs.Path;
 import org.kohsuke.args4j.Option;
 import org.openimaj.hadoop.mapreduce.MultiStagedJob;
+import org.openimaj.hadoop.mapreduce.stage.Stage;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
 import org.openimaj.hadoop.tools.twitter.HadoopTwitterTokenToolOptions;
 import org.openimaj.hadoop.tools.twitter.token.mode.TwitterTokenMode;
@@ -101,9 +102,16 @@ public class SparseCSVTokenOutputMode extends TwitterTokenOutputMode {
 				HadoopToolsUtil.getOutputPath(outputPath),
 				opts.getArgs()
 		);
-		stages.queueStage(new Values(outputPath,valueSplitReduce,sortValueByTime,matlabOutput).stage());
+		stages.queueStage(valuesStage());
 		stages.runAll();
 	}
 
+	/**
+	 * @return the stage writing the values once the word and time indexes exist
+	 */
+	protected Stage<?, ?, ?, ?, ?, ?, ?, ?> valuesStage() {
+		return new Values(outputPath,valueSplitReduce,sortValueByTime,matlabOutput).stage();
+	}
+
 
 }
@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
+
+/**
+ * One column of a sparse word/time count matrix: the row indices of the non
+ * zero cells in increasing order and, for each cell, the four counts a
+ * {@link WordDFIDF} is made from. When the matrix is stored by time a column
+ * is a time period and its rows are words; when stored by word it is the
+ * other way round.
+ * <p>
+ * Rows are written as variable length deltas and counts as variable length
+ * longs. A count which is the same in every cell of the column (e.g. the
+ * tweets in a time period) is written once.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class SparseCountsColumn implements Writable {
+	/**
+	 * the number of cells in the column
+	 */
+	public int size;
+	/**
+	 * the row of each cell
+	 */
+	public int[] rows;
+	/**
+	 * the word count of each cell
+	 */
+	public long[] wf;
+	/**
+	 * the tweet count of each cell
+	 */
+	public long[] tf;
+	/**
+	 * the cumulative word count of each cell
+	 */
+	public long[] Twf;
+	/**
+	 * the cumulative tweet count of each cell
+	 */
+	public long[] Ttf;
+
+	/**
+	 * an empty column
+	 */
+	public SparseCountsColumn() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity
+	 *            the initial number of cells the column can hold
+	 */
+	public SparseCountsColumn(int capacity) {
+		this.rows = new int[capacity];
+		this.wf = new long[capacity];
+		this.tf = new long[capacity];
+		this.Twf = new long[capacity];
+		this.Ttf = new long[capacity];
+	}
+
+	/**
+	 * Add a cell. Cells may be added in any row order, see {@link #sort()}.
+	 * 
+	 * @param row
+	 * @param idf
+	 */
+	public void add(int row, WordDFIDF idf) {
+		add(row, idf.wf, idf.tf, idf.Twf, idf.Ttf);
+	}
+
+	/**
+	 * Add a cell. Cells may be added in any row order, see {@link #sort()}.
+	 * 
+	 * @param row
+	 * @param wf
+	 * @param tf
+	 * @param Twf
+	 * @param Ttf
+	 */
+	public void add(int row, long wf, long tf, long Twf, long Ttf) {
+		ensureCapacity(size + 1);
+		this.rows[size] = row;
+		this.wf[size] = wf;
+		this.tf[size] = tf;
+		this.Twf[size] = Twf;
+		this.Ttf[size] = Ttf;
+		size++;
+	}
+
+	/**
+	 * Remove all cells
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @param cell
+	 * @param time
+	 *            the time period of the cell
+	 * @return the counts of a cell as a {@link WordDFIDF}
+	 */
+	public WordDFIDF get(int cell, long time) {
+		return new WordDFIDF(time, wf[cell], tf[cell], Twf[cell], Ttf[cell]);
+	}
+
+	/**
+	 * Sort the cells by row
+	 */
+	public void sort() {
+		for (int i = 1; i < size; i++) {
+			if (rows[i - 1] > rows[i]) {
+				fullSort();
+				return;
+			}
+		}
+	}
+
+	private void fullSort() {
+		// pack (row, cell) into longs so a primitive sort orders the cells
+		final long[] order = new long[size];
+		for (int i = 0; i < size; i++)
+			order[i] = ((long) rows[i] << 32) | i;
+		Arrays.sort(order);
+
+		final int[] nrows = new int[rows.length];
+		final long[] nwf = new long[rows.length], ntf = new long[rows.length];
+		final long[] nTwf = new long[rows.length], nTtf = new long[rows.length];
+		for (int i = 0; i < size; i++) {
+			final int from = (int) order[i];
+			nrows[i] = rows[from];
+			nwf[i] = wf[from];
+			ntf[i] = tf[from];
+			nTwf[i] = Twf[from];
+			nTtf[i] = Ttf[from];
+		}
+		rows = nrows;
+		wf = nwf;
+		tf = ntf;
+		Twf = nTwf;
+		Ttf = nTtf;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= rows.length)
+			return;
+		final int ncap = Math.max(capacity, rows.length * 2);
+		rows = Arrays.copyOf(rows, ncap);
+		wf = Arrays.copyOf(wf, ncap);
+		tf = Arrays.copyOf(tf, ncap);
+		Twf = Arrays.copyOf(Twf, ncap);
+		Ttf = Arrays.copyOf(Ttf, ncap);
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, size);
+		int last = 0;
+		for (int i = 0; i < size; i++) {
+			WritableUtils.writeVInt(out, rows[i] - last);
+			last = rows[i];
+		}
+		writeCounts(out, wf);
+		writeCounts(out, tf);
+		writeCounts(out, Twf);
+		writeCounts(out, Ttf);
+	}
+
+	private void writeCounts(DataOutput out, long[] counts) throws IOException {
+		boolean constant = true;
+		for (int i = 1; i < size && constant; i++)
+			constant = counts[i] == counts[0];
+		out.writeBoolean(constant);
+		if (constant) {
+			if (size > 0)
+				WritableUtils.writeVLong(out, counts[0]);
+		} else {
+			for (int i = 0; i < size; i++)
+				WritableUtils.writeVLong(out, counts[i]);
+		}
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		size = 0;
+		final int n = WritableUtils.readVInt(in);
+		ensureCapacity(n);
+		int last = 0;
+		for (int i = 0; i < n; i++) {
+			last += WritableUtils.readVInt(in);
+			rows[i] = last;
+		}
+		readCounts(in, wf, n);
+		readCounts(in, tf, n);
+		readCounts(in, Twf, n);
+		readCounts(in, Ttf, n);
+		size = n;
+	}
+
+	private static void readCounts(DataInput in, long[] counts, int n) throws IOException {
+		if (in.readBoolean()) {
+			if (n > 0)
+				Arrays.fill(counts, 0, n, WritableUtils.readVLong(in));
+		} else {
+			for (int i = 0; i < n; i++)
+				counts[i] = WritableUtils.readVLong(in);
+		}
+	}
+}
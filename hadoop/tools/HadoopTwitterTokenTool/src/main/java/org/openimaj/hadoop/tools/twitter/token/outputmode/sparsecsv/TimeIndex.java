@@ -40,6 +40,7 @@ import java.util.LinkedHashMap;
 import java.util.Map.Entry;
 
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
@@ -49,6 +50,7 @@ import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.openimaj.hadoop.mapreduce.stage.StageProvider;
 import org.openimaj.hadoop.mapreduce.stage.helper.SequenceFileTextStage;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
@@ -165,9 +167,33 @@ public class TimeIndex extends StageProvider{
 			public String outname() {
 				return "times";
 			}
+
+			@Override
+			public void finished(Job job) {
+				try {
+					writeCompactIndex(FileOutputFormat.getOutputPath(job));
+				} catch (IOException e) {
+					System.err.println("Couldn't write the compact time index: " + e.getMessage());
+				}
+			}
 		};
 	}
 
+	/**
+	 * Write the {@link CompactTimeIndex} of the times CSV into the times directory
+	 * @param timesDir the times directory
+	 * @throws IOException
+	 */
+	public static void writeCompactIndex(Path timesDir) throws IOException {
+		FileSystem fs = HadoopToolsUtil.getFileSystem(timesDir);
+		FSDataOutputStream out = fs.create(new Path(timesDir, CompactWordIndex.INDEX_FILE), true);
+		try {
+			CompactTimeIndex.writeFromCSV(timesDir.getParent().toString(), out);
+		} finally {
+			out.close();
+		}
+	}
+
 	/**
 	 * Write a CSV timeIndex to a {@link MLCell} writen to a .mat data file
 	 * @param path
@@ -86,7 +86,7 @@ public class Values extends StageProvider{
 	@Override
 	public SequenceFileTextStage<?,?,?, ?,?, ?> stage() {
 		if(this.sortValueByTime){
-			return new SequenceFileTextStage<Text, BytesWritable, LongWritable, BytesWritable,NullWritable, Text> () {
+			return new SequenceFileTextStage<Text, BytesWritable, LongWritable, IndexedWordDFIDF,NullWritable, Text> () {
 				@Override
 				public void setup(Job job) {
 					job.setNumReduceTasks(valueReduceSplit);
@@ -94,11 +94,11 @@ public class Values extends StageProvider{
 					job.getConfiguration().setBoolean(MATLAB_OUT, matlabOutput);
 				}
 				@Override
-				public Class<? extends Mapper<Text, BytesWritable, LongWritable, BytesWritable>> mapper() {
+				public Class<? extends Mapper<Text, BytesWritable, LongWritable, IndexedWordDFIDF>> mapper() {
 					return MapValuesByTime.class;
 				}
 				@Override
-				public Class<? extends Reducer<LongWritable,BytesWritable,NullWritable,Text>> reducer() {
+				public Class<? extends Reducer<LongWritable,IndexedWordDFIDF,NullWritable,Text>> reducer() {
 					return ReduceValuesByTime.class;
 				}			
 				@Override
@@ -29,6 +29,8 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
 
+import gnu.trove.procedure.TObjectLongProcedure;
+
 import java.io.BufferedReader;
 import java.io.DataInput;
 import java.io.IOException;
@@ -41,6 +43,7 @@ import java.util.LinkedHashMap;
 import java.util.Map.Entry;
 
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
@@ -50,6 +53,7 @@ import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.openimaj.hadoop.mapreduce.MultiStagedJob;
 import org.openimaj.hadoop.mapreduce.stage.StageAppender;
 import org.openimaj.hadoop.mapreduce.stage.helper.SequenceFileStage;
@@ -205,25 +209,56 @@ public class WordIndex extends StageAppender {
 	 */
 	public static LinkedHashMap<String, IndependentPair<Long, Long>> readWordCountLines(String path, String ext)
 			throws IOException
+	{
+		final LinkedHashMap<String, IndependentPair<Long, Long>> toRet = new LinkedHashMap<String, IndependentPair<Long, Long>>();
+		readWordCountLines(path, ext, new TObjectLongProcedure<String>() {
+			long lineN = 0;
+
+			@Override
+			public boolean execute(String word, long count) {
+				toRet.put(word, IndependentPair.pair(count, lineN));
+				lineN++;
+				return true;
+			}
+		});
+		return toRet;
+	}
+
+	/**
+	 * from a report output path stream the words and their counts, in index
+	 * (line) order, to a procedure without holding them in memory
+	 * 
+	 * @param path
+	 *            report output path
+	 * @param ext
+	 *            where the words are in the path
+	 * @param procedure
+	 *            called with each word and its count, return false to stop
+	 *            reading
+	 * @throws IOException
+	 */
+	public static void readWordCountLines(String path, String ext, TObjectLongProcedure<String> procedure)
+			throws IOException
 	{
 		final String wordPath = path + ext;
 		final Path p = HadoopToolsUtil.getInputPaths(wordPath)[0];
 		final FileSystem fs = HadoopToolsUtil.getFileSystem(p);
 		final FSDataInputStream toRead = fs.open(p);
 		final BufferedReader reader = new BufferedReader(new InputStreamReader(toRead, "UTF-8"));
-		final CSVParser csvreader = new CSVParser(reader);
-		long lineN = 0;
-		String[] next = null;
-		final LinkedHashMap<String, IndependentPair<Long, Long>> toRet = new LinkedHashMap<String, IndependentPair<Long, Long>>();
-		while ((next = csvreader.getLine()) != null && next.length > 0) {
-			if (next.length != 2) {
-				System.out.println("PROBLEM READLINE LINE: " + Arrays.toString(next));
-				continue;
+		try {
+			final CSVParser csvreader = new CSVParser(reader);
+			String[] next = null;
+			while ((next = csvreader.getLine()) != null && next.length > 0) {
+				if (next.length != 2) {
+					System.out.println("PROBLEM READLINE LINE: " + Arrays.toString(next));
+					continue;
+				}
+				if (!procedure.execute(next[0], Long.parseLong(next[1])))
+					break;
 			}
-			toRet.put(next[0], IndependentPair.pair(Long.parseLong(next[1]), lineN));
-			lineN++;
+		} finally {
+			reader.close();
 		}
-		return toRet;
 	}
 
 	@Override
@@ -272,12 +307,39 @@ public class WordIndex extends StageAppender {
 			public String outname() {
 				return "words";
 			}
+
+			@Override
+			public void finished(Job job) {
+				try {
+					writeCompactIndex(FileOutputFormat.getOutputPath(job));
+				} catch (final IOException e) {
+					System.err.println("Couldn't write the compact word index: " + e.getMessage());
+				}
+			}
 		};
 
 		mjob.queueStage(collateWords);
 		mjob.queueStage(sortedWords);
 	}
 
+	/**
+	 * Write the {@link CompactWordIndex} of the words CSV into the words
+	 * directory
+	 * 
+	 * @param wordsDir
+	 *            the words directory
+	 * @throws IOException
+	 */
+	public static void writeCompactIndex(Path wordsDir) throws IOException {
+		final FileSystem fs = HadoopToolsUtil.getFileSystem(wordsDir);
+		final FSDataOutputStream out = fs.create(new Path(wordsDir, CompactWordIndex.INDEX_FILE), true);
+		try {
+			CompactWordIndex.writeFromCSV(wordsDir.getParent().toString(), out);
+		} finally {
+			out.close();
+		}
+	}
+
 	public static void main(String[] args) throws IOException {
 		final LinkedHashMap<String, IndependentPair<Long, Long>> wi = WordIndex
 				.readWordCountLines("/Users/ss/Development/data/trendminer/sheffield/2010/09/tweets.2010-09-01.sparsecsv");
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.matlabio;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.SparseCountsColumn;
+import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
+
+/**
+ * A read only, memory mapped sparse word/time count matrix written by
+ * {@link SparseBinaryToMatrix#writeMapped(File)}. Nothing is read onto the
+ * heap, so matrices larger than the heap (and larger than the 2GB a single
+ * mapping can cover) can be used.
+ * <p>
+ * The file is a 64 byte header followed by the compressed sparse column
+ * arrays, all big endian: the start of each column's cells
+ * (<code>long[columns + 1]</code>), the row of each cell
+ * (<code>int[nnz]</code>, padded to 8 bytes) and then the four counts of
+ * each cell as <code>long[nnz]</code> arrays in the order wf, tf, Twf, Ttf
+ * (see {@link SparseCountsColumn}).
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class MappedSparseCountsMatrix implements Closeable {
+	static final int MAGIC = 0x53434d58; // "SCMX"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 64;
+
+	// a multiple of 8 so no aligned value straddles two segments
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private RandomAccessFile file;
+	private MappedByteBuffer[] segments;
+
+	private boolean byWord;
+	private long rows;
+	private long columns;
+	private long nnz;
+
+	private long columnsStart;
+	private long rowsStart;
+	private long countsStart;
+
+	/**
+	 * Map a matrix file
+	 * 
+	 * @param f
+	 * @throws IOException
+	 */
+	public MappedSparseCountsMatrix(File f) throws IOException {
+		this.file = new RandomAccessFile(f, "r");
+		final FileChannel channel = file.getChannel();
+		final long size = channel.size();
+		final int nSegments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+		this.segments = new MappedByteBuffer[nSegments];
+		for (int i = 0; i < nSegments; i++) {
+			final long start = (long) i << SEGMENT_BITS;
+			segments[i] = channel.map(MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start));
+		}
+
+		if (size < HEADER_SIZE || getInt(0) != MAGIC || getInt(4) != VERSION)
+			throw new IOException("Not a sparse counts matrix file: " + f);
+		this.byWord = getInt(8) != 0;
+		this.rows = getLong(16);
+		this.columns = getLong(24);
+		this.nnz = getLong(32);
+
+		this.columnsStart = HEADER_SIZE;
+		this.rowsStart = columnsStart + 8 * (columns + 1);
+		this.countsStart = rowsStart + pad8(4 * nnz);
+	}
+
+	static long pad8(long n) {
+		return (n + 7) & ~7L;
+	}
+
+	private long getLong(long pos) {
+		return segments[(int) (pos >>> SEGMENT_BITS)].getLong((int) (pos & SEGMENT_MASK));
+	}
+
+	private int getInt(long pos) {
+		return segments[(int) (pos >>> SEGMENT_BITS)].getInt((int) (pos & SEGMENT_MASK));
+	}
+
+	/**
+	 * @return true if columns are words and rows times, false if columns are
+	 *         times and rows words
+	 */
+	public boolean isByWord() {
+		return byWord;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public long rows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of columns
+	 */
+	public long columns() {
+		return columns;
+	}
+
+	/**
+	 * @return the number of non zero cells
+	 */
+	public long nnz() {
+		return nnz;
+	}
+
+	/**
+	 * @param column
+	 * @return the first cell of the column
+	 */
+	public long columnStart(long column) {
+		return getLong(columnsStart + 8 * column);
+	}
+
+	/**
+	 * @param column
+	 * @return one past the last cell of the column
+	 */
+	public long columnEnd(long column) {
+		return getLong(columnsStart + 8 * (column + 1));
+	}
+
+	/**
+	 * @param cell
+	 * @return the row of the cell
+	 */
+	public int row(long cell) {
+		return getInt(rowsStart + 4 * cell);
+	}
+
+	/**
+	 * @param cell
+	 * @return the word count of the cell
+	 */
+	public long wf(long cell) {
+		return getLong(countsStart + 8 * cell);
+	}
+
+	/**
+	 * @param cell
+	 * @return the tweet count of the cell
+	 */
+	public long tf(long cell) {
+		return getLong(countsStart + 8 * (nnz + cell));
+	}
+
+	/**
+	 * @param cell
+	 * @return the cumulative word count of the cell
+	 */
+	public long Twf(long cell) {
+		return getLong(countsStart + 8 * (2 * nnz + cell));
+	}
+
+	/**
+	 * @param cell
+	 * @return the cumulative tweet count of the cell
+	 */
+	public long Ttf(long cell) {
+		return getLong(countsStart + 8 * (3 * nnz + cell));
+	}
+
+	/**
+	 * @param cell
+	 * @return the counts of the cell (the time period is not set)
+	 */
+	public WordDFIDF get(long cell) {
+		return new WordDFIDF(0, wf(cell), tf(cell), Twf(cell), Ttf(cell));
+	}
+
+	/**
+	 * Find a cell by binary search of its column
+	 * 
+	 * @param row
+	 * @param column
+	 * @return the cell or -1 if it is empty
+	 */
+	public long find(int row, long column) {
+		long lo = columnStart(column);
+		long hi = columnEnd(column) - 1;
+		while (lo <= hi) {
+			final long mid = (lo + hi) >>> 1;
+			final int r = row(mid);
+			if (r < row)
+				lo = mid + 1;
+			else if (r > row)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		segments = null;
+		file.close();
+	}
+}
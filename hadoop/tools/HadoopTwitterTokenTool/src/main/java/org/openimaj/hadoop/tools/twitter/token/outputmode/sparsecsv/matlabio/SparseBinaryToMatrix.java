@@ -0,0 +1,332 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.matlabio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.openimaj.hadoop.tools.HadoopToolsUtil;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.BinaryValues;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.SparseCountsColumn;
+import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
+
+/**
+ * Convert the binary values written by {@link BinaryValues} to a level 5
+ * .mat file holding a sparse "values" matrix of DFIDF scores, or to a
+ * {@link MappedSparseCountsMatrix} file holding all the counts.
+ * <p>
+ * Both conversions are two streaming passes over the part files: the first
+ * counts the cells of each column, which fixes where every column goes in
+ * the output, and the second writes each column straight to its place. Only
+ * the column pointers are held in memory, so the matrix can be larger than
+ * the heap and the parts can be read in any order.
+ * <p>
+ * The .mat matrix is words x times. If the values were stored by word it is
+ * written transposed, as "values_t".
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class SparseBinaryToMatrix {
+	private static final int miINT8 = 1;
+	private static final int miINT32 = 5;
+	private static final int miUINT32 = 6;
+	private static final int miDOUBLE = 9;
+	private static final int miMATRIX = 14;
+	private static final int mxSPARSE_CLASS = 5;
+
+	private Configuration conf = new Configuration();
+	private FileSystem fs;
+	private Path[] parts;
+	private boolean byWord;
+	private int rows;
+	private int columns;
+
+	/**
+	 * @param root
+	 *            the root of the sparse binary output
+	 * @throws IOException
+	 */
+	public SparseBinaryToMatrix(String root) throws IOException {
+		this.parts = HadoopToolsUtil.getInputPaths(root + "/values");
+		if (parts.length == 0)
+			throw new IOException("No values found under " + root);
+		this.fs = HadoopToolsUtil.getFileSystem(parts[0]);
+
+		final SequenceFile.Reader reader = new SequenceFile.Reader(fs, parts[0], conf);
+		try {
+			final SequenceFile.Metadata metadata = reader.getMetadata();
+			this.byWord = BinaryValues.BY_WORD_ORIENTATION.equals(metadata.get(new Text(BinaryValues.ORIENTATION_KEY))
+					.toString());
+			final int words = Integer.parseInt(metadata.get(new Text(BinaryValues.WORDS_KEY)).toString());
+			final int times = Integer.parseInt(metadata.get(new Text(BinaryValues.TIMES_KEY)).toString());
+			this.rows = byWord ? times : words;
+			this.columns = byWord ? words : times;
+		} finally {
+			reader.close();
+		}
+	}
+
+	interface ColumnVisitor {
+		void visit(int column, SparseCountsColumn cells) throws IOException;
+	}
+
+	private void forEachColumn(ColumnVisitor visitor) throws IOException {
+		final IntWritable column = new IntWritable();
+		final SparseCountsColumn cells = new SparseCountsColumn();
+		for (final Path part : parts) {
+			final SequenceFile.Reader reader = new SequenceFile.Reader(fs, part, conf);
+			try {
+				while (reader.next(column, cells)) {
+					visitor.visit(column.get(), cells);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	/**
+	 * @return the first cell of each column and, last, the number of cells
+	 * @throws IOException
+	 */
+	public long[] columnPointers() throws IOException {
+		final long[] pointers = new long[columns + 1];
+		forEachColumn(new ColumnVisitor() {
+			@Override
+			public void visit(int column, SparseCountsColumn cells) {
+				pointers[column + 1] = cells.size;
+			}
+		});
+		for (int i = 0; i < columns; i++)
+			pointers[i + 1] += pointers[i];
+		return pointers;
+	}
+
+	/**
+	 * Write a {@link MappedSparseCountsMatrix} file
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeMapped(File out) throws IOException {
+		final long[] pointers = columnPointers();
+		final long nnz = pointers[columns];
+
+		final long rowsStart = MappedSparseCountsMatrix.HEADER_SIZE + 8L * (columns + 1);
+		final long countsStart = rowsStart + MappedSparseCountsMatrix.pad8(4 * nnz);
+		final long size = countsStart + 4 * 8 * nnz;
+
+		final RandomAccessFile raf = new RandomAccessFile(out, "rw");
+		try {
+			raf.setLength(0);
+			raf.setLength(size);
+			final FileChannel channel = raf.getChannel();
+
+			final ByteBuffer header = ByteBuffer.allocate(MappedSparseCountsMatrix.HEADER_SIZE);
+			header.putInt(MappedSparseCountsMatrix.MAGIC);
+			header.putInt(MappedSparseCountsMatrix.VERSION);
+			header.putInt(byWord ? 1 : 0);
+			header.putInt(0);
+			header.putLong(rows);
+			header.putLong(columns);
+			header.putLong(nnz);
+			header.rewind();
+			writeFully(channel, header, 0);
+			writeLongs(channel, pointers, pointers.length, MappedSparseCountsMatrix.HEADER_SIZE);
+
+			forEachColumn(new ColumnVisitor() {
+				@Override
+				public void visit(int column, SparseCountsColumn cells) throws IOException {
+					final long first = pointers[column];
+					writeInts(channel, cells.rows, cells.size, rowsStart + 4 * first);
+					writeLongs(channel, cells.wf, cells.size, countsStart + 8 * first);
+					writeLongs(channel, cells.tf, cells.size, countsStart + 8 * (nnz + first));
+					writeLongs(channel, cells.Twf, cells.size, countsStart + 8 * (2 * nnz + first));
+					writeLongs(channel, cells.Ttf, cells.size, countsStart + 8 * (3 * nnz + first));
+				}
+			});
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Write a level 5 .mat file holding the DFIDF scores as a sparse matrix.
+	 * Level 5 files store sizes as 32 bit integers, so very large matrices
+	 * should be written with {@link #writeMapped(File)} instead.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeMatlab(File out) throws IOException {
+		final long[] pointers = columnPointers();
+		final long nnz = pointers[columns];
+		final long nzmax = Math.max(nnz, 1);
+
+		final String name = byWord ? "values_t" : "values";
+		final long flagsSize = 8 + 8;
+		final long dimsSize = 8 + 8;
+		final long nameSize = 8 + MappedSparseCountsMatrix.pad8(name.length());
+		final long irSize = 8 + MappedSparseCountsMatrix.pad8(4 * nzmax);
+		final long jcSize = 8 + MappedSparseCountsMatrix.pad8(4L * (columns + 1));
+		final long prSize = 8 + 8 * nzmax;
+		final long matrixSize = flagsSize + dimsSize + nameSize + irSize + jcSize + prSize;
+		if (matrixSize > Integer.MAX_VALUE)
+			throw new IOException("The matrix is too large for a level 5 .mat file, write a mapped matrix instead");
+
+		final long matrixStart = 128;
+		final long irStart = matrixStart + 8 + flagsSize + dimsSize + nameSize + 8;
+		final long jcStart = irStart - 8 + irSize + 8;
+		final long prStart = jcStart - 8 + jcSize + 8;
+
+		final RandomAccessFile raf = new RandomAccessFile(out, "rw");
+		try {
+			raf.setLength(0);
+			raf.setLength(matrixStart + 8 + matrixSize);
+			final FileChannel channel = raf.getChannel();
+
+			final ByteBuffer header = ByteBuffer.allocate((int) (irStart));
+			final byte[] text = new byte[116];
+			Arrays.fill(text, (byte) ' ');
+			final byte[] desc = ("MATLAB 5.0 MAT-file, Created on: " + new Date()).getBytes("US-ASCII");
+			System.arraycopy(desc, 0, text, 0, Math.min(desc.length, text.length));
+			header.put(text);
+			header.putLong(0); // no subsystem data
+			header.putShort((short) 0x0100);
+			header.put((byte) 'M');
+			header.put((byte) 'I');
+
+			header.putInt(miMATRIX);
+			header.putInt((int) matrixSize);
+			header.putInt(miUINT32);
+			header.putInt(8);
+			header.putInt(mxSPARSE_CLASS);
+			header.putInt((int) nzmax);
+			header.putInt(miINT32);
+			header.putInt(8);
+			header.putInt(rows);
+			header.putInt(columns);
+			header.putInt(miINT8);
+			header.putInt(name.length());
+			header.put(name.getBytes("US-ASCII"));
+			header.position((int) (irStart - 8));
+			header.putInt(miINT32);
+			header.putInt((int) (4 * nzmax));
+			header.rewind();
+			writeFully(channel, header, 0);
+
+			final ByteBuffer tag = ByteBuffer.allocate(8);
+			tag.putInt(miINT32);
+			tag.putInt(4 * (columns + 1));
+			tag.rewind();
+			writeFully(channel, tag, jcStart - 8);
+			final int[] jc = new int[columns + 1];
+			for (int i = 0; i < jc.length; i++)
+				jc[i] = (int) pointers[i];
+			writeInts(channel, jc, jc.length, jcStart);
+
+			tag.clear();
+			tag.putInt(miDOUBLE);
+			tag.putInt((int) (8 * nzmax));
+			tag.rewind();
+			writeFully(channel, tag, prStart - 8);
+
+			forEachColumn(new ColumnVisitor() {
+				@Override
+				public void visit(int column, SparseCountsColumn cells) throws IOException {
+					final long first = pointers[column];
+					writeInts(channel, cells.rows, cells.size, irStart + 4 * first);
+
+					final ByteBuffer values = ByteBuffer.allocate(8 * cells.size);
+					final WordDFIDF idf = new WordDFIDF();
+					for (int i = 0; i < cells.size; i++) {
+						idf.wf = cells.wf[i];
+						idf.tf = cells.tf[i];
+						idf.Twf = cells.Twf[i];
+						idf.Ttf = cells.Ttf[i];
+						values.putDouble(idf.dfidf());
+					}
+					values.rewind();
+					writeFully(channel, values, prStart + 8 * first);
+				}
+			});
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void writeInts(FileChannel channel, int[] data, int n, long position) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(4 * n);
+		buffer.asIntBuffer().put(data, 0, n);
+		writeFully(channel, buffer, position);
+	}
+
+	private static void writeLongs(FileChannel channel, long[] data, int n, long position) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(8 * n);
+		buffer.asLongBuffer().put(data, 0, n);
+		writeFully(channel, buffer, position);
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+
+	/**
+	 * Convert the binary values of a sparse binary output
+	 * 
+	 * @param args
+	 *            the output root, then the .mat file to write and optionally
+	 *            the mapped matrix file to write
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: SparseBinaryToMatrix <sparse binary root> <mat file> [<mapped file>]");
+			return;
+		}
+		final SparseBinaryToMatrix converter = new SparseBinaryToMatrix(args[0]);
+		converter.writeMatlab(new File(args[1]));
+		if (args.length > 2)
+			converter.writeMapped(new File(args[2]));
+	}
+}
@@ -36,13 +36,10 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.Map.Entry;
 
-import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.TimeIndex;
-import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.WordIndex;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.CompactTimeIndex;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.CompactWordIndex;
 import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
-import org.openimaj.util.pair.IndependentPair;
 
 import com.Ostermiller.util.CSVParser;
 import com.jmatio.io.MatFileWriter;
@@ -70,27 +67,25 @@ public class SparseCSVToMatlab {
 			}
 		}
 
-		final LinkedHashMap<String, IndependentPair<Long, Long>> wordIndex = WordIndex.readWordCountLines(sparseCSVRoot);
-		final LinkedHashMap<Long, IndependentPair<Long, Long>> timeIndex = TimeIndex.readTimeCountLines(sparseCSVRoot);
+		final CompactWordIndex wordIndex = CompactWordIndex.read(sparseCSVRoot);
+		final CompactTimeIndex timeIndex = CompactTimeIndex.read(sparseCSVRoot);
 		System.out.println("Preparing matlab files");
 
 		final MLCell wordCell = new MLCell("words", new int[] { wordIndex.size(), 2 });
 		final MLCell timeCell = new MLCell("times", new int[] { timeIndex.size(), 2 });
 
 		System.out.println("... reading times");
-		for (final Entry<Long, IndependentPair<Long, Long>> ent : timeIndex.entrySet()) {
-			final long time = ent.getKey();
-			final int timeCellIndex = (int) (long) ent.getValue().secondObject();
-			final long count = ent.getValue().firstObject();
+		for (int timeCellIndex = 0; timeCellIndex < timeIndex.size(); timeCellIndex++) {
+			final long time = timeIndex.time(timeCellIndex);
+			final long count = timeIndex.count(timeCellIndex);
 			timeCell.set(new MLDouble(null, new double[][] { new double[] { time } }), timeCellIndex, 0);
 			timeCell.set(new MLDouble(null, new double[][] { new double[] { count } }), timeCellIndex, 1);
 		}
 
 		System.out.println("... reading words");
-		for (final Entry<String, IndependentPair<Long, Long>> ent : wordIndex.entrySet()) {
-			final String word = ent.getKey();
-			final int wordCellIndex = (int) (long) ent.getValue().secondObject();
-			final long count = ent.getValue().firstObject();
+		for (int wordCellIndex = 0; wordCellIndex < wordIndex.size(); wordCellIndex++) {
+			final String word = wordIndex.word(wordCellIndex);
+			final long count = wordIndex.count(wordCellIndex);
 			wordCell.set(new MLChar(null, word), wordCellIndex, 0);
 			wordCell.set(new MLDouble(null, new double[][] { new double[] { count } }), wordCellIndex, 1);
 		}
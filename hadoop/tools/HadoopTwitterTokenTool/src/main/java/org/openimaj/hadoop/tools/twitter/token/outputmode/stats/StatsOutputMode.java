@@ -29,10 +29,10 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.outputmode.stats;
 
-import java.util.HashMap;
-import java.util.Map.Entry;
+import gnu.trove.procedure.TObjectLongProcedure;
 
 import org.apache.hadoop.fs.Path;
+import org.kohsuke.args4j.Option;
 import org.openimaj.hadoop.mapreduce.MultiStagedJob;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
 import org.openimaj.hadoop.tools.twitter.HadoopTwitterTokenToolOptions;
@@ -40,10 +40,21 @@ import org.openimaj.hadoop.tools.twitter.token.mode.TwitterTokenMode;
 import org.openimaj.hadoop.tools.twitter.token.mode.dfidf.CountWordsAcrossTimeperiod;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.TwitterTokenOutputMode;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.WordIndex;
-import org.openimaj.util.pair.IndependentPair;
 
+/**
+ * Output statistics about the words counted by a token mode. The words are
+ * indexed with {@link WordIndex} and the index is then streamed through
+ * {@link StatsWordMatch} (and optionally a {@link WordFrequencySketch}) a
+ * line at a time, so the memory used does not grow with the vocabulary.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
 public class StatsOutputMode extends TwitterTokenOutputMode {
 
+	@Option(name = "--frequency-sketch", aliases = "-fsk", required = false, usage = "Also output a histogram and quantiles of the word frequencies")
+	boolean frequencySketch = false;
+
 	private MultiStagedJob stages;
 
 	@Override
@@ -59,16 +70,22 @@ public class StatsOutputMode extends TwitterTokenOutputMode {
 		new WordIndex().stage(stages);
 		final Path wordIndex = stages.runAll();
 		
-		HashMap<String, IndependentPair<Long, Long>> wordCountLines = WordIndex.readWordCountLines(wordIndex.toString(),"");
-		StatsWordMatch matches = new StatsWordMatch();
-		for (Entry<String, IndependentPair<Long, Long>> entry : wordCountLines.entrySet()) {
-			String word = entry.getKey();
-			IndependentPair<Long, Long> countLine = entry.getValue();
-			Long count = countLine.firstObject();	
-			matches.updateStats(word, count);
-		}
+		// 2. Stream the words through the stats
+		final StatsWordMatch matches = new StatsWordMatch();
+		final WordFrequencySketch sketch = frequencySketch ? new WordFrequencySketch() : null;
+		WordIndex.readWordCountLines(wordIndex.toString(), "", new TObjectLongProcedure<String>() {
+			@Override
+			public boolean execute(String word, long count) {
+				matches.updateStats(word, count);
+				if (sketch != null)
+					sketch.add(count);
+				return true;
+			}
+		});
 		
 		System.out.println(matches);
+		if (sketch != null)
+			System.out.println(sketch);
 	}
 
 }
@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.stats;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size, mergeable sketch of a distribution of word frequencies.
+ * Counts below {@link #EXACT} are held exactly, larger counts fall into
+ * log-linear bins ({@link #SUB_BINS} per power of two) so quantiles are
+ * estimated to within about 6% of the true count. The sketch holds a few
+ * hundred longs however many words are added, so it can be built while
+ * streaming over a vocabulary of any size and sketches built over different
+ * parts of a vocabulary can be {@link #merge(WordFrequencySketch)}d.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class WordFrequencySketch {
+	private static final int SUB_BITS = 3;
+	/**
+	 * bins per power of two above {@link #EXACT}
+	 */
+	public static final int SUB_BINS = 1 << SUB_BITS;
+	/**
+	 * counts below this are held exactly
+	 */
+	public static final int EXACT = 2 * SUB_BINS;
+	private static final int EXACT_BITS = SUB_BITS + 1;
+	private static final int NBINS = EXACT + (63 - EXACT_BITS) * SUB_BINS;
+
+	private final long[] bins = new long[NBINS];
+	private long words;
+	private long total;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+
+	/**
+	 * Add the frequency of a word
+	 * 
+	 * @param count
+	 *            a non-negative word count
+	 */
+	public void add(long count) {
+		bins[bin(count)]++;
+		words++;
+		total += count;
+		if (count < min)
+			min = count;
+		if (count > max)
+			max = count;
+	}
+
+	/**
+	 * Add the frequencies held by another sketch to this one
+	 * 
+	 * @param other
+	 */
+	public void merge(WordFrequencySketch other) {
+		for (int i = 0; i < NBINS; i++)
+			bins[i] += other.bins[i];
+		words += other.words;
+		total += other.total;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	static int bin(long count) {
+		if (count < EXACT)
+			return (int) Math.max(count, 0);
+		final int octave = 63 - Long.numberOfLeadingZeros(count);
+		final int sub = (int) (count >>> (octave - SUB_BITS)) & (SUB_BINS - 1);
+		return EXACT + (octave - EXACT_BITS) * SUB_BINS + sub;
+	}
+
+	static long binLow(int bin) {
+		if (bin < EXACT)
+			return bin;
+		final int octave = (bin - EXACT) / SUB_BINS + EXACT_BITS;
+		final long sub = (bin - EXACT) % SUB_BINS;
+		return (SUB_BINS + sub) << (octave - SUB_BITS);
+	}
+
+	static long binHigh(int bin) {
+		if (bin < EXACT)
+			return bin;
+		final int octave = (bin - EXACT) / SUB_BINS + EXACT_BITS;
+		return binLow(bin) + (1L << (octave - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * @return the number of words added
+	 */
+	public long words() {
+		return words;
+	}
+
+	/**
+	 * @return the sum of the word counts added
+	 */
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * @return the smallest count added, or 0 if nothing was added
+	 */
+	public long min() {
+		return words == 0 ? 0 : min;
+	}
+
+	/**
+	 * @return the largest count added, or 0 if nothing was added
+	 */
+	public long max() {
+		return words == 0 ? 0 : max;
+	}
+
+	/**
+	 * @return the mean count of a word
+	 */
+	public double mean() {
+		return words == 0 ? 0 : (double) total / words;
+	}
+
+	/**
+	 * @param count
+	 *            a count below {@link #EXACT}
+	 * @return the number of words seen exactly count times
+	 */
+	public long wordsWithCount(int count) {
+		if (count >= EXACT)
+			throw new IllegalArgumentException("Only counts below " + EXACT + " are held exactly");
+		return bins[count];
+	}
+
+	/**
+	 * Estimate a quantile of the word counts. The estimate is exact for
+	 * counts below {@link #EXACT} and otherwise the middle of the bin holding
+	 * the quantile, clamped to the observed minimum and maximum.
+	 * 
+	 * @param q
+	 *            the quantile, between 0 and 1
+	 * @return the estimated count at the quantile
+	 */
+	public long quantile(double q) {
+		if (words == 0)
+			return 0;
+		final long rank = Math.max(1, (long) Math.ceil(q * words));
+		long seen = 0;
+		for (int i = 0; i < NBINS; i++) {
+			seen += bins[i];
+			if (seen >= rank) {
+				final long mid = binLow(i) + (binHigh(i) - binLow(i)) / 2;
+				return Math.max(min, Math.min(max, mid));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @return the number of words in each power of two range of counts,
+	 *         [1], [2,3], [4,7] ... up to the largest count added; words seen
+	 *         0 times are not included
+	 */
+	public long[] powerOfTwoHistogram() {
+		final long[] hist = new long[64 - Long.numberOfLeadingZeros(Math.max(max(), 1))];
+		for (int i = 1; i < NBINS; i++) {
+			if (bins[i] == 0)
+				continue;
+			hist[63 - Long.numberOfLeadingZeros(binLow(i))] += bins[i];
+		}
+		return hist;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuffer buffer = new StringBuffer();
+		buffer.append("Frequency Stats:\n");
+		buffer.append(String.format("words: %d\n", words));
+		buffer.append(String.format("total: %d\n", total));
+		buffer.append(String.format("min: %d\n", min()));
+		buffer.append(String.format("max: %d\n", max()));
+		buffer.append(String.format("mean: %.3f\n", mean()));
+		buffer.append(String.format("seen once: %d\n", bins[1]));
+		final double[] qs = { 0.25, 0.5, 0.75, 0.9, 0.99, 0.999 };
+		for (final double q : qs)
+			buffer.append(String.format("q%s: %d\n", Double.toString(q * 100).replaceAll("\\.0$", ""), quantile(q)));
+		buffer.append("Frequency Histogram:\n");
+		final long[] hist = powerOfTwoHistogram();
+		for (int i = 0; i < hist.length; i++)
+			buffer.append(String.format("[%d,%d]: %d\n", 1L << i, (1L << (i + 1)) - 1, hist[i]));
+		return buffer.toString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof WordFrequencySketch))
+			return false;
+		final WordFrequencySketch that = (WordFrequencySketch) obj;
+		return words == that.words && total == that.total && min() == that.min() && max() == that.max()
+				&& Arrays.equals(bins, that.bins);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(bins);
+	}
+}
@@ -39,6 +39,7 @@ import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.openimaj.hadoop.mapreduce.stage.StageProvider;
 import org.openimaj.hadoop.mapreduce.stage.helper.SequenceFileTextStage;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.WritableWordDFIDF;
 
 /**
  * Given a set of specific words, this a mapper is prepared which emits only the dfidf values of those specific words
@@ -57,20 +58,20 @@ public class SpecificWordStageProvider extends StageProvider {
 	}
 
 	@Override
-	public SequenceFileTextStage<Text, BytesWritable, Text, BytesWritable, NullWritable, Text> stage() {
-		SequenceFileTextStage<Text,BytesWritable, Text, BytesWritable, NullWritable,Text> writeSpecificWords = new SequenceFileTextStage<Text,BytesWritable, Text, BytesWritable,NullWritable,Text>() {
+	public SequenceFileTextStage<Text, BytesWritable, Text, WritableWordDFIDF, NullWritable, Text> stage() {
+		SequenceFileTextStage<Text,BytesWritable, Text, WritableWordDFIDF, NullWritable,Text> writeSpecificWords = new SequenceFileTextStage<Text,BytesWritable, Text, WritableWordDFIDF,NullWritable,Text>() {
 			@Override
 			public void setup(Job job) {
 				job.getConfiguration().setStrings(WORD_TIME_SERIES, wordtimeseries.toArray(new String[wordtimeseries.size()]));
 			}
 			
 			@Override
-			public Class<? extends Mapper<Text, BytesWritable, Text, BytesWritable>> mapper() {
+			public Class<? extends Mapper<Text, BytesWritable, Text, WritableWordDFIDF>> mapper() {
 				return SpecificWordSelectionMapper.class;
 			}
 			
 			@Override
-			public Class<? extends Reducer<Text, BytesWritable, NullWritable, Text>> reducer() {
+			public Class<? extends Reducer<Text, WritableWordDFIDF, NullWritable, Text>> reducer() {
 				return WordDFIDFTimeSeriesReducer.class;
 			}
 			
@@ -29,8 +29,15 @@
  */
 package org.openimaj.hadoop.tools.twitter.token.outputmode.timeseries;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.List;
+import java.util.Map.Entry;
 
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.kohsuke.args4j.Option;
 import org.openimaj.hadoop.mapreduce.MultiStagedJob;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
@@ -38,6 +45,8 @@ import org.openimaj.hadoop.tools.twitter.HadoopTwitterTokenToolOptions;
 import org.openimaj.hadoop.tools.twitter.token.mode.TwitterTokenMode;
 import org.openimaj.hadoop.tools.twitter.token.mode.dfidf.CountWordsAcrossTimeperiod;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.TwitterTokenOutputMode;
+import org.openimaj.hadoop.tools.twitter.utils.WordDFIDFTimeSeries;
+import org.openimaj.io.IOUtils;
 
 public class SpecificWordTimeSeries extends TwitterTokenOutputMode{
 	
@@ -49,6 +58,10 @@ public class SpecificWordTimeSeries extends TwitterTokenOutputMode{
 	public void write(HadoopTwitterTokenToolOptions opts,TwitterTokenMode completedMode) throws Exception {
 		HadoopToolsUtil.validateOutput(outputPath,replace);
 		String[] input = completedMode.finalOutput(opts);
+		if (input.length == 1 && WordDFIDFIndex.isIndexed(new Path(input[0]))) {
+			writeFromIndex(new Path(input[0]));
+			return;
+		}
 		
 		this.stages = new MultiStagedJob(
 				HadoopToolsUtil.getInputPaths(completedMode.finalOutput(opts) , CountWordsAcrossTimeperiod.WORDCOUNT_DIR),
@@ -61,4 +74,28 @@ public class SpecificWordTimeSeries extends TwitterTokenOutputMode{
 		this.stages.runAll();
 	}
 
+	/**
+	 * Seek straight to the requested words in the indexed DFIDF output and
+	 * write the same lines {@link WordDFIDFTimeSeriesReducer} would have
+	 * written, without running a job over every word.
+	 */
+	private void writeFromIndex(Path root) throws IOException {
+		WordDFIDFIndex index = new WordDFIDFIndex(root);
+		Path out = new Path(new Path(HadoopToolsUtil.getOutputPath(outputPath), SpecificWordStageProvider.SPECIFIC_WORD), "part-r-00000");
+		FileSystem fs = HadoopToolsUtil.getFileSystem(out);
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(fs.create(out, true), "UTF-8"));
+		try {
+			for (Entry<String, WordDFIDFTimeSeries> ent : index.timeSeries(wordtimeseries).entrySet()) {
+				StringWriter line = new StringWriter();
+				line.write(ent.getKey() + " ");
+				IOUtils.writeASCII(line, ent.getValue());
+				// TextOutputFormat separates records with a bare newline
+				writer.print(line.toString() + "\n");
+			}
+		} finally {
+			writer.close();
+			index.close();
+		}
+	}
+
 }
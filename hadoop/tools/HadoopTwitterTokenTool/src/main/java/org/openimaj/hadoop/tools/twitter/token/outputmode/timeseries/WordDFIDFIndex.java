@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.timeseries;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.openimaj.hadoop.sequencefile.MapFileOutputFormat;
+import org.openimaj.hadoop.tools.twitter.token.mode.dfidf.CountWordsAcrossTimeperiod;
+import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
+import org.openimaj.hadoop.tools.twitter.utils.WordDFIDFTimeSeries;
+import org.openimaj.io.IOUtils;
+import org.openimaj.io.wrappers.ReadableListBinary;
+
+/**
+ * Local (non map-reduce) access to the per word DFIDF written by
+ * {@link CountWordsAcrossTimeperiod} when it was asked to index words. Each
+ * reducer output is a {@link MapFile}, so a word is found by asking the job's
+ * partitioner for its partition and seeking through the sparse key index of
+ * that partition alone, rather than scanning every word of every partition.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class WordDFIDFIndex {
+	private MapFile.Reader[] readers;
+	private Partitioner<Text, BytesWritable> partitioner;
+
+	/**
+	 * @param root
+	 *            the root output of the DFIDF mode, i.e. the directory holding
+	 *            {@link CountWordsAcrossTimeperiod#WORDCOUNT_DIR}
+	 * @throws IOException
+	 */
+	public WordDFIDFIndex(Path root) throws IOException {
+		final Path dir = new Path(root, CountWordsAcrossTimeperiod.WORDCOUNT_DIR);
+		final Configuration conf = new Configuration();
+		this.readers = MapFileOutputFormat.getReaders(dir, conf);
+		if (readers.length == 0)
+			throw new IOException("No word index found under " + root);
+		this.partitioner = MapFileOutputFormat.getPartitioner(dir, conf);
+	}
+
+	/**
+	 * @param root
+	 *            the root output of the DFIDF mode
+	 * @return whether the per word DFIDF was written as indexed
+	 *         {@link MapFile}s
+	 * @throws IOException
+	 */
+	public static boolean isIndexed(Path root) throws IOException {
+		return MapFileOutputFormat.isMapFileOutput(new Path(root, CountWordsAcrossTimeperiod.WORDCOUNT_DIR),
+				new Configuration());
+	}
+
+	/**
+	 * @param word
+	 * @return the time series of the word or null if the word was never seen
+	 * @throws IOException
+	 */
+	public WordDFIDFTimeSeries timeSeries(String word) throws IOException {
+		final Text key = new Text(word);
+		final BytesWritable value = new BytesWritable();
+		if (MapFileOutputFormat.getEntry(readers, partitioner, key, value) == null)
+			return null;
+
+		final WordDFIDFTimeSeries dts = new WordDFIDFTimeSeries();
+		IOUtils.deserialize(value.getBytes(), new ReadableListBinary<Object>(new ArrayList<Object>()) {
+			@Override
+			protected Object readValue(DataInput in) throws IOException {
+				final WordDFIDF idf = new WordDFIDF();
+				idf.readBinary(in);
+				dts.add(idf.timeperiod, idf);
+				return null;
+			}
+		});
+		return dts;
+	}
+
+	/**
+	 * Look up several words. Words are visited in sorted order so each
+	 * partition is read forwards.
+	 * 
+	 * @param words
+	 * @return the time series of each word that was seen, in word order
+	 * @throws IOException
+	 */
+	public LinkedHashMap<String, WordDFIDFTimeSeries> timeSeries(Collection<String> words) throws IOException {
+		final LinkedHashMap<String, WordDFIDFTimeSeries> ret = new LinkedHashMap<String, WordDFIDFTimeSeries>();
+		for (final String word : new TreeSet<String>(words)) {
+			final WordDFIDFTimeSeries dts = timeSeries(word);
+			if (dts != null)
+				ret.put(word, dts);
+		}
+		return ret;
+	}
+
+	/**
+	 * Close the underlying readers
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		final List<IOException> errors = new ArrayList<IOException>();
+		for (final MapFile.Reader reader : readers) {
+			try {
+				reader.close();
+			} catch (final IOException e) {
+				errors.add(e);
+			}
+		}
+		if (!errors.isEmpty())
+			throw errors.get(0);
+	}
+}
@@ -30,11 +30,10 @@
 package org.openimaj.hadoop.tools.twitter.token.outputmode.timeseries;
 
 import java.io.StringWriter;
-import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.WritableWordDFIDF;
 import org.openimaj.hadoop.tools.twitter.utils.WordDFIDFTimeSeries;
 import org.openimaj.io.IOUtils;
 
@@ -43,13 +42,13 @@ import org.openimaj.io.IOUtils;
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
-public class WordDFIDFTimeSeriesReducer extends Reducer<Text, BytesWritable, NullWritable, Text> {
+public class WordDFIDFTimeSeriesReducer extends Reducer<Text, WritableWordDFIDF, NullWritable, Text> {
 	@Override
-	protected void reduce(Text word, java.lang.Iterable<BytesWritable> dfidfs, Reducer<Text,BytesWritable,NullWritable,Text>.Context context) throws java.io.IOException ,InterruptedException {
+	protected void reduce(Text word, java.lang.Iterable<WritableWordDFIDF> dfidfs, Reducer<Text,WritableWordDFIDF,NullWritable,Text>.Context context) throws java.io.IOException ,InterruptedException {
 		WordDFIDFTimeSeries dts = new WordDFIDFTimeSeries();
-		for (BytesWritable bytesWritable : dfidfs) {
-			WordDFIDF wd = IOUtils.deserialize(bytesWritable.getBytes(), WordDFIDF.class);
-			dts.add(wd.timeperiod, wd);
+		for (WritableWordDFIDF wd : dfidfs) {
+			// the value is reused, keep a copy
+			dts.add(wd.timeperiod, wd.copy());
 		}
 		StringWriter writer = new StringWriter();
 		writer.write(word + " ");
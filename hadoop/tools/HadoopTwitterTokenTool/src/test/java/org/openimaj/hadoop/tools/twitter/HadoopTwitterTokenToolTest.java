@@ -29,36 +29,61 @@
  */
 package org.openimaj.hadoop.tools.twitter;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeMap;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.openimaj.hadoop.sequencefile.SequenceFileUtility;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
+import org.openimaj.hadoop.tools.twitter.token.mode.dfidf.CountTweetsInTimeperiod;
+import org.openimaj.hadoop.tools.twitter.token.mode.dfidf.CountWordsAcrossTimeperiod;
+import org.openimaj.hadoop.tools.twitter.token.mode.dfidf.DFIDFTokenMode;
+import org.openimaj.hadoop.tools.twitter.token.mode.dfidf.TimeFrequencyHolder;
 import org.openimaj.hadoop.tools.twitter.token.mode.match.TokenRegexStage;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.jacard.CumulativeTimeWord;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.jacard.JacardIndex;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.TimeIndex;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.WordIndex;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv.matlabio.MappedSparseCountsMatrix;
 import org.openimaj.hadoop.tools.twitter.token.outputmode.timeseries.SpecificWordStageProvider;
+import org.openimaj.hadoop.tools.twitter.utils.TweetCountWordMap;
+import org.openimaj.hadoop.tools.twitter.utils.WordDFIDF;
 import org.openimaj.hadoop.tools.twitter.utils.WordDFIDFTimeSeriesCollection;
 import org.openimaj.io.FileUtils;
 import org.openimaj.io.IOUtils;
+import org.openimaj.io.wrappers.ReadableListBinary;
 import org.openimaj.util.pair.IndependentPair;
 
+import com.jmatio.io.MatFileReader;
+import com.jmatio.types.MLSparse;
+
 /**
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
@@ -199,6 +224,208 @@ public class HadoopTwitterTokenToolTest {
 		System.out.println(p);
 	}
 
+	/**
+	 * A base run over the first half of the month followed by incremental
+	 * runs over the second half gives, after each increment, the same per word
+	 * DFIDF, time index and per time period counts as a single run over all
+	 * the data seen so far. The second half is split into alternate tweets.
+	 * The last increment delivers the tweets of the one before again, so it
+	 * starts at the same time period and its counts must be moved in
+	 * alongside the earlier counts named after that period without replacing
+	 * them.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testIncrementalDFIDF() throws Exception {
+		String[] lines = FileUtils.readlines(new FileInputStream(monthLongTweets));
+		File base = folder.newFile(counter + "_" + "monthlong-base.txt");
+		File firstIncrement = folder.newFile(counter + "_" + "monthlong-first.txt");
+		File secondIncrement = folder.newFile(counter + "_" + "monthlong-second.txt");
+		File baseAndFirst = folder.newFile(counter + "_" + "monthlong-base-first.txt");
+		File monthAndSecond = folder.newFile(counter + "_" + "monthlong-second-again.txt");
+		PrintWriter baseWriter = new PrintWriter(new FileWriter(base));
+		PrintWriter firstWriter = new PrintWriter(new FileWriter(firstIncrement));
+		PrintWriter secondWriter = new PrintWriter(new FileWriter(secondIncrement));
+		PrintWriter baseAndFirstWriter = new PrintWriter(new FileWriter(baseAndFirst));
+		PrintWriter monthAndSecondWriter = new PrintWriter(new FileWriter(monthAndSecond));
+		for (int i = 0; i < lines.length; i++) {
+			monthAndSecondWriter.println(lines[i]);
+			if (i < lines.length / 2) {
+				baseWriter.println(lines[i]);
+				baseAndFirstWriter.println(lines[i]);
+			} else if (i % 2 == 0) {
+				firstWriter.println(lines[i]);
+				baseAndFirstWriter.println(lines[i]);
+			} else {
+				secondWriter.println(lines[i]);
+				monthAndSecondWriter.println(lines[i]);
+			}
+		}
+		baseWriter.close();
+		firstWriter.close();
+		secondWriter.close();
+		baseAndFirstWriter.close();
+		monthAndSecondWriter.close();
+
+		String incOut = outputLocation.getAbsolutePath() + "-inc";
+		String results = resultsOutputLocation.getAbsolutePath();
+		runDFIDF(base, incOut, results + "-base", "");
+		List<String> baseParts = timeCountParts(incOut);
+
+		runDFIDF(firstIncrement, incOut, results + "-first", " -inc");
+		String firstFullOut = outputLocation.getAbsolutePath() + "-first-full";
+		runDFIDF(baseAndFirst, firstFullOut, results + "-first-full", "");
+		assertSameDFIDF(firstFullOut, incOut);
+		List<String> firstParts = timeCountParts(incOut);
+		assertTrue(firstParts.size() > baseParts.size());
+
+		runDFIDF(secondIncrement, incOut, results + "-second", " -inc");
+		String fullOut = outputLocation.getAbsolutePath() + "-full";
+		runDFIDF(monthLongTweets, fullOut, results + "-full", "");
+		assertSameDFIDF(fullOut, incOut);
+		List<String> secondParts = timeCountParts(incOut);
+		List<String> secondNew = new ArrayList<String>(secondParts);
+		secondNew.removeAll(firstParts);
+		assertTrue(secondNew.size() > 0);
+
+		runDFIDF(secondIncrement, incOut, results + "-again", " -inc");
+		String againFullOut = outputLocation.getAbsolutePath() + "-again-full";
+		runDFIDF(monthAndSecond, againFullOut, results + "-again-full", "");
+		assertSameDFIDF(againFullOut, incOut);
+		List<String> againParts = timeCountParts(incOut);
+		assertTrue(againParts.containsAll(secondParts));
+		List<String> againNew = new ArrayList<String>(againParts);
+		againNew.removeAll(secondParts);
+		List<String> expectedNew = new ArrayList<String>();
+		for (String part : secondNew) {
+			expectedNew.add(part + "-1");
+		}
+		assertEquals(expectedNew, againNew);
+
+		assertTrue(!new File(incOut, DFIDFTokenMode.INCREMENT_DIR).exists());
+		assertTrue(!new File(incOut, DFIDFTokenMode.INCREMENT_PREPROCESSING_DIR).exists());
+	}
+
+	private static void assertSameDFIDF(String expectedOut, String actualOut) throws IOException {
+		TimeFrequencyHolder expectedIndex = CountTweetsInTimeperiod.readTimeIndex(CountTweetsInTimeperiod
+				.constructIndexPath(new Path(expectedOut)));
+		TimeFrequencyHolder actualIndex = CountTweetsInTimeperiod.readTimeIndex(CountTweetsInTimeperiod
+				.constructIndexPath(new Path(actualOut)));
+		long[] times = expectedIndex.keys();
+		Arrays.sort(times);
+		long[] actualTimes = actualIndex.keys();
+		Arrays.sort(actualTimes);
+		assertTrue(Arrays.equals(times, actualTimes));
+		for (long time : times) {
+			assertEquals(expectedIndex.get(time).toString(), actualIndex.get(time).toString());
+		}
+
+		TreeMap<Long, TweetCountWordMap> expectedCounts = readTimeCounts(expectedOut);
+		TreeMap<Long, TweetCountWordMap> actualCounts = readTimeCounts(actualOut);
+		assertEquals(expectedCounts.keySet(), actualCounts.keySet());
+		for (Long time : expectedCounts.keySet()) {
+			TweetCountWordMap expectedPeriod = expectedCounts.get(time);
+			TweetCountWordMap actualPeriod = actualCounts.get(time);
+			assertEquals(expectedPeriod, actualPeriod);
+			assertEquals(expectedPeriod.getTweetWordMap().size(), actualPeriod.getTweetWordMap().size());
+		}
+
+		HashMap<String, TreeMap<Long, WordDFIDF>> expected = readWordDFIDF(expectedOut);
+		HashMap<String, TreeMap<Long, WordDFIDF>> actual = readWordDFIDF(actualOut);
+		assertTrue(expected.size() > 0);
+		assertEquals(expected.keySet(), actual.keySet());
+		for (String word : expected.keySet()) {
+			TreeMap<Long, WordDFIDF> expectedSeries = expected.get(word);
+			TreeMap<Long, WordDFIDF> actualSeries = actual.get(word);
+			assertEquals(expectedSeries.keySet(), actualSeries.keySet());
+			for (Long time : expectedSeries.keySet()) {
+				WordDFIDF expectedIDF = expectedSeries.get(time);
+				WordDFIDF actualIDF = actualSeries.get(time);
+				assertEquals(expectedIDF.wf, actualIDF.wf);
+				assertEquals(expectedIDF.tf, actualIDF.tf);
+				assertEquals(expectedIDF.Twf, actualIDF.Twf);
+				assertEquals(expectedIDF.Ttf, actualIDF.Ttf);
+			}
+		}
+	}
+
+	private static List<String> timeCountParts(String output) throws IOException {
+		List<String> names = new ArrayList<String>();
+		Path counts = new Path(output, CountTweetsInTimeperiod.TIMECOUNT_DIR);
+		for (Path part : SequenceFileUtility.getFilePaths(counts.toString(), "part")) {
+			names.add(part.getName());
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * The tweet and word counts of each time period summed over all the parts
+	 * in {@link CountTweetsInTimeperiod#TIMECOUNT_DIR}
+	 */
+	private static TreeMap<Long, TweetCountWordMap> readTimeCounts(String output) throws IOException {
+		TreeMap<Long, TweetCountWordMap> ret = new TreeMap<Long, TweetCountWordMap>();
+		Path counts = new Path(output, CountTweetsInTimeperiod.TIMECOUNT_DIR);
+		FileSystem fs = HadoopToolsUtil.getFileSystem(counts);
+		for (Path part : SequenceFileUtility.getFilePaths(counts.toString(), "part")) {
+			SequenceFile.Reader reader = new SequenceFile.Reader(fs, part, new Configuration());
+			try {
+				LongWritable time = new LongWritable();
+				BytesWritable value = new BytesWritable();
+				while (reader.next(time, value)) {
+					TweetCountWordMap periodCounts = IOUtils.read(new ByteArrayInputStream(value.getBytes()),
+							TweetCountWordMap.class);
+					TweetCountWordMap total = ret.get(time.get());
+					if (total == null)
+						ret.put(time.get(), periodCounts);
+					else
+						total.combine(periodCounts);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return ret;
+	}
+
+	private void runDFIDF(File input, String output, String resultsOutput, String extra) throws Exception {
+		String command = String.format(hadoopCommand, input.getAbsolutePath(), output, "CSV", resultsOutput,
+				"DFIDF", "analysis.stemmed") + extra;
+		String[] args = command.split(" ");
+		args = (String[]) ArrayUtils.addAll(args, new String[] { "-pp", "-m PORTER_STEM" });
+		HadoopTwitterTokenTool.main(args);
+	}
+
+	private static HashMap<String, TreeMap<Long, WordDFIDF>> readWordDFIDF(String output) throws IOException {
+		HashMap<String, TreeMap<Long, WordDFIDF>> ret = new HashMap<String, TreeMap<Long, WordDFIDF>>();
+		Path words = new Path(output, CountWordsAcrossTimeperiod.WORDCOUNT_DIR);
+		FileSystem fs = HadoopToolsUtil.getFileSystem(words);
+		for (Path part : SequenceFileUtility.getFilePaths(words.toString(), "part")) {
+			SequenceFile.Reader reader = new SequenceFile.Reader(fs, part, new Configuration());
+			try {
+				Text word = new Text();
+				BytesWritable value = new BytesWritable();
+				while (reader.next(word, value)) {
+					final TreeMap<Long, WordDFIDF> series = new TreeMap<Long, WordDFIDF>();
+					IOUtils.deserialize(value.getBytes(), new ReadableListBinary<Object>(new ArrayList<Object>()) {
+						@Override
+						protected Object readValue(DataInput in) throws IOException {
+							WordDFIDF idf = new WordDFIDF();
+							idf.readBinary(in);
+							series.put(idf.timeperiod, idf);
+							return null;
+						}
+					});
+					ret.put(word.toString(), series);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return ret;
+	}
+
 	/**
 	 * See whether jobs with some stages complete can be run
 	 *
@@ -287,6 +514,70 @@ public class HadoopTwitterTokenToolTest {
 		assertTrue(sum == nenglish);
 	}
 
+	/**
+	 * The sparse binary output, converted to a mapped matrix and a .mat file,
+	 * holds exactly the cells of the CSV output of the same DFIDF run
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSparseBinaryMatchesCSV() throws Exception {
+		String command = String.format(hadoopCommand,
+				stemmedTweets.getAbsolutePath(),
+				outputLocation.getAbsolutePath(), "CSV",
+				resultsOutputLocation.getAbsolutePath(), "DFIDF",
+				"analysis.stemmed");
+		String[] args = command.split(" ");
+		args = (String[]) ArrayUtils.addAll(args, new String[] { "-pp", "-m PORTER_STEM" });
+		HadoopTwitterTokenTool.main(args);
+
+		File binaryOutputLocation = new File(resultsOutputLocation.getAbsolutePath() + "-binary");
+		File mapped = new File(folder.getRoot(), counter + "_" + "values.map");
+		File mat = new File(folder.getRoot(), counter + "_" + "values.mat");
+		command = String.format(hadoopCommand,
+				stemmedTweets.getAbsolutePath(),
+				outputLocation.getAbsolutePath(), "SPARSE_BINARY",
+				binaryOutputLocation.getAbsolutePath(), "DFIDF",
+				"analysis.stemmed");
+		command += " -b2map " + mapped.getAbsolutePath() + " -b2mat " + mat.getAbsolutePath();
+		args = command.split(" ");
+		args = (String[]) ArrayUtils.addAll(args, new String[] { "-pp", "-m PORTER_STEM" });
+		HadoopTwitterTokenTool.main(args);
+
+		MLSparse values = (MLSparse) new MatFileReader(mat).getMLArray("values");
+		MappedSparseCountsMatrix matrix = new MappedSparseCountsMatrix(mapped);
+		try {
+			assertTrue(!matrix.isByWord());
+			long cells = 0;
+			for (File part : new File(resultsOutputLocation, "values").listFiles()) {
+				if (!part.getName().startsWith("part"))
+					continue;
+				for (String line : FileUtils.readlines(new FileInputStream(part))) {
+					if (line.length() == 0)
+						continue;
+					String[] parts = line.split(",");
+					int word = Integer.parseInt(parts[0]);
+					int time = Integer.parseInt(parts[1]);
+					WordDFIDF idf = new WordDFIDF(time, Long.parseLong(parts[2]), Long.parseLong(parts[3]),
+							Long.parseLong(parts[4]), Long.parseLong(parts[5]));
+
+					long cell = matrix.find(word, time);
+					assertTrue(cell >= 0);
+					assertEquals(idf.wf, matrix.wf(cell));
+					assertEquals(idf.tf, matrix.tf(cell));
+					assertEquals(idf.Twf, matrix.Twf(cell));
+					assertEquals(idf.Ttf, matrix.Ttf(cell));
+					assertEquals(idf.dfidf(), values.getReal(word, time), 0);
+					cells++;
+				}
+			}
+			assertTrue(cells > 0);
+			assertEquals(cells, matrix.nnz());
+		} finally {
+			matrix.close();
+		}
+	}
+
 	/**
 	 * Test Stemming followed by DFIDF on a file which is plain json tweets
 	 *
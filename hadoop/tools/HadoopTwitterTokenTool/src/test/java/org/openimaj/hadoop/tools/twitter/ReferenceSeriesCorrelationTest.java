@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.commons.math.MathException;
+import org.apache.commons.math.linear.BlockRealMatrix;
+import org.apache.commons.math.stat.correlation.PearsonsCorrelation;
+import org.junit.Test;
+import org.openimaj.hadoop.tools.twitter.token.outputmode.correlation.ReferenceSeriesCorrelation;
+
+/**
+ * Check the batch correlation against {@link PearsonsCorrelation}
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class ReferenceSeriesCorrelationTest {
+	/**
+	 * @throws MathException
+	 */
+	@Test
+	public void testMatchesPearsons() throws MathException {
+		final Random r = new Random(1);
+		final int length = 50;
+		final double[][] references = new double[5][length];
+		final String[] names = new String[references.length];
+		for (int i = 0; i < references.length; i++) {
+			names[i] = "ref" + i;
+			for (int j = 0; j < length; j++)
+				references[i][j] = 100 + 10 * r.nextGaussian() + i * j;
+		}
+		final ReferenceSeriesCorrelation correlation = new ReferenceSeriesCorrelation(names, references);
+
+		final double[] corr = new double[references.length];
+		final double[] pval = new double[references.length];
+		for (int word = 0; word < 10; word++) {
+			final double[] series = new double[length];
+			for (int j = 0; j < length; j++)
+				series[j] = r.nextInt(20) + word * j * 0.1;
+			correlation.correlate(series, corr, pval);
+
+			for (int i = 0; i < references.length; i++) {
+				final PearsonsCorrelation pcorr = new PearsonsCorrelation(new BlockRealMatrix(new double[][] { series,
+						references[i] }).transpose());
+				assertEquals(pcorr.getCorrelationMatrix().getEntry(0, 1), corr[i], 1e-10);
+				assertEquals(pcorr.getCorrelationPValues().getEntry(0, 1), pval[i], 1e-10);
+			}
+		}
+	}
+
+	/**
+	 * A constant series has no correlation
+	 *
+	 * @throws MathException
+	 */
+	@Test
+	public void testConstant() throws MathException {
+		final ReferenceSeriesCorrelation correlation = new ReferenceSeriesCorrelation(new String[] { "a" },
+				new double[][] { { 1, 2, 3, 5 } });
+		final double[] corr = new double[1];
+		final double[] pval = new double[1];
+		correlation.correlate(new double[] { 2, 2, 2, 2 }, corr, pval);
+		assertTrue(Double.isNaN(corr[0]));
+		assertTrue(Double.isNaN(pval[0]));
+	}
+}
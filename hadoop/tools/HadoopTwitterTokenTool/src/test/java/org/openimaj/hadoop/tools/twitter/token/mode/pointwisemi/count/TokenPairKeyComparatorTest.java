@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.count;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Test;
+
+/**
+ * Serialised {@link TokenPairKey}s are ordered by the raw comparators as their
+ * {@link TokenPairKey#compareTo(TokenPairKey)} orders them
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class TokenPairKeyComparatorTest {
+	/**
+	 * The supplementary character sorts before the full width letter as a
+	 * String, and some words are prefixes of others
+	 */
+	private static final String[] WORDS = { "", "a", "ab", "b", "Zebra", "caf\u00e9", "cafe", "\u00e9",
+			"\u65e5\u672c", "\ud83d\ude00", "\uff21" };
+	private static final long[] TIMES = { Long.MIN_VALUE, -1, 0, 1, 256, Long.MAX_VALUE };
+
+	/**
+	 * The key comparator agrees with compareTo on every pair of keys
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testKeyComparator() throws IOException {
+		final List<TokenPairKey> keys = keys();
+		final WritableComparator comparator = WritableComparator.get(TokenPairKey.class);
+		assertEquals(TokenPairKeyComparator.class, comparator.getClass());
+		for (final TokenPairKey a : keys) {
+			for (final TokenPairKey b : keys) {
+				assertEquals(a + " " + b, Integer.signum(a.compareTo(b)), Integer.signum(compare(comparator, a, b)));
+			}
+		}
+	}
+
+	/**
+	 * The grouping comparator only looks at the time
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testGroupingComparator() throws IOException {
+		final List<TokenPairKey> keys = keys();
+		final TokenPairValueGroupingComparator comparator = new TokenPairValueGroupingComparator();
+		for (final TokenPairKey a : keys) {
+			for (final TokenPairKey b : keys) {
+				final int expected = a.time < b.time ? -1 : (a.time == b.time ? 0 : 1);
+				assertEquals(a + " " + b, expected, compare(comparator, a, b));
+				assertEquals(a + " " + b, expected, comparator.compare(a, b));
+			}
+		}
+	}
+
+	private static List<TokenPairKey> keys() {
+		final List<TokenPairKey> keys = new ArrayList<TokenPairKey>();
+		for (final long time : TIMES) {
+			for (final String first : WORDS) {
+				keys.add(key(time, true, first, null));
+				for (final String second : WORDS)
+					keys.add(key(time, false, first, second));
+			}
+		}
+		return keys;
+	}
+
+	private static TokenPairKey key(long time, boolean isSingle, String first, String second) {
+		final TokenPairKey key = new TokenPairKey();
+		key.time = time;
+		key.isSingle = isSingle;
+		key.first = first;
+		key.second = second;
+		return key;
+	}
+
+	/**
+	 * Compare the keys serialised one after the other in a single buffer, so
+	 * neither starts at the beginning of the array
+	 */
+	private static int compare(WritableComparator comparator, TokenPairKey a, TokenPairKey b) throws IOException {
+		final DataOutputBuffer out = new DataOutputBuffer();
+		out.writeInt(0);
+		a.write(out);
+		final int s2 = out.getLength();
+		b.write(out);
+		final int l1 = s2 - 4;
+		final int l2 = out.getLength() - s2;
+		return comparator.compare(out.getData(), 4, l1, out.getData(), s2, l2);
+	}
+}
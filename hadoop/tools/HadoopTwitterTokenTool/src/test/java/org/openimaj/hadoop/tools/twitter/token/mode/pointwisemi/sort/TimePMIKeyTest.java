@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.mode.pointwisemi.sort;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Test;
+
+/**
+ * Serialised {@link TimePMIKey}s are ordered by the raw comparators as their
+ * {@link TimePMIKey#compareTo(TimePMIKey)} orders them
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class TimePMIKeyTest {
+	private static final long[] TIMES = { Long.MIN_VALUE, -1, 0, 1, 256, Long.MAX_VALUE };
+	private static final double[] PMIS = { Double.NEGATIVE_INFINITY, -2.5, -Double.MIN_VALUE, 0, 1e-300, 0.5, 3,
+			Double.MAX_VALUE, Double.POSITIVE_INFINITY };
+
+	/**
+	 * The key comparator agrees with compareTo, which orders by time and then
+	 * biggest pmi first, and the grouping comparator only looks at the time
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testComparators() throws IOException {
+		final List<TimePMIKey> keys = new ArrayList<TimePMIKey>();
+		for (final long time : TIMES)
+			for (final double pmi : PMIS)
+				keys.add(new TimePMIKey(time, pmi));
+
+		final WritableComparator comparator = WritableComparator.get(TimePMIKey.class);
+		assertEquals(PMISortKeyComparator.class, comparator.getClass());
+		final PMISortValueGroupingComparator grouping = new PMISortValueGroupingComparator();
+		for (final TimePMIKey a : keys) {
+			for (final TimePMIKey b : keys) {
+				int expected = a.time < b.time ? -1 : (a.time == b.time ? 0 : 1);
+				assertEquals(a + " " + b, expected, compare(grouping, a, b));
+				assertEquals(a + " " + b, expected, grouping.compare(a, b));
+				if (expected == 0)
+					expected = a.pmi > b.pmi ? -1 : (a.pmi == b.pmi ? 0 : 1);
+				assertEquals(a + " " + b, expected, Integer.signum(a.compareTo(b)));
+				assertEquals(a + " " + b, expected, Integer.signum(compare(comparator, a, b)));
+			}
+		}
+	}
+
+	/**
+	 * The key is written and read as a long and a double
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testReadWrite() throws IOException {
+		final DataOutputBuffer out = new DataOutputBuffer();
+		new TimePMIKey(-1, 0.25).write(out);
+		assertEquals(TimePMIKey.LENGTH, out.getLength());
+
+		final DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+		assertEquals(-1, in.readLong());
+		assertEquals(0.25, in.readDouble(), 0);
+
+		in.reset(out.getData(), out.getLength());
+		final TimePMIKey key = new TimePMIKey();
+		key.readFields(in);
+		assertEquals(new TimePMIKey(-1, 0.25), key);
+	}
+
+	private static int compare(WritableComparator comparator, TimePMIKey a, TimePMIKey b) throws IOException {
+		final DataOutputBuffer out = new DataOutputBuffer();
+		out.writeInt(0);
+		a.write(out);
+		b.write(out);
+		return comparator.compare(out.getData(), 4, TimePMIKey.LENGTH, out.getData(), 4 + TimePMIKey.LENGTH,
+				TimePMIKey.LENGTH);
+	}
+}
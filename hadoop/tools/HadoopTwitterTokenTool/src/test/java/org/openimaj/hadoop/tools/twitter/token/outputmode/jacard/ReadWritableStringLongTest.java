@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.jacard;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Test;
+
+/**
+ * Serialised {@link ReadWritableStringLong}s are ordered by the raw comparator
+ * as their {@link ReadWritableStringLong#compareTo(ReadWritableStringLong)}
+ * orders them
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class ReadWritableStringLongTest {
+	/**
+	 * The supplementary character sorts before the full width letter as a
+	 * String, and some words are prefixes of others
+	 */
+	private static final String[] WORDS = { "", "a", "ab", "b", "Zebra", "caf\u00e9", "cafe", "\u00e9",
+			"\u65e5\u672c", "\ud83d\ude00", "\uff21" };
+	private static final long[] TIMES = { Long.MIN_VALUE, -1, 0, 1, 256, Long.MAX_VALUE };
+
+	/**
+	 * The raw comparator agrees with compareTo on every pair of words and
+	 * times
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testComparator() throws IOException {
+		final List<ReadWritableStringLong> keys = new ArrayList<ReadWritableStringLong>();
+		for (final String word : WORDS)
+			for (final long time : TIMES)
+				keys.add(new ReadWritableStringLong(word, time));
+
+		final WritableComparator comparator = WritableComparator.get(ReadWritableStringLong.class);
+		assertEquals(ReadWritableStringLong.Comparator.class, comparator.getClass());
+		for (final ReadWritableStringLong a : keys) {
+			for (final ReadWritableStringLong b : keys) {
+				final String message = a.firstObject() + "," + a.secondObject() + " " + b.firstObject() + ","
+						+ b.secondObject();
+				assertEquals(message, Integer.signum(a.compareTo(b)), Integer.signum(compare(comparator, a, b)));
+			}
+		}
+	}
+
+	private static int compare(WritableComparator comparator, ReadWritableStringLong a, ReadWritableStringLong b)
+			throws IOException
+	{
+		final DataOutputBuffer out = new DataOutputBuffer();
+		out.writeInt(0);
+		a.write(out);
+		final int s2 = out.getLength();
+		b.write(out);
+		return comparator.compare(out.getData(), 4, s2 - 4, out.getData(), s2, out.getLength() - s2);
+	}
+}
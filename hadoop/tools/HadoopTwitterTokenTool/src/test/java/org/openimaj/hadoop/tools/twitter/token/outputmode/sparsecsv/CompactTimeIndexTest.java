@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.Ostermiller.util.CSVPrinter;
+
+/**
+ * Look times up in a {@link CompactTimeIndex}
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class CompactTimeIndexTest {
+	/**
+	 * Times in index (line) order, not all sorted
+	 */
+	private static final long[] TIMES = { 1288566000000L, 1288569600000L, 1288573200000L, 1288562400000L, -1,
+			1288576800000L, 0 };
+	private static final long[] COUNTS = { 12, 5, 1L << 40, 7, 3, 9, 1 };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Every time is found at its line, whatever the order of the lines
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testBinarySearch() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompactTimeIndex.write(TIMES, COUNTS, TIMES.length, out);
+		assertIndex(new CompactTimeIndex(ByteBuffer.wrap(out.toByteArray())));
+
+		// sorted times take the fast path
+		final long[] sorted = { 1, 5, 10 };
+		out.reset();
+		CompactTimeIndex.write(sorted, COUNTS, sorted.length, out);
+		final CompactTimeIndex index = new CompactTimeIndex(ByteBuffer.wrap(out.toByteArray()));
+		for (int i = 0; i < sorted.length; i++)
+			assertEquals(i, index.indexOf(sorted[i]));
+		assertEquals(-1, index.indexOf(6));
+	}
+
+	/**
+	 * An index.bin in the times directory is loaded rather than the CSV
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testIndexFile() throws IOException {
+		final File times = timesDir();
+		writeCSV(new File(times, "part-r-00000"), new long[] { 42 }, new long[] { 1 });
+
+		final FileOutputStream out = new FileOutputStream(new File(times, CompactWordIndex.INDEX_FILE));
+		CompactTimeIndex.write(TIMES, COUNTS, TIMES.length, out);
+		out.close();
+		assertIndex(CompactTimeIndex.read(times.getParent()));
+	}
+
+	/**
+	 * Without an index.bin the index is built from the times CSV
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testCSVFallback() throws IOException {
+		final File times = timesDir();
+		writeCSV(new File(times, "part-r-00000"), TIMES, COUNTS);
+		assertIndex(CompactTimeIndex.read(times.getParent()));
+
+		final FileOutputStream out = new FileOutputStream(new File(times, CompactWordIndex.INDEX_FILE));
+		CompactTimeIndex.writeFromCSV(times.getParent(), out);
+		out.close();
+		assertIndex(CompactTimeIndex.read(times.getParent()));
+	}
+
+	private File timesDir() throws IOException {
+		final File times = new File(folder.newFolder("out"), "times");
+		times.mkdirs();
+		return times;
+	}
+
+	private static void writeCSV(File file, long[] times, long[] counts) throws IOException {
+		final CSVPrinter printer = new CSVPrinter(new FileWriter(file));
+		for (int i = 0; i < times.length; i++)
+			printer.writeln(new String[] { times[i] + "", counts[i] + "" });
+		printer.close();
+	}
+
+	private static void assertIndex(CompactTimeIndex index) {
+		assertEquals(TIMES.length, index.size());
+		for (int i = 0; i < TIMES.length; i++) {
+			assertEquals(i, index.indexOf(TIMES[i]));
+			assertEquals(TIMES[i], index.time(i));
+			assertEquals(COUNTS[i], index.count(i));
+		}
+		assertEquals(-1, index.indexOf(1));
+		assertEquals(-1, index.indexOf(1288566000001L));
+		assertEquals(-1, index.indexOf(Long.MIN_VALUE));
+		assertEquals(-1, index.indexOf(Long.MAX_VALUE));
+	}
+}
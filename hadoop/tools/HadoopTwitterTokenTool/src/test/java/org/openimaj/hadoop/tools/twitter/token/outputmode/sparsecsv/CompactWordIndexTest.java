@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.io.Text;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.Ostermiller.util.CSVPrinter;
+
+/**
+ * Look words up in a {@link CompactWordIndex}
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class CompactWordIndexTest {
+	/**
+	 * Words in index (line) order. The supplementary character sorts before
+	 * the full width letter as a String but after it as UTF-8 bytes, and
+	 * some words are prefixes of others.
+	 */
+	private static final String[] WORDS = { ".", "the", "caf\u00e9", "cafe", "\u65e5\u672c", "\ud83d\ude00",
+			"\uff21", "a", "ab", "abc", "Zebra", "a,b", "say \"hi\"", "na\u00efve", "\u00e9" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Every word is found by its String, {@link Text} and UTF-8 bytes, and
+	 * words which are not in the index are not found
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testBinarySearch() throws IOException {
+		final long[] counts = counts();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompactWordIndex.write(utf8(WORDS), counts, out);
+		assertIndex(new CompactWordIndex(ByteBuffer.wrap(out.toByteArray())), counts);
+	}
+
+	/**
+	 * An index.bin in the words directory is loaded rather than the CSV
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testIndexFile() throws IOException {
+		final File root = folder.newFolder("out");
+		final File words = new File(root, "words");
+		words.mkdirs();
+		writeCSV(new File(words, "part-r-00000"), Arrays.copyOf(WORDS, 3), new long[] { 1, 2, 3 });
+
+		final long[] counts = counts();
+		final FileOutputStream out = new FileOutputStream(new File(words, CompactWordIndex.INDEX_FILE));
+		CompactWordIndex.write(utf8(WORDS), counts, out);
+		out.close();
+		assertIndex(CompactWordIndex.read(root.getAbsolutePath()), counts);
+	}
+
+	/**
+	 * Without an index.bin the index is built from the words CSV
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testCSVFallback() throws IOException {
+		final File root = folder.newFolder("out");
+		final File words = new File(root, "words");
+		words.mkdirs();
+		final long[] counts = counts();
+		writeCSV(new File(words, "part-r-00000"), WORDS, counts);
+		assertIndex(CompactWordIndex.read(root.getAbsolutePath()), counts);
+
+		// and the index written from the CSV is the same
+		final FileOutputStream out = new FileOutputStream(new File(words, CompactWordIndex.INDEX_FILE));
+		CompactWordIndex.writeFromCSV(root.getAbsolutePath(), out);
+		out.close();
+		assertIndex(CompactWordIndex.read(root.getAbsolutePath()), counts);
+	}
+
+	private static long[] counts() {
+		final long[] counts = new long[WORDS.length];
+		for (int i = 0; i < counts.length; i++)
+			counts[i] = 100L * (WORDS.length - i) + (1L << 33);
+		return counts;
+	}
+
+	private static List<byte[]> utf8(String[] words) throws IOException {
+		final List<byte[]> bytes = new ArrayList<byte[]>();
+		for (final String word : words)
+			bytes.add(word.getBytes("UTF-8"));
+		return bytes;
+	}
+
+	private static void writeCSV(File file, String[] words, long[] counts) throws IOException {
+		final OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		final CSVPrinter printer = new CSVPrinter(writer);
+		for (int i = 0; i < words.length; i++)
+			printer.writeln(new String[] { words[i], counts[i] + "" });
+		printer.close();
+	}
+
+	private static void assertIndex(CompactWordIndex index, long[] counts) throws IOException {
+		assertEquals(WORDS.length, index.size());
+		for (int i = 0; i < WORDS.length; i++) {
+			assertEquals(i, index.indexOf(WORDS[i]));
+			assertEquals(i, index.indexOf(new Text(WORDS[i])));
+
+			// the word in the middle of a larger buffer
+			final byte[] bytes = WORDS[i].getBytes("UTF-8");
+			final byte[] padded = new byte[bytes.length + 4];
+			Arrays.fill(padded, (byte) 'x');
+			System.arraycopy(bytes, 0, padded, 2, bytes.length);
+			assertEquals(i, index.indexOf(padded, 2, bytes.length));
+
+			assertEquals(WORDS[i], index.word(i));
+			assertEquals(counts[i], index.count(i));
+		}
+		for (final String missing : new String[] { "", "abcd", "ca", "caf", "\u65e5", "\uffff", "\ud83d\ude01",
+				"zzz", "-" })
+		{
+			assertEquals(-1, index.indexOf(missing));
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.sparsecsv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.hadoop.io.WritableUtils;
+import org.junit.Test;
+
+/**
+ * Write and read back {@link SparseCountsColumn}s
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class SparseCountsColumnTest {
+	/**
+	 * Rows far enough apart to need multi byte deltas and counts too large
+	 * for an int survive the round trip, whatever order the cells were added
+	 * in
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		final Random random = new Random(1);
+		final SparseCountsColumn column = new SparseCountsColumn(4);
+		int row = 0;
+		for (int i = 0; i < 200; i++) {
+			row += 1 + random.nextInt(i % 3 == 0 ? 1000000 : 100);
+			column.add(row, random.nextInt(1000), (1L << 40) + random.nextInt(), random.nextLong() >>> 1, i);
+		}
+		shuffle(column, random);
+		column.sort();
+		for (int i = 1; i < column.size; i++)
+			assertEquals(true, column.rows[i - 1] < column.rows[i]);
+
+		final byte[] bytes = write(column);
+		assertEquals(expectedLength(column), bytes.length);
+		assertSame(column, read(bytes, new SparseCountsColumn()));
+
+		// a column being reused holds more cells than the one read into it
+		final SparseCountsColumn reused = new SparseCountsColumn();
+		for (int i = 0; i < 500; i++)
+			reused.add(i, i, i, i, i);
+		assertSame(column, read(bytes, reused));
+	}
+
+	/**
+	 * A count which is the same in every cell is written once
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testConstantCounts() throws IOException {
+		final SparseCountsColumn column = new SparseCountsColumn();
+		for (int i = 0; i < 100; i++)
+			column.add(i * 3, i + 1, 5000000000L, 7, i * 1000);
+
+		final byte[] bytes = write(column);
+		assertEquals(expectedLength(column), bytes.length);
+		final SparseCountsColumn read = read(bytes, new SparseCountsColumn());
+		assertSame(column, read);
+		for (int i = 0; i < read.size; i++) {
+			assertEquals(5000000000L, read.tf[i]);
+			assertEquals(7, read.Twf[i]);
+		}
+
+		final SparseCountsColumn single = new SparseCountsColumn();
+		single.add(123456, 1, 2, 3, 4);
+		assertEquals(expectedLength(single), write(single).length);
+		assertSame(single, read(write(single), new SparseCountsColumn()));
+	}
+
+	/**
+	 * An empty column is its size and four constant flags
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testEmpty() throws IOException {
+		final SparseCountsColumn column = new SparseCountsColumn();
+		final byte[] bytes = write(column);
+		assertEquals(5, bytes.length);
+
+		final SparseCountsColumn reused = new SparseCountsColumn();
+		reused.add(1, 1, 1, 1, 1);
+		assertEquals(0, read(bytes, reused).size);
+	}
+
+	/**
+	 * The size, every row delta and, for each count, a flag and either the
+	 * one shared value or every value
+	 */
+	private static int expectedLength(SparseCountsColumn column) {
+		int length = WritableUtils.getVIntSize(column.size);
+		int last = 0;
+		for (int i = 0; i < column.size; i++) {
+			length += WritableUtils.getVIntSize(column.rows[i] - last);
+			last = column.rows[i];
+		}
+		for (final long[] counts : new long[][] { column.wf, column.tf, column.Twf, column.Ttf }) {
+			boolean constant = true;
+			for (int i = 1; i < column.size; i++)
+				constant &= counts[i] == counts[0];
+			length += 1;
+			for (int i = 0; i < (constant ? Math.min(1, column.size) : column.size); i++)
+				length += WritableUtils.getVIntSize(counts[i]);
+		}
+		return length;
+	}
+
+	private static void shuffle(SparseCountsColumn column, Random random) {
+		for (int i = column.size - 1; i > 0; i--) {
+			final int j = random.nextInt(i + 1);
+			swap(column.rows, i, j);
+			swap(column.wf, i, j);
+			swap(column.tf, i, j);
+			swap(column.Twf, i, j);
+			swap(column.Ttf, i, j);
+		}
+	}
+
+	private static void swap(int[] a, int i, int j) {
+		final int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	private static void swap(long[] a, int i, int j) {
+		final long t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	private static byte[] write(SparseCountsColumn column) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(baos);
+		column.write(out);
+		out.close();
+		return baos.toByteArray();
+	}
+
+	private static SparseCountsColumn read(byte[] bytes, SparseCountsColumn column) throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		column.readFields(in);
+		assertEquals(-1, in.read());
+		return column;
+	}
+
+	private static void assertSame(SparseCountsColumn expected, SparseCountsColumn actual) {
+		assertEquals(expected.size, actual.size);
+		for (int i = 0; i < expected.size; i++) {
+			assertEquals(expected.rows[i], actual.rows[i]);
+			assertEquals(expected.wf[i], actual.wf[i]);
+			assertEquals(expected.tf[i], actual.tf[i]);
+			assertEquals(expected.Twf[i], actual.Twf[i]);
+			assertEquals(expected.Ttf[i], actual.Ttf[i]);
+		}
+	}
+}
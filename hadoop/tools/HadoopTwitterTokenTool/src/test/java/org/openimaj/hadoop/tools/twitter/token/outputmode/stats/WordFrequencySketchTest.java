@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.tools.twitter.token.outputmode.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Check the bins of a {@link WordFrequencySketch} and the error of its
+ * quantiles
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class WordFrequencySketchTest {
+	/**
+	 * Counts below {@link WordFrequencySketch#EXACT} each have a bin of their
+	 * own
+	 */
+	@Test
+	public void testExact() {
+		final WordFrequencySketch sketch = new WordFrequencySketch();
+		for (int count = 0; count < WordFrequencySketch.EXACT; count++) {
+			assertEquals(count, WordFrequencySketch.bin(count));
+			assertEquals(count, WordFrequencySketch.binLow(count));
+			assertEquals(count, WordFrequencySketch.binHigh(count));
+			for (int i = 0; i <= count; i++)
+				sketch.add(count);
+		}
+		for (int count = 0; count < WordFrequencySketch.EXACT; count++)
+			assertEquals(count + 1, sketch.wordsWithCount(count));
+
+		final long[] counts = new long[(int) sketch.words()];
+		int n = 0;
+		for (int count = 0; count < WordFrequencySketch.EXACT; count++)
+			for (int i = 0; i <= count; i++)
+				counts[n++] = count;
+		for (int q = 1; q <= 100; q++)
+			assertEquals(exactQuantile(counts, q / 100.0), sketch.quantile(q / 100.0));
+	}
+
+	/**
+	 * Only counts below {@link WordFrequencySketch#EXACT} can be asked for
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotExact() {
+		new WordFrequencySketch().wordsWithCount(WordFrequencySketch.EXACT);
+	}
+
+	/**
+	 * The bins above {@link WordFrequencySketch#EXACT} follow on from each
+	 * other, each holds the counts which fall into it and the middle of each
+	 * is within 6.25% of every count it holds
+	 */
+	@Test
+	public void testBins() {
+		final int last = WordFrequencySketch.bin(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, WordFrequencySketch.binHigh(last));
+		for (int bin = 0; bin < last; bin++)
+			assertEquals(WordFrequencySketch.binHigh(bin) + 1, WordFrequencySketch.binLow(bin + 1));
+
+		for (long count = WordFrequencySketch.EXACT; count < 100000; count++)
+			assertBin(count);
+		for (int bits = 5; bits < 63; bits++) {
+			assertBin((1L << bits) - 1);
+			assertBin(1L << bits);
+			assertBin((1L << bits) + 1);
+		}
+		final Random random = new Random(1);
+		for (int i = 0; i < 100000; i++)
+			assertBin((random.nextLong() >>> 1) >>> random.nextInt(60));
+	}
+
+	private static void assertBin(long count) {
+		final int bin = WordFrequencySketch.bin(count);
+		final long low = WordFrequencySketch.binLow(bin);
+		final long high = WordFrequencySketch.binHigh(bin);
+		assertTrue(low <= count && count <= high);
+		final long mid = low + (high - low) / 2;
+		assertTrue(within(mid, count));
+	}
+
+	/**
+	 * Quantiles of counts spread over many orders of magnitude are exact
+	 * below {@link WordFrequencySketch#EXACT} and within 6.25% above it, also
+	 * when the sketch is merged from sketches of parts of the counts
+	 */
+	@Test
+	public void testQuantiles() {
+		final Random random = new Random(2);
+		final long[] counts = new long[20000];
+		final WordFrequencySketch sketch = new WordFrequencySketch();
+		final WordFrequencySketch first = new WordFrequencySketch();
+		final WordFrequencySketch second = new WordFrequencySketch();
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			// roughly Zipfian, most words are rare
+			counts[i] = (long) Math.pow(2, random.nextDouble() * random.nextDouble() * 40);
+			total += counts[i];
+			sketch.add(counts[i]);
+			(i % 3 == 0 ? first : second).add(counts[i]);
+		}
+		first.merge(second);
+		assertEquals(sketch, first);
+		assertEquals(counts.length, sketch.words());
+		assertEquals(total, sketch.total());
+
+		Arrays.sort(counts);
+		assertEquals(counts[0], sketch.min());
+		assertEquals(counts[counts.length - 1], sketch.max());
+		for (int q = 1; q <= 1000; q++) {
+			final long exact = exactQuantile(counts, q / 1000.0);
+			final long estimate = sketch.quantile(q / 1000.0);
+			if (exact < WordFrequencySketch.EXACT)
+				assertEquals(exact, estimate);
+			else
+				assertTrue(within(estimate, exact));
+		}
+	}
+
+	/**
+	 * Within 6.25% (1/16), in integer arithmetic as the bins of the largest
+	 * counts are finer than a double
+	 */
+	private static boolean within(long estimate, long count) {
+		return Math.abs(estimate - count) <= count / 16;
+	}
+
+	private static long exactQuantile(long[] sorted, double q) {
+		final int rank = (int) Math.max(1, Math.ceil(q * sorted.length));
+		return sorted[rank - 1];
+	}
+}
@@ -5,9 +5,12 @@ import gov.sandia.cognition.math.matrix.MatrixEntry;
 import gov.sandia.cognition.math.matrix.MatrixFactory;
 import gov.sandia.cognition.math.matrix.Vector;
 import gov.sandia.cognition.math.matrix.VectorEntry;
+import gov.sandia.cognition.math.matrix.mtj.AbstractMTJMatrix;
 import gov.sandia.cognition.math.matrix.mtj.DenseMatrixFactoryMTJ;
 import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
 
+import java.util.Arrays;
+
 import com.jmatio.types.MLArray;
 import com.jmatio.types.MLDouble;
 
@@ -132,6 +135,23 @@ public class CFMatrixUtils {
 		return vstack(MatrixFactory.getDefault(), matricies);
 	}
 
+	public static double[][] copyTo(Matrix mat, double[][] into) {
+		for (final double[] row : into)
+			Arrays.fill(row, 0);
+		if (mat instanceof AbstractMTJMatrix) {
+			// sparse internal matrices only iterate their non zeros
+			for (final no.uib.cipr.matrix.MatrixEntry e : ((AbstractMTJMatrix) mat).getInternalMatrix()) {
+				into[e.row()][e.column()] = e.get();
+			}
+		}
+		else {
+			for (int r = 0; r < into.length; r++)
+				for (int c = 0; c < into[r].length; c++)
+					into[r][c] = mat.getElement(r, c);
+		}
+		return into;
+	}
+
 	public static double[] getData(Matrix w) {
 		return ((no.uib.cipr.matrix.DenseMatrix)DenseMatrixFactoryMTJ.INSTANCE.copyMatrix(w).getInternalMatrix()).getData();
 	}
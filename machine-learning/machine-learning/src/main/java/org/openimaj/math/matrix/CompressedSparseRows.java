@@ -0,0 +1,232 @@
+package org.openimaj.math.matrix;
+
+import gov.sandia.cognition.math.matrix.Matrix;
+import gov.sandia.cognition.math.matrix.mtj.AbstractMTJMatrix;
+import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
+
+import java.util.Arrays;
+
+/**
+ * A reusable compressed sparse row copy of the non zero values of a
+ * {@link Matrix}. The values of row r are held in
+ * {@link #values()}[{@link #rowStart()}[r] .. {@link #rowStart()}[r+1]] in
+ * column order, with their columns in {@link #columns()}. Values are either
+ * loaded from a matrix or written one at a time with {@link #reset(int, int)},
+ * {@link #add(int, int, double)} and {@link #compress()}. The arrays are reused
+ * (and only grown) each time, so filling the rows with about the same number of
+ * values doesn't allocate.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class CompressedSparseRows {
+	private int nrows;
+	private int ncols;
+	private int nnz;
+	private int nentries;
+	private int[] rowStart = new int[1];
+	private int[] columns = new int[0];
+	private double[] values = new double[0];
+
+	// entries as they come out of the matrix, before being put in rows
+	private int[] entryRow = new int[0];
+	private int[] entryCol = new int[0];
+	private double[] entryVal = new double[0];
+	private int[] rowFill = new int[0];
+
+	/**
+	 * Load the non zero values of a matrix. MTJ backed matrices are read
+	 * through their internal matrix so only the stored values of sparse
+	 * matrices are visited.
+	 *
+	 * @param m
+	 * @return this
+	 */
+	public CompressedSparseRows load(Matrix m) {
+		reset(m.getNumRows(), m.getNumColumns());
+		if (m instanceof AbstractMTJMatrix) {
+			for (final no.uib.cipr.matrix.MatrixEntry e : ((AbstractMTJMatrix) m).getInternalMatrix()) {
+				add(e.row(), e.column(), e.get());
+			}
+		}
+		else {
+			for (int r = 0; r < nrows; r++)
+				for (int c = 0; c < ncols; c++)
+					add(r, c, m.getElement(r, c));
+		}
+		return compress();
+	}
+
+	/**
+	 * Load the non zero values of the transpose of a matrix, so row c holds
+	 * column c of the matrix
+	 *
+	 * @param m
+	 * @return this
+	 */
+	public CompressedSparseRows loadTranspose(Matrix m) {
+		reset(m.getNumColumns(), m.getNumRows());
+		if (m instanceof AbstractMTJMatrix) {
+			for (final no.uib.cipr.matrix.MatrixEntry e : ((AbstractMTJMatrix) m).getInternalMatrix()) {
+				add(e.column(), e.row(), e.get());
+			}
+		}
+		else {
+			for (int r = 0; r < ncols; r++)
+				for (int c = 0; c < nrows; c++)
+					add(c, r, m.getElement(r, c));
+		}
+		return compress();
+	}
+
+	/**
+	 * Start writing the values of a new nrows x ncols matrix
+	 *
+	 * @param nrows
+	 * @param ncols
+	 * @return this
+	 */
+	public CompressedSparseRows reset(int nrows, int ncols) {
+		this.nrows = nrows;
+		this.ncols = ncols;
+		this.nentries = 0;
+		this.nnz = 0;
+		return this;
+	}
+
+	/**
+	 * Write a value, in any order. Each row and column should only be written
+	 * once. Zeros are ignored.
+	 *
+	 * @param row
+	 * @param col
+	 * @param value
+	 */
+	public void add(int row, int col, double value) {
+		if (value != 0)
+			nentries = addEntry(nentries, row, col, value);
+	}
+
+	/**
+	 * Put the values written since {@link #reset(int, int)} into rows
+	 *
+	 * @return this
+	 */
+	public CompressedSparseRows compress() {
+		final int n = nentries;
+		nnz = n;
+
+		// counting sort into rows, keeping the order within each row
+		if (rowStart.length < nrows + 1)
+			rowStart = new int[nrows + 1];
+		Arrays.fill(rowStart, 0);
+		for (int i = 0; i < n; i++)
+			rowStart[entryRow[i] + 1]++;
+		for (int r = 0; r < nrows; r++)
+			rowStart[r + 1] += rowStart[r];
+		if (columns.length < n) {
+			columns = new int[entryCol.length];
+			values = new double[entryVal.length];
+		}
+		if (rowFill.length < nrows)
+			rowFill = new int[nrows];
+		Arrays.fill(rowFill, 0);
+		for (int i = 0; i < n; i++) {
+			final int r = entryRow[i];
+			final int at = rowStart[r] + rowFill[r]++;
+			columns[at] = entryCol[i];
+			values[at] = entryVal[i];
+		}
+		sortRows();
+		return this;
+	}
+
+	/**
+	 * @return a new sparse matrix holding the values
+	 */
+	public Matrix toMatrix() {
+		final Matrix ret = SparseMatrixFactoryMTJ.INSTANCE.createMatrix(nrows, ncols);
+		for (int r = 0; r < nrows; r++)
+			for (int k = rowStart[r]; k < rowStart[r + 1]; k++)
+				ret.setElement(r, columns[k], values[k]);
+		return ret;
+	}
+
+	private int addEntry(int n, int row, int col, double val) {
+		if (n == entryRow.length) {
+			final int size = Math.max(16, n * 2);
+			entryRow = Arrays.copyOf(entryRow, size);
+			entryCol = Arrays.copyOf(entryCol, size);
+			entryVal = Arrays.copyOf(entryVal, size);
+		}
+		entryRow[n] = row;
+		entryCol[n] = col;
+		entryVal[n] = val;
+		return n + 1;
+	}
+
+	/**
+	 * Row and column ordered iterators already put each row in column order,
+	 * anything else is put in order with an insertion sort per row
+	 */
+	private void sortRows() {
+		for (int r = 0; r < nrows; r++) {
+			for (int k = rowStart[r] + 1; k < rowStart[r + 1]; k++) {
+				final int col = columns[k];
+				final double val = values[k];
+				int j = k - 1;
+				while (j >= rowStart[r] && columns[j] > col) {
+					columns[j + 1] = columns[j];
+					values[j + 1] = values[j];
+					j--;
+				}
+				columns[j + 1] = col;
+				values[j + 1] = val;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of rows of the loaded matrix
+	 */
+	public int getNumRows() {
+		return nrows;
+	}
+
+	/**
+	 * @return the number of columns of the loaded matrix
+	 */
+	public int getNumColumns() {
+		return ncols;
+	}
+
+	/**
+	 * @return the number of non zero values
+	 */
+	public int numNonZero() {
+		return nnz;
+	}
+
+	/**
+	 * @return the start of each row in {@link #columns()} and
+	 *         {@link #values()}, with the end of the last row at index
+	 *         {@link #getNumRows()}
+	 */
+	public int[] rowStart() {
+		return rowStart;
+	}
+
+	/**
+	 * @return the column of each value
+	 */
+	public int[] columns() {
+		return columns;
+	}
+
+	/**
+	 * @return the non zero values
+	 */
+	public double[] values() {
+		return values;
+	}
+}
@@ -1,117 +1,321 @@
 package org.openimaj.math.matrix;
 
 import gov.sandia.cognition.math.matrix.Matrix;
-import gov.sandia.cognition.math.matrix.MatrixEntry;
+import gov.sandia.cognition.math.matrix.mtj.AbstractMTJMatrix;
 import gov.sandia.cognition.math.matrix.mtj.DenseMatrixFactoryMTJ;
 
 import org.openimaj.util.function.Operation;
 import org.openimaj.util.parallel.Parallel;
 
 /**
- * Perform a multithreaded matrix multiplication
- * 
+ * Perform a multithreaded matrix multiplication. The answer is split into
+ * tiles of at most {@link #TILE_ROWS} x {@link #TILE_COLUMNS}, made smaller
+ * for small answers so there are at least {@link #MIN_TASKS} of them where
+ * possible, and each tile is a single task given to
+ * {@link Parallel#forIndex(int, int, int, Operation)}. An answer too small to
+ * be split that far (e.g. the tasks x tasks product of the bilinear learners)
+ * has its inner dimension split instead: each task sums a range of the inner
+ * dimension into its own copy of the answer and the copies are added up in
+ * order afterwards.
+ * <p>
+ * The tiles are written directly into the column major data of a dense MTJ
+ * answer. Dense operands are read through their column major data and sparse
+ * operands through a {@link CompressedSparseRows} copy of their non zero
+ * values, so a sparse x dense product only visits the non zeros of the sparse
+ * side. Dense x dense products visit every value, so NaN and infinite values
+ * spread to the answer as they would in a naive multiplication, even where
+ * they meet a zero (the BLAS dgemm behind the MTJ dense product skips zeros of
+ * the right matrix). A NaN or infinite value meeting a zero a sparse operand
+ * doesn't hold is skipped, where MTJ's mixed products give NaN. How the answer
+ * is split depends only on the shapes of the operands, so every element of the
+ * answer is summed in the same order whatever the number of threads.
+ *
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
- * 
+ *
  */
 public class ThreadedMatrixMulti {
-	private double[][] answer;
-	private double[][] a;
-	private double[][] b;
-	private int answerCols;
-	private int answerRows;
-
-	public ThreadedMatrixMulti() {
+	/**
+	 * The largest number of rows of the answer in each task
+	 */
+	public static final int TILE_ROWS = 256;
+	/**
+	 * The largest number of columns of the answer in each task
+	 */
+	public static final int TILE_COLUMNS = 64;
+	/**
+	 * The number of tasks small answers are split into, if they can be
+	 */
+	public static final int MIN_TASKS = 16;
+	/**
+	 * The fewest rows of the answer in each task
+	 */
+	private static final int MIN_TILE_ROWS = 16;
+	/**
+	 * The shortest range of the inner dimension given to a task when the
+	 * inner dimension is split
+	 */
+	private static final int MIN_INNER_SPLIT = 2048;
+	/**
+	 * The number of columns of the left matrix visited before moving on to the
+	 * next column of a tile, so the left block stays in cache
+	 */
+	private static final int BLOCK_INNER = 128;
 
+	/**
+	 * A description of one operand, either the column major values of a dense
+	 * matrix or the rows of a sparse one
+	 */
+	private static class Operand {
+		int rows;
+		int cols;
+		double[] dense;
+		CompressedSparseRows sparse;
 	}
 
-	public ThreadedMatrixMulti(int numRows, int numCols) {
-		this.newAnswer(numRows, numCols);
-	}
+	/**
+	 * @param a
+	 * @param b
+	 * @return a new dense matrix holding a x b
+	 */
+	public Matrix times(Matrix a, Matrix b) {
+		if (a.getNumColumns() != b.getNumRows())
+			throw new IllegalArgumentException("Matrix dimensions do not match: " + a.getNumRows() + "x"
+					+ a.getNumColumns() + " x " + b.getNumRows() + "x" + b.getNumColumns());
+
+		final Operand left = operand(a, false);
+		// the columns of a sparse right matrix are wanted, so hold its
+		// transpose
+		final Operand right = operand(b, true);
+
+		final AbstractMTJMatrix answer = DenseMatrixFactoryMTJ.INSTANCE.createMatrix(a.getNumRows(), b.getNumColumns());
+		final double[] c = ((no.uib.cipr.matrix.DenseMatrix) answer.getInternalMatrix()).getData();
+
+		final int m = a.getNumRows();
+		final int n = b.getNumColumns();
+		final int inner = a.getNumColumns();
+		if (m == 0 || n == 0)
+			return answer;
+
+		// tiles from the shape of the answer
+		final int tileRows = Math.max(MIN_TILE_ROWS, Math.min(TILE_ROWS, ceil(m, MIN_TASKS)));
+		final int rowTiles = ceil(m, tileRows);
+		final int tileCols = Math.max(1, Math.min(TILE_COLUMNS, ceil(n, ceil(MIN_TASKS, rowTiles))));
+		final int colTiles = ceil(n, tileCols);
+		final int ntiles = rowTiles * colTiles;
 
-	class MultiplicationOperation implements Operation<Integer> {
-		@Override
-		public void perform(Integer object) {
-			final int rowi = object / answerCols;
-			final int coli = object - (rowi * answerCols);
-			double dot = 0;
-			for (int i = 0; i < a[rowi].length; i++) {
-				dot += a[rowi][i] * b[i][coli];
+		// split the inner dimension of answers with too few tiles
+		final int nsplits = ntiles >= MIN_TASKS ? 1 :
+				Math.max(1, Math.min(ceil(MIN_TASKS, ntiles), inner / MIN_INNER_SPLIT));
+		final int splitSize = ceil(inner, nsplits);
+		final double[][] partial = new double[nsplits][];
+		if (nsplits == 1)
+			partial[0] = c;
+		else
+			for (int s = 0; s < nsplits; s++)
+				partial[s] = new double[c.length];
+
+		final Operation<Integer> tile = new Operation<Integer>() {
+			@Override
+			public void perform(Integer object) {
+				final int split = object / ntiles;
+				final int t = object % ntiles;
+				final int r0 = (t / colTiles) * tileRows;
+				final int c0 = (t % colTiles) * tileCols;
+				final int r1 = Math.min(m, r0 + tileRows);
+				final int c1 = Math.min(n, c0 + tileCols);
+				final int k0 = split * splitSize;
+				final int k1 = Math.min(inner, k0 + splitSize);
+				final double[] out = partial[split];
+				if (left.sparse == null && right.sparse == null)
+					denseDense(left, right, out, m, r0, r1, c0, c1, k0, k1);
+				else if (left.sparse != null && right.sparse == null)
+					sparseDense(left, right, out, m, r0, r1, c0, c1, k0, k1);
+				else if (left.sparse == null)
+					denseSparse(left, right, out, m, r0, r1, c0, c1, k0, k1);
+				else
+					sparseSparse(left, right, out, m, r0, r1, c0, c1, k0, k1);
+			}
+		};
+
+		final int ntasks = ntiles * nsplits;
+		if (ntasks == 1)
+			tile.perform(0);
+		else
+			Parallel.forIndex(0, ntasks, 1, tile);
+
+		if (nsplits > 1) {
+			for (int i = 0; i < c.length; i++) {
+				double sum = 0;
+				for (int s = 0; s < nsplits; s++)
+					sum += partial[s][i];
+				c[i] = sum;
 			}
-			ThreadedMatrixMulti.this.setAnswerElement(rowi, coli, dot);
 		}
+
+		return answer;
 	}
 
-	public Matrix times(Matrix a, Matrix b) {
-		final double[][] ad = fromMatrix(a);
-		final double[][] bd = fromMatrix(b);
-		return this.times(ad, bd);
+	private static int ceil(int a, int b) {
+		return (a + b - 1) / b;
 	}
 
+	/**
+	 * @param a
+	 * @param b
+	 * @return a new dense matrix holding a x b
+	 */
 	public Matrix times(double[][] a, double[][] b) {
-		this.a = a;
-		this.b = b;
-		this.answerCols = b[0].length;
-		this.answerRows = a.length;
-
-		if (this.answer != null) {
-			if (!(this.answer[0].length == answerCols && this.answer.length == answerRows)) {
-				this.answer = newAnswer(answerRows, answerCols);
+		return this.times(DenseMatrixFactoryMTJ.INSTANCE.copyArray(a), DenseMatrixFactoryMTJ.INSTANCE.copyArray(b));
+	}
+
+	private static Operand operand(Matrix mat, boolean transposeSparse) {
+		final Operand op = new Operand();
+		op.rows = mat.getNumRows();
+		op.cols = mat.getNumColumns();
+		if (mat instanceof AbstractMTJMatrix) {
+			final no.uib.cipr.matrix.Matrix internal = ((AbstractMTJMatrix) mat).getInternalMatrix();
+			if (internal instanceof no.uib.cipr.matrix.DenseMatrix) {
+				op.dense = ((no.uib.cipr.matrix.DenseMatrix) internal).getData();
+			}
+			else if (transposeSparse) {
+				op.sparse = new CompressedSparseRows().loadTranspose(mat);
+			}
+			else {
+				op.sparse = new CompressedSparseRows().load(mat);
 			}
 		}
 		else {
-			this.answer = newAnswer(answerRows, answerCols);
+			op.dense = CFMatrixUtils.getData(mat);
 		}
+		return op;
+	}
 
-		Parallel.forIndex(0, answerRows * answerCols, 1, new MultiplicationOperation());
-
-		return DenseMatrixFactoryMTJ.INSTANCE.copyArray(this.answer);
+	/**
+	 * @return the first index between from and to of the sorted indices which
+	 *         is at least k
+	 */
+	private static int lowerBound(int[] indices, int from, int to, int k) {
+		if (k == 0)
+			return from;
+		int lo = from, hi = to;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (indices[mid] < k)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
 	}
 
-	private static double[][] fromMatrix(Matrix a) {
-		final double[][] ret = new double[a.getNumRows()][a.getNumColumns()];
-		for (final MatrixEntry ds : a) {
-			ret[ds.getRowIndex()][ds.getColumnIndex()] = ds.getValue();
+	/**
+	 * c(i,j) += a(i,k) b(k,j) for k0 <= k < k1, with the columns of a blocked
+	 * so a block of a is reused for every column of the tile
+	 */
+	private static void denseDense(Operand left, Operand right, double[] c, int m, int r0, int r1, int c0, int c1,
+			int k0, int k1)
+	{
+		final double[] a = left.dense;
+		final double[] b = right.dense;
+		final int inner = left.cols;
+		for (int kb = k0; kb < k1; kb += BLOCK_INNER) {
+			final int kend = Math.min(k1, kb + BLOCK_INNER);
+			for (int j = c0; j < c1; j++) {
+				final int cj = j * m;
+				final int bj = j * inner;
+				for (int k = kb; k < kend; k++) {
+					final double bkj = b[bj + k];
+					final int ak = k * m;
+					for (int i = r0; i < r1; i++) {
+						c[cj + i] += a[ak + i] * bkj;
+					}
+				}
+			}
 		}
-		return ret;
 	}
 
-	public void setAnswerElement(int rowi, int coli, double ans) {
-		this.answer[rowi][coli] = ans;
+	/**
+	 * c(i,j) = sum over the non zeros a(i,k), k0 <= k < k1, of a(i,k) b(k,j)
+	 */
+	private static void sparseDense(Operand left, Operand right, double[] c, int m, int r0, int r1, int c0, int c1,
+			int k0, int k1)
+	{
+		final int[] rowStart = left.sparse.rowStart();
+		final int[] columns = left.sparse.columns();
+		final double[] values = left.sparse.values();
+		final double[] b = right.dense;
+		final int inner = left.cols;
+		for (int j = c0; j < c1; j++) {
+			final int cj = j * m;
+			final int bj = j * inner;
+			for (int i = r0; i < r1; i++) {
+				double dot = 0;
+				final int end = rowStart[i + 1];
+				for (int p = lowerBound(columns, rowStart[i], end, k0); p < end && columns[p] < k1; p++) {
+					dot += values[p] * b[bj + columns[p]];
+				}
+				c[cj + i] = dot;
+			}
+		}
 	}
 
-	private double[][] newAnswer(int answerRows, int answerCols) {
-		return new double[answerRows][answerCols];
+	/**
+	 * column j of c is the sum over the non zeros b(k,j), k0 <= k < k1, of
+	 * b(k,j) times column k of a
+	 */
+	private static void denseSparse(Operand left, Operand right, double[] c, int m, int r0, int r1, int c0, int c1,
+			int k0, int k1)
+	{
+		final double[] a = left.dense;
+		final int[] colStart = right.sparse.rowStart();
+		final int[] rows = right.sparse.columns();
+		final double[] values = right.sparse.values();
+		for (int j = c0; j < c1; j++) {
+			final int cj = j * m;
+			final int end = colStart[j + 1];
+			for (int p = lowerBound(rows, colStart[j], end, k0); p < end && rows[p] < k1; p++) {
+				final double bkj = values[p];
+				final int ak = rows[p] * m;
+				for (int i = r0; i < r1; i++) {
+					c[cj + i] += a[ak + i] * bkj;
+				}
+			}
+		}
 	}
 
-	// public static void main(String[] args) {
-	// final int numRows = 1000;
-	// final int numColumns = 2000;
-	// final int repeat = 1;
-	// final DenseMatrix left =
-	// DenseMatrixFactoryMTJ.INSTANCE.createUniformRandom(numRows, numColumns,
-	// 0, 1,
-	// new Random(1));
-	// final DenseMatrix right =
-	// DenseMatrixFactoryMTJ.INSTANCE.createUniformRandom(numColumns, numRows,
-	// 0, 1,
-	// new Random(1));
-	// final double[][] leftd = fromMatrix(left);
-	// final double[][] rightd = fromMatrix(right);
-	// final ThreadedMatrixMulti tmm = new ThreadedMatrixMulti(numRows,
-	// numRows);
-	//
-	// final Timer t = Timer.timer();
-	// double correctDur = 0, threadDur = 0;
-	// for (int i = 0; i < repeat; i++) {
-	// t.start();
-	// final Matrix correct = left.times(right);
-	// correctDur += t.duration();
-	// t.start();
-	// final Matrix thread = tmm.times(leftd, rightd);
-	// threadDur += t.duration();
-	//
-	// }
-	// System.out.println("Correct took: " + correctDur / repeat);
-	// System.out.println("Threaded took: " + threadDur / repeat);
-	// }
+	/**
+	 * c(i,j) = sum over the non zeros, k0 <= k < k1, shared by row i of a and
+	 * column j of b
+	 */
+	private static void sparseSparse(Operand left, Operand right, double[] c, int m, int r0, int r1, int c0, int c1,
+			int k0, int k1)
+	{
+		final int[] rowStart = left.sparse.rowStart();
+		final int[] columns = left.sparse.columns();
+		final double[] values = left.sparse.values();
+		final int[] colStart = right.sparse.rowStart();
+		final int[] rows = right.sparse.columns();
+		final double[] bvalues = right.sparse.values();
+		for (int j = c0; j < c1; j++) {
+			final int cj = j * m;
+			final int qstart = lowerBound(rows, colStart[j], colStart[j + 1], k0);
+			for (int i = r0; i < r1; i++) {
+				// merge the two sorted index lists
+				int p = lowerBound(columns, rowStart[i], rowStart[i + 1], k0);
+				int q = qstart;
+				final int pend = rowStart[i + 1];
+				final int qend = colStart[j + 1];
+				double dot = 0;
+				while (p < pend && q < qend && columns[p] < k1 && rows[q] < k1) {
+					if (columns[p] < rows[q])
+						p++;
+					else if (columns[p] > rows[q])
+						q++;
+					else
+						dot += values[p++] * bvalues[q++];
+				}
+				c[cj + i] = dot;
+			}
+		}
+	}
 }
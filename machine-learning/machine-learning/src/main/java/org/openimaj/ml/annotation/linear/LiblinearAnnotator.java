@@ -1,9 +1,15 @@
 package org.openimaj.ml.annotation.linear;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
@@ -17,6 +23,7 @@ import org.openimaj.ml.annotation.BatchAnnotator;
 import org.openimaj.ml.annotation.ScoredAnnotation;
 import org.openimaj.ml.annotation.utils.AnnotatedListHelper;
 import org.openimaj.ml.annotation.utils.LiblinearHelper;
+import org.openimaj.util.function.Operation;
 
 import de.bwaldvogel.liblinear.DenseLinear;
 import de.bwaldvogel.liblinear.DenseProblem;
@@ -111,7 +118,7 @@ public class LiblinearAnnotator<OBJECT, ANNOTATION>
 			if (!estimateProbabilities)
 				return;
 
-			final int nr_class = annotationsList.size();
+			final int nr_class = prob_estimates.length;
 			int nr_w;
 			if (nr_class == 2)
 				nr_w = 1;
@@ -289,13 +296,31 @@ public class LiblinearAnnotator<OBJECT, ANNOTATION>
 
 	/**
 	 * Multi-label classifier built from multiple binary classifiers.
+	 * <p>
+	 * The features of each item are extracted once, in the calling thread, and
+	 * shared (read-only) by the problems of all the classifiers. With more than
+	 * one thread the problems are built, and the classifiers applied,
+	 * concurrently; the extractor is never called concurrently.
+	 * Liblinear's solvers that shuffle the data share a single random number
+	 * generator, so the classifiers of those solvers are still trained one
+	 * after the other in label order; the rest are trained concurrently. The
+	 * models and annotations are the same whatever the number of threads.
 	 * 
 	 * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
 	 * 
 	 */
 	static class Multilabel<OBJECT, ANNOTATION> extends InternalModel<OBJECT, ANNOTATION> {
+		/**
+		 * Solvers whose training doesn't use liblinear's random number
+		 * generator
+		 */
+		private static final Set<SolverType> DETERMINISTIC_SOLVERS = EnumSet.of(SolverType.L2R_LR,
+				SolverType.L2R_L2LOSS_SVC);
+
 		private Parameter parameter;
 		private Model[] models;
+		private int threads = 1;
+		private ExecutorService pool;
 
 		private static final int NEGATIVE_CLASS = 1;
 		private static final int POSTIVE_CLASS = 2;
@@ -306,111 +331,217 @@ public class LiblinearAnnotator<OBJECT, ANNOTATION>
 			this.bias = bias;
 		}
 
+		synchronized void setThreads(int threads) {
+			this.threads = threads;
+			if (pool != null) {
+				pool.shutdown();
+				pool = null;
+			}
+		}
+
+		private synchronized ExecutorService pool() {
+			if (pool == null) {
+				pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						final Thread t = new Thread(r, "LiblinearAnnotator");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			}
+			return pool;
+		}
+
+		/**
+		 * Perform op for each index in [0, n), in blocks spread over the
+		 * threads (or in this thread if there is only one)
+		 */
+		private void forIndex(final int n, final Operation<Integer> op) {
+			if (threads <= 1 || n <= 1) {
+				for (int i = 0; i < n; i++)
+					op.perform(i);
+				return;
+			}
+			final int nblocks = Math.min(threads, n);
+			final List<Future<?>> futures = new ArrayList<Future<?>>(nblocks);
+			for (int b = 0; b < nblocks; b++) {
+				final int start = (int) ((long) n * b / nblocks);
+				final int end = (int) ((long) n * (b + 1) / nblocks);
+				futures.add(pool().submit(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = start; i < end; i++)
+							op.perform(i);
+					}
+				}));
+			}
+			for (final Future<?> f : futures)
+				get(f);
+		}
+
+		private static <T> T get(Future<T> future) {
+			try {
+				return future.get();
+			} catch (final InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (final ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
 		@Override
-		public void train(List<? extends Annotated<OBJECT, ANNOTATION>> data) {
+		public void train(final List<? extends Annotated<OBJECT, ANNOTATION>> data) {
 			final AnnotatedListHelper<OBJECT, ANNOTATION> helper = new AnnotatedListHelper<OBJECT, ANNOTATION>(data);
 			final Set<ANNOTATION> annotations = helper.getAnnotations();
 			annotationsList = new ArrayList<ANNOTATION>(annotations);
 
 			final int featureLength = extractor.extractFeature(data.get(0).getObject()).length();
+			final int nItems = data.size();
 
-			models = new Model[annotationsList.size()];
-
-			for (int i = 0; i < annotationsList.size(); i++) {
-				final ANNOTATION annotation = annotationsList.get(i);
-				final List<? extends FeatureVector> positive = helper.extractFeatures(annotation, extractor);
-				final List<? extends FeatureVector> negative = helper.extractFeaturesExclude(annotation, extractor);
-
-				if (dense) {
-					final DenseProblem problem = new DenseProblem();
-					problem.l = positive.size() + negative.size();
-					problem.n = featureLength;
-					problem.bias = bias;
-					problem.x = new double[problem.l][];
-					problem.y = new double[problem.l];
+			// extract each feature once, shared by every label's problem
+			final double[][] denseFeatures = dense ? new double[nItems][] : null;
+			final Feature[][] sparseFeatures = dense ? null : new Feature[nItems][];
+			final List<Set<ANNOTATION>> itemAnnotations = new ArrayList<Set<ANNOTATION>>(nItems);
+			for (int j = 0; j < nItems; j++)
+				itemAnnotations.add(new HashSet<ANNOTATION>(data.get(j).getAnnotations()));
+			// in this thread, the extractor needn't be thread safe
+			for (int j = 0; j < nItems; j++) {
+				final FeatureVector feature = extractor.extractFeature(data.get(j).getObject());
+				if (dense)
+					denseFeatures[j] = LiblinearHelper.convertDense(feature, bias);
+				else
+					sparseFeatures[j] = LiblinearHelper.convert(feature, bias);
+			}
 
-					for (int j = 0; j < negative.size(); j++) {
-						problem.x[j] = LiblinearHelper.convertDense(negative.get(j), bias);
-						problem.y[j] = NEGATIVE_CLASS;
-					}
+			final int nlabels = annotationsList.size();
+			models = new Model[nlabels];
+			final boolean concurrentTraining = DETERMINISTIC_SOLVERS.contains(parameter.getSolverType());
+			final Object[] problems = new Object[nlabels];
+			forIndex(nlabels, new Operation<Integer>() {
+				@Override
+				public void perform(Integer i) {
+					final Object problem = createProblem(annotationsList.get(i), itemAnnotations, featureLength,
+							denseFeatures, sparseFeatures);
+					if (concurrentTraining)
+						models[i] = train(problem);
+					else
+						problems[i] = problem;
+				}
+			});
 
-					for (int j = negative.size(), k = 0; k < positive.size(); j++, k++) {
-						problem.x[j] = LiblinearHelper.convertDense(positive.get(k), bias);
-						problem.y[j] = POSTIVE_CLASS;
-					}
+			if (!concurrentTraining) {
+				for (int i = 0; i < nlabels; i++) {
+					models[i] = train(problems[i]);
+					problems[i] = null;
+				}
+			}
+		}
 
-					models[i] = DenseLinear.train(problem, parameter);
+		/**
+		 * Build the problem of one classifier: the items without the
+		 * annotation (in order) followed by the items with it
+		 */
+		private Object createProblem(ANNOTATION annotation, List<Set<ANNOTATION>> itemAnnotations, int featureLength,
+				double[][] denseFeatures, Feature[][] sparseFeatures)
+		{
+			final int nItems = itemAnnotations.size();
+			int npositive = 0;
+			for (int j = 0; j < nItems; j++)
+				if (itemAnnotations.get(j).contains(annotation))
+					npositive++;
+
+			final int l = nItems;
+			final double[] y = new double[l];
+			final double[][] denseX = dense ? new double[l][] : null;
+			final Feature[][] sparseX = dense ? null : new Feature[l][];
+
+			int neg = 0;
+			int pos = nItems - npositive;
+			for (int j = 0; j < nItems; j++) {
+				final int at;
+				if (itemAnnotations.get(j).contains(annotation)) {
+					at = pos++;
+					y[at] = POSTIVE_CLASS;
 				} else {
-					final Problem problem = new Problem();
-					problem.l = positive.size() + negative.size();
-					problem.n = featureLength;
-					problem.bias = bias;
-					problem.x = new Feature[problem.l][];
-					problem.y = new double[problem.l];
-
-					for (int j = 0; j < negative.size(); j++) {
-						problem.x[j] = LiblinearHelper.convert(negative.get(j), bias);
-						problem.y[j] = NEGATIVE_CLASS;
-					}
-
-					for (int j = negative.size(), k = 0; k < positive.size(); j++, k++) {
-						problem.x[j] = LiblinearHelper.convert(positive.get(k), bias);
-						problem.y[j] = POSTIVE_CLASS;
-					}
-
-					models[i] = Linear.train(problem, parameter);
+					at = neg++;
+					y[at] = NEGATIVE_CLASS;
 				}
+				if (dense)
+					denseX[at] = denseFeatures[j];
+				else
+					sparseX[at] = sparseFeatures[j];
+			}
+
+			if (dense) {
+				final DenseProblem problem = new DenseProblem();
+				problem.l = l;
+				problem.n = featureLength;
+				problem.bias = bias;
+				problem.x = denseX;
+				problem.y = y;
+				return problem;
+			} else {
+				final Problem problem = new Problem();
+				problem.l = l;
+				problem.n = featureLength;
+				problem.bias = bias;
+				problem.x = sparseX;
+				problem.y = y;
+				return problem;
 			}
 		}
 
+		private Model train(Object problem) {
+			if (dense)
+				return DenseLinear.train((DenseProblem) problem, parameter);
+			else
+				return Linear.train((Problem) problem, parameter);
+		}
+
 		@Override
 		public List<ScoredAnnotation<ANNOTATION>> annotate(OBJECT object) {
-			final List<ScoredAnnotation<ANNOTATION>> result = new ArrayList<ScoredAnnotation<ANNOTATION>>();
+			final int nlabels = annotationsList.size();
+			final double[] clzs = new double[nlabels];
+			final double[] probs = new double[nlabels];
 
-			if (dense) {
-				final double[] feature = computeFeatureDense(object);
+			final double[] denseFeature = dense ? computeFeatureDense(object) : null;
+			final Feature[] sparseFeature = dense ? null : computeFeature(object);
 
-				for (int i = 0; i < annotationsList.size(); i++) {
+			forIndex(nlabels, new Operation<Integer>() {
+				@Override
+				public void perform(Integer i) {
 					final double clz;
 					final double prob;
 					if (parameter.getSolverType().isLogisticRegressionSolver()) {
-						final double[] probs = new double[annotationsList.size()];
-						clz = DenseLinear.predictProbability(models[i], feature, probs);
-						prob = probs[(int) clz - 1];
+						final double[] estimates = new double[nlabels];
+						if (dense)
+							clz = DenseLinear.predictProbability(models[i], denseFeature, estimates);
+						else
+							clz = Linear.predictProbability(models[i], sparseFeature, estimates);
+						prob = estimates[(int) clz - 1];
 					} else {
 						final double[] prob_estimates = new double[2];
-						clz = DenseLinear.predictValues(models[i], feature, prob_estimates);
+						if (dense)
+							clz = DenseLinear.predictValues(models[i], denseFeature, prob_estimates);
+						else
+							clz = Linear.predictValues(models[i], sparseFeature, prob_estimates);
 						computeProbabilities(prob_estimates);
 						prob = prob_estimates[(int) clz - 1];
 					}
-
-					if (clz == POSTIVE_CLASS) {
-						result.add(new ScoredAnnotation<ANNOTATION>(annotationsList.get(i), (float) prob));
-					}
+					clzs[i] = clz;
+					probs[i] = prob;
 				}
-			} else {
-				final Feature[] feature = computeFeature(object);
-
-				for (int i = 0; i < annotationsList.size(); i++) {
-					final double clz;
-					final double prob;
-					if (parameter.getSolverType().isLogisticRegressionSolver()) {
-						final double[] probs = new double[annotationsList.size()];
-						clz = Linear.predictProbability(models[i], feature, probs);
-						prob = probs[(int) clz - 1];
-					} else {
-						final double[] prob_estimates = new double[2];
-						clz = Linear.predictValues(models[i], feature, prob_estimates);
-						computeProbabilities(prob_estimates);
-						prob = prob_estimates[(int) clz - 1];
-					}
+			});
 
-					if (clz == POSTIVE_CLASS) {
-						result.add(new ScoredAnnotation<ANNOTATION>(annotationsList.get(i), (float) prob));
-					}
+			final List<ScoredAnnotation<ANNOTATION>> result = new ArrayList<ScoredAnnotation<ANNOTATION>>();
+			for (int i = 0; i < nlabels; i++) {
+				if (clzs[i] == POSTIVE_CLASS) {
+					result.add(new ScoredAnnotation<ANNOTATION>(annotationsList.get(i), (float) probs[i]));
 				}
 			}
-
 			return result;
 		}
 
@@ -476,6 +607,22 @@ public class LiblinearAnnotator<OBJECT, ANNOTATION>
 		this.internal.extractor = extractor;
 	}
 
+	/**
+	 * Set the number of threads used to train and apply the one-versus-all
+	 * classifiers in {@link Mode#MULTILABEL} mode. The results are the same
+	 * whatever the number of threads. Features are always extracted in the
+	 * calling thread, so the extractor needn't be thread safe. Defaults to 1
+	 * (everything in the calling thread); ignored in {@link Mode#MULTICLASS}
+	 * mode.
+	 * 
+	 * @param threads
+	 *            the number of threads
+	 */
+	public void setThreads(int threads) {
+		if (internal instanceof Multilabel)
+			((Multilabel<OBJECT, ANNOTATION>) internal).setThreads(threads);
+	}
+
 	@Override
 	public void train(List<? extends Annotated<OBJECT, ANNOTATION>> data) {
 		internal.train(data);
@@ -12,10 +12,12 @@ import java.io.IOException;
 import org.apache.log4j.Logger;
 import org.openimaj.io.ReadWriteableBinary;
 import org.openimaj.math.matrix.CFMatrixUtils;
+import org.openimaj.math.matrix.CompressedSparseRows;
 import org.openimaj.ml.linear.learner.init.ContextAwareInitStrategy;
 import org.openimaj.ml.linear.learner.init.InitStrategy;
 import org.openimaj.ml.linear.learner.loss.LossFunction;
 import org.openimaj.ml.linear.learner.loss.MatLossFunction;
+import org.openimaj.ml.linear.learner.loss.SquareMissingLossFunction;
 import org.openimaj.ml.linear.learner.regul.Regulariser;
 
 
@@ -41,6 +43,12 @@ import org.openimaj.ml.linear.learner.regul.Regulariser;
  * 			- flush the batch
  * 		- return current U and W (same as last time is batch isn't filled yet)
  *
+ * With the default {@link SquareMissingLossFunction} the iterations are performed in place on preallocated buffers rather than by
+ * allocating new matrices for every product, gradient and proximal step. The
+ * results are the same either way. Between examples U and W then stay in the
+ * buffers, which grow in amortised constant time as words and users are added.
+ * Predictions are read from the buffers, U and W are only turned back into
+ * matrices when they are asked for, copied or written.
  *
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
@@ -63,6 +71,10 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 	protected Double eta0_w;
 
 	private Boolean forceSparcity;
+	private boolean inPlace;
+	private BilinearUpdateBuffers buffers;
+	// whether the buffers hold the current U and W (in which case u and w are null)
+	private boolean buffered;
 
 	/**
 	 * The default parameters. These won't work with your dataset, i promise.
@@ -90,8 +102,21 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 		this.eta0_u = this.params.getTyped(BilinearLearnerParameters.ETA0_U);
 		this.eta0_w = this.params.getTyped(BilinearLearnerParameters.ETA0_W);
 		this.forceSparcity = this.params.getTyped(BilinearLearnerParameters.FORCE_SPARCITY);
+		this.inPlace = this.loss.getClass() == SquareMissingLossFunction.class;
 		this.loss = new MatLossFunction(this.loss);
 	}
+
+	/**
+	 * Whether the biconvex iterations can be performed in place on
+	 * preallocated buffers. This is only possible for the default loss,
+	 * subclasses which change how U and W are updated must return
+	 * false.
+	 *
+	 * @return whether to update in place
+	 */
+	protected boolean inPlaceUpdates() {
+		return this.inPlace;
+	}
 	private void initParams(Matrix x, Matrix y, int xrows, int xcols, int ycols) {
 		final InitStrategy wstrat = getInitStrat(BilinearLearnerParameters.WINITSTRAT,x,y);
 		final InitStrategy ustrat = getInitStrat(BilinearLearnerParameters.UINITSTRAT,x,y);
@@ -124,14 +149,16 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 //		int ninstances = Y.getNumRows(); // Assume 1 instance!
 
 		// only inits when the current params is null
-		if (this.w == null){
+		if (this.w == null && !this.buffered){
 			initParams(X,Y,nfeatures, nusers, ntasks); // Number of words, users and tasks
 		}
+		if(inPlaceUpdates()){
+			processInPlace(buffers().loadX(X), Y);
+			return;
+		}
+		syncParams();
 
-		final Double dampening = this.params.getTyped(BilinearLearnerParameters.DAMPENING);
-		final double weighting = 1.0 - dampening ;
-
-		logger.debug("... dampening w, u and bias by: " + weighting);
+		final double weighting = dampeningWeighting();
 
 		// Adjust for weighting
 		this.w.scaleEquals(weighting);
@@ -175,8 +202,8 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 
 			double ratioU = 0;
 			if(totalu!=0) ratioU = sumchangeu/totalu;
-			final double ratioW = 0;
-			if(totalw!=0) ratioU = sumchangew/totalw;
+			double ratioW = 0;
+			if(totalw!=0) ratioW = sumchangew/totalw;
 			double ratioB = 0;
 			double ratio = ratioU + ratioW;
 			if(this.biasMode){
@@ -226,6 +253,109 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 			}
 		}
 	}
+
+	/**
+	 * Process an example whose X (words x users) is held as compressed sparse
+	 * rows, saving the construction of a matrix for each example when the
+	 * learner updates in place.
+	 *
+	 * @param X
+	 *            words x users
+	 * @param Y
+	 *            1 x tasks
+	 */
+	public void process(CompressedSparseRows X, Matrix Y){
+		if(!inPlaceUpdates() || (this.w == null && !this.buffered)){
+			process(X.toMatrix(), Y);
+			return;
+		}
+		processInPlace(X, Y);
+	}
+
+	private double dampeningWeighting() {
+		final Double dampening = this.params.getTyped(BilinearLearnerParameters.DAMPENING);
+		final double weighting = 1.0 - dampening ;
+
+		logger.debug("... dampening w, u and bias by: " + weighting);
+		return weighting;
+	}
+
+	private BilinearUpdateBuffers buffers() {
+		if(buffers == null) buffers = new BilinearUpdateBuffers();
+		return buffers;
+	}
+
+	/**
+	 * If U and W are held in the buffers turn them back into matrices
+	 */
+	private void syncParams() {
+		if(!this.buffered) return;
+		this.w = buffers.getW();
+		this.u = buffers.getU();
+		this.buffered = false;
+	}
+
+	/**
+	 * The biconvex iterations of {@link #process(Matrix, Matrix)} performed on
+	 * the {@link BilinearUpdateBuffers}. U and W are left in the buffers.
+	 */
+	private void processInPlace(CompressedSparseRows X, Matrix Y) {
+		final BilinearUpdateBuffers b = buffers();
+		if(!this.buffered){
+			b.loadParams(this.w, this.u);
+			this.w = null;
+			this.u = null;
+			this.buffered = true;
+		}
+		final double weighting = dampeningWeighting();
+		if(weighting != 1) b.scale(weighting);
+		if(this.biasMode){
+			this.bias.scaleEquals(weighting);
+		}
+		b.loadExample(X, Y, this.biasMode ? this.bias : null);
+
+		final Double biconvextol = this.params.getTyped("biconvex_tol");
+		final Integer maxiter = this.params.getTyped("biconvex_maxiter");
+		int iter = 0;
+		while(true) {
+			iter += 1;
+
+			b.updateU(etat(iter,eta0_u), regul, lambdat(iter,lambda_u));
+			b.updateW(etat(iter,eta0_w), regul, lambdat(iter,lambda_w));
+
+			final double sumchangew = b.changeW();
+			final double totalw = b.totalW();
+
+			final double sumchangeu = b.changeU();
+			final double totalu = b.totalU();
+
+			double ratioU = 0;
+			if(totalu!=0) ratioU = sumchangeu/totalu;
+			double ratioW = 0;
+			if(totalw!=0) ratioW = sumchangew/totalw;
+			double ratio = ratioU + ratioW;
+			if(this.biasMode){
+				final double totalbias = b.biasAbsSum();
+				final double sumchangebias = b.updateBias(biasEtat(iter));
+				ratio += sumchangebias/totalbias;
+				ratio/=3;
+			}
+			else{
+				ratio/=2;
+			}
+			b.swap();
+
+			if(iter%3 == 0){
+				logger.debug(String.format("Iter: %d. Last Ratio: %2.3f",iter,ratio));
+			}
+			if(biconvextol  < 0 || ratio < biconvextol || iter >= maxiter) {
+				logger.debug("tolerance reached after iteration: " + iter);
+				break;
+			}
+		}
+		if(this.biasMode) b.storeBias();
+	}
+
 	protected Matrix updateBias(Matrix biasGrad, double biasLossWeight) {
 		final Matrix newbias = this.bias.minus(
 				CFMatrixUtils.timesInplace(
@@ -301,6 +431,7 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 	 * @return the current user matrix
 	 */
 	public Matrix getU(){
+		syncParams();
 		return this.u;
 	}
 
@@ -308,6 +439,7 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 	 * @return the current word matrix
 	 */
 	public Matrix getW(){
+		syncParams();
 		return this.w;
 	}
 	/**
@@ -327,10 +459,16 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 	 * @param newUsers the number of new users to add
 	 */
 	public void addU(int newUsers) {
-		if(this.u == null) return; // If u has not be inited, then it will be on first process
+		if(this.u == null && !this.buffered) return; // If u has not be inited, then it will be on first process
+		if(newUsers == 0) return;
+		final int ntasks = this.buffered ? buffers.ntasks : this.u.getNumColumns();
 		final InitStrategy ustrat = this.getInitStrat(BilinearLearnerParameters.EXPANDEDUINITSTRAT,null,null);
-		final Matrix newU = ustrat.init(newUsers, this.u.getNumColumns());
-		this.u = CFMatrixUtils.vstack(this.u,newU);
+		final Matrix newU = ustrat.init(newUsers, ntasks);
+		// the init strategy may have asked for U, taking it out of the buffers
+		if(this.buffered)
+			buffers.addUsers(newU);
+		else
+			this.u = CFMatrixUtils.vstack(this.u,newU);
 	}
 
 	/**
@@ -340,14 +478,21 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 	 * @param newWords the number of new words to add
 	 */
 	public void addW(int newWords) {
-		if(this.w == null) return; // If w has not be inited, then it will be on first process
+		if(this.w == null && !this.buffered) return; // If w has not be inited, then it will be on first process
+		if(newWords == 0) return;
+		final int ntasks = this.buffered ? buffers.ntasks : this.w.getNumColumns();
 		final InitStrategy wstrat = this.getInitStrat(BilinearLearnerParameters.EXPANDEDWINITSTRAT,null,null);
-		final Matrix newW = wstrat.init(newWords, this.w.getNumColumns());
-		this.w = CFMatrixUtils.vstack(this.w,newW);
+		final Matrix newW = wstrat.init(newWords, ntasks);
+		// the init strategy may have asked for W, taking it out of the buffers
+		if(this.buffered)
+			buffers.addWords(newW);
+		else
+			this.w = CFMatrixUtils.vstack(this.w,newW);
 	}
 
 	@Override
 	public BilinearSparseOnlineLearner clone(){
+		syncParams();
 		final BilinearSparseOnlineLearner ret = new BilinearSparseOnlineLearner(this.getParams());
 		ret.u = this.u.clone();
 		ret.w = this.w.clone();
@@ -360,6 +505,7 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 	 * @param newu set the model's U
 	 */
 	public void setU(Matrix newu) {
+		syncParams();
 		this.u = newu;
 	}
 
@@ -367,6 +513,7 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 	 * @param neww set the model's W
 	 */
 	public void setW(Matrix neww) {
+		syncParams();
 		this.w = neww;
 	}
 	@Override
@@ -374,7 +521,7 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 		final int nwords = in.readInt();
 		final int nusers = in.readInt();
 		final int ntasks = in.readInt();
-
+		this.buffered = false;
 
 		this.w = SparseMatrixFactoryMTJ.INSTANCE.createMatrix(nwords, ntasks);
 		for (int t = 0; t < ntasks; t++) {
@@ -412,6 +559,7 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 	}
 	@Override
 	public void writeBinary(DataOutput out) throws IOException {
+		syncParams();
 		out.writeInt(w.getNumRows());
 		out.writeInt(u.getNumRows());
 		out.writeInt(u.getNumColumns());
@@ -432,6 +580,7 @@ public class BilinearSparseOnlineLearner implements OnlineLearner<Matrix,Matrix>
 
 	@Override
 	public Matrix predict(Matrix x) {
+		if(this.buffered) return buffers.predict(x, this.biasMode ? this.bias : null);
 		final Matrix mult = this.u.transpose().times(x.transpose()).times(this.w);
 		if(this.biasMode)mult.plusEquals(this.bias);
 		final Vector ydiag = CFMatrixUtils.diag(mult);
@@ -62,6 +62,11 @@ public class BilinearUnmixedSparseOnlineLearner extends BilinearSparseOnlineLear
 
 	static Logger logger = Logger.getLogger(BilinearUnmixedSparseOnlineLearner.class);
 
+	@Override
+	protected boolean inPlaceUpdates() {
+		return false;
+	}
+
 	@Override
 	protected Matrix updateW(Matrix currentW, double wLossWeighted, double weightedLambda) {
 		Matrix current = currentW;
@@ -0,0 +1,431 @@
+package org.openimaj.ml.linear.learner;
+
+import gov.sandia.cognition.math.matrix.Matrix;
+import gov.sandia.cognition.math.matrix.mtj.AbstractMTJMatrix;
+import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
+
+import java.util.Arrays;
+
+import org.openimaj.math.matrix.CompressedSparseRows;
+import org.openimaj.ml.linear.learner.regul.Regulariser;
+
+/**
+ * Preallocated buffers holding U, W, the bias diagonal and the intermediate
+ * products of the biconvex iterations of a {@link BilinearSparseOnlineLearner}.
+ * The buffers are reused between iterations and between calls to
+ * {@link BilinearSparseOnlineLearner#process(Matrix, Matrix)}. U and W are
+ * held as rows with spare capacity which is doubled when it runs out, so new
+ * words and users can be added in amortised constant time.
+ *
+ * The updates assume the {@link BilinearSparseOnlineLearner} default loss, a
+ * squared loss with missing values on the expanded (diagonal) Y, and apply the
+ * regulariser with {@link Regulariser#proxInplace(double[][], int, double)}.
+ * Each element is computed with the same operations in the same order as the
+ * matrix implementation, so the results are the same.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+class BilinearUpdateBuffers {
+	int nwords;
+	int nusers;
+	int ntasks;
+
+	// X (words x users)
+	private final CompressedSparseRows xbuffer = new CompressedSparseRows();
+	private CompressedSparseRows x;
+	// X of a prediction, kept apart from the example being processed
+	private final CompressedSparseRows predictbuffer = new CompressedSparseRows();
+	private double[] predictRow;
+
+	// the first nwords (or nusers) rows are in use
+	private double[][] w;
+	private double[][] nextW;
+	private double[][] u;
+	private double[][] nextU;
+	// X^T W, users x tasks
+	private double[][] v;
+	// X U, words x tasks
+	private double[][] d;
+	private double[] y;
+	private Matrix bias;
+	private double[] biasDiag;
+	private double[] nextBiasDiag;
+
+	/**
+	 * Load the parameters, replacing any held
+	 *
+	 * @param W
+	 *            words x tasks
+	 * @param U
+	 *            users x tasks
+	 */
+	void loadParams(Matrix W, Matrix U) {
+		if (W.getNumColumns() != ntasks) {
+			ntasks = W.getNumColumns();
+			w = nextW = u = nextU = v = d = null;
+			y = biasDiag = nextBiasDiag = null;
+		}
+		nwords = 0;
+		nusers = 0;
+		addWords(W);
+		addUsers(U);
+	}
+
+	/**
+	 * Add rows to W
+	 *
+	 * @param newW
+	 *            the new rows
+	 */
+	void addWords(Matrix newW) {
+		final int n = nwords + newW.getNumRows();
+		w = ensureRows(w, n);
+		nextW = ensureRows(nextW, n);
+		copyRows(newW, w, nwords);
+		nwords = n;
+	}
+
+	/**
+	 * Add rows to U
+	 *
+	 * @param newU
+	 *            the new rows
+	 */
+	void addUsers(Matrix newU) {
+		final int n = nusers + newU.getNumRows();
+		u = ensureRows(u, n);
+		nextU = ensureRows(nextU, n);
+		copyRows(newU, u, nusers);
+		nusers = n;
+	}
+
+	/**
+	 * Grow the rows of a to at least the given number, doubling the capacity
+	 * when it is exceeded
+	 */
+	private double[][] ensureRows(double[][] a, int rows) {
+		if (a != null && a.length >= rows)
+			return a;
+		final int old = a == null ? 0 : a.length;
+		final double[][] ret = a == null ? new double[rows][] : Arrays.copyOf(a, Math.max(rows, old * 2));
+		for (int r = old; r < ret.length; r++)
+			ret[r] = new double[ntasks];
+		return ret;
+	}
+
+	private static void copyRows(Matrix m, double[][] into, int offset) {
+		final int nrows = m.getNumRows();
+		for (int r = 0; r < nrows; r++)
+			Arrays.fill(into[offset + r], 0);
+		if (m instanceof AbstractMTJMatrix) {
+			// sparse internal matrices only iterate their non zeros
+			for (final no.uib.cipr.matrix.MatrixEntry e : ((AbstractMTJMatrix) m).getInternalMatrix()) {
+				into[offset + e.row()][e.column()] = e.get();
+			}
+		}
+		else {
+			for (int r = 0; r < nrows; r++)
+				for (int c = 0; c < m.getNumColumns(); c++)
+					into[offset + r][c] = m.getElement(r, c);
+		}
+	}
+
+	/**
+	 * @param X
+	 * @return X read into the buffer's own rows
+	 */
+	CompressedSparseRows loadX(Matrix X) {
+		return xbuffer.load(X);
+	}
+
+	/**
+	 * Load the current example
+	 *
+	 * @param X
+	 *            words x users, held (not copied) until the next example
+	 * @param Y
+	 *            1 x tasks
+	 * @param bias
+	 *            the bias, or null if not in bias mode
+	 */
+	void loadExample(CompressedSparseRows X, Matrix Y, Matrix bias) {
+		this.x = X;
+		v = ensureRows(v, nusers);
+		d = ensureRows(d, nwords);
+		if (y == null) {
+			y = new double[ntasks];
+			biasDiag = new double[ntasks];
+			nextBiasDiag = new double[ntasks];
+		}
+		for (int t = 0; t < ntasks; t++)
+			y[t] = Y.getElement(0, t);
+		this.bias = bias;
+		if (bias != null) {
+			for (int t = 0; t < ntasks; t++)
+				biasDiag[t] = bias.getElement(t, t);
+		}
+	}
+
+	/**
+	 * Multiply U and W by a weighting
+	 *
+	 * @param weighting
+	 */
+	void scale(double weighting) {
+		scale(w, nwords, weighting);
+		scale(u, nusers, weighting);
+	}
+
+	private static void scale(double[][] a, int rows, double weighting) {
+		for (int r = 0; r < rows; r++) {
+			final double[] ar = a[r];
+			for (int c = 0; c < ar.length; c++)
+				ar[c] *= weighting;
+		}
+	}
+
+	/**
+	 * The U step: V = X^T W then nextU = prox(U - eta * grad)
+	 *
+	 * @param eta
+	 * @param regul
+	 * @param lambda
+	 */
+	void updateU(double eta, Regulariser regul, double lambda) {
+		final int[] xRowStart = x.rowStart();
+		final int[] xCol = x.columns();
+		final double[] xVal = x.values();
+		for (int r = 0; r < nusers; r++)
+			Arrays.fill(v[r], 0);
+		for (int r = 0; r < nwords; r++) {
+			final double[] wr = w[r];
+			for (int k = xRowStart[r]; k < xRowStart[r + 1]; k++) {
+				final double x = xVal[k];
+				final double[] vc = v[xCol[k]];
+				for (int t = 0; t < ntasks; t++)
+					vc[t] += x * wr[t];
+			}
+		}
+		gradientStep(v, u, nextU, nusers, eta);
+		regul.proxInplace(nextU, nusers, lambda);
+	}
+
+	/**
+	 * The W step, using the U computed by
+	 * {@link #updateU(double, Regulariser, double)}: D = X nextU then nextW =
+	 * prox(W - eta * grad)
+	 *
+	 * @param eta
+	 * @param regul
+	 * @param lambda
+	 */
+	void updateW(double eta, Regulariser regul, double lambda) {
+		final int[] xRowStart = x.rowStart();
+		final int[] xCol = x.columns();
+		final double[] xVal = x.values();
+		for (int r = 0; r < nwords; r++) {
+			final double[] dr = d[r];
+			Arrays.fill(dr, 0);
+			for (int k = xRowStart[r]; k < xRowStart[r + 1]; k++) {
+				final double x = xVal[k];
+				final double[] uc = nextU[xCol[k]];
+				for (int t = 0; t < ntasks; t++)
+					dr[t] += x * uc[t];
+			}
+		}
+		gradientStep(d, w, nextW, nwords, eta);
+		regul.proxInplace(nextW, nwords, lambda);
+	}
+
+	/**
+	 * The bias step, using the updated U and W. Only the diagonal of the bias
+	 * takes part in the loss so only the diagonal changes.
+	 *
+	 * @param eta
+	 * @return the absolute sum of the change in the bias
+	 */
+	double updateBias(double eta) {
+		double change = 0;
+		for (int t = 0; t < ntasks; t++) {
+			double dot = 0;
+			for (int r = 0; r < nwords; r++)
+				dot += d[r][t] * nextW[r][t];
+			final double mult = dot + biasDiag[t];
+			double grad = 0;
+			if (!Double.isNaN(y[t]))
+				grad = mult - y[t];
+			nextBiasDiag[t] = biasDiag[t] - grad * eta;
+			change += Math.abs(nextBiasDiag[t] - biasDiag[t]);
+		}
+		return change;
+	}
+
+	/**
+	 * @return the absolute sum of the current bias
+	 */
+	double biasAbsSum() {
+		double tot = 0;
+		for (int r = 0; r < ntasks; r++) {
+			for (int c = 0; c < ntasks; c++) {
+				tot += Math.abs(r == c ? biasDiag[r] : bias.getElement(r, c));
+			}
+		}
+		return tot;
+	}
+
+	/**
+	 * For each task t, the squared loss of the expanded Y only has a residual
+	 * on row t: r = (A_t . P_t - y_t) + b_tt (or 0 if y_t is missing). The
+	 * gradient of column t is then A_t * r.
+	 */
+	private void gradientStep(double[][] A, double[][] P, double[][] next, int n, double eta) {
+		for (int t = 0; t < ntasks; t++) {
+			double resid = 0;
+			if (!Double.isNaN(y[t])) {
+				double dot = 0;
+				for (int i = 0; i < n; i++)
+					dot += A[i][t] * P[i][t];
+				resid = dot - y[t];
+				if (bias != null)
+					resid += biasDiag[t];
+			}
+			for (int i = 0; i < n; i++)
+				next[i][t] = P[i][t] - A[i][t] * resid * eta;
+		}
+	}
+
+	/**
+	 * @return the absolute sum of the change in W
+	 */
+	double changeW() {
+		return absDiff(nextW, w, nwords);
+	}
+
+	/**
+	 * @return the absolute sum of W
+	 */
+	double totalW() {
+		return absSum(w, nwords);
+	}
+
+	/**
+	 * @return the absolute sum of the change in U
+	 */
+	double changeU() {
+		return absDiff(nextU, u, nusers);
+	}
+
+	/**
+	 * @return the absolute sum of U
+	 */
+	double totalU() {
+		return absSum(u, nusers);
+	}
+
+	private static double absDiff(double[][] a, double[][] b, int rows) {
+		double tot = 0;
+		for (int r = 0; r < rows; r++)
+			for (int c = 0; c < a[r].length; c++)
+				tot += Math.abs(a[r][c] - b[r][c]);
+		return tot;
+	}
+
+	private static double absSum(double[][] a, int rows) {
+		double tot = 0;
+		for (int r = 0; r < rows; r++)
+			for (int c = 0; c < a[r].length; c++)
+				tot += Math.abs(a[r][c]);
+		return tot;
+	}
+
+	/**
+	 * Make the next parameters the current parameters
+	 */
+	void swap() {
+		double[][] tmp = w;
+		w = nextW;
+		nextW = tmp;
+		tmp = u;
+		u = nextU;
+		nextU = tmp;
+		if (bias != null) {
+			final double[] tmpb = biasDiag;
+			biasDiag = nextBiasDiag;
+			nextBiasDiag = tmpb;
+		}
+	}
+
+	/**
+	 * The prediction of the current U, W and bias for X, the diagonal of U^T
+	 * X^T W (plus the bias), summed in the order the matrix product would
+	 *
+	 * @param X
+	 *            words x users
+	 * @param bias
+	 *            the bias, or null if not in bias mode
+	 * @return 1 x tasks
+	 */
+	Matrix predict(Matrix X, Matrix bias) {
+		if (X.getNumRows() != nwords || X.getNumColumns() != nusers)
+			throw new IllegalArgumentException(String.format("X is %dx%d, expected words x users %dx%d",
+					X.getNumRows(), X.getNumColumns(), nwords, nusers));
+		final CompressedSparseRows px = predictbuffer.load(X);
+		final int[] xRowStart = px.rowStart();
+		final int[] xCol = px.columns();
+		final double[] xVal = px.values();
+		if (predictRow == null || predictRow.length != ntasks)
+			predictRow = new double[ntasks];
+		final double[] ret = new double[ntasks];
+		for (int r = 0; r < nwords; r++) {
+			if (xRowStart[r] == xRowStart[r + 1])
+				continue;
+			// (U^T X^T) for this word then its product with the word's row of W
+			Arrays.fill(predictRow, 0);
+			for (int k = xRowStart[r]; k < xRowStart[r + 1]; k++) {
+				final double x = xVal[k];
+				final double[] uc = u[xCol[k]];
+				for (int t = 0; t < ntasks; t++)
+					predictRow[t] += uc[t] * x;
+			}
+			final double[] wr = w[r];
+			for (int t = 0; t < ntasks; t++)
+				ret[t] += predictRow[t] * wr[t];
+		}
+		final Matrix y = SparseMatrixFactoryMTJ.INSTANCE.createIdentity(1, ntasks);
+		for (int t = 0; t < ntasks; t++)
+			y.setElement(0, t, bias == null ? ret[t] : ret[t] + bias.getElement(t, t));
+		return y;
+	}
+
+	/**
+	 * @return a sparse matrix holding W
+	 */
+	Matrix getW() {
+		return toSparse(w, nwords);
+	}
+
+	/**
+	 * @return a sparse matrix holding U
+	 */
+	Matrix getU() {
+		return toSparse(u, nusers);
+	}
+
+	private Matrix toSparse(double[][] a, int rows) {
+		final Matrix ret = SparseMatrixFactoryMTJ.INSTANCE.createMatrix(rows, ntasks);
+		for (int r = 0; r < rows; r++)
+			for (int c = 0; c < ntasks; c++)
+				if (a[r][c] != 0)
+					ret.setElement(r, c, a[r][c]);
+		return ret;
+	}
+
+	/**
+	 * Write the current bias diagonal into the bias matrix
+	 */
+	void storeBias() {
+		for (int t = 0; t < ntasks; t++)
+			bias.setElement(t, t, biasDiag[t]);
+	}
+}
@@ -1,12 +1,16 @@
 package org.openimaj.ml.linear.learner;
 
+import gnu.trove.map.hash.TObjectIntHashMap;
 import gov.sandia.cognition.math.matrix.Matrix;
 import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.openimaj.math.matrix.CompressedSparseRows;
 import org.openimaj.util.pair.IndependentPair;
 import org.openimaj.util.pair.Pair;
 
@@ -14,6 +18,11 @@ import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 
 /**
+ * A {@link BilinearSparseOnlineLearner} over users, words and values named by
+ * strings. Novel users and words are given the next free row of U and W. The
+ * names are indexed with primitive maps and each example is written straight
+ * into a reused {@link CompressedSparseRows} rather than a new matrix.
+ *
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  * 
  */
@@ -30,9 +39,48 @@ public class IncrementalBilinearSparseOnlineLearner
 
 	}
 
-	private BiMap<String, Integer> vocabulary;
-	private BiMap<String, Integer> users;
-	private BiMap<String, Integer> values;
+	/**
+	 * Strings indexed in the order they were first seen
+	 */
+	static class Index {
+		private final TObjectIntHashMap<String> indexes = new TObjectIntHashMap<String>(10, 0.5f, -1);
+		private final List<String> names = new ArrayList<String>();
+
+		/**
+		 * @param name
+		 * @return the index of the name or -1 if it has not been seen
+		 */
+		int get(String name) {
+			return indexes.get(name);
+		}
+
+		/**
+		 * @param name
+		 * @return true if the name was novel
+		 */
+		boolean add(String name) {
+			if (indexes.putIfAbsent(name, names.size()) != -1)
+				return false;
+			names.add(name);
+			return true;
+		}
+
+		int size() {
+			return names.size();
+		}
+
+		BiMap<String, Integer> asBiMap() {
+			final BiMap<String, Integer> ret = HashBiMap.create(names.size());
+			for (int i = 0; i < names.size(); i++)
+				ret.put(names.get(i), i);
+			return ret;
+		}
+	}
+
+	private Index vocabulary;
+	private Index users;
+	private Index values;
+	private final CompressedSparseRows xrows = new CompressedSparseRows();
 	private BilinearSparseOnlineLearner bilinearLearner;
 	private BilinearLearnerParameters params;
 
@@ -59,9 +107,9 @@ public class IncrementalBilinearSparseOnlineLearner
 	}
 
 	private void init(BilinearLearnerParameters params) {
-		vocabulary = HashBiMap.create();
-		users = HashBiMap.create();
-		values = HashBiMap.create();
+		vocabulary = new Index();
+		users = new Index();
+		values = new Index();
 		this.params = params;
 		bilinearLearner = new BilinearSparseOnlineLearner(params);
 	}
@@ -77,9 +125,8 @@ public class IncrementalBilinearSparseOnlineLearner
 	public void process(Map<String, Map<String, Double>> x, Map<String, Double> y) {
 		updateUserValues(x, y);
 		final Matrix yMat = constructYMatrix(y);
-		final Matrix xMat = constructXMatrix(x);
 
-		this.bilinearLearner.process(xMat, yMat);
+		this.bilinearLearner.process(constructXRows(x), yMat);
 	}
 
 	/**
@@ -96,9 +143,7 @@ public class IncrementalBilinearSparseOnlineLearner
 
 	private void updateValues(Map<String, Double> y) {
 		for (final String value : y.keySet()) {
-			if (!values.containsKey(value)) {
-				values.put(value, values.size());
-			}
+			values.add(value);
 		}
 	}
 
@@ -112,10 +157,9 @@ public class IncrementalBilinearSparseOnlineLearner
 
 	private Map<String, Double> constructYMap(Matrix y) {
 		final Map<String, Double> ret = new HashMap<String, Double>();
-		for (final String key : values.keySet()) {
-			final Integer index = values.get(key);
+		for (int index = 0; index < values.size(); index++) {
 			final double yvalue = y.getElement(0, index);
-			ret.put(key, yvalue);
+			ret.put(values.names.get(index), yvalue);
 		}
 		return ret;
 	}
@@ -131,13 +175,23 @@ public class IncrementalBilinearSparseOnlineLearner
 		return mat;
 	}
 
+	private CompressedSparseRows constructXRows(Map<String, Map<String, Double>> x) {
+		xrows.reset(vocabulary.size(), users.size());
+		for (final Entry<String, Map<String, Double>> userwords : x.entrySet()) {
+			final int userindex = this.users.get(userwords.getKey());
+			for (final Entry<String, Double> ent : userwords.getValue().entrySet()) {
+				xrows.add(vocabulary.get(ent.getKey()), userindex, ent.getValue());
+			}
+		}
+		return xrows.compress();
+	}
+
 	private void updateUserWords(Map<String, Map<String, Double>> x) {
 		int newUsers = 0;
 		int newWords = 0;
 		for (final Entry<String, Map<String, Double>> userWords : x.entrySet()) {
 			final String user = userWords.getKey();
-			if (!users.containsKey(user)) {
-				users.put(user, users.size());
+			if (users.add(user)) {
 				newUsers++;
 			}
 			newWords += updateWords(userWords.getValue());
@@ -150,8 +204,7 @@ public class IncrementalBilinearSparseOnlineLearner
 	private int updateWords(Map<String, Double> value) {
 		int newWords = 0;
 		for (final String word : value.keySet()) {
-			if (!vocabulary.containsKey(word)) {
-				vocabulary.put(word, vocabulary.size());
+			if (vocabulary.add(word)) {
 				newWords++;
 			}
 		}
@@ -234,10 +287,10 @@ public class IncrementalBilinearSparseOnlineLearner
 	}
 
 	/**
-	 * @return the vocabulary
+	 * @return a copy of the vocabulary
 	 */
 	public BiMap<String, Integer> getVocabulary() {
-		return vocabulary;
+		return vocabulary.asBiMap();
 	}
 
 	/**
@@ -261,13 +314,16 @@ public class IncrementalBilinearSparseOnlineLearner
 	}
 
 	/**
-	 * @return the current map of dependent values to indexes
+	 * @return a copy of the current map of dependent values to indexes
 	 */
 	public BiMap<String, Integer> getDependantValues() {
-		return this.values;
+		return this.values.asBiMap();
 	}
 
+	/**
+	 * @return a copy of the current map of users to indexes
+	 */
 	public BiMap<String, Integer> getUsers() {
-		return this.users;
+		return this.users.asBiMap();
 	}
 }
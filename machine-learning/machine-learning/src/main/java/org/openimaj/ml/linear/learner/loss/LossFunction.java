@@ -26,4 +26,31 @@ public abstract class LossFunction {
 	public void setBias(Matrix bias) {
 		this.bias = bias;
 	}
+
+	/**
+	 * Whether the gradient of this loss is X^T R, where each element of R is
+	 * calculated from the matching element of XW, Y and the bias alone by
+	 * {@link #residual(double, double, double)}. Such losses can be
+	 * calculated by {@link MatLossFunction} directly over the values of X.
+	 *
+	 * @return true if {@link #residual(double, double, double)} is supported
+	 */
+	public boolean isElementwise() {
+		return false;
+	}
+
+	/**
+	 * The residual of a single prediction, see {@link #isElementwise()}
+	 *
+	 * @param prediction
+	 *            an element of XW
+	 * @param y
+	 *            the matching element of Y
+	 * @param bias
+	 *            the matching element of the bias, 0 if there is no bias
+	 * @return the residual
+	 */
+	public double residual(double prediction, double y, double bias) {
+		throw new UnsupportedOperationException();
+	}
 }
@@ -4,10 +4,26 @@ import gov.sandia.cognition.math.matrix.Matrix;
 import gov.sandia.cognition.math.matrix.mtj.SparseMatrix;
 import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
 
+import org.openimaj.math.matrix.CFMatrixUtils;
+import org.openimaj.math.matrix.CompressedSparseRows;
+
+/**
+ * Applies a {@link LossFunction} to each column of W (and the matching
+ * columns of Y and the bias) independently.
+ *
+ * When the wrapped loss {@link LossFunction#isElementwise()} the gradient is
+ * calculated for all the columns at once, directly over the non zero values of
+ * X and into a reused buffer, rather than by copying out each column.
+ */
 public class MatLossFunction extends LossFunction{
 	
 	private LossFunction f;
 	private SparseMatrixFactoryMTJ spf;
+	private final CompressedSparseRows xrows = new CompressedSparseRows();
+	private double[][] wbuf;
+	private double[][] gradbuf;
+	private double[][] resid;
+
 	public MatLossFunction(LossFunction f) {
 		this.f = f;
 		spf = SparseMatrixFactoryMTJ.INSTANCE;
@@ -17,6 +33,7 @@ public class MatLossFunction extends LossFunction{
 	public void setX(Matrix X) {
 		super.setX(X);
 		f.setX(X);
+		if(f.isElementwise()) xrows.load(X);
 	}
 	
 	@Override
@@ -33,6 +50,17 @@ public class MatLossFunction extends LossFunction{
 	@Override
 	public Matrix gradient(Matrix W) {
 		SparseMatrix ret = spf.createMatrix(W.getNumRows(), W.getNumColumns());
+		if(f.isElementwise()){
+			wbuf = ensure(wbuf, W.getNumRows(), W.getNumColumns());
+			gradbuf = ensure(gradbuf, W.getNumRows(), W.getNumColumns());
+			gradient(CFMatrixUtils.copyTo(W, wbuf), gradbuf);
+			for (int r = 0; r < gradbuf.length; r++) {
+				for (int c = 0; c < gradbuf[r].length; c++) {
+					if(gradbuf[r][c] != 0) ret.setElement(r, c, gradbuf[r][c]);
+				}
+			}
+			return ret;
+		}
 		int allRowsY = Y.getNumRows()-1;
 		int allRowsW = W.getNumRows()-1;
 		for (int i = 0; i < Y.getNumColumns(); i++) {
@@ -44,6 +72,57 @@ public class MatLossFunction extends LossFunction{
 		return ret;
 	}
 
+	/**
+	 * Calculate the gradient of every column of W into a buffer. The
+	 * predictions XW are accumulated over the non zero values of each row of
+	 * X, turned into residuals by the wrapped loss and then scattered back
+	 * over the same values of X to give X^T R. Only supported if the wrapped
+	 * loss {@link LossFunction#isElementwise()}.
+	 *
+	 * @param W
+	 *            the parameters, the same shape as the gradient
+	 * @param grad
+	 *            the buffer to hold the gradient (its values are replaced)
+	 */
+	public void gradient(double[][] W, double[][] grad) {
+		final int nrows = xrows.getNumRows();
+		final int ncols = Y.getNumColumns();
+		final int[] rowStart = xrows.rowStart();
+		final int[] columns = xrows.columns();
+		final double[] values = xrows.values();
+		resid = ensure(resid, nrows, ncols);
+
+		for (int r = 0; r < nrows; r++) {
+			final double[] residr = resid[r];
+			for (int i = 0; i < ncols; i++) {
+				double prediction = 0;
+				for (int k = rowStart[r]; k < rowStart[r + 1]; k++)
+					prediction += values[k] * W[columns[k]][i];
+				final double b = bias == null ? 0 : bias.getElement(r, i);
+				residr[i] = f.residual(prediction, Y.getElement(r, i), b);
+			}
+		}
+
+		for (final double[] row : grad)
+			for (int i = 0; i < ncols; i++)
+				row[i] = 0;
+		for (int r = 0; r < nrows; r++) {
+			final double[] residr = resid[r];
+			for (int k = rowStart[r]; k < rowStart[r + 1]; k++) {
+				final double x = values[k];
+				final double[] gradj = grad[columns[k]];
+				for (int i = 0; i < ncols; i++)
+					gradj[i] += x * residr[i];
+			}
+		}
+	}
+
+	private static double[][] ensure(double[][] a, int rows, int cols) {
+		if (a != null && a.length == rows && (rows == 0 || a[0].length == cols))
+			return a;
+		return new double[rows][cols];
+	}
+
 	@Override
 	public double eval(Matrix W) {
 		double total = 0;
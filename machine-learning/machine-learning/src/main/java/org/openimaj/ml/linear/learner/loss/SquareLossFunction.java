@@ -9,6 +9,16 @@ public class SquareLossFunction extends LossFunction{
 		return X.transpose().times(X.times(W).minus(Y));
 	}
 
+	@Override
+	public boolean isElementwise() {
+		return true;
+	}
+
+	@Override
+	public double residual(double prediction, double y, double bias) {
+		return prediction - y;
+	}
+
 	@Override
 	public double eval(Matrix W) {
 		
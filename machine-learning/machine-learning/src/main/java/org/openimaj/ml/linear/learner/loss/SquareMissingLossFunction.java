@@ -21,6 +21,18 @@ public class SquareMissingLossFunction extends LossFunction {
 		return X.transpose().times(resid);
 	}
 
+	@Override
+	public boolean isElementwise() {
+		return true;
+	}
+
+	@Override
+	public double residual(double prediction, double y, double bias) {
+		if (Double.isNaN(y))
+			return 0;
+		return (prediction - y) + bias;
+	}
+
 	@Override
 	public double eval(Matrix W) {
 		Matrix v;
@@ -1,31 +1,35 @@
 package org.openimaj.ml.linear.learner.regul;
 
-import org.apache.log4j.Logger;
-
-import gov.sandia.cognition.math.matrix.Matrix;
-import gov.sandia.cognition.math.matrix.Vector;
-
-public class L1L2Regulariser implements Regulariser{
-
-	private static final Logger logger = Logger.getLogger(L1L2Regulariser.class);
+/**
+ * The L1L2 (group lasso) prox: rows of W with an L2 norm below lambda are
+ * zeroed, the rest are shrunk towards zero by lambda.
+ */
+public class L1L2Regulariser extends RowWiseRegulariser {
 
 	@Override
-	public Matrix prox(Matrix W, double lambda) {
-		int nrows = W.getNumRows();
-		Matrix ret = W.clone();
-		ret.zero();
-		
-		for (int r = 0; r < nrows; r++) {
-			Vector row = W.getRow(r);
-			double rownorm = row.norm2();
-			if(rownorm > lambda){
-				double scal = (rownorm - lambda)/rownorm;
-				ret.setRow(r,row.scale(scal));
-//				Vector setrow = ret.getRow(r);
-//				logger .debug(setrow);
-			}
+	protected void proxRow(double[] data, int offset, int stride, int length, double lambda) {
+		final double rownorm = norm2(data, offset, stride, length);
+		final int end = offset + length * stride;
+		if (rownorm > lambda) {
+			final double scal = (rownorm - lambda) / rownorm;
+			for (int i = offset; i < end; i += stride)
+				data[i] *= scal;
+		}
+		else {
+			for (int i = offset; i < end; i += stride)
+				data[i] = 0;
 		}
-		return ret;
 	}
 
+	/**
+	 * The norm MTJ gives a row, dense or sparse: the square root of the sum of
+	 * squares in column order
+	 */
+	static double norm2(double[] data, int offset, int stride, int length) {
+		double norm = 0;
+		final int end = offset + length * stride;
+		for (int i = offset; i < end; i += stride)
+			norm += data[i] * data[i];
+		return Math.sqrt(norm);
+	}
 }
@@ -1,33 +1,25 @@
 package org.openimaj.ml.linear.learner.regul;
 
-import gov.sandia.cognition.math.matrix.Matrix;
-
-public class L1Regulariser implements Regulariser{
+/**
+ * The L1 (lasso) prox: each value of W is soft thresholded by lambda
+ */
+public class L1Regulariser extends RowWiseRegulariser {
 
 	@Override
-	public Matrix prox(Matrix W, double lambda) {
-		return softThreshold(W,lambda);
-	}
-
-	private Matrix softThreshold(Matrix w, double lambda) {
-		Matrix ret = w.clone();
-		ret.zero();
-		int nrow = w.getNumRows();
-		int ncol = w.getNumColumns();
-		for (int r = 0; r < nrow; r++) {
-			for (int c = 0; c < ncol; c++) {
-				double v = ret.getElement(r, c);
-				if(v < -lambda){
-					ret.setElement(r, c, v + lambda);
-				}
-				else if(v > lambda){
-					ret.setElement(r, c, v - lambda);
-				}
+	protected void proxRow(double[] data, int offset, int stride, int length, double lambda) {
+		final int end = offset + length * stride;
+		for (int i = offset; i < end; i += stride) {
+			final double v = data[i];
+			if (v < -lambda) {
+				data[i] = v + lambda;
+			}
+			else if (v > lambda) {
+				data[i] = v - lambda;
+			}
+			else {
+				data[i] = 0;
 			}
 		}
-		return ret;
 	}
-	
-	
 
 }
@@ -4,4 +4,17 @@ import gov.sandia.cognition.math.matrix.Matrix;
 
 public interface Regulariser {
 	public Matrix prox(Matrix W, double lambda);
+
+	/**
+	 * Apply the prox to the first rows of W in place. The result must be the
+	 * same as {@link #prox(Matrix, double)} of a sparse matrix holding the
+	 * values of those rows.
+	 *
+	 * @param W
+	 *            the parameters, each array is a row
+	 * @param rows
+	 *            the number of rows of W in use
+	 * @param lambda
+	 */
+	public void proxInplace(double[][] W, int rows, double lambda);
 }
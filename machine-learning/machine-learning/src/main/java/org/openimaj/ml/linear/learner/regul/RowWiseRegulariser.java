@@ -0,0 +1,109 @@
+package org.openimaj.ml.linear.learner.regul;
+
+import gov.sandia.cognition.math.matrix.Matrix;
+import gov.sandia.cognition.math.matrix.mtj.AbstractMTJMatrix;
+
+import org.openimaj.math.matrix.CompressedSparseRows;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
+
+/**
+ * A {@link Regulariser} whose prox treats each row of W independently. The
+ * prox is applied directly to the values of the matrix: the column major data
+ * of a copy of dense matrices, the non zero values of sparse matrices, or the
+ * rows of a double[][]. Wide matrices (more than {@link #BLOCK_ROWS} rows) are
+ * split into blocks of rows which are handled in parallel; the result doesn't
+ * depend on the number of threads.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public abstract class RowWiseRegulariser implements Regulariser {
+	/**
+	 * The number of rows each thread is given
+	 */
+	public static final int BLOCK_ROWS = 10000;
+
+	/**
+	 * Apply the prox to a single row in place
+	 *
+	 * @param data
+	 *            the values
+	 * @param offset
+	 *            the index of the first value of the row
+	 * @param stride
+	 *            the distance between values of the row
+	 * @param length
+	 *            the number of values in the row
+	 * @param lambda
+	 */
+	protected abstract void proxRow(double[] data, int offset, int stride, int length, double lambda);
+
+	@Override
+	public Matrix prox(Matrix W, final double lambda) {
+		if (W instanceof AbstractMTJMatrix
+				&& ((AbstractMTJMatrix) W).getInternalMatrix() instanceof no.uib.cipr.matrix.DenseMatrix)
+		{
+			final Matrix ret = W.clone();
+			final no.uib.cipr.matrix.DenseMatrix internal =
+					(no.uib.cipr.matrix.DenseMatrix) ((AbstractMTJMatrix) ret).getInternalMatrix();
+			final double[] data = internal.getData();
+			final int nrows = internal.numRows();
+			final int ncols = internal.numColumns();
+			forRows(nrows, new Operation<Integer>() {
+				@Override
+				public void perform(Integer r) {
+					proxRow(data, r, nrows, ncols, lambda);
+				}
+			});
+			return ret;
+		}
+
+		final CompressedSparseRows rows = new CompressedSparseRows().load(W);
+		final int[] rowStart = rows.rowStart();
+		final double[] values = rows.values();
+		forRows(rows.getNumRows(), new Operation<Integer>() {
+			@Override
+			public void perform(Integer r) {
+				proxRow(values, rowStart[r], 1, rowStart[r + 1] - rowStart[r], lambda);
+			}
+		});
+		final Matrix ret = W.clone();
+		ret.zero();
+		final int[] columns = rows.columns();
+		for (int r = 0; r < rows.getNumRows(); r++) {
+			for (int k = rowStart[r]; k < rowStart[r + 1]; k++) {
+				if (values[k] != 0)
+					ret.setElement(r, columns[k], values[k]);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public void proxInplace(final double[][] W, int rows, final double lambda) {
+		forRows(rows, new Operation<Integer>() {
+			@Override
+			public void perform(Integer r) {
+				proxRow(W[r], 0, 1, W[r].length, lambda);
+			}
+		});
+	}
+
+	private static void forRows(final int nrows, final Operation<Integer> op) {
+		if (nrows < 2 * BLOCK_ROWS) {
+			for (int r = 0; r < nrows; r++)
+				op.perform(r);
+			return;
+		}
+		final int nblocks = (nrows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+		Parallel.forIndex(0, nblocks, 1, new Operation<Integer>() {
+			@Override
+			public void perform(Integer block) {
+				final int end = Math.min(nrows, (block + 1) * BLOCK_ROWS);
+				for (int r = block * BLOCK_ROWS; r < end; r++)
+					op.perform(r);
+			}
+		});
+	}
+}
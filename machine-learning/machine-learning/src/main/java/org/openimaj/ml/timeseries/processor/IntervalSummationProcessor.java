@@ -29,11 +29,15 @@
  */
 package org.openimaj.ml.timeseries.processor;
 
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
 
 import org.openimaj.ml.timeseries.TimeSeries;
 import org.openimaj.ml.timeseries.TimeSeriesArithmaticOperator;
 import org.openimaj.ml.timeseries.collection.TimeSeriesCollectionAssignable;
+import org.openimaj.ml.timeseries.series.DoubleTimeSeries;
+import org.openimaj.util.pair.IndependentPair;
 
 /**
  * Given time step calculate each timestep such that 
@@ -43,6 +47,11 @@ import org.openimaj.ml.timeseries.collection.TimeSeriesCollectionAssignable;
  * a function must be implemented to explain how TimeSeries data is to be added.
  * 
  * This processor implicity assumes that the first time step is "the beggining of the time series"
+ * <p>
+ * The time steps must be in ascending order. The series is visited once, in
+ * order, alongside the time steps, so processing is linear in the size of the
+ * series plus the number of time steps. A {@link DoubleTimeSeries} is summed
+ * directly over its arrays.
  * 
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  * 
@@ -73,36 +82,44 @@ public class IntervalSummationProcessor
 	
 	@Override
 	public void process(TS series) {
+		if(series instanceof DoubleTimeSeries){
+			sumDoubles((DoubleTimeSeries)(Object)series);
+			return;
+		}
 		LinkedList<Long> times = new LinkedList<Long>();
 		LinkedList<DATA> data  = new LinkedList<DATA>();
-		times.addLast(this.times[0]);		
-		long firstTime = series.getTimes()[0];
-		
-		TS interval = series.get(firstTime,this.times[0]);
-		
-		long previousTime = -1;
-		if(interval.size() > 0){
-			long[] intervalTimes = interval.getTimes();
-			previousTime = intervalTimes[intervalTimes.length - 1] + 1;
-		}
-		else{
-			previousTime = this.times[0] + 1;
-		}
 		
-		data.addLast(interval.sum());
-		for (int i = 1; i < this.times.length; i++) {
+		// each value falls in the first time step at or after it
+		Iterator<IndependentPair<Long, DATA>> iter = series.iterator();
+		IndependentPair<Long, DATA> next = iter.hasNext() ? iter.next() : null;
+		for (int i = 0; i < this.times.length; i++) {
 			long currentTime = this.times[i];
-			interval = series.get(previousTime,currentTime);
-			if(interval.size() > 0){
-				long[] intervalTimes = interval.getTimes();
-				previousTime = intervalTimes[intervalTimes.length - 1] + 1;
-			}
-			else{
-				previousTime = currentTime + 1;
+			LinkedList<Long> intervalTimes = new LinkedList<Long>();
+			LinkedList<DATA> intervalData = new LinkedList<DATA>();
+			while(next != null && next.firstObject() <= currentTime){
+				intervalTimes.add(next.firstObject());
+				intervalData.add(next.secondObject());
+				next = iter.hasNext() ? iter.next() : null;
 			}
 			times.add(currentTime);
-			data.add(interval.sum());
+			data.add(series.newInstance(intervalTimes, intervalData).sum());
 		}
 		series.internalAssign(times,data);
 	}
+
+	private void sumDoubles(DoubleTimeSeries series) {
+		long[] seriesTimes = series.getTimes();
+		double[] seriesData = series.getData();
+		int size = series.size();
+		double[] sums = new double[this.times.length];
+		int j = 0;
+		for (int i = 0; i < this.times.length; i++) {
+			double sum = 0;
+			while(j < size && seriesTimes[j] <= this.times[i]){
+				sum += seriesData[j++];
+			}
+			sums[i] = sum;
+		}
+		series.internalAssign(Arrays.copyOf(this.times, this.times.length), sums);
+	}
 }
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.timeseries.processor;
+
+/**
+ * The streaming counterpart of {@link GaussianTimeSeriesProcessor}. The last
+ * kernel length values are held in a ring buffer and each point is emitted,
+ * smoothed, once the half kernel of points after it has been added, so each
+ * point costs O(kernel length) work. As with
+ * {@link GaussianTimeSeriesProcessor#convolveHorizontal(double[], double[])}
+ * the series is extended by repeating its first value and, on
+ * {@link #flush()}, its last value; the output is the same as the batch
+ * processor's.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class StreamingGaussianTimeSeriesProcessor extends StreamingTimeSeriesProcessor {
+	private double[] kernel;
+	private int halfsize;
+	private long[] times;
+	private double[] values;
+	private int head;
+	private int count;
+	private long lastTime;
+	private double lastValue;
+
+	/**
+	 * @param sigma
+	 *            the standard deviation of the gaussian, truncated at
+	 *            {@link GaussianTimeSeriesProcessor#DEFAULT_GAUSS_TRUNCATE}
+	 *            sigmas
+	 */
+	public StreamingGaussianTimeSeriesProcessor(double sigma) {
+		this.kernel = GaussianTimeSeriesProcessor.makeKernel(sigma, GaussianTimeSeriesProcessor.DEFAULT_GAUSS_TRUNCATE);
+		this.halfsize = kernel.length / 2;
+		this.times = new long[kernel.length];
+		this.values = new double[kernel.length];
+	}
+
+	@Override
+	protected void addPoint(long time, double value) {
+		if (count == 0) {
+			for (int i = 0; i < halfsize; i++)
+				push(time, value);
+		}
+		push(time, value);
+		lastTime = time;
+		lastValue = value;
+	}
+
+	/**
+	 * Emit the points held back waiting for the half kernel after them,
+	 * extending the series with its last value
+	 */
+	@Override
+	public void flush() {
+		if (count > 0) {
+			for (int i = 0; i < halfsize; i++)
+				push(lastTime, lastValue);
+		}
+		super.flush();
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		head = 0;
+		count = 0;
+	}
+
+	private void push(long time, double value) {
+		final int tail = (head + count) % kernel.length;
+		times[tail] = time;
+		values[tail] = value;
+		if (count < kernel.length)
+			count++;
+		else
+			head = (head + 1) % kernel.length;
+		if (count == kernel.length) {
+			// accumulated exactly as convolveHorizontal does
+			float sum = 0.0f;
+			for (int j = 0, jj = kernel.length - 1; j < kernel.length; j++, jj--)
+				sum += values[(head + j) % kernel.length] * kernel[jj];
+			emit(times[(head + halfsize) % kernel.length], sum);
+		}
+	}
+}
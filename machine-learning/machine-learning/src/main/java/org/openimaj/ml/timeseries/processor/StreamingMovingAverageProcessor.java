@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.timeseries.processor;
+
+/**
+ * The streaming counterpart of {@link MovingAverageProcessor}. Each point is
+ * emitted as soon as it is added, replaced by the mean of the points within
+ * the window [t - length, t]. The points in the window are held in a ring
+ * buffer alongside their running sum, so each point costs O(1) amortised
+ * work. The running sum is kept by adding and subtracting values, so results
+ * agree with {@link MovingAverageProcessor} to within rounding.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class StreamingMovingAverageProcessor extends StreamingTimeSeriesProcessor {
+	private long length;
+	private long[] times = new long[16];
+	private double[] values = new double[16];
+	private int head;
+	private int count;
+	private double sum;
+
+	/**
+	 * @param length
+	 *            the length of the window placed ending at t_n
+	 */
+	public StreamingMovingAverageProcessor(long length) {
+		this.length = length;
+	}
+
+	@Override
+	protected void addPoint(long time, double value) {
+		if (count == times.length)
+			grow();
+		final int tail = (head + count) % times.length;
+		times[tail] = time;
+		values[tail] = value;
+		count++;
+		sum += value;
+
+		final long earliest = time - length;
+		while (times[head] < earliest) {
+			sum -= values[head];
+			head = (head + 1) % times.length;
+			count--;
+		}
+		if (count == 1) {
+			// nothing left to drift
+			sum = value;
+		}
+		emit(time, sum / count);
+	}
+
+	private void grow() {
+		final long[] newTimes = new long[times.length * 2];
+		final double[] newValues = new double[values.length * 2];
+		for (int i = 0; i < count; i++) {
+			newTimes[i] = times[(head + i) % times.length];
+			newValues[i] = values[(head + i) % values.length];
+		}
+		times = newTimes;
+		values = newValues;
+		head = 0;
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		head = 0;
+		count = 0;
+		sum = 0;
+	}
+}
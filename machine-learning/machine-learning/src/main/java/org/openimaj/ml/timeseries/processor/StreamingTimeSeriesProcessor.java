@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.timeseries.processor;
+
+import org.openimaj.ml.timeseries.series.DoubleTimeSeries;
+
+/**
+ * A processor which is handed a {@link DoubleTimeSeries} one point at a time
+ * and emits its output as soon as it is known, rather than recomputing over
+ * the whole series. Emitted points are appended to an output
+ * {@link DoubleTimeSeries} which can be taken with {@link #takeOutput()} as
+ * often as is convenient, so a live stream need not be held in memory.
+ * <p>
+ * Processing a whole series with {@link #process(DoubleTimeSeries)} streams
+ * its points through the processor, so a streaming processor can stand in for
+ * its batch counterpart.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public abstract class StreamingTimeSeriesProcessor implements TimeSeriesProcessor<double[], Double, DoubleTimeSeries> {
+	private DoubleTimeSeries output = new DoubleTimeSeries();
+	private boolean started = false;
+	private long lastTime;
+
+	/**
+	 * Add the next point of the series. Points must be added in time order.
+	 *
+	 * @param time
+	 * @param value
+	 */
+	public void add(long time, double value) {
+		if (started && time < lastTime)
+			throw new IllegalArgumentException("Points must be added in time order: " + time + " < " + lastTime);
+		started = true;
+		lastTime = time;
+		addPoint(time, value);
+	}
+
+	/**
+	 * Handle the next point of the series, already checked to be in time
+	 * order
+	 *
+	 * @param time
+	 * @param value
+	 */
+	protected abstract void addPoint(long time, double value);
+
+	/**
+	 * The series has ended: emit anything still held back waiting for later
+	 * points and {@link #reset()} ready for a new series
+	 */
+	public void flush() {
+		reset();
+	}
+
+	/**
+	 * Forget every point added, without emitting anything. Output already
+	 * emitted is kept.
+	 */
+	public void reset() {
+		started = false;
+	}
+
+	/**
+	 * @param time
+	 * @param value
+	 *            an output point, in time order
+	 */
+	protected void emit(long time, double value) {
+		output.add(time, value);
+	}
+
+	/**
+	 * @return the points emitted since the output was last taken
+	 */
+	public DoubleTimeSeries getOutput() {
+		return output;
+	}
+
+	/**
+	 * @return the points emitted since the output was last taken, after which
+	 *         the processor starts a new output
+	 */
+	public DoubleTimeSeries takeOutput() {
+		final DoubleTimeSeries ret = output;
+		output = new DoubleTimeSeries();
+		return ret;
+	}
+
+	/**
+	 * Stream every point of the series through a fresh processor and replace
+	 * the series with the output. Points added and output not taken before
+	 * this call are discarded.
+	 */
+	@Override
+	public void process(DoubleTimeSeries series) {
+		reset();
+		takeOutput();
+		final long[] times = series.getTimes();
+		final double[] data = series.getData();
+		for (int i = 0; i < series.size(); i++) {
+			add(times[i], data[i]);
+		}
+		flush();
+		series.internalAssign(takeOutput());
+	}
+}
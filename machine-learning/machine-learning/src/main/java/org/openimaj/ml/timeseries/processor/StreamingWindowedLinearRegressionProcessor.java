@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.timeseries.processor;
+
+import java.util.Arrays;
+
+import org.openimaj.ml.regression.LinearRegression;
+import org.openimaj.ml.timeseries.series.DoubleTimeSeries;
+
+import Jama.Matrix;
+import Jama.SingularValueDecomposition;
+
+/**
+ * The streaming counterpart of {@link WindowedLinearRegressionProcessor}. Each
+ * point is regressed against the windowsize values ending offset points
+ * before it (plus a constant). The regression is the least squares fit of
+ * every such window seen so far and is kept up to date with rank-one updates:
+ * the sufficient statistics X^T X and X^T y grow by one outer product per
+ * point and, once X^T X is full rank, its inverse is updated with the
+ * Sherman-Morrison formula. Each point costs O(windowsize^2) work. Until X^T X
+ * is full rank the minimum norm solution is taken, as the SVD used by
+ * {@link LinearRegression} would.
+ * <p>
+ * Each point added after the first windowsize + offset - 1 is emitted as its
+ * prediction from the fit so far, including the point itself. This differs
+ * from {@link WindowedLinearRegressionProcessor}, which predicts every point
+ * from the fit over the whole series, everywhere but the last point.
+ * {@link #process(DoubleTimeSeries)} has the whole series, so it fits once
+ * over every window and gives the same output as the batch processor. Given
+ * a {@link LinearRegression} the processor only predicts with it.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class StreamingWindowedLinearRegressionProcessor extends StreamingTimeSeriesProcessor {
+	private static final int DEFAULT_WINDOW_SIZE = 3;
+	private static final int DEFAULT_OFFSET = 1;
+
+	private int windowsize;
+	private int offset;
+	private LinearRegression reg;
+
+	// the previous windowsize + offset - 1 values, oldest at head
+	private double[] history;
+	private int head;
+	private int count;
+
+	private double[] x;
+	private double[][] xtx;
+	private double[] xty;
+	private double[][] inverse;
+	private double[] weights;
+	private double[] px;
+	private int ninstances;
+
+	/**
+	 * A window of 3 ending 1 point before each point
+	 */
+	public StreamingWindowedLinearRegressionProcessor() {
+		this(DEFAULT_WINDOW_SIZE, DEFAULT_OFFSET);
+	}
+
+	/**
+	 * @param windowsize
+	 *            the number of values each point is regressed against
+	 */
+	public StreamingWindowedLinearRegressionProcessor(int windowsize) {
+		this(windowsize, DEFAULT_OFFSET);
+	}
+
+	/**
+	 * @param windowsize
+	 *            the number of values each point is regressed against
+	 * @param offset
+	 *            the distance from the end of the window to the point
+	 */
+	public StreamingWindowedLinearRegressionProcessor(int windowsize, int offset) {
+		this.windowsize = windowsize;
+		this.offset = offset;
+		this.history = new double[windowsize + offset - 1];
+		this.x = new double[windowsize + 1];
+		this.px = new double[windowsize + 1];
+		this.weights = new double[windowsize + 1];
+		this.xtx = new double[windowsize + 1][windowsize + 1];
+		this.xty = new double[windowsize + 1];
+	}
+
+	/**
+	 * @param reg
+	 *            a regression, over windows of 3 ending 1 point before each
+	 *            point, used without being updated
+	 */
+	public StreamingWindowedLinearRegressionProcessor(LinearRegression reg) {
+		this(reg, DEFAULT_WINDOW_SIZE, DEFAULT_OFFSET);
+	}
+
+	/**
+	 * @param reg
+	 *            a regression used without being updated
+	 * @param windowsize
+	 *            the window the regression was estimated with
+	 * @param offset
+	 *            the offset the regression was estimated with
+	 */
+	public StreamingWindowedLinearRegressionProcessor(LinearRegression reg, int windowsize, int offset) {
+		this(windowsize, offset);
+		this.reg = reg;
+	}
+
+	@Override
+	protected void addPoint(long time, double value) {
+		if (count == history.length) {
+			x[0] = 1;
+			for (int i = 0; i < windowsize; i++)
+				x[i + 1] = history[(head + i) % history.length];
+
+			if (reg != null) {
+				final double[] window = new double[windowsize];
+				System.arraycopy(x, 1, window, 0, windowsize);
+				emit(time, reg.predict(window)[0]);
+			}
+			else {
+				update(value);
+				double prediction = 0;
+				for (int i = 0; i < x.length; i++)
+					prediction += weights[i] * x[i];
+				emit(time, prediction);
+			}
+		}
+
+		if (history.length == 0)
+			return;
+		if (count < history.length) {
+			history[(head + count) % history.length] = value;
+			count++;
+		}
+		else {
+			history[head] = value;
+			head = (head + 1) % history.length;
+		}
+	}
+
+	/**
+	 * Add the instance (x, y) to the fit and recalculate the weights
+	 */
+	private void update(double y) {
+		final int d = x.length;
+		for (int i = 0; i < d; i++) {
+			for (int j = 0; j < d; j++)
+				xtx[i][j] += x[i] * x[j];
+			xty[i] += x[i] * y;
+		}
+		ninstances++;
+
+		if (inverse != null) {
+			// Sherman-Morrison: (A + xx^T)^-1 = P - (Px)(Px)^T / (1 + x^T P x)
+			double xpx = 0;
+			for (int i = 0; i < d; i++) {
+				double s = 0;
+				for (int j = 0; j < d; j++)
+					s += inverse[i][j] * x[j];
+				px[i] = s;
+				xpx += x[i] * s;
+			}
+			final double denom = 1 + xpx;
+			for (int i = 0; i < d; i++)
+				for (int j = 0; j < d; j++)
+					inverse[i][j] -= px[i] * px[j] / denom;
+		}
+		else if (ninstances >= d) {
+			final Matrix a = new Matrix(xtx);
+			if (a.rank() == d)
+				inverse = a.inverse().getArray();
+		}
+
+		if (inverse != null) {
+			for (int i = 0; i < d; i++) {
+				double w = 0;
+				for (int j = 0; j < d; j++)
+					w += inverse[i][j] * xty[j];
+				weights[i] = w;
+			}
+		}
+		else {
+			minimumNormWeights();
+		}
+	}
+
+	/**
+	 * weights = pinv(X^T X) X^T y, the minimum norm least squares solution
+	 */
+	private void minimumNormWeights() {
+		final int d = x.length;
+		final SingularValueDecomposition svd = new Matrix(xtx).svd();
+		final double[] s = svd.getSingularValues();
+		final double[][] u = svd.getU().getArray();
+		final double[][] v = svd.getV().getArray();
+		final double tol = d * s[0] * Math.ulp(1.0);
+		for (int i = 0; i < d; i++)
+			weights[i] = 0;
+		for (int k = 0; k < s.length; k++) {
+			if (s[k] <= tol)
+				continue;
+			double uty = 0;
+			for (int i = 0; i < d; i++)
+				uty += u[i][k] * xty[i];
+			for (int i = 0; i < d; i++)
+				weights[i] += v[i][k] * uty / s[k];
+		}
+	}
+
+	/**
+	 * Fit the regression once over every window of the series and predict
+	 * each point from that fit, as {@link WindowedLinearRegressionProcessor}
+	 * does, rather than streaming the points through the online fit. Points
+	 * added and output not taken before this call are discarded.
+	 */
+	@Override
+	public void process(DoubleTimeSeries series) {
+		if (reg != null) {
+			super.process(series);
+			return;
+		}
+		reset();
+		takeOutput();
+		final int first = windowsize + offset - 1;
+		final long[] times = series.getTimes();
+		final double[] data = series.getData();
+		final int ninstances = Math.max(series.size() - first, 0);
+		final double[][] windows = new double[ninstances][];
+		final double[][] y = new double[ninstances][];
+		for (int i = 0; i < ninstances; i++) {
+			windows[i] = Arrays.copyOfRange(data, i, i + windowsize);
+			y[i] = new double[] { data[i + first] };
+		}
+		if (ninstances > 0) {
+			final LinearRegression fit = new LinearRegression();
+			fit.estimate(y, windows);
+			for (int i = 0; i < ninstances; i++)
+				emit(times[i + first], fit.predict(windows[i])[0]);
+		}
+		series.internalAssign(takeOutput());
+	}
+
+	/**
+	 * @return the current weights of the fit, the constant first. Nothing
+	 *         is fitted when a {@link LinearRegression} was given.
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Forget every point added, including the fit
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+		head = 0;
+		count = 0;
+		for (int i = 0; i < xtx.length; i++) {
+			Arrays.fill(xtx[i], 0);
+		}
+		Arrays.fill(xty, 0);
+		Arrays.fill(weights, 0);
+		inverse = null;
+		ninstances = 0;
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.timeseries.processor.interpolation;
+
+import org.openimaj.ml.timeseries.processor.StreamingTimeSeriesProcessor;
+
+/**
+ * The streaming counterpart of {@link LinearInterpolationProcessor}. Each
+ * requested time is emitted as soon as the first point at or after it is
+ * added, interpolated between that point and the one before it; only the last
+ * point is held, so each point costs O(1) work plus the times it emits.
+ * Requested times before the first point take the first value and, on
+ * {@link #flush()}, requested times after the last point take the last value,
+ * exactly as {@link LinearInterpolationProcessor} does.
+ * <p>
+ * The requested times are either a fixed array or an unbounded grid of
+ * evenly spaced times, which suits a live stream.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class StreamingLinearInterpolationProcessor extends StreamingTimeSeriesProcessor {
+	private long[] times;
+	private boolean gridFromFirst;
+	private long begin;
+	private long delta;
+
+	private int next;
+	private boolean seenFirst;
+	private long lastTime;
+	private double lastValue;
+
+	/**
+	 * Interpolate every unit of time from the first point onwards, as
+	 * {@link LinearInterpolationProcessor#LinearInterpolationProcessor()}
+	 */
+	public StreamingLinearInterpolationProcessor() {
+		this.gridFromFirst = true;
+		this.delta = 1;
+	}
+
+	/**
+	 * @param times
+	 *            the times to interpolate, in ascending order
+	 */
+	public StreamingLinearInterpolationProcessor(long[] times) {
+		this.times = times;
+	}
+
+	/**
+	 * @param begin
+	 *            the first time to interpolate
+	 * @param delta
+	 *            the time between interpolated times
+	 */
+	public StreamingLinearInterpolationProcessor(long begin, long delta) {
+		this.begin = begin;
+		this.delta = delta;
+	}
+
+	/**
+	 * @return the next time to interpolate or {@link Long#MAX_VALUE} if there
+	 *         are no more
+	 */
+	private long nextTime() {
+		if (times != null)
+			return next < times.length ? times[next] : Long.MAX_VALUE;
+		return begin + next * delta;
+	}
+
+	@Override
+	protected void addPoint(long time, double value) {
+		if (!seenFirst) {
+			if (gridFromFirst)
+				begin = time;
+			// times up to the first point take its value
+			long t;
+			while ((t = nextTime()) <= time) {
+				emit(t, value);
+				next++;
+			}
+		}
+		else {
+			long t;
+			while ((t = nextTime()) <= time) {
+				if (t == time) {
+					emit(t, value);
+				}
+				else {
+					// as LinearInterpolationProcessor
+					final double sum = time - lastTime;
+					final double weightLeft = sum - (t - lastTime);
+					final double weightRight = sum - (time - t);
+					emit(t, ((lastValue * weightLeft) + (value * weightRight)) / sum);
+				}
+				next++;
+			}
+		}
+		seenFirst = true;
+		lastTime = time;
+		lastValue = value;
+	}
+
+	/**
+	 * Emit any requested times after the last point with its value. An
+	 * unbounded grid ends at the last point.
+	 */
+	@Override
+	public void flush() {
+		if (seenFirst && times != null) {
+			for (; next < times.length; next++)
+				emit(times[next], lastValue);
+		}
+		super.flush();
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		next = 0;
+		seenFirst = false;
+	}
+}
@@ -43,6 +43,11 @@ import org.openimaj.ml.timeseries.collection.TimeSeriesCollectionAssignable;
 import org.openimaj.util.pair.IndependentPair;
 
 /**
+ * A time series of doubles held in a pair of primitive arrays sorted by time.
+ * Range queries are binary searches over the times. Points can be added in
+ * any order with {@link #add(long, double)}; the arrays grow by doubling so
+ * adding points in time order is amortised O(1).
+ *
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  *
  */
@@ -86,10 +91,10 @@ public class DoubleTimeSeries extends TimeSeries<double[],Double,DoubleTimeSerie
 		size = this.data.length;
 	}
 	private int[] findStartEnd(long time, int nbefore, int nafter){
-		int index = Arrays.binarySearch(times, time);
+		int index = Arrays.binarySearch(times, 0, size, time);
 		int fixed = index < 0 ? -1 * (index + 1) : index;
 		int start = 0;
-		int end = times.length - 1;
+		int end = size - 1;
 		
 		start = fixed- nbefore;
 		// couldn't find it
@@ -101,9 +106,30 @@ public class DoubleTimeSeries extends TimeSeries<double[],Double,DoubleTimeSerie
 			end = fixed + nafter + 1;
 		}
 		if(start < 0) start= 0;
-		if(end > times.length) end = times.length;
+		if(end > size) end = size;
 		return new int[]{start,end};
 	}
+
+	/**
+	 * @return the index of the first time &gt;= time
+	 */
+	private int lowerBound(long time) {
+		int index = Arrays.binarySearch(times, 0, size, time);
+		if(index < 0) return -1 * (index + 1);
+		// find the first of any repeated times
+		while(index > 0 && times[index-1] == time) index--;
+		return index;
+	}
+
+	/**
+	 * @return the index after the last time &lt;= time
+	 */
+	private int upperBound(long time) {
+		int index = Arrays.binarySearch(times, 0, size, time);
+		if(index < 0) return -1 * (index + 1);
+		while(index < size && times[index] == time) index++;
+		return index;
+	}
 	@Override
 	public DoubleTimeSeries get(long time, int nbefore, int nafter) {
 		if(nbefore < 0 || nafter < 0)
@@ -122,6 +148,7 @@ public class DoubleTimeSeries extends TimeSeries<double[],Double,DoubleTimeSerie
 	@Override
 	public DoubleTimeSeries get(long time, int nbefore, int nafter, DoubleTimeSeries output) {
 		int[] startend = findStartEnd(time, nbefore, nafter);
+		output.ensureCapacity(startend[1]-startend[0]);
 		System.arraycopy(this.data, startend[0], output.data, 0, startend[1]-startend[0]);
 		System.arraycopy(this.times, startend[0], output.times, 0, startend[1]-startend[0]);
 		output.size = startend[1]-startend[0];
@@ -133,12 +160,11 @@ public class DoubleTimeSeries extends TimeSeries<double[],Double,DoubleTimeSerie
 		if(threshafter < 0 || threshbefore < 0){
 			return new DoubleTimeSeries();
 		}
-		int[] startend = findStartEnd(time, 0, 0);
-		int start = startend[0];
-		int end = start;
-		// Find the index range
-		while(start > 0 && times[start-1] >= time - threshbefore) start--;
-		while(end < times.length && times[end] <= time + threshafter) end++;
+		// saturate rather than overflow for unbounded windows
+		long minTime = time - threshbefore;
+		long maxTime = time + threshafter;
+		int start = minTime > time ? 0 : lowerBound(minTime);
+		int end = maxTime < time ? size : upperBound(maxTime);
 		
 		double[] dataoutput = new double[end - start];
 		System.arraycopy(this.data, start, dataoutput, 0, dataoutput.length);
@@ -164,12 +190,56 @@ public class DoubleTimeSeries extends TimeSeries<double[],Double,DoubleTimeSerie
 		this.data = data;
 		this.size = data.length;
 	}
+	/**
+	 * Add a value at a time, replacing any value already held at that time.
+	 * Appending at the end of the series doesn't move any values.
+	 *
+	 * @param time
+	 * @param value
+	 */
+	public void add(long time, double value) {
+		int index = size;
+		if(size > 0 && times[size-1] >= time){
+			index = Arrays.binarySearch(times, 0, size, time);
+			if(index >= 0){
+				data[index] = value;
+				return;
+			}
+			index = -1 * (index + 1);
+		}
+		ensureCapacity(size + 1);
+		System.arraycopy(times, index, times, index + 1, size - index);
+		System.arraycopy(data, index, data, index + 1, size - index);
+		times[index] = time;
+		data[index] = value;
+		size++;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if(times.length >= capacity && data.length >= capacity) return;
+		int grown = Math.max(capacity, Math.max(4, times.length * 2));
+		times = Arrays.copyOf(times, grown);
+		data = Arrays.copyOf(data, grown);
+	}
+
+	/**
+	 * Drop any spare capacity so the arrays handed out are exactly
+	 * {@link #size()} long. The arrays are then still those backing the
+	 * series, so processors can write to them directly.
+	 */
+	private void trim() {
+		if(times.length != size) times = Arrays.copyOf(times, size);
+		if(data.length != size) data = Arrays.copyOf(data, size);
+	}
+
 	@Override
 	public long[] getTimes() {
+		trim();
 		return this.times;
 	}
 	@Override
 	public double[] getData() {
+		trim();
 		return this.data;
 	}
 	@Override
@@ -183,8 +253,8 @@ public class DoubleTimeSeries extends TimeSeries<double[],Double,DoubleTimeSerie
 	}
 	@Override
 	public void internalAssign(DoubleTimeSeries interpolate) {
-		this.data = Arrays.copyOf(interpolate.data, interpolate.data.length);
-		this.times = Arrays.copyOf(interpolate.times, interpolate.times.length);
+		this.data = Arrays.copyOf(interpolate.data, interpolate.size());
+		this.times = Arrays.copyOf(interpolate.times, interpolate.size());
 		this.size = interpolate.size();
 	}
 	@Override
@@ -271,7 +341,7 @@ public class DoubleTimeSeries extends TimeSeries<double[],Double,DoubleTimeSerie
 	@Override
 	public Double sum() {
 		double s = 0;
-		for (int i = 0; i < this.data.length; i++) {
+		for (int i = 0; i < this.size; i++) {
 			s += this.data[i];
 		}
 		return s;
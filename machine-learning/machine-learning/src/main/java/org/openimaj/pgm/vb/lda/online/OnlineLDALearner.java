@@ -0,0 +1,417 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.pgm.vb.lda.online;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math.special.Gamma;
+import org.openimaj.pgm.util.Document;
+import org.openimaj.pgm.vb.lda.mle.LDAModel;
+import org.openimaj.util.array.SparseIntArray.Entry;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
+
+import cern.jet.random.engine.MersenneTwister;
+
+/**
+ * An implementation of online variational Bayes LDA as described by Hoffman,
+ * Blei and Bach, "Online Learning for Latent Dirichlet Allocation", 2010.
+ * <p>
+ * Rather than sweeping a whole corpus, the learner is fed minibatches of
+ * {@link Document}s with {@link #update(List)}. The variational parameters of
+ * each document in a minibatch are inferred in parallel against the current
+ * topics, after which the topic-word parameters (lambda) are moved towards the
+ * minibatch's estimate with the learning rate (tau0 + t)^-kappa. Documents are
+ * not held once they have been processed so the memory used is proportional to
+ * ntopics x vocabulary size however many documents are seen. The topic
+ * statistics are accumulated in document order so the result does not depend
+ * on the number of threads used.
+ * 
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ * 
+ */
+public class OnlineLDALearner {
+	private static final double PHI_NORM_EPSILON = 1e-100;
+
+	private int ntopics;
+	private int vocabularySize;
+	private Map<OnlineLDAConfig, Object> config = new HashMap<OnlineLDAConfig, Object>();
+
+	private double[][] lambda;
+	private double[][] expElogbeta;
+	private double[][] sstats;
+	private int updates;
+	private long documentsSeen;
+
+	/**
+	 * Configuration of the online learner
+	 * 
+	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+	 * 
+	 */
+	public enum OnlineLDAConfig {
+		/**
+		 * The dirichlet parameter of the topic proportions of a document
+		 */
+		ALPHA {
+			@Override
+			public Double defaultValue() {
+				return 0.1d;
+			}
+		},
+		/**
+		 * The dirichlet parameter of the topic word distributions
+		 */
+		ETA {
+			@Override
+			public Double defaultValue() {
+				return 0.01d;
+			}
+		},
+		/**
+		 * Down weights the early updates, tau0 &gt;= 0
+		 */
+		TAU0 {
+			@Override
+			public Double defaultValue() {
+				return 1024d;
+			}
+		},
+		/**
+		 * The rate at which old information is forgotten, kappa in (0.5,1]
+		 */
+		KAPPA {
+			@Override
+			public Double defaultValue() {
+				return 0.7d;
+			}
+		},
+		/**
+		 * The (estimated) total number of documents. When this is not positive
+		 * the number of documents seen so far is used, which suits unbounded
+		 * streams
+		 */
+		CORPUS_SIZE {
+			@Override
+			public Long defaultValue() {
+				return -1l;
+			}
+		},
+		/**
+		 * The maximum number of iterations of the per document inference
+		 */
+		VAR_MAX_ITERATIONS {
+			@Override
+			public Integer defaultValue() {
+				return 100;
+			}
+		},
+		/**
+		 * The per document inference stops when the mean change in gamma falls
+		 * below this value
+		 */
+		VAR_CONVERGED {
+			@Override
+			public Double defaultValue() {
+				return 1e-3;
+			}
+		};
+		/**
+		 * @return the value used when none is configured
+		 */
+		public abstract Object defaultValue();
+	}
+
+	/**
+	 * Holds the variational parameters of a single document of a minibatch
+	 */
+	private static class DocumentState {
+		int[] words;
+		int[] counts;
+		double[] gamma;
+		double[] expElogtheta;
+		double[] phinorm;
+	}
+
+	/**
+	 * Topics are initialised with an unseeded random
+	 * 
+	 * @param ntopics
+	 * @param vocabularySize
+	 */
+	public OnlineLDALearner(int ntopics, int vocabularySize) {
+		this(ntopics, vocabularySize, new MersenneTwister(new Date()));
+	}
+
+	/**
+	 * @param ntopics
+	 * @param vocabularySize
+	 * @param seed
+	 *            seeds the initialisation of the topics
+	 */
+	public OnlineLDALearner(int ntopics, int vocabularySize, int seed) {
+		this(ntopics, vocabularySize, new MersenneTwister(seed));
+	}
+
+	private OnlineLDALearner(int ntopics, int vocabularySize, MersenneTwister random) {
+		this.ntopics = ntopics;
+		this.vocabularySize = vocabularySize;
+		this.lambda = new double[ntopics][vocabularySize];
+		this.expElogbeta = new double[ntopics][vocabularySize];
+		this.sstats = new double[ntopics][vocabularySize];
+
+		// as Hoffman et al. lambda starts as draws from Gamma(100,1/100)
+		final cern.jet.random.Gamma gamma = new cern.jet.random.Gamma(100, 100, random);
+		for (int topicIndex = 0; topicIndex < ntopics; topicIndex++) {
+			for (int wordIndex = 0; wordIndex < vocabularySize; wordIndex++) {
+				lambda[topicIndex][wordIndex] = gamma.nextDouble();
+			}
+			updateExpElogbeta(topicIndex);
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return the configuration parameter value
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getConfig(OnlineLDAConfig key) {
+		final T val = (T) this.config.get(key);
+		if (val == null)
+			return (T) key.defaultValue();
+		return val;
+	}
+
+	/**
+	 * @param key
+	 * @param value
+	 *            the configuration parameter value, of the type of the key's
+	 *            {@link OnlineLDAConfig#defaultValue()}
+	 */
+	public void setConfig(OnlineLDAConfig key, Object value) {
+		this.config.put(key, value);
+	}
+
+	/**
+	 * Infer the variational parameters of each document of the minibatch and
+	 * update the topics
+	 * 
+	 * @param minibatch
+	 */
+	public void update(final List<? extends Document> minibatch) {
+		if (minibatch.size() == 0)
+			return;
+		final DocumentState[] states = new DocumentState[minibatch.size()];
+		Parallel.forIndex(0, states.length, 1, new Operation<Integer>() {
+			@Override
+			public void perform(Integer object) {
+				states[object] = performE(minibatch.get(object));
+			}
+		});
+
+		documentsSeen += states.length;
+		final long corpusSize = (Long) this.getConfig(OnlineLDAConfig.CORPUS_SIZE);
+		final double tau0 = (Double) this.getConfig(OnlineLDAConfig.TAU0);
+		final double kappa = (Double) this.getConfig(OnlineLDAConfig.KAPPA);
+		final double eta = (Double) this.getConfig(OnlineLDAConfig.ETA);
+		final double rho = Math.pow(tau0 + updates, -kappa);
+		final double scale = (corpusSize > 0 ? corpusSize : documentsSeen) / (double) states.length;
+
+		Parallel.forIndex(0, ntopics, 1, new Operation<Integer>() {
+			@Override
+			public void perform(Integer object) {
+				performM(object, states, rho, scale, eta);
+			}
+		});
+		updates++;
+	}
+
+	/**
+	 * Infer the topic proportions of a document given the current topics. The
+	 * topics are not changed.
+	 * 
+	 * @param doc
+	 * @return the variational dirichlet parameter (gamma) of the document's
+	 *         topic proportions
+	 */
+	public double[] inference(Document doc) {
+		return performE(doc).gamma;
+	}
+
+	private DocumentState performE(Document doc) {
+		final double alpha = (Double) this.getConfig(OnlineLDAConfig.ALPHA);
+		final int maxIterations = (Integer) this.getConfig(OnlineLDAConfig.VAR_MAX_ITERATIONS);
+		final double converged = (Double) this.getConfig(OnlineLDAConfig.VAR_CONVERGED);
+
+		final DocumentState state = new DocumentState();
+		final int nwords = doc.countUniqueWords();
+		state.words = new int[nwords];
+		state.counts = new int[nwords];
+		state.gamma = new double[ntopics];
+		state.expElogtheta = new double[ntopics];
+		state.phinorm = new double[nwords];
+
+		int docWordIndex = 0;
+		double length = 0;
+		for (final Entry wordCount : doc.getVector().entries()) {
+			state.words[docWordIndex] = wordCount.index;
+			state.counts[docWordIndex] = wordCount.value;
+			length += wordCount.value;
+			docWordIndex++;
+		}
+		for (int topicIndex = 0; topicIndex < ntopics; topicIndex++) {
+			state.gamma[topicIndex] = alpha + length / ntopics;
+		}
+		updatePhinorm(state);
+
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			double meanChange = 0;
+			for (int topicIndex = 0; topicIndex < ntopics; topicIndex++) {
+				// eqn 17 in blei 2003 with phi expanded as the normalised
+				// product of exp(E[log theta]) and exp(E[log beta])
+				final double[] topicBeta = expElogbeta[topicIndex];
+				double sum = 0;
+				for (int n = 0; n < nwords; n++) {
+					sum += state.counts[n] / state.phinorm[n] * topicBeta[state.words[n]];
+				}
+				final double gamma = alpha + state.expElogtheta[topicIndex] * sum;
+				meanChange += Math.abs(gamma - state.gamma[topicIndex]);
+				state.gamma[topicIndex] = gamma;
+			}
+			updatePhinorm(state);
+			if (meanChange / ntopics < converged)
+				break;
+		}
+		return state;
+	}
+
+	/**
+	 * Set exp(E[log theta]) from the document's gamma and the normaliser of
+	 * each word's phi
+	 */
+	private void updatePhinorm(DocumentState state) {
+		double sumGamma = 0;
+		for (int topicIndex = 0; topicIndex < ntopics; topicIndex++) {
+			sumGamma += state.gamma[topicIndex];
+		}
+		final double digammaSum = Gamma.digamma(sumGamma);
+		for (int topicIndex = 0; topicIndex < ntopics; topicIndex++) {
+			state.expElogtheta[topicIndex] = Math.exp(Gamma.digamma(state.gamma[topicIndex]) - digammaSum);
+		}
+		for (int n = 0; n < state.words.length; n++) {
+			final int word = state.words[n];
+			double phinorm = PHI_NORM_EPSILON;
+			for (int topicIndex = 0; topicIndex < ntopics; topicIndex++) {
+				phinorm += state.expElogtheta[topicIndex] * expElogbeta[topicIndex][word];
+			}
+			state.phinorm[n] = phinorm;
+		}
+	}
+
+	/**
+	 * Accumulate a topic's sufficient statistics over the minibatch and blend
+	 * them into lambda with weight rho
+	 */
+	private void performM(int topicIndex, DocumentState[] states, double rho, double scale, double eta) {
+		final double[] topicStats = sstats[topicIndex];
+		final double[] topicLambda = lambda[topicIndex];
+		final double[] topicBeta = expElogbeta[topicIndex];
+		for (int wordIndex = 0; wordIndex < vocabularySize; wordIndex++) {
+			topicStats[wordIndex] = 0;
+		}
+		for (final DocumentState state : states) {
+			final double theta = state.expElogtheta[topicIndex];
+			for (int n = 0; n < state.words.length; n++) {
+				topicStats[state.words[n]] += theta * state.counts[n] / state.phinorm[n];
+			}
+		}
+		for (int wordIndex = 0; wordIndex < vocabularySize; wordIndex++) {
+			final double estimate = eta + scale * topicStats[wordIndex] * topicBeta[wordIndex];
+			topicLambda[wordIndex] = (1 - rho) * topicLambda[wordIndex] + rho * estimate;
+		}
+		updateExpElogbeta(topicIndex);
+	}
+
+	private void updateExpElogbeta(int topicIndex) {
+		final double[] topicLambda = lambda[topicIndex];
+		final double[] topicBeta = expElogbeta[topicIndex];
+		double sum = 0;
+		for (int wordIndex = 0; wordIndex < vocabularySize; wordIndex++) {
+			sum += topicLambda[wordIndex];
+		}
+		final double digammaSum = Gamma.digamma(sum);
+		for (int wordIndex = 0; wordIndex < vocabularySize; wordIndex++) {
+			topicBeta[wordIndex] = Math.exp(Gamma.digamma(topicLambda[wordIndex]) - digammaSum);
+		}
+	}
+
+	/**
+	 * @return the variational dirichlet parameters of the topic word
+	 *         distributions, ntopics x vocabulary size. This is the learner's
+	 *         own state and should not be modified.
+	 */
+	public double[][] getLambda() {
+		return lambda;
+	}
+
+	/**
+	 * @return the number of minibatches processed
+	 */
+	public int getUpdateCount() {
+		return updates;
+	}
+
+	/**
+	 * @return the number of documents processed
+	 */
+	public long getDocumentsSeen() {
+		return documentsSeen;
+	}
+
+	/**
+	 * @return a copy of the current topics as an {@link LDAModel}, lambda
+	 *         being used as the topic word statistics
+	 */
+	public LDAModel getModel() {
+		final LDAModel model = new LDAModel(ntopics);
+		model.prepare(vocabularySize);
+		model.setAlpha((Double) this.getConfig(OnlineLDAConfig.ALPHA));
+		for (int topicIndex = 0; topicIndex < ntopics; topicIndex++) {
+			for (int wordIndex = 0; wordIndex < vocabularySize; wordIndex++) {
+				model.incTopicWord(topicIndex, wordIndex, lambda[topicIndex][wordIndex]);
+				model.incTopicTotal(topicIndex, lambda[topicIndex][wordIndex]);
+			}
+		}
+		return model;
+	}
+}
@@ -0,0 +1,123 @@
+package org.openimaj.math.matrix;
+
+import gov.sandia.cognition.math.matrix.Matrix;
+import gov.sandia.cognition.math.matrix.MatrixEntry;
+import gov.sandia.cognition.math.matrix.mtj.DenseMatrixFactoryMTJ;
+import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
+
+import java.util.Random;
+
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
+
+/**
+ * Times {@link ThreadedMatrixMulti} against the single threaded MTJ
+ * multiplication and the previous one task per element multiplication on the
+ * shapes of the products made by the bilinear learners: X is words x users
+ * and sparse, W is words x tasks and U is users x tasks.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class ThreadedMatrixMultiBenchmark {
+	private static final int NWORDS = 20000;
+	private static final int NUSERS = 200;
+	private static final int NTASKS = 2;
+	private static final int REPEAT = 20;
+
+	/**
+	 * @param args
+	 *            ignored
+	 */
+	public static void main(String[] args) {
+		final Random random = new Random(1);
+		final Matrix xt = matrix(NUSERS, NWORDS, 0.01, random);
+		final Matrix w = matrix(NWORDS, NTASKS, 1, random);
+		final Matrix ut = matrix(NTASKS, NUSERS, 1, random);
+		final Matrix dense = matrix(500, 500, 1, random);
+
+		time("X^T W (sparse x dense)", xt, w);
+		time("U^T X^T (dense x sparse)", ut, xt);
+		time("(U^T X^T) W (dense x dense)", ut.times(xt), w);
+		time("500x500 (dense x dense)", dense, dense);
+	}
+
+	private static void time(String name, Matrix a, Matrix b) {
+		final ThreadedMatrixMulti tiled = new ThreadedMatrixMulti();
+		final PerElementMultiply perElement = new PerElementMultiply();
+
+		// warm up
+		a.times(b);
+		tiled.times(a, b);
+		perElement.times(a, b);
+
+		long mtj = 0, tile = 0, element = 0;
+		double diff = 0;
+		for (int i = 0; i < REPEAT; i++) {
+			long t = System.nanoTime();
+			final Matrix expected = a.times(b);
+			mtj += System.nanoTime() - t;
+
+			t = System.nanoTime();
+			final Matrix actual = tiled.times(a, b);
+			tile += System.nanoTime() - t;
+
+			t = System.nanoTime();
+			perElement.times(a, b);
+			element += System.nanoTime() - t;
+
+			diff = Math.max(diff, CFMatrixUtils.absSum(expected.minus(actual)));
+		}
+		System.out.println(String.format("%s: mtj %.2fms, tiled %.2fms, per element %.2fms, |mtj - tiled| %g",
+				name, mtj / 1e6 / REPEAT, tile / 1e6 / REPEAT, element / 1e6 / REPEAT, diff));
+	}
+
+	private static Matrix matrix(int rows, int cols, double density, Random random) {
+		final Matrix m = density < 1 ? SparseMatrixFactoryMTJ.INSTANCE.createMatrix(rows, cols)
+				: DenseMatrixFactoryMTJ.INSTANCE.createMatrix(rows, cols);
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				if (density >= 1 || random.nextDouble() < density)
+					m.setElement(i, j, random.nextGaussian());
+		return m;
+	}
+
+	/**
+	 * The previous {@link ThreadedMatrixMulti}, which gave each element of the
+	 * answer its own task
+	 */
+	private static class PerElementMultiply {
+		private double[][] answer;
+		private double[][] a;
+		private double[][] b;
+		private int answerCols;
+
+		public Matrix times(Matrix am, Matrix bm) {
+			this.a = fromMatrix(am);
+			this.b = fromMatrix(bm);
+			this.answerCols = b[0].length;
+			this.answer = new double[a.length][answerCols];
+			Parallel.forIndex(0, a.length * answerCols, 1, new Operation<Integer>() {
+				@Override
+				public void perform(Integer object) {
+					final int rowi = object / answerCols;
+					final int coli = object - (rowi * answerCols);
+					double dot = 0;
+					for (int i = 0; i < a[rowi].length; i++) {
+						dot += a[rowi][i] * b[i][coli];
+					}
+					answer[rowi][coli] = dot;
+				}
+			});
+			return DenseMatrixFactoryMTJ.INSTANCE.copyArray(this.answer);
+		}
+
+		private static double[][] fromMatrix(Matrix a) {
+			final double[][] ret = new double[a.getNumRows()][a.getNumColumns()];
+			for (final MatrixEntry ds : a) {
+				ret[ds.getRowIndex()][ds.getColumnIndex()] = ds.getValue();
+			}
+			return ret;
+		}
+	}
+}
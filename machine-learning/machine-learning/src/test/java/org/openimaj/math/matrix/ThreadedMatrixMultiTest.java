@@ -0,0 +1,136 @@
+package org.openimaj.math.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import gov.sandia.cognition.math.matrix.Matrix;
+import gov.sandia.cognition.math.matrix.mtj.DenseMatrixFactoryMTJ;
+import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks each combination of dense and sparse operands of
+ * {@link ThreadedMatrixMulti} against a naive multiplication
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class ThreadedMatrixMultiTest {
+	// not multiples of the tile sizes
+	private static final int ROWS = ThreadedMatrixMulti.TILE_ROWS * 2 + 13;
+	private static final int INNER = 301;
+	private static final int COLS = ThreadedMatrixMulti.TILE_COLUMNS + 7;
+
+	/**
+	 * dense x dense
+	 */
+	@Test
+	public void testDenseDense() {
+		check(matrix(ROWS, INNER, false, 1), matrix(INNER, COLS, false, 2));
+	}
+
+	/**
+	 * sparse x dense
+	 */
+	@Test
+	public void testSparseDense() {
+		check(matrix(ROWS, INNER, true, 1), matrix(INNER, COLS, false, 2));
+	}
+
+	/**
+	 * dense x sparse
+	 */
+	@Test
+	public void testDenseSparse() {
+		check(matrix(ROWS, INNER, false, 1), matrix(INNER, COLS, true, 2));
+	}
+
+	/**
+	 * sparse x sparse
+	 */
+	@Test
+	public void testSparseSparse() {
+		check(matrix(ROWS, INNER, true, 1), matrix(INNER, COLS, true, 2));
+	}
+
+	/**
+	 * An answer with few rows and columns is split by rows, one too small for
+	 * that has its inner dimension split
+	 */
+	@Test
+	public void testSmallAnswers() {
+		final int inner = 3 * 2048 + 5;
+		for (final boolean leftSparse : new boolean[] { false, true }) {
+			for (final boolean rightSparse : new boolean[] { false, true }) {
+				// users x tasks
+				check(matrix(200, inner, leftSparse, 1), matrix(inner, 2, rightSparse, 2));
+				// tasks x tasks
+				check(matrix(2, inner, leftSparse, 3), matrix(inner, 2, rightSparse, 4));
+			}
+		}
+	}
+
+	/**
+	 * Dense products visit every value, so NaN and infinite values give NaN
+	 * even when they meet a zero
+	 */
+	@Test
+	public void testNaN() {
+		final Matrix a = matrix(ROWS, INNER, false, 1);
+		final Matrix b = matrix(INNER, COLS, false, 2);
+		a.setElement(3, 5, Double.NaN);
+		a.setElement(7, 6, Double.POSITIVE_INFINITY);
+		for (int j = 0; j < COLS; j++) {
+			b.setElement(5, j, 0);
+			b.setElement(6, j, 0);
+		}
+		final Matrix c = new ThreadedMatrixMulti().times(a, b);
+		for (int j = 0; j < COLS; j++) {
+			assertTrue(Double.isNaN(c.getElement(3, j)));
+			assertTrue(Double.isNaN(c.getElement(7, j)));
+			assertFalse(Double.isNaN(c.getElement(0, j)));
+		}
+	}
+
+	/**
+	 * The double[][] interface and a single tile
+	 */
+	@Test
+	public void testArrays() {
+		final double[][] a = { { 1, 2 }, { 3, 4 }, { 5, 6 } };
+		final double[][] b = { { 1, 0, -1 }, { 2, 1, 0 } };
+		final Matrix c = new ThreadedMatrixMulti().times(a, b);
+		final double[][] expected = { { 5, 2, -1 }, { 11, 4, -3 }, { 17, 6, -5 } };
+		for (int i = 0; i < expected.length; i++)
+			for (int j = 0; j < expected[i].length; j++)
+				assertEquals(expected[i][j], c.getElement(i, j), 0);
+	}
+
+	private void check(Matrix a, Matrix b) {
+		final Matrix c = new ThreadedMatrixMulti().times(a, b);
+		assertEquals(a.getNumRows(), c.getNumRows());
+		assertEquals(b.getNumColumns(), c.getNumColumns());
+		for (int i = 0; i < a.getNumRows(); i++) {
+			for (int j = 0; j < b.getNumColumns(); j++) {
+				double dot = 0;
+				for (int k = 0; k < a.getNumColumns(); k++)
+					dot += a.getElement(i, k) * b.getElement(k, j);
+				assertEquals(dot, c.getElement(i, j), 1e-10);
+			}
+		}
+	}
+
+	private static Matrix matrix(int rows, int cols, boolean sparse, int seed) {
+		final Random random = new Random(seed);
+		final Matrix m = sparse ? SparseMatrixFactoryMTJ.INSTANCE.createMatrix(rows, cols)
+				: DenseMatrixFactoryMTJ.INSTANCE.createMatrix(rows, cols);
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				if (!sparse || random.nextDouble() < 0.05)
+					m.setElement(i, j, random.nextGaussian());
+		return m;
+	}
+}
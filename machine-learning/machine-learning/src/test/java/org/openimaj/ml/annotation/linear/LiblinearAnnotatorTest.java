@@ -0,0 +1,138 @@
+package org.openimaj.ml.annotation.linear;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.junit.Test;
+import org.openimaj.feature.DoubleFV;
+import org.openimaj.feature.FeatureExtractor;
+import org.openimaj.ml.annotation.AnnotatedObject;
+import org.openimaj.ml.annotation.ScoredAnnotation;
+import org.openimaj.ml.annotation.linear.LiblinearAnnotator.Mode;
+
+import de.bwaldvogel.liblinear.DenseLinear;
+import de.bwaldvogel.liblinear.Linear;
+import de.bwaldvogel.liblinear.SolverType;
+
+/**
+ * Checks the multilabel {@link LiblinearAnnotator} gives the same annotations
+ * whatever the number of threads
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class LiblinearAnnotatorTest {
+	private static final int NLABELS = 8;
+	private static final int NDIMS = 20;
+
+	private static final FeatureExtractor<DoubleFV, double[]> EXTRACTOR = new FeatureExtractor<DoubleFV, double[]>() {
+		@Override
+		public DoubleFV extractFeature(double[] object) {
+			return new DoubleFV(object);
+		}
+	};
+
+	/**
+	 * A solver trained concurrently
+	 */
+	@Test
+	public void testDeterministicSolver() {
+		check(SolverType.L2R_LR, false);
+		check(SolverType.L2R_LR, true);
+	}
+
+	/**
+	 * A solver trained in label order
+	 */
+	@Test
+	public void testShufflingSolver() {
+		check(SolverType.L2R_L2LOSS_SVC_DUAL, false);
+		check(SolverType.L2R_L2LOSS_SVC_DUAL, true);
+	}
+
+	/**
+	 * The extractor is only ever called from the thread training or
+	 * annotating, so it needn't be thread safe
+	 */
+	@Test
+	public void testExtractorCalledFromCallingThread() {
+		final Set<Thread> callers = new CopyOnWriteArraySet<Thread>();
+		final FeatureExtractor<DoubleFV, double[]> recording = new FeatureExtractor<DoubleFV, double[]>() {
+			@Override
+			public DoubleFV extractFeature(double[] object) {
+				callers.add(Thread.currentThread());
+				return new DoubleFV(object);
+			}
+		};
+		final LiblinearAnnotator<double[], Integer> annotator = new LiblinearAnnotator<double[], Integer>(recording,
+				Mode.MULTILABEL, SolverType.L2R_LR, 1, 0.0001, -1, false);
+		annotator.setThreads(4);
+
+		final List<AnnotatedObject<double[], Integer>> data = data();
+		annotator.train(data);
+		for (final AnnotatedObject<double[], Integer> item : data)
+			annotator.annotate(item.getObject());
+
+		assertEquals(1, callers.size());
+		assertTrue(callers.contains(Thread.currentThread()));
+	}
+
+	private void check(SolverType solver, boolean dense) {
+		final List<AnnotatedObject<double[], Integer>> data = data();
+
+		final LiblinearAnnotator<double[], Integer> serial = annotator(solver, dense, 1);
+		final LiblinearAnnotator<double[], Integer> parallel = annotator(solver, dense, 4);
+		// both runs start from the same state of liblinear's shared generator
+		resetRandom();
+		serial.train(data);
+		resetRandom();
+		parallel.train(data);
+
+		for (final AnnotatedObject<double[], Integer> item : data) {
+			final List<ScoredAnnotation<Integer>> expected = serial.annotate(item.getObject());
+			final List<ScoredAnnotation<Integer>> actual = parallel.annotate(item.getObject());
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).annotation, actual.get(i).annotation);
+				assertEquals(expected.get(i).confidence, actual.get(i).confidence, 0);
+			}
+		}
+	}
+
+	private static void resetRandom() {
+		Linear.resetRandom();
+		DenseLinear.resetRandom();
+	}
+
+	private List<AnnotatedObject<double[], Integer>> data() {
+		final Random random = new Random(1);
+		final List<AnnotatedObject<double[], Integer>> data = new ArrayList<AnnotatedObject<double[], Integer>>();
+		for (int i = 0; i < 200; i++) {
+			final Set<Integer> labels = new HashSet<Integer>();
+			final double[] feature = new double[NDIMS];
+			for (int j = 0; j < NDIMS; j++)
+				feature[j] = random.nextDouble();
+			final int nlabels = 1 + random.nextInt(3);
+			for (int j = 0; j < nlabels; j++) {
+				final int label = random.nextInt(NLABELS);
+				labels.add(label);
+				feature[label] += 1;
+			}
+			data.add(new AnnotatedObject<double[], Integer>(feature, labels));
+		}
+		return data;
+	}
+
+	private LiblinearAnnotator<double[], Integer> annotator(SolverType solver, boolean dense, int threads) {
+		final LiblinearAnnotator<double[], Integer> annotator = new LiblinearAnnotator<double[], Integer>(EXTRACTOR,
+				Mode.MULTILABEL, solver, 1, 0.0001, -1, dense);
+		annotator.setThreads(threads);
+		return annotator;
+	}
+}
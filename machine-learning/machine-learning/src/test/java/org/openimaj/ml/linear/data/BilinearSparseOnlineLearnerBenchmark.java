@@ -0,0 +1,125 @@
+package org.openimaj.ml.linear.data;
+
+import gov.sandia.cognition.math.matrix.Matrix;
+import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openimaj.math.matrix.CFMatrixUtils;
+import org.openimaj.ml.linear.learner.BilinearLearnerParameters;
+import org.openimaj.ml.linear.learner.BilinearSparseOnlineLearner;
+import org.openimaj.ml.linear.learner.init.SparseRandomInitStrategy;
+import org.openimaj.util.pair.Pair;
+
+/**
+ * Micro-benchmark comparing the in place updates of
+ * {@link BilinearSparseOnlineLearner} against the matrix implementation. Both
+ * learners see the same data from the same initial U and W; the time,
+ * allocation and the largest difference between their parameters are
+ * reported. Pass the path of a {@link BillMatlabFileDataGenerator} .mat file
+ * to use the real data, otherwise random data of about the same shape is used.
+ * Run it from the IDE or with <code>java -cp</code> over the test classpath.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class BilinearSparseOnlineLearnerBenchmark {
+	private static final int NWORDS = 20000;
+	private static final int NUSERS = 200;
+	private static final int NTASKS = 2;
+	private static final double DENSITY = 0.002;
+	private static final int NITEMS = 50;
+
+	/**
+	 * @param args
+	 *            optionally, a BillMatlabFileDataGenerator .mat file
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		final List<Pair<Matrix>> data = args.length > 0 ? billData(new File(args[0])) : randomData();
+
+		for (int repeat = 0; repeat < 3; repeat++) {
+			final BilinearSparseOnlineLearner matrix = new BilinearSparseOnlineLearner(params()) {
+				@Override
+				protected boolean inPlaceUpdates() {
+					return false;
+				}
+			};
+			final BilinearSparseOnlineLearner inplace = new BilinearSparseOnlineLearner(params());
+
+			final long[] matrixCost = run(matrix, data);
+			final long[] inplaceCost = run(inplace, data);
+
+			final double wdiff = CFMatrixUtils.absSum(matrix.getW().minus(inplace.getW()));
+			final double udiff = CFMatrixUtils.absSum(matrix.getU().minus(inplace.getU()));
+			System.out.println(String.format(
+					"matrix: %dms %dMB, in place: %dms %dMB, |W diff|: %g, |U diff|: %g",
+					matrixCost[0], matrixCost[1] >> 20, inplaceCost[0], inplaceCost[1] >> 20, wdiff, udiff
+					));
+		}
+	}
+
+	private static BilinearLearnerParameters params() {
+		final BilinearLearnerParameters params = new BilinearLearnerParameters();
+		params.put(BilinearLearnerParameters.WINITSTRAT, new SparseRandomInitStrategy(0, 1e-5, 0.5, new Random(1)));
+		params.put(BilinearLearnerParameters.UINITSTRAT, new SparseRandomInitStrategy(0, 1e-5, 0.5, new Random(2)));
+		params.put(BilinearLearnerParameters.BICONVEX_MAXITER, 10);
+		return params;
+	}
+
+	/**
+	 * @return the time taken in milliseconds and the bytes allocated by this
+	 *         thread (or -1 if the JVM can't say)
+	 */
+	private static long[] run(BilinearSparseOnlineLearner learner, List<Pair<Matrix>> data) {
+		final long allocated = allocatedBytes();
+		final long start = System.currentTimeMillis();
+		for (final Pair<Matrix> xy : data) {
+			learner.process(xy.firstObject(), xy.secondObject());
+		}
+		final long time = System.currentTimeMillis() - start;
+		final long end = allocatedBytes();
+		return new long[] { time, allocated < 0 ? -1 : end - allocated };
+	}
+
+	private static long allocatedBytes() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static List<Pair<Matrix>> billData(File matfile) throws IOException {
+		final BillMatlabFileDataGenerator gen = new BillMatlabFileDataGenerator(matfile, 98, true);
+		gen.setFold(-1, null);
+		final List<Pair<Matrix>> data = new ArrayList<Pair<Matrix>>();
+		Pair<Matrix> xy;
+		while ((xy = gen.generate()) != null && data.size() < NITEMS) {
+			data.add(xy);
+		}
+		return data;
+	}
+
+	private static List<Pair<Matrix>> randomData() {
+		final Random random = new Random(0);
+		final List<Pair<Matrix>> data = new ArrayList<Pair<Matrix>>();
+		for (int i = 0; i < NITEMS; i++) {
+			final Matrix x = SparseMatrixFactoryMTJ.INSTANCE.createMatrix(NWORDS, NUSERS);
+			final int nnz = (int) (NWORDS * NUSERS * DENSITY);
+			for (int j = 0; j < nnz; j++) {
+				x.setElement(random.nextInt(NWORDS), random.nextInt(NUSERS), random.nextDouble());
+			}
+			final Matrix y = SparseMatrixFactoryMTJ.INSTANCE.createMatrix(1, NTASKS);
+			for (int t = 0; t < NTASKS; t++) {
+				y.setElement(0, t, random.nextInt(10) == 0 ? Double.NaN : random.nextDouble() * 100);
+			}
+			data.add(new Pair<Matrix>(x, y));
+		}
+		return data;
+	}
+}
@@ -0,0 +1,146 @@
+package org.openimaj.ml.linear.learner;
+
+import static org.junit.Assert.assertEquals;
+import gov.sandia.cognition.math.matrix.Matrix;
+import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.ml.linear.learner.init.RandomInitStrategy;
+import org.openimaj.ml.linear.learner.init.SparseRandomInitStrategy;
+import org.openimaj.ml.linear.learner.regul.L1Regulariser;
+import org.openimaj.ml.linear.learner.regul.Regulariser;
+import org.openimaj.util.pair.Pair;
+
+/**
+ * Checks the in place updates of {@link BilinearSparseOnlineLearner} give
+ * exactly the U, W and bias of the matrix implementation
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class BilinearSparseOnlineLearnerInPlaceTest {
+	private static final int NWORDS = 60;
+	private static final int NUSERS = 8;
+	private static final int NTASKS = 3;
+
+	/**
+	 * The default L1L2 regulariser
+	 */
+	@Test
+	public void testInPlace() {
+		assertSameAsMatrix(false, null, 0, data(new Random(1)));
+	}
+
+	/**
+	 * The bias is updated in place too
+	 */
+	@Test
+	public void testInPlaceBias() {
+		assertSameAsMatrix(true, null, 0, data(new Random(2)));
+	}
+
+	/**
+	 * Any regulariser can be applied in place
+	 */
+	@Test
+	public void testInPlaceL1() {
+		assertSameAsMatrix(true, new L1Regulariser(), 0, data(new Random(3)));
+	}
+
+	/**
+	 * Dampening scales U and W (and the bias) in place
+	 */
+	@Test
+	public void testInPlaceDampening() {
+		assertSameAsMatrix(true, null, 0.1, data(new Random(4)));
+	}
+
+	/**
+	 * Without forced sparsity the matrix implementation keeps dense U and W,
+	 * whose rows must be given the same norm as sparse rows
+	 */
+	@Test
+	public void testInPlaceDense() {
+		assertSameAsMatrix(dense(params(true, null, 0)), dense(params(true, null, 0)), data(new Random(5)));
+	}
+
+	private static BilinearLearnerParameters dense(BilinearLearnerParameters params) {
+		params.put(BilinearLearnerParameters.WINITSTRAT, new RandomInitStrategy(-1, 1, new Random(5)));
+		params.put(BilinearLearnerParameters.UINITSTRAT, new RandomInitStrategy(-1, 1, new Random(6)));
+		params.put(BilinearLearnerParameters.FORCE_SPARCITY, false);
+		return params;
+	}
+
+	private static void assertSameAsMatrix(boolean bias, Regulariser regul, double dampening, List<Pair<Matrix>> data) {
+		assertSameAsMatrix(params(bias, regul, dampening), params(bias, regul, dampening), data);
+	}
+
+	private static void assertSameAsMatrix(BilinearLearnerParameters inplaceParams,
+			BilinearLearnerParameters matrixParams, List<Pair<Matrix>> data)
+	{
+		final BilinearSparseOnlineLearner inplace = new BilinearSparseOnlineLearner(inplaceParams);
+		final BilinearSparseOnlineLearner matrix = matrixLearner(matrixParams);
+		for (final Pair<Matrix> xy : data) {
+			inplace.process(xy.firstObject(), xy.secondObject());
+			matrix.process(xy.firstObject(), xy.secondObject());
+		}
+		assertSame(matrix.getU(), inplace.getU());
+		assertSame(matrix.getW(), inplace.getW());
+		if (matrix.getBias() != null)
+			assertSame(matrix.getBias(), inplace.getBias());
+	}
+
+	/**
+	 * @return a learner forced onto the matrix implementation
+	 */
+	static BilinearSparseOnlineLearner matrixLearner(BilinearLearnerParameters params) {
+		return new BilinearSparseOnlineLearner(params) {
+			@Override
+			protected boolean inPlaceUpdates() {
+				return false;
+			}
+		};
+	}
+
+	static void assertSame(Matrix expected, Matrix actual) {
+		assertEquals(expected.getNumRows(), actual.getNumRows());
+		assertEquals(expected.getNumColumns(), actual.getNumColumns());
+		for (int r = 0; r < expected.getNumRows(); r++)
+			for (int c = 0; c < expected.getNumColumns(); c++)
+				assertEquals(expected.getElement(r, c), actual.getElement(r, c), 0);
+	}
+
+	/**
+	 * @return parameters whose init strategies start from the same U and W
+	 *         each time
+	 */
+	static BilinearLearnerParameters params(boolean bias, Regulariser regul, double dampening) {
+		final BilinearLearnerParameters params = new BilinearLearnerParameters();
+		params.put(BilinearLearnerParameters.WINITSTRAT, new SparseRandomInitStrategy(0, 1, 0.5, new Random(5)));
+		params.put(BilinearLearnerParameters.UINITSTRAT, new SparseRandomInitStrategy(0, 1, 0.5, new Random(6)));
+		params.put(BilinearLearnerParameters.BIAS, bias);
+		params.put(BilinearLearnerParameters.BICONVEX_MAXITER, 5);
+		params.put(BilinearLearnerParameters.LAMBDA, 0.01);
+		params.put(BilinearLearnerParameters.DAMPENING, dampening);
+		if (regul != null)
+			params.put(BilinearLearnerParameters.REGUL, regul);
+		return params;
+	}
+
+	private static List<Pair<Matrix>> data(Random random) {
+		final List<Pair<Matrix>> data = new ArrayList<Pair<Matrix>>();
+		for (int i = 0; i < 20; i++) {
+			final Matrix x = SparseMatrixFactoryMTJ.INSTANCE.createMatrix(NWORDS, NUSERS);
+			for (int j = 0; j < 40; j++)
+				x.setElement(random.nextInt(NWORDS), random.nextInt(NUSERS), random.nextDouble());
+			final Matrix y = SparseMatrixFactoryMTJ.INSTANCE.createMatrix(1, NTASKS);
+			for (int t = 0; t < NTASKS; t++)
+				y.setElement(0, t, random.nextInt(5) == 0 ? Double.NaN : random.nextDouble() * 10);
+			data.add(new Pair<Matrix>(x, y));
+		}
+		return data;
+	}
+}
@@ -0,0 +1,138 @@
+package org.openimaj.ml.linear.learner;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.ml.linear.learner.init.CurrentUMean;
+import org.openimaj.ml.linear.learner.init.CurrentWMean;
+import org.openimaj.ml.linear.learner.init.SparseRandomInitStrategy;
+import org.openimaj.ml.linear.learner.loss.SquareMissingLossFunction;
+
+/**
+ * Streams examples with a growing vocabulary and set of users through an
+ * {@link IncrementalBilinearSparseOnlineLearner} and checks the in place
+ * updates, whose U and W grow inside the update buffers, give exactly the U, W
+ * and predictions of a learner which rebuilds its matrices with a vstack for
+ * every new word and user.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class IncrementalBilinearSparseOnlineLearnerInPlaceTest {
+	private static final int NITEMS = 60;
+	private static final int NTASKS = 3;
+
+	/**
+	 * The expanded U and W are the mean of the current U and W, so the init
+	 * strategies take U and W out of the buffers
+	 */
+	@Test
+	public void testGrowing() {
+		assertSameAsMatrix(false, false);
+	}
+
+	/**
+	 * Predictions and copies of the learner between examples
+	 */
+	@Test
+	public void testInterleaved() {
+		assertSameAsMatrix(true, false);
+	}
+
+	/**
+	 * New words and users initialised without reading the current values are
+	 * added to the buffers
+	 */
+	@Test
+	public void testGrowingBuffered() {
+		assertSameAsMatrix(true, true);
+	}
+
+	private static void assertSameAsMatrix(boolean interleave, boolean randomExpansion) {
+		final IncrementalBilinearSparseOnlineLearner inplace =
+				new IncrementalBilinearSparseOnlineLearner(params(false, randomExpansion));
+		final IncrementalBilinearSparseOnlineLearner matrix =
+				new IncrementalBilinearSparseOnlineLearner(params(true, randomExpansion));
+
+		final Random random = new Random(1);
+		for (int i = 0; i < NITEMS; i++) {
+			final Map<String, Map<String, Double>> x = example(random, i);
+			final Map<String, Double> y = new LinkedHashMap<String, Double>();
+			for (int t = 0; t < NTASKS; t++)
+				y.put("task" + t, random.nextInt(5) == 0 ? Double.NaN : random.nextDouble() * 10);
+
+			inplace.process(x, y);
+			matrix.process(x, y);
+
+			if (interleave && i % 3 == 0) {
+				final Map<String, Map<String, Double>> next = example(random, i);
+				inplace.updateUserValues(next, y);
+				matrix.updateUserValues(next, y);
+				assertEquals(matrix.predict(next), inplace.predict(next));
+			}
+			if (interleave && i % 7 == 0) {
+				assertSame(matrix.getBilinearLearner(), inplace.getBilinearLearner());
+			}
+		}
+		assertEquals(matrix.getVocabulary(), inplace.getVocabulary());
+		assertEquals(matrix.getUsers(), inplace.getUsers());
+		assertSame(matrix.getBilinearLearner(), inplace.getBilinearLearner());
+	}
+
+	private static void assertSame(BilinearSparseOnlineLearner expected, BilinearSparseOnlineLearner actual) {
+		BilinearSparseOnlineLearnerInPlaceTest.assertSame(expected.getU(), actual.getU());
+		BilinearSparseOnlineLearnerInPlaceTest.assertSame(expected.getW(), actual.getW());
+		BilinearSparseOnlineLearnerInPlaceTest.assertSame(expected.getBias(), actual.getBias());
+	}
+
+	/**
+	 * A few users, new and old, each with a few words, new and old
+	 */
+	private static Map<String, Map<String, Double>> example(Random random, int i) {
+		final Map<String, Map<String, Double>> x = new LinkedHashMap<String, Map<String, Double>>();
+		final int nusers = 1 + random.nextInt(3);
+		for (int u = 0; u < nusers; u++) {
+			final Map<String, Double> words = new LinkedHashMap<String, Double>();
+			final int nwords = 1 + random.nextInt(5);
+			for (int w = 0; w < nwords; w++)
+				words.put("word" + random.nextInt(5 + 3 * i), random.nextDouble());
+			x.put("user" + random.nextInt(2 + i / 2), words);
+		}
+		return x;
+	}
+
+	/**
+	 * @param matrix
+	 *            whether to force the learner onto the matrix implementation.
+	 *            Only the default loss is updated in place, so a subclass of it
+	 *            is used.
+	 * @param randomExpansion
+	 *            initialise new words and users randomly rather than with the
+	 *            mean of the current values
+	 */
+	private static BilinearLearnerParameters params(boolean matrix, boolean randomExpansion) {
+		final BilinearLearnerParameters params = new BilinearLearnerParameters();
+		params.put(BilinearLearnerParameters.WINITSTRAT, new SparseRandomInitStrategy(0, 1, 0.5, new Random(5)));
+		params.put(BilinearLearnerParameters.UINITSTRAT, new SparseRandomInitStrategy(0, 1, 0.5, new Random(6)));
+		if (randomExpansion) {
+			params.put(BilinearLearnerParameters.EXPANDEDWINITSTRAT, new SparseRandomInitStrategy(0, 1, 0.5,
+					new Random(7)));
+			params.put(BilinearLearnerParameters.EXPANDEDUINITSTRAT, new SparseRandomInitStrategy(0, 1, 0.5,
+					new Random(8)));
+		}
+		else {
+			params.put(BilinearLearnerParameters.EXPANDEDWINITSTRAT, new CurrentWMean());
+			params.put(BilinearLearnerParameters.EXPANDEDUINITSTRAT, new CurrentUMean());
+		}
+		params.put(BilinearLearnerParameters.BIAS, true);
+		params.put(BilinearLearnerParameters.BICONVEX_MAXITER, 5);
+		params.put(BilinearLearnerParameters.LAMBDA, 0.01);
+		if (matrix)
+			params.put(BilinearLearnerParameters.LOSS, new SquareMissingLossFunction() {
+			});
+		return params;
+	}
+}
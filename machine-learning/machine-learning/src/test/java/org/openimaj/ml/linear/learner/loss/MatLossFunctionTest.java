@@ -0,0 +1,88 @@
+package org.openimaj.ml.linear.learner.loss;
+
+import static org.junit.Assert.assertEquals;
+import gov.sandia.cognition.math.matrix.Matrix;
+import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.ml.linear.learner.BilinearSparseOnlineLearner;
+
+/**
+ * Checks the gradient calculated over the values of X by
+ * {@link MatLossFunction} against the gradient of each column calculated by
+ * the wrapped loss
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class MatLossFunctionTest {
+	private static final int NTASKS = 4;
+	private static final int NFEATURES = 50;
+
+	/**
+	 * The square missing loss with a bias
+	 */
+	@Test
+	public void testSquareMissing() {
+		final Random random = new Random(1);
+		final Matrix Y = BilinearSparseOnlineLearner.expandY(sparse(1, NTASKS, 1, random));
+		Y.setElement(0, 0, Double.NaN);
+		check(new SquareMissingLossFunction(), new SquareMissingLossFunction(), Y, sparse(NTASKS, NTASKS, 1, random),
+				random);
+	}
+
+	/**
+	 * The square missing loss without a bias
+	 */
+	@Test
+	public void testSquareMissingNoBias() {
+		final Random random = new Random(2);
+		final Matrix Y = BilinearSparseOnlineLearner.expandY(sparse(1, NTASKS, 1, random));
+		check(new SquareMissingLossFunction(), new SquareMissingLossFunction(), Y, null, random);
+	}
+
+	/**
+	 * The square loss
+	 */
+	@Test
+	public void testSquare() {
+		final Random random = new Random(3);
+		check(new SquareLossFunction(), new SquareLossFunction(), sparse(NTASKS, NTASKS, 1, random), null, random);
+	}
+
+	private void check(LossFunction wrapped, LossFunction columnLoss, Matrix Y, Matrix bias, Random random) {
+		final Matrix X = sparse(NTASKS, NFEATURES, 0.3, random);
+		final Matrix W = sparse(NFEATURES, NTASKS, 0.5, random);
+
+		final MatLossFunction loss = new MatLossFunction(wrapped);
+		loss.setY(Y);
+		loss.setX(X);
+		loss.setBias(bias);
+		final Matrix grad = loss.gradient(W);
+
+		columnLoss.setX(X);
+		final int allRowsY = Y.getNumRows() - 1;
+		final int allRowsW = W.getNumRows() - 1;
+		for (int i = 0; i < Y.getNumColumns(); i++) {
+			columnLoss.setY(Y.getSubMatrix(0, allRowsY, i, i));
+			if (bias != null)
+				columnLoss.setBias(bias.getSubMatrix(0, allRowsY, i, i));
+			final Matrix expected = columnLoss.gradient(W.getSubMatrix(0, allRowsW, i, i));
+			for (int r = 0; r < NFEATURES; r++) {
+				assertEquals(expected.getElement(r, 0), grad.getElement(r, i), 1e-12);
+			}
+		}
+	}
+
+	private static Matrix sparse(int rows, int cols, double density, Random random) {
+		final Matrix m = SparseMatrixFactoryMTJ.INSTANCE.createMatrix(rows, cols);
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				if (random.nextDouble() < density)
+					m.setElement(r, c, random.nextDouble() - 0.5);
+			}
+		}
+		return m;
+	}
+}
@@ -0,0 +1,119 @@
+package org.openimaj.ml.linear.learner.regul;
+
+import static org.junit.Assert.assertEquals;
+import gov.sandia.cognition.math.matrix.Matrix;
+import gov.sandia.cognition.math.matrix.MatrixFactory;
+import gov.sandia.cognition.math.matrix.Vector;
+import gov.sandia.cognition.math.matrix.mtj.DenseMatrixFactoryMTJ;
+import gov.sandia.cognition.math.matrix.mtj.SparseMatrixFactoryMTJ;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the prox operators applied over the values of W against the row by
+ * row implementations they replaced
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class RegulariserTest {
+	private static final double LAMBDA = 0.3;
+
+	/**
+	 * L1L2 on sparse, dense and wide (multithreaded) matrices
+	 */
+	@Test
+	public void testL1L2() {
+		final Random random = new Random(1);
+		final L1L2Regulariser regul = new L1L2Regulariser();
+		for (final Matrix W : matrices(random)) {
+			assertSame(l1l2(W, LAMBDA), regul.prox(W, LAMBDA));
+			// in place rows are treated as sparse rows
+			assertSame(l1l2(SparseMatrixFactoryMTJ.INSTANCE.copyMatrix(W), LAMBDA), inplace(regul, W));
+		}
+	}
+
+	/**
+	 * L1 on sparse, dense and wide (multithreaded) matrices
+	 */
+	@Test
+	public void testL1() {
+		final Random random = new Random(2);
+		final L1Regulariser regul = new L1Regulariser();
+		for (final Matrix W : matrices(random)) {
+			final Matrix expected = softThreshold(W, LAMBDA);
+			assertSame(expected, regul.prox(W, LAMBDA));
+			assertSame(expected, inplace(regul, W));
+		}
+	}
+
+	private static Matrix[] matrices(Random random) {
+		return new Matrix[] {
+				random(SparseMatrixFactoryMTJ.INSTANCE, 100, 20, 0.1, random),
+				random(DenseMatrixFactoryMTJ.INSTANCE, 100, 20, 0.1, random),
+				random(SparseMatrixFactoryMTJ.INSTANCE, 3 * RowWiseRegulariser.BLOCK_ROWS + 7, 3, 0.3, random),
+				random(DenseMatrixFactoryMTJ.INSTANCE, 3 * RowWiseRegulariser.BLOCK_ROWS + 7, 3, 0.3, random)
+		};
+	}
+
+	private static Matrix inplace(Regulariser regul, Matrix W) {
+		final double[][] data = new double[W.getNumRows()][W.getNumColumns()];
+		for (int r = 0; r < data.length; r++)
+			for (int c = 0; c < data[r].length; c++)
+				data[r][c] = W.getElement(r, c);
+		regul.proxInplace(data, data.length, LAMBDA);
+		return DenseMatrixFactoryMTJ.INSTANCE.copyArray(data);
+	}
+
+	private static void assertSame(Matrix expected, Matrix actual) {
+		for (int r = 0; r < expected.getNumRows(); r++)
+			for (int c = 0; c < expected.getNumColumns(); c++)
+				assertEquals(expected.getElement(r, c), actual.getElement(r, c), 0);
+	}
+
+	private static Matrix random(MatrixFactory<? extends Matrix> factory, int rows, int cols, double density,
+			Random random)
+	{
+		final Matrix m = factory.createMatrix(rows, cols);
+		for (int r = 0; r < rows; r++)
+			for (int c = 0; c < cols; c++)
+				if (random.nextDouble() < density)
+					m.setElement(r, c, random.nextDouble() - 0.5);
+		return m;
+	}
+
+	/**
+	 * The row by row L1L2 prox
+	 */
+	private static Matrix l1l2(Matrix W, double lambda) {
+		final Matrix ret = W.clone();
+		ret.zero();
+		for (int r = 0; r < W.getNumRows(); r++) {
+			final Vector row = W.getRow(r);
+			final double rownorm = row.norm2();
+			if (rownorm > lambda) {
+				ret.setRow(r, row.scale((rownorm - lambda) / rownorm));
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * The element by element soft threshold
+	 */
+	private static Matrix softThreshold(Matrix W, double lambda) {
+		final Matrix ret = W.clone();
+		ret.zero();
+		for (int r = 0; r < W.getNumRows(); r++) {
+			for (int c = 0; c < W.getNumColumns(); c++) {
+				final double v = W.getElement(r, c);
+				if (v < -lambda)
+					ret.setElement(r, c, v + lambda);
+				else if (v > lambda)
+					ret.setElement(r, c, v - lambda);
+			}
+		}
+		return ret;
+	}
+}
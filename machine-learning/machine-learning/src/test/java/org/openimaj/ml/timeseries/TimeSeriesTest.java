@@ -219,4 +219,34 @@ public class TimeSeriesTest {
 		assertTrue(get2[1].equals("Two"));		
 	}
 	
+	@Test
+	public void testDoubleTimeSeriesAdd(){
+		DoubleTimeSeries ts = new DoubleTimeSeries();
+		ts.add(5, 5);
+		ts.add(9, 9);
+		ts.add(1, 1);
+		ts.add(10, 10);
+		ts.add(2, 2);
+		ts.add(9, 90);
+		assertEquals(5, ts.size());
+		assertTrue(Arrays.equals(ts.getTimes(), new long[]{1,2,5,9,10}));
+		assertTrue(Arrays.equals(ts.getData(), new double[]{1,2,5,90,10}));
+		assertEquals(108, ts.sum(), 0);
+		
+		DoubleTimeSeries window = ts.get(5, 3l, 4l);
+		assertTrue(Arrays.equals(window.getTimes(), new long[]{2,5,9}));
+		window = ts.get(9, 0l, Long.MAX_VALUE);
+		assertTrue(Arrays.equals(window.getTimes(), new long[]{9,10}));
+		window = ts.get(5, 1, 1);
+		assertTrue(Arrays.equals(window.getTimes(), new long[]{2,5,9}));
+		
+		// the arrays handed out back the series
+		ts.getData()[0] = 100;
+		assertEquals(100, ts.get(1).getData()[0], 0);
+		
+		DoubleTimeSeries output = new DoubleTimeSeries(1);
+		ts.get(5, 2, 2, output);
+		assertEquals(5, output.size());
+	}
+	
 }
@@ -96,4 +96,19 @@ public class IntervalSummationProcessorTest {
 		assertArrayEquals(dtsD,new Double[]{0d,0d,0d,10d,0d});
 		
 	}
+	
+	@Test
+	public void testPrimitiveIntervalSummation() {
+		org.openimaj.ml.timeseries.series.DoubleTimeSeries dts = new org.openimaj.ml.timeseries.series.DoubleTimeSeries();
+		for (long time : new long[]{50,0,20,10,40,30}) {
+			dts.add(time, 10);
+		}
+		new IntervalSummationProcessor<double[],Double, org.openimaj.ml.timeseries.series.DoubleTimeSeries>(new long[]{15,25,55}).process(dts);
+		assertArrayEquals(new long[]{15,25,55}, dts.getTimes());
+		assertArrayEquals(new double[]{20d,10d,30d}, dts.getData(), 0);
+		
+		dts = new org.openimaj.ml.timeseries.series.DoubleTimeSeries(new long[]{10,20,30,40,50}, new double[]{10d,10d,10d,10d,10d});
+		new IntervalSummationProcessor<double[],Double, org.openimaj.ml.timeseries.series.DoubleTimeSeries>(new long[]{0,1,2,11,12}).process(dts);
+		assertArrayEquals(new double[]{0d,0d,0d,10d,0d}, dts.getData(), 0);
+	}
 }
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.timeseries.processor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openimaj.ml.regression.LinearRegression;
+import org.openimaj.ml.timeseries.processor.interpolation.LinearInterpolationProcessor;
+import org.openimaj.ml.timeseries.processor.interpolation.StreamingLinearInterpolationProcessor;
+import org.openimaj.ml.timeseries.series.DoubleTimeSeries;
+
+/**
+ * Checks the streaming processors against their batch counterparts
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class StreamingTimeSeriesProcessorTest {
+	private DoubleTimeSeries series;
+
+	@Before
+	public void before() {
+		final Random random = new Random(1);
+		series = new DoubleTimeSeries();
+		long time = 10;
+		for (int i = 0; i < 100; i++) {
+			series.add(time, random.nextGaussian() + i * 0.1);
+			time += 1 + random.nextInt(3);
+		}
+	}
+
+	@Test
+	public void testMovingAverage() {
+		final DoubleTimeSeries expected = series.process(new MovingAverageProcessor(5));
+		final DoubleTimeSeries actual = series.process(new StreamingMovingAverageProcessor(5));
+		assertArrayEquals(expected.getTimes(), actual.getTimes());
+		assertArrayEquals(expected.getData(), actual.getData(), 1e-10);
+	}
+
+	@Test
+	public void testGaussian() {
+		final DoubleTimeSeries expected = series.process(new GaussianTimeSeriesProcessor(2));
+		final DoubleTimeSeries actual = series.process(new StreamingGaussianTimeSeriesProcessor(2));
+		assertArrayEquals(expected.getTimes(), actual.getTimes());
+		assertArrayEquals(expected.getData(), actual.getData(), 0);
+	}
+
+	@Test
+	public void testLinearInterpolation() {
+		final long[] times = new long[] { 0, 5, 10, 11, 33, 34, 100, 500 };
+		DoubleTimeSeries expected = series.process(new LinearInterpolationProcessor(times));
+		DoubleTimeSeries actual = series.process(new StreamingLinearInterpolationProcessor(times));
+		assertArrayEquals(expected.getTimes(), actual.getTimes());
+		assertArrayEquals(expected.getData(), actual.getData(), 0);
+
+		expected = series.process(new LinearInterpolationProcessor());
+		actual = series.process(new StreamingLinearInterpolationProcessor());
+		assertArrayEquals(expected.getTimes(), actual.getTimes());
+		assertArrayEquals(expected.getData(), actual.getData(), 0);
+	}
+
+	/**
+	 * A whole series is fitted once, as the batch processor does
+	 */
+	@Test
+	public void testWindowedLinearRegression() {
+		final DoubleTimeSeries expected = series.process(new WindowedLinearRegressionProcessor(3, 2));
+		final DoubleTimeSeries actual = series.process(new StreamingWindowedLinearRegressionProcessor(3, 2));
+		assertArrayEquals(expected.getTimes(), actual.getTimes());
+		assertArrayEquals(expected.getData(), actual.getData(), 0);
+	}
+
+	/**
+	 * Points added one at a time are each predicted from the fit over the
+	 * windows seen so far. Until there are more windows than weights the
+	 * minimum norm fit passes through every point.
+	 */
+	@Test
+	public void testWindowedLinearRegressionOnline() {
+		final int windowsize = 3;
+		final int first = windowsize + 1;
+		final StreamingWindowedLinearRegressionProcessor processor =
+				new StreamingWindowedLinearRegressionProcessor(windowsize, 2);
+		final long[] times = series.getTimes();
+		final double[] data = series.getData();
+		for (int i = 0; i < series.size(); i++)
+			processor.add(times[i], data[i]);
+		final DoubleTimeSeries actual = processor.takeOutput();
+		assertEquals(series.size() - first, actual.size());
+
+		for (int i = first; i < series.size(); i++) {
+			final int ninstances = i - first + 1;
+			assertEquals(times[i], actual.getTimes()[i - first]);
+			if (ninstances <= windowsize) {
+				assertEquals(data[i], actual.getData()[i - first], 1e-8);
+				continue;
+			}
+			final double[][] windows = new double[ninstances][];
+			final double[][] y = new double[ninstances][];
+			for (int j = 0; j < ninstances; j++) {
+				windows[j] = Arrays.copyOfRange(data, j, j + windowsize);
+				y[j] = new double[] { data[j + first] };
+			}
+			final LinearRegression fit = new LinearRegression();
+			fit.estimate(y, windows);
+			assertEquals(fit.predict(windows[ninstances - 1])[0], actual.getData()[i - first], 1e-8);
+		}
+	}
+
+	/**
+	 * Points added one at a time, with the output taken part way through,
+	 * match processing the whole series
+	 */
+	@Test
+	public void testIncremental() {
+		final DoubleTimeSeries expected = series.process(new StreamingGaussianTimeSeriesProcessor(1));
+
+		final StreamingGaussianTimeSeriesProcessor processor = new StreamingGaussianTimeSeriesProcessor(1);
+		final DoubleTimeSeries actual = new DoubleTimeSeries();
+		final long[] times = series.getTimes();
+		final double[] data = series.getData();
+		for (int i = 0; i < series.size(); i++) {
+			processor.add(times[i], data[i]);
+			if (i % 10 == 0)
+				append(actual, processor.takeOutput());
+		}
+		processor.flush();
+		append(actual, processor.takeOutput());
+
+		assertArrayEquals(expected.getTimes(), actual.getTimes());
+		assertArrayEquals(expected.getData(), actual.getData(), 0);
+	}
+
+	/**
+	 * Points must be added in time order
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutOfOrder() {
+		final StreamingMovingAverageProcessor processor = new StreamingMovingAverageProcessor(5);
+		processor.add(10, 1);
+		processor.add(9, 1);
+	}
+
+	private static void append(DoubleTimeSeries to, DoubleTimeSeries from) {
+		final long[] times = from.getTimes();
+		final double[] data = from.getData();
+		for (int i = 0; i < from.size(); i++)
+			to.add(times[i], data[i]);
+	}
+}
@@ -0,0 +1,68 @@
+package org.openimaj.pgm.vb.lda.online;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.pgm.util.Document;
+import org.openimaj.pgm.vb.lda.online.OnlineLDALearner.OnlineLDAConfig;
+
+/**
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class TestOnlineLDA {
+	private static final int VOCABULARY = 20;
+
+	/**
+	 * Documents are drawn from one of two disjoint halves of the vocabulary,
+	 * each topic should settle mostly on one half
+	 */
+	@Test
+	public void testSeparatesTopics() {
+		final Random random = new Random(1);
+		final OnlineLDALearner learner = new OnlineLDALearner(2, VOCABULARY, 1);
+		learner.setConfig(OnlineLDAConfig.TAU0, 1d);
+		for (int batch = 0; batch < 300; batch++) {
+			final List<Document> minibatch = new ArrayList<Document>();
+			for (int i = 0; i < 10; i++) {
+				minibatch.add(document(random, random.nextInt(2)));
+			}
+			learner.update(minibatch);
+		}
+		assertEquals(300, learner.getUpdateCount());
+		assertEquals(3000, learner.getDocumentsSeen());
+
+		final double[][] lambda = learner.getLambda();
+		final double first = lowerMass(lambda[0]);
+		final double second = lowerMass(lambda[1]);
+		assertTrue(Math.max(first, second) > 0.9);
+		assertTrue(Math.min(first, second) < 0.25);
+
+		final double[] gamma = learner.inference(document(random, first > second ? 0 : 1));
+		assertTrue(gamma[0] > gamma[1]);
+	}
+
+	private Document document(Random random, int half) {
+		final Document doc = new Document(VOCABULARY);
+		for (int i = 0; i < 10; i++) {
+			final int word = half * VOCABULARY / 2 + random.nextInt(VOCABULARY / 2);
+			doc.setWordCount(word, 1 + random.nextInt(3));
+		}
+		return doc;
+	}
+
+	private double lowerMass(double[] topic) {
+		double lower = 0, total = 0;
+		for (int i = 0; i < topic.length; i++) {
+			if (i < topic.length / 2)
+				lower += topic[i];
+			total += topic[i];
+		}
+		return lower / total;
+	}
+}
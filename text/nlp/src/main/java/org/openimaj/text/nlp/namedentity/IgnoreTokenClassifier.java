@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.text.nlp.namedentity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Decides whether a token should be ignored. A token is ignored if it is in a
+ * set of ignore tokens or, optionally, if it is a number (anything
+ * {@link Double#parseDouble(String)} would accept) or a number written as
+ * words.
+ * <p>
+ * Numbers are recognised with a single pass over the characters of the token
+ * rather than by catching a {@link NumberFormatException}. When numbers are
+ * checked, verdicts are held in a bounded LRU cache per thread so repeated
+ * tokens cost a single map lookup without threads contending on a shared
+ * lock. Without the number checks the ignore set is consulted directly, as a
+ * cache lookup would cost as much as the set lookup it saves. Instances are
+ * safe to share between threads.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class IgnoreTokenClassifier {
+	/**
+	 * The default number of token verdicts held in the cache
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 10000;
+
+	private static final String UNITS = "one|two|three|four|five|six|seven|eight|nine";
+	private static final String TENS = "twenty|thirty|forty|fifty|sixty|seventy|eighty|ninety";
+	private static final String TEENS = "ten|eleven|twelve|thirteen|fourteen|fifteen|sixteen|seventeen|eighteen|nineteen";
+	private static final String AND = "\\s*-?\\s*and\\s*-?\\s*";
+	private static final String TO_NN = "[" + UNITS + "|" + TEENS + "] | [" + TENS + "]\\s*-?\\s*[" + UNITS + "]";
+	private static final String TO_NNN = TO_NN + " | [[" + UNITS + "]\\s*-?\\s*hundred [" + AND + "[" + TO_NN + "]+]+]";
+
+	/**
+	 * The written number expression used by {@link IgnoreTokenStripper}. The
+	 * whole expression is one (nested) character class repeated, so it is
+	 * compiled once into {@link #WRITTEN_NUMBER_ASCII}, a single state
+	 * automaton over ASCII characters. Tokens holding anything else fall back
+	 * to this pattern.
+	 */
+	static final Pattern WRITTEN_NUMBERS = Pattern.compile("[" + TO_NNN + "]+");
+	private static final boolean[] WRITTEN_NUMBER_ASCII = new boolean[128];
+	static {
+		for (char c = 0; c < WRITTEN_NUMBER_ASCII.length; c++) {
+			WRITTEN_NUMBER_ASCII[c] = WRITTEN_NUMBERS.matcher(String.valueOf(c)).matches();
+		}
+	}
+
+	private final Set<String> ignoreTokens;
+	private final boolean lowercase;
+	private final boolean numbers;
+	private final ThreadLocal<Map<String, Boolean>> cache;
+
+	/**
+	 * An ignore classifier with the {@link #DEFAULT_CACHE_SIZE}
+	 *
+	 * @param ignoreTokens
+	 *            tokens to be ignored
+	 * @param lowercase
+	 *            whether tokens are lowercased before being checked against
+	 *            the ignore tokens
+	 * @param numbers
+	 *            whether numbers and written numbers are also ignored
+	 */
+	public IgnoreTokenClassifier(Set<String> ignoreTokens, boolean lowercase, boolean numbers) {
+		this(ignoreTokens, lowercase, numbers, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param ignoreTokens
+	 *            tokens to be ignored
+	 * @param lowercase
+	 *            whether tokens are lowercased before being checked against
+	 *            the ignore tokens
+	 * @param numbers
+	 *            whether numbers and written numbers are also ignored
+	 * @param cacheSize
+	 *            the maximum number of verdicts to cache in each thread, 0 for
+	 *            no cache. Ignored if numbers are not checked.
+	 */
+	public IgnoreTokenClassifier(Set<String> ignoreTokens, boolean lowercase, boolean numbers, final int cacheSize) {
+		this.ignoreTokens = ignoreTokens;
+		this.lowercase = lowercase;
+		this.numbers = numbers;
+		if (numbers && cacheSize > 0) {
+			this.cache = new ThreadLocal<Map<String, Boolean>>() {
+				@Override
+				protected Map<String, Boolean> initialValue() {
+					return new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						protected boolean removeEldestEntry(Entry<String, Boolean> eldest) {
+							return size() > cacheSize;
+						}
+					};
+				}
+			};
+		} else {
+			this.cache = null;
+		}
+	}
+
+	/**
+	 * @param token
+	 * @return true if the token should be ignored
+	 */
+	public boolean isIgnoreToken(String token) {
+		if (cache == null)
+			return classify(token);
+		final Map<String, Boolean> verdicts = cache.get();
+		final Boolean cached = verdicts.get(token);
+		if (cached != null)
+			return cached;
+		final boolean verdict = classify(token);
+		verdicts.put(token, verdict);
+		return verdict;
+	}
+
+	private boolean classify(String token) {
+		if (ignoreTokens.contains(lowercase ? token.toLowerCase() : token))
+			return true;
+		if (!numbers)
+			return false;
+		return isNumber(token) || isWrittenNumber(token);
+	}
+
+	/**
+	 * Check whether a token is a number written as words, e.g.
+	 * "ninety-nine". This is exactly the check made against the lowercased
+	 * token by previous versions of {@link IgnoreTokenStripper}.
+	 *
+	 * @param token
+	 * @return true if the token is a written number
+	 */
+	public static boolean isWrittenNumber(String token) {
+		final int len = token.length();
+		if (len == 0)
+			return false;
+		for (int i = 0; i < len; i++) {
+			char c = token.charAt(i);
+			if (c >= 128)
+				return WRITTEN_NUMBERS.matcher(token.toLowerCase()).matches();
+			if (c >= 'A' && c <= 'Z')
+				c += 'a' - 'A';
+			if (!WRITTEN_NUMBER_ASCII[c])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Check whether a token is a number without throwing. This accepts
+	 * exactly the strings {@link Double#parseDouble(String)} accepts: an
+	 * optionally signed decimal or hexadecimal floating point literal, "NaN"
+	 * or "Infinity", surrounded by optional whitespace.
+	 *
+	 * @param token
+	 * @return true if the token is a number
+	 */
+	public static boolean isNumber(CharSequence token) {
+		int start = 0;
+		int end = token.length();
+		while (start < end && token.charAt(start) <= ' ')
+			start++;
+		while (end > start && token.charAt(end - 1) <= ' ')
+			end--;
+		if (start == end)
+			return false;
+
+		int i = start;
+		final char sign = token.charAt(i);
+		if (sign == '+' || sign == '-')
+			i++;
+		if (i == end)
+			return false;
+
+		final char first = token.charAt(i);
+		if (first == 'N')
+			return regionIs(token, i, end, "NaN");
+		if (first == 'I')
+			return regionIs(token, i, end, "Infinity");
+		if (first == '0' && i + 1 < end && (token.charAt(i + 1) == 'x' || token.charAt(i + 1) == 'X'))
+			return isHexNumber(token, i + 2, end);
+
+		int digits = 0;
+		while (i < end && isDigit(token.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < end && token.charAt(i) == '.') {
+			i++;
+			while (i < end && isDigit(token.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0)
+			return false;
+		if (i < end && (token.charAt(i) == 'e' || token.charAt(i) == 'E')) {
+			i = exponent(token, i + 1, end);
+			if (i < 0)
+				return false;
+		}
+		return isEndOrSuffix(token, i, end);
+	}
+
+	private static boolean isHexNumber(CharSequence token, int i, int end) {
+		int digits = 0;
+		while (i < end && isHexDigit(token.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < end && token.charAt(i) == '.') {
+			i++;
+			while (i < end && isHexDigit(token.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		// hexadecimal literals must have a binary exponent
+		if (digits == 0 || i == end || (token.charAt(i) != 'p' && token.charAt(i) != 'P'))
+			return false;
+		i = exponent(token, i + 1, end);
+		if (i < 0)
+			return false;
+		return isEndOrSuffix(token, i, end);
+	}
+
+	/**
+	 * @return the index after the exponent digits or -1 if there were none
+	 */
+	private static int exponent(CharSequence token, int i, int end) {
+		if (i < end && (token.charAt(i) == '+' || token.charAt(i) == '-'))
+			i++;
+		final int digitStart = i;
+		while (i < end && isDigit(token.charAt(i)))
+			i++;
+		return i == digitStart ? -1 : i;
+	}
+
+	private static boolean isEndOrSuffix(CharSequence token, int i, int end) {
+		if (i == end)
+			return true;
+		if (i + 1 != end)
+			return false;
+		final char c = token.charAt(i);
+		return c == 'f' || c == 'F' || c == 'd' || c == 'D';
+	}
+
+	private static boolean regionIs(CharSequence token, int i, int end, String expected) {
+		if (end - i != expected.length())
+			return false;
+		for (int j = 0; j < expected.length(); j++) {
+			if (token.charAt(i + j) != expected.charAt(j))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isHexDigit(char c) {
+		return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+}
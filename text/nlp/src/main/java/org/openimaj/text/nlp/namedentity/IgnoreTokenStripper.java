@@ -36,8 +36,6 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Class to remove stopwords from a list of tokens, or to check if a word is a
@@ -54,19 +52,8 @@ public class IgnoreTokenStripper {
 		English
 	};
 
-	private String units = "one|two|three|four|five|six|seven|eight|nine";
-	private String tens = "twenty|thirty|forty|fifty|sixty|seventy|eighty|ninety";
-	private String teens = "ten|eleven|twelve|thirteen|fourteen|fifteen|sixteen|seventeen|eighteen|nineteen";
-	private String and = "\\s*-?\\s*and\\s*-?\\s*";
-	private String toNN = "[" + units + "|" + teens + "] | [" + tens + "]\\s*-?\\s*[" + units + "]";
-	private String toNNN = toNN + " | [[" + units + "]\\s*-?\\s*hundred [" + and + "[" + toNN + "]+]+]";
-	/*
-	 * This currently recognizes written numbers up to nine hundred and ninety
-	 * nine.
-	 */
-	private Pattern writtenNumbers = Pattern.compile("[" + toNNN + "]+");
-
 	private HashSet<String> ignoreTokens;
+	private IgnoreTokenClassifier classifier;
 
 	/**
 	 * Constructor for specified language.
@@ -78,6 +65,7 @@ public class IgnoreTokenStripper {
 		for (final InputStream fstream : getListStreams(language)) {
 			addToIgnoreSet(fstream);
 		}
+		this.classifier = new IgnoreTokenClassifier(ignoreTokens, false, true);
 	}
 
 	private void addToIgnoreSet(InputStream fstream) {
@@ -134,19 +122,13 @@ public class IgnoreTokenStripper {
 	 * @return true if ignore Token
 	 */
 	public boolean isIgnoreToken(String token) {
-		// check if in ignore list
-		if (ignoreTokens.contains(token))
-			return true;
-		// check if it is a number
-		try {
-			Double.parseDouble(token);
-			return true;
-		} catch (final Exception e) {
-		}
-		// check if it is a number written as a word
-		final Matcher m = writtenNumbers.matcher(token.toLowerCase());
-		if (m.matches())
-			return true;
-		return false;
+		return classifier.isIgnoreToken(token);
+	}
+
+	/**
+	 * @return the classifier used to decide whether a token is ignored
+	 */
+	public IgnoreTokenClassifier getClassifier() {
+		return classifier;
 	}
 }
@@ -3,10 +3,12 @@ package org.openimaj.text.nlp.sentiment;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,12 +19,20 @@ import java.util.logging.Logger;
 public class BillMPQASentiment extends SentimentExtractor {
     private String mpqaN = "/org/openimaj/text/nlp/sentiment/mpqan.txt";
     private String mpqaP = "/org/openimaj/text/nlp/sentiment/mpqap.txt";
+    private volatile Set<String> mpqaPSet;
+    private volatile Set<String> mpqaNSet;
 
+    /**
+     * The word lists are read once, on the first extraction, and never
+     * modified afterwards so one instance may be shared between threads
+     */
     @Override
     public Map<String, Object> extract(List<String> strings) {
-
-        HashSet<String> mpqaPSet = readSentiSet(mpqaP);
-        HashSet<String> mpqaNSet = readSentiSet(mpqaN);
+        if (mpqaNSet == null) {
+            loadSentiSets();
+        }
+        Set<String> mpqaPSet = this.mpqaPSet;
+        Set<String> mpqaNSet = this.mpqaNSet;
         HashMap<String, Object> output = new HashMap<String, Object>();
         HashSet<String> positiveWords = new HashSet<String>();
         HashSet<String> negativeWords = new HashSet<String>();
@@ -51,6 +61,13 @@ public class BillMPQASentiment extends SentimentExtractor {
         return output;
     }
 
+    private synchronized void loadSentiSets() {
+        if (mpqaNSet == null) {
+            mpqaPSet = Collections.unmodifiableSet(readSentiSet(mpqaP));
+            mpqaNSet = Collections.unmodifiableSet(readSentiSet(mpqaN));
+        }
+    }
+
     /**
      *
      * @param filepath
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.text.nlp.namedentity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link IgnoreTokenClassifier}
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class IgnoreTokenClassifierTest {
+	private static final String[] NUMBERISH = new String[] {
+			"1", "-1", "+1.5", ".5", "5.", ".", "1e10", "1E-3", "1e", "1e+", "1.5f", "2D", "2dd",
+			" 3 ", "\t4\n", "NaN", "-NaN", "Infinity", "-Infinity", "infinity", "nan",
+			"0x1p3", "0X1.8P-1", "0x.8p1d", "0x1", "0xp1", "0x1.p", "1,000", "1_000", "", " ", "+", "-",
+			"twelve", "1st", "#1", "@user"
+	};
+
+	/**
+	 * The numeric check must agree with {@link Double#parseDouble(String)}
+	 */
+	@Test
+	public void testNumberParity() {
+		for (final String s : NUMBERISH) {
+			assertEquals(s, parses(s), IgnoreTokenClassifier.isNumber(s));
+		}
+		final Random r = new Random(1);
+		final String alphabet = "0123456789.eEpPxX+-fFdDaNIny ";
+		for (int i = 0; i < 100000; i++) {
+			final StringBuilder sb = new StringBuilder();
+			final int len = r.nextInt(7);
+			for (int j = 0; j < len; j++) {
+				sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+			}
+			final String s = sb.toString();
+			assertEquals(s, parses(s), IgnoreTokenClassifier.isNumber(s));
+		}
+	}
+
+	/**
+	 * The written number check must agree with the original expression
+	 */
+	@Test
+	public void testWrittenNumberParity() {
+		final Random r = new Random(1);
+		final String alphabet = "abcdefghijklmnopqrstuvwxyzABCXYZ -0?é";
+		for (int i = 0; i < 100000; i++) {
+			final StringBuilder sb = new StringBuilder();
+			final int len = r.nextInt(7);
+			for (int j = 0; j < len; j++) {
+				sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+			}
+			final String s = sb.toString();
+			assertEquals(s, IgnoreTokenClassifier.WRITTEN_NUMBERS.matcher(s.toLowerCase()).matches(),
+					IgnoreTokenClassifier.isWrittenNumber(s));
+		}
+		assertTrue(IgnoreTokenClassifier.isWrittenNumber("Ninety-Nine"));
+	}
+
+	/**
+	 * Cached and uncached classifiers must give the same verdicts
+	 */
+	@Test
+	public void testClassify() {
+		final HashSet<String> ignore = new HashSet<String>(Arrays.asList("the", "a"));
+		final IgnoreTokenClassifier cached = new IgnoreTokenClassifier(ignore, true, false, 2);
+		final IgnoreTokenClassifier uncached = new IgnoreTokenClassifier(ignore, true, false, 0);
+		for (int i = 0; i < 3; i++) {
+			for (final String s : new String[] { "The", "a", "apple", "12", "A" }) {
+				assertEquals(uncached.isIgnoreToken(s), cached.isIgnoreToken(s));
+			}
+		}
+		assertTrue(cached.isIgnoreToken("THE"));
+		assertFalse(cached.isIgnoreToken("12"));
+
+		final IgnoreTokenClassifier numbers = new IgnoreTokenClassifier(ignore, false, true);
+		assertTrue(numbers.isIgnoreToken("12"));
+		assertTrue(numbers.isIgnoreToken("twelve"));
+		assertFalse(numbers.isIgnoreToken("apple"));
+	}
+
+	/**
+	 * Threads sharing a classifier each fill their own cache and must get the
+	 * verdicts of an uncached classifier
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testThreads() throws InterruptedException {
+		final HashSet<String> ignore = new HashSet<String>(Arrays.asList("the", "a"));
+		final IgnoreTokenClassifier cached = new IgnoreTokenClassifier(ignore, true, true, 3);
+		final IgnoreTokenClassifier uncached = new IgnoreTokenClassifier(ignore, true, true, 0);
+		final String[] tokens = new String[] { "The", "a", "apple", "12", "twelve", "1e3", "x" };
+		final boolean[] failed = new boolean[1];
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final Random r = new Random(t);
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						final String s = tokens[r.nextInt(tokens.length)];
+						if (cached.isIgnoreToken(s) != uncached.isIgnoreToken(s)) {
+							synchronized (failed) {
+								failed[0] = true;
+							}
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread thread : threads)
+			thread.join();
+		assertFalse(failed[0]);
+	}
+
+	private static boolean parses(String s) {
+		try {
+			Double.parseDouble(s);
+			return true;
+		} catch (final NumberFormatException e) {
+			return false;
+		}
+	}
+}
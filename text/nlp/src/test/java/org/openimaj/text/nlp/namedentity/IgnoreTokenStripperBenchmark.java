@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.text.nlp.namedentity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openimaj.text.nlp.namedentity.IgnoreTokenStripper.Language;
+
+/**
+ * Micro-benchmark comparing the {@link IgnoreTokenStripper} against the
+ * exception driven check it replaced. Run it from the IDE or with
+ * <code>java -cp</code> over the test classpath.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class IgnoreTokenStripperBenchmark {
+	private static final String[] WORDS = new String[] {
+			"apple", "company", "the", "Olam", "singapore", "produces", "rice", "cotton", "HSBC",
+			"banking", "1994", "5000", "twenty-one", "Stanford", "Yahoo", "3.5", "#brexit", "@user"
+	};
+
+	/**
+	 * @param args
+	 *            optionally the number of tokens to classify
+	 */
+	public static void main(String[] args) {
+		final int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		final Random r = new Random(1);
+		final List<String> tokens = new ArrayList<String>(n);
+		for (int i = 0; i < n; i++) {
+			// mostly repeated vocabulary plus a long tail of unseen tokens
+			if (r.nextInt(10) == 0)
+				tokens.add(WORDS[r.nextInt(WORDS.length)] + r.nextInt(n));
+			else
+				tokens.add(new String(WORDS[r.nextInt(WORDS.length)]));
+		}
+		final IgnoreTokenStripper stripper = new IgnoreTokenStripper(Language.English);
+
+		for (int repeat = 0; repeat < 5; repeat++) {
+			long start = System.nanoTime();
+			int oldIgnored = 0;
+			for (final String token : tokens) {
+				if (exceptionCheck(token))
+					oldIgnored++;
+			}
+			final long oldTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int newIgnored = 0;
+			for (final String token : tokens) {
+				if (IgnoreTokenClassifier.isNumber(token) || IgnoreTokenClassifier.isWrittenNumber(token))
+					newIgnored++;
+			}
+			final long newTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int stripperIgnored = 0;
+			for (final String token : tokens) {
+				if (stripper.isIgnoreToken(token))
+					stripperIgnored++;
+			}
+			final long stripperTime = System.nanoTime() - start;
+
+			System.out.println(String.format(
+					"exception check: %dms (%d), scanner: %dms (%d), cached stripper: %dms (%d ignored)",
+					oldTime / 1000000, oldIgnored, newTime / 1000000, newIgnored, stripperTime / 1000000,
+					stripperIgnored));
+		}
+	}
+
+	private static boolean exceptionCheck(String token) {
+		try {
+			Double.parseDouble(token);
+			return true;
+		} catch (final Exception e) {
+		}
+		return IgnoreTokenClassifier.WRITTEN_NUMBERS.matcher(token.toLowerCase()).matches();
+	}
+}
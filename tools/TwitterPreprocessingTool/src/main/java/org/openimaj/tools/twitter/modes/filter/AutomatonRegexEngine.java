@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2012, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.tools.twitter.modes.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.kohsuke.args4j.Option;
+import org.openimaj.tools.twitter.modes.filter.JavaRegexEngine.RegexPatternMode;
+import org.openimaj.utils.threads.InterruptibleCharSequence;
+
+/**
+ * Matches all the regexes at once with a {@link RegexAutomaton}, so the cost
+ * of a match is a single pass over the string however many regexes there are.
+ * Regexes the automaton does not understand (back references, look-around
+ * and so on) are matched one at a time with {@link Pattern} as the
+ * {@link JavaRegexEngine} would.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public class AutomatonRegexEngine implements RegexEngine {
+
+	@Option(name="--regex-pattern-mode", aliases="-rpm", required=false, usage="The integer representing the mode handed to java's Pattern. All provided modes are logically OR-ed together", metaVar="STRING", multiValued=true)
+	List<RegexPatternMode> regexModes = new ArrayList<RegexPatternMode>();
+
+	private RegexAutomaton automaton;
+	private List<Pattern> fallback;
+
+	/**
+	 *
+	 */
+	public AutomatonRegexEngine() {
+		automaton = new RegexAutomaton();
+		fallback = new ArrayList<Pattern>();
+	}
+
+	@Override
+	public void add(String regex) {
+		int patternMode = 0;
+		for (RegexPatternMode mode : this.regexModes) {
+			patternMode |= mode.ord();
+		}
+		// compile anyway so bad patterns fail exactly as they would in java
+		Pattern pattern = Pattern.compile(regex, patternMode);
+		if(!automaton.add(regex, patternMode)){
+			this.fallback.add(pattern);
+		}
+	}
+
+	@Override
+	public boolean matches(String str) {
+		// both the automaton and the fallback patterns give up if interrupted
+		CharSequence chars = new InterruptibleCharSequence(str);
+		if(automaton.matches(chars)){
+			return true;
+		}
+		for (Pattern p : this.fallback) {
+			if(p.matcher(chars).matches()){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of regexes which are matched with {@link Pattern}
+	 *         rather than the automaton
+	 */
+	public int fallbackCount() {
+		return this.fallback.size();
+	}
+}
@@ -0,0 +1,922 @@
+/**
+ * Copyright (c) 2012, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.tools.twitter.modes.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles many regular expressions into one automaton which decides whether
+ * a string is entirely matched (as {@link java.util.regex.Matcher#matches()})
+ * by any of them in a single pass over the string.
+ * <p>
+ * The patterns are parsed into one Thompson NFA over code points, from which
+ * DFA states are built lazily as the input needs them. An automaton may be
+ * shared between threads: the NFA is only read once built, and each thread
+ * matching builds its own DFA states, so {@link #matches(CharSequence)} takes
+ * no lock. At most {@link #MAX_DFA_STATES} DFA states are held by each thread;
+ * if more are needed the cache is flushed and rebuilt as the scan continues.
+ * <p>
+ * Only the regular subset of {@link Pattern} syntax is understood: literals,
+ * escapes, character classes without unions or intersections, predefined
+ * classes (\d \w \s and their negations), ".", groups, alternation, greedy and
+ * reluctant quantifiers and a leading ^ or trailing $. Of the pattern flags
+ * {@link Pattern#CASE_INSENSITIVE}, {@link Pattern#DOTALL} and
+ * {@link Pattern#MULTILINE} are understood. {@link #add(String, int)} returns
+ * false for anything else (back references, look-around, possessive
+ * quantifiers, \b, \p{..} and so on) and the caller must match that pattern
+ * some other way.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class RegexAutomaton {
+	/**
+	 * The most DFA states held before the cache is flushed
+	 */
+	public static final int MAX_DFA_STATES = 10000;
+	/**
+	 * The most NFA states a single pattern may expand to
+	 */
+	public static final int MAX_PATTERN_STATES = 20000;
+
+	private static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+	private static final int UNKNOWN = -1;
+	private static final int DEAD = 0;
+
+	/**
+	 * Thrown while parsing a pattern outside the supported subset
+	 */
+	private static class Unsupported extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/*
+	 * Parsed patterns
+	 */
+	private static abstract class Node {
+	}
+
+	private static class SetNode extends Node {
+		int[] ranges;
+
+		SetNode(int[] ranges) {
+			this.ranges = ranges;
+		}
+	}
+
+	private static class ListNode extends Node {
+		boolean alternation;
+		List<Node> children = new ArrayList<Node>();
+
+		ListNode(boolean alternation) {
+			this.alternation = alternation;
+		}
+	}
+
+	private static class RepeatNode extends Node {
+		Node child;
+		int min;
+		int max;
+
+		RepeatNode(Node child, int min, int max) {
+			this.child = child;
+			this.min = min;
+			this.max = max;
+		}
+	}
+
+	private final List<Node> patterns = new ArrayList<Node>();
+	// the NFA of the current patterns, or null until it is next needed
+	private volatile Nfa nfa;
+	// each thread builds its own DFA states from the shared NFA
+	private final ThreadLocal<Dfa> dfa = new ThreadLocal<Dfa>();
+
+	/**
+	 * Add a pattern to the automaton
+	 *
+	 * @param regex
+	 *            the pattern
+	 * @param flags
+	 *            {@link Pattern} flags
+	 * @return false if the pattern (or flags) are not supported, in which
+	 *         case the pattern is not added
+	 */
+	public synchronized boolean add(String regex, int flags) {
+		final int understood = Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.MULTILINE;
+		if ((flags & ~understood) != 0)
+			return false;
+		try {
+			final Node node = new Parser(regex, flags).parse();
+			if (count(node) > MAX_PATTERN_STATES)
+				return false;
+			patterns.add(node);
+			nfa = null;
+			return true;
+		} catch (final Unsupported e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the number of patterns in the automaton
+	 */
+	public synchronized int size() {
+		return patterns.size();
+	}
+
+	/**
+	 * @param str
+	 * @return whether any pattern matches the whole of the string
+	 */
+	public boolean matches(CharSequence str) {
+		final Nfa nfa = compiled();
+		Dfa dfa = this.dfa.get();
+		if (dfa == null || dfa.nfa != nfa) {
+			dfa = new Dfa(nfa);
+			this.dfa.set(dfa);
+		}
+		int state = dfa.dfaStart;
+		final int len = str.length();
+		int i = 0;
+		while (i < len) {
+			final char c = str.charAt(i++);
+			int cp = c;
+			if (Character.isHighSurrogate(c) && i < len) {
+				final char low = str.charAt(i);
+				if (Character.isLowSurrogate(low)) {
+					cp = Character.toCodePoint(c, low);
+					i++;
+				}
+			}
+			state = dfa.step(state, nfa.classOf(cp));
+			if (state == DEAD)
+				return false;
+		}
+		return dfa.dfaAccept.get(state);
+	}
+
+	private Nfa compiled() {
+		final Nfa nfa = this.nfa;
+		if (nfa != null)
+			return nfa;
+		synchronized (this) {
+			if (this.nfa == null)
+				this.nfa = new Nfa(patterns);
+			return this.nfa;
+		}
+	}
+
+	private static boolean inClasses(int[] classRanges, int cls) {
+		int lo = 0;
+		int hi = classRanges.length / 2 - 1;
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (cls < classRanges[2 * mid])
+				hi = mid - 1;
+			else if (cls > classRanges[2 * mid + 1])
+				lo = mid + 1;
+			else
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The NFA and alphabet of the patterns, never changed once built. Each
+	 * state either consumes a character in setOf[s] and moves to next[s], or
+	 * (setOf[s] == -1) moves on epsilon edges to eps[s].
+	 */
+	private static final class Nfa {
+		private int nStates;
+		private int[] setOf;
+		private int[] next;
+		private int[][] eps;
+		private int[] nEps;
+		private final int acceptState;
+		private final int startState;
+		private final List<int[]> sets;
+		private int[][] setClasses;
+
+		/*
+		 * The alphabet is split into classes of code points no pattern tells
+		 * apart
+		 */
+		private int[] boundaries;
+		private int[] bmpClass;
+		private int nClasses;
+
+		Nfa(List<Node> patterns) {
+			nStates = 0;
+			setOf = new int[64];
+			next = new int[64];
+			eps = new int[64][];
+			nEps = new int[64];
+			sets = new ArrayList<int[]>();
+
+			startState = newState();
+			acceptState = newState();
+			for (final Node pattern : patterns) {
+				final int[] frag = build(pattern);
+				addEps(startState, frag[0]);
+				addEps(frag[1], acceptState);
+			}
+			buildAlphabet();
+		}
+
+		private int classOf(int cp) {
+			if (cp < bmpClass.length)
+				return bmpClass[cp];
+			int idx = Arrays.binarySearch(boundaries, cp);
+			if (idx < 0)
+				idx = -idx - 2;
+			return idx;
+		}
+
+		private int newState() {
+			if (nStates == setOf.length) {
+				final int size = nStates * 2;
+				setOf = Arrays.copyOf(setOf, size);
+				next = Arrays.copyOf(next, size);
+				eps = Arrays.copyOf(eps, size);
+				nEps = Arrays.copyOf(nEps, size);
+			}
+			setOf[nStates] = -1;
+			next[nStates] = -1;
+			return nStates++;
+		}
+
+		private void addEps(int from, int to) {
+			if (eps[from] == null)
+				eps[from] = new int[2];
+			else if (nEps[from] == eps[from].length)
+				eps[from] = Arrays.copyOf(eps[from], nEps[from] * 2);
+			eps[from][nEps[from]++] = to;
+		}
+
+		/**
+		 * @return the start and end state of a fragment matching the node
+		 */
+		private int[] build(Node node) {
+			if (node instanceof SetNode) {
+				final int s = newState();
+				final int e = newState();
+				setOf[s] = sets.size();
+				sets.add(((SetNode) node).ranges);
+				next[s] = e;
+				return new int[] { s, e };
+			}
+			if (node instanceof ListNode) {
+				final ListNode list = (ListNode) node;
+				final int s = newState();
+				final int e = newState();
+				if (list.alternation) {
+					for (final Node child : list.children) {
+						final int[] frag = build(child);
+						addEps(s, frag[0]);
+						addEps(frag[1], e);
+					}
+				} else {
+					int last = s;
+					for (final Node child : list.children) {
+						final int[] frag = build(child);
+						addEps(last, frag[0]);
+						last = frag[1];
+					}
+					addEps(last, e);
+				}
+				return new int[] { s, e };
+			}
+			final RepeatNode rep = (RepeatNode) node;
+			final int s = newState();
+			int last = s;
+			for (int i = 0; i < rep.min; i++) {
+				final int[] frag = build(rep.child);
+				addEps(last, frag[0]);
+				last = frag[1];
+			}
+			final int e = newState();
+			if (rep.max < 0) {
+				final int[] frag = build(rep.child);
+				addEps(last, frag[0]);
+				addEps(frag[1], frag[0]);
+				addEps(frag[1], e);
+				addEps(last, e);
+			} else {
+				for (int i = rep.min; i < rep.max; i++) {
+					final int[] frag = build(rep.child);
+					addEps(last, frag[0]);
+					addEps(last, e);
+					last = frag[1];
+				}
+				addEps(last, e);
+			}
+			return new int[] { s, e };
+		}
+
+		private void buildAlphabet() {
+			boundaries = unique(collectPoints());
+			nClasses = boundaries.length;
+
+			bmpClass = new int[Character.MIN_SUPPLEMENTARY_CODE_POINT];
+			int cls = 0;
+			for (int cp = 0; cp < bmpClass.length; cp++) {
+				while (cls + 1 < boundaries.length && boundaries[cls + 1] <= cp)
+					cls++;
+				bmpClass[cp] = cls;
+			}
+
+			setClasses = new int[sets.size()][];
+			for (int s = 0; s < sets.size(); s++) {
+				final int[] ranges = sets.get(s);
+				final int[] classRanges = new int[ranges.length];
+				for (int i = 0; i < ranges.length; i += 2) {
+					classRanges[i] = Arrays.binarySearch(boundaries, ranges[i]);
+					int hi = Arrays.binarySearch(boundaries, ranges[i + 1]);
+					if (hi < 0)
+						hi = -hi - 2;
+					classRanges[i + 1] = hi;
+				}
+				setClasses[s] = classRanges;
+			}
+		}
+
+		private int[] collectPoints() {
+			int total = 1;
+			for (final int[] ranges : sets)
+				total += ranges.length;
+			final int[] points = new int[total];
+			int n = 0;
+			points[n++] = 0;
+			for (final int[] ranges : sets) {
+				for (int i = 0; i < ranges.length; i += 2) {
+					points[n++] = ranges[i];
+					points[n++] = ranges[i + 1] < MAX_CODE_POINT ? ranges[i + 1] + 1 : 0;
+				}
+			}
+			return points;
+		}
+	}
+
+	/**
+	 * The DFA states one thread has built so far from an {@link Nfa}
+	 */
+	private static final class Dfa {
+		private final Nfa nfa;
+		private Map<IntArrayKey, Integer> dfaIndex;
+		private List<int[]> dfaSets;
+		private List<int[]> dfaTrans;
+		private List<Boolean> dfaAccept;
+		private int dfaStart;
+
+		private final int[] stack;
+		private final int[] mark;
+		private final int[] found;
+		private int markGen;
+
+		Dfa(Nfa nfa) {
+			this.nfa = nfa;
+			stack = new int[nfa.nStates];
+			mark = new int[nfa.nStates];
+			found = new int[nfa.nStates];
+			markGen = 0;
+			resetDfa();
+		}
+
+		private int step(int state, int cls) {
+			int[] trans = dfaTrans.get(state);
+			final int known = trans[cls];
+			if (known != UNKNOWN)
+				return known;
+
+			final int[] from = dfaSets.get(state);
+			int n = 0;
+			final int[] targets = new int[from.length];
+			for (final int s : from) {
+				final int set = nfa.setOf[s];
+				if (set >= 0 && inClasses(nfa.setClasses[set], cls))
+					targets[n++] = nfa.next[s];
+			}
+			if (dfaSets.size() >= MAX_DFA_STATES) {
+				// flush the cache, keeping only the start state and this one
+				final int[] current = from;
+				resetDfa();
+				state = dfaState(current);
+				trans = dfaTrans.get(state);
+			}
+			final int to = dfaState(closure(targets, n));
+			trans[cls] = to;
+			return to;
+		}
+
+		private void resetDfa() {
+			dfaIndex = new HashMap<IntArrayKey, Integer>();
+			dfaSets = new ArrayList<int[]>();
+			dfaTrans = new ArrayList<int[]>();
+			dfaAccept = new ArrayList<Boolean>();
+			dfaState(new int[0]); // DEAD
+			dfaStart = dfaState(closure(new int[] { nfa.startState }, 1));
+		}
+
+		private int dfaState(int[] nfaStates) {
+			final IntArrayKey key = new IntArrayKey(nfaStates);
+			final Integer existing = dfaIndex.get(key);
+			if (existing != null)
+				return existing;
+			final int id = dfaSets.size();
+			dfaIndex.put(key, id);
+			dfaSets.add(nfaStates);
+			final int[] trans = new int[nfa.nClasses];
+			Arrays.fill(trans, id == DEAD ? DEAD : UNKNOWN);
+			dfaTrans.add(trans);
+			boolean accept = false;
+			for (final int s : nfaStates)
+				accept |= s == nfa.acceptState;
+			dfaAccept.add(accept);
+			return id;
+		}
+
+		/**
+		 * @return the sorted states reachable on epsilon edges from the first
+		 *         n states
+		 */
+		private int[] closure(int[] states, int n) {
+			markGen++;
+			int top = 0;
+			int count = 0;
+			for (int i = 0; i < n; i++) {
+				if (mark[states[i]] != markGen) {
+					mark[states[i]] = markGen;
+					stack[top++] = states[i];
+				}
+			}
+			while (top > 0) {
+				final int s = stack[--top];
+				// only states which consume input or accept distinguish DFA
+				// states
+				if (nfa.setOf[s] >= 0 || s == nfa.acceptState)
+					found[count++] = s;
+				for (int e = 0; e < nfa.nEps[s]; e++) {
+					final int t = nfa.eps[s][e];
+					if (mark[t] != markGen) {
+						mark[t] = markGen;
+						stack[top++] = t;
+					}
+				}
+			}
+			final int[] ret = Arrays.copyOf(found, count);
+			Arrays.sort(ret);
+			return ret;
+		}
+	}
+
+	private static int count(Node node) {
+		if (node instanceof SetNode)
+			return 2;
+		if (node instanceof ListNode) {
+			int n = 2;
+			for (final Node child : ((ListNode) node).children)
+				n += count(child);
+			return n;
+		}
+		final RepeatNode rep = (RepeatNode) node;
+		final long copies = rep.max < 0 ? rep.min + 1 : rep.max;
+		final long n = 2 + copies * count(rep.child);
+		return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+	}
+
+	private static int[] unique(int[] points) {
+		Arrays.sort(points);
+		int n = 0;
+		for (int i = 0; i < points.length; i++) {
+			if (i == 0 || points[i] != points[i - 1])
+				points[n++] = points[i];
+		}
+		return Arrays.copyOf(points, n);
+	}
+
+	private static class IntArrayKey {
+		private final int[] values;
+		private final int hash;
+
+		IntArrayKey(int[] values) {
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IntArrayKey && Arrays.equals(values, ((IntArrayKey) obj).values);
+		}
+	}
+
+	/*
+	 * Parsing
+	 */
+
+	private static class Parser {
+		private final int[] cps;
+		private int pos;
+		private final int end;
+		private final boolean caseInsensitive;
+		private final boolean dotAll;
+
+		Parser(String regex, int flags) throws Unsupported {
+			final int n = regex.codePointCount(0, regex.length());
+			cps = new int[n];
+			for (int i = 0, j = 0; i < regex.length(); j++) {
+				cps[j] = regex.codePointAt(i);
+				i += Character.charCount(cps[j]);
+			}
+			caseInsensitive = (flags & Pattern.CASE_INSENSITIVE) != 0;
+			dotAll = (flags & Pattern.DOTALL) != 0;
+			int start = 0;
+			int stop = n;
+			// a leading ^ and trailing $ always hold for a whole string match,
+			// except that a multiline ^ never matches at the end of the input
+			if (stop > 0 && cps[0] == '^') {
+				if ((flags & Pattern.MULTILINE) != 0)
+					throw new Unsupported();
+				start = 1;
+			}
+			if (stop > start && cps[stop - 1] == '$') {
+				int slashes = 0;
+				for (int i = stop - 2; i >= start && cps[i] == '\\'; i--)
+					slashes++;
+				if (slashes % 2 == 0)
+					stop--;
+			}
+			pos = start;
+			end = stop;
+		}
+
+		Node parse() throws Unsupported {
+			final Node node = parseAlternation();
+			if (pos != end)
+				throw new Unsupported();
+			return node;
+		}
+
+		private boolean more() {
+			return pos < end;
+		}
+
+		private int peek() {
+			return cps[pos];
+		}
+
+		private Node parseAlternation() throws Unsupported {
+			final ListNode alt = new ListNode(true);
+			alt.children.add(parseConcatenation());
+			while (more() && peek() == '|') {
+				pos++;
+				alt.children.add(parseConcatenation());
+			}
+			return alt.children.size() == 1 ? alt.children.get(0) : alt;
+		}
+
+		private Node parseConcatenation() throws Unsupported {
+			final ListNode cat = new ListNode(false);
+			while (more() && peek() != '|' && peek() != ')')
+				cat.children.add(parseRepeat());
+			return cat.children.size() == 1 ? cat.children.get(0) : cat;
+		}
+
+		private Node parseRepeat() throws Unsupported {
+			Node atom = parseAtom();
+			while (more()) {
+				final int c = peek();
+				int min, max;
+				if (c == '*') {
+					min = 0;
+					max = -1;
+					pos++;
+				} else if (c == '+') {
+					min = 1;
+					max = -1;
+					pos++;
+				} else if (c == '?') {
+					min = 0;
+					max = 1;
+					pos++;
+				} else if (c == '{') {
+					pos++;
+					min = parseInt();
+					max = min;
+					if (more() && peek() == ',') {
+						pos++;
+						max = more() && peek() == '}' ? -1 : parseInt();
+					}
+					expect('}');
+					if (max >= 0 && max < min)
+						throw new Unsupported();
+				} else {
+					break;
+				}
+				if (more() && peek() == '?') {
+					// reluctance does not change whether the whole string matches
+					pos++;
+				} else if (more() && peek() == '+') {
+					// possessive quantifiers do
+					throw new Unsupported();
+				}
+				atom = new RepeatNode(atom, min, max);
+			}
+			return atom;
+		}
+
+		private int parseInt() throws Unsupported {
+			final int start = pos;
+			long value = 0;
+			while (more() && peek() >= '0' && peek() <= '9') {
+				value = value * 10 + (peek() - '0');
+				if (value > MAX_PATTERN_STATES)
+					throw new Unsupported();
+				pos++;
+			}
+			if (pos == start)
+				throw new Unsupported();
+			return (int) value;
+		}
+
+		private void expect(int c) throws Unsupported {
+			if (!more() || peek() != c)
+				throw new Unsupported();
+			pos++;
+		}
+
+		private Node parseAtom() throws Unsupported {
+			final int c = cps[pos++];
+			switch (c) {
+			case '(':
+				if (more() && peek() == '?') {
+					pos++;
+					// only non-capturing groups, no look-around, flags or names
+					expect(':');
+				}
+				final Node group = parseAlternation();
+				expect(')');
+				return group;
+			case '[':
+				return new SetNode(parseClass());
+			case '.':
+				if (dotAll)
+					return new SetNode(new int[] { 0, MAX_CODE_POINT });
+				return new SetNode(complement(normalise(new int[] {
+						'\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029 })));
+			case '\\':
+				return new SetNode(caseVariants(parseEscape(false)));
+			case '^':
+			case '$':
+			case ')':
+			case '*':
+			case '+':
+			case '?':
+			case '{':
+				throw new Unsupported();
+			default:
+				return new SetNode(caseVariants(new int[] { c, c }));
+			}
+		}
+
+		private int[] parseClass() throws Unsupported {
+			boolean negate = false;
+			if (more() && peek() == '^') {
+				negate = true;
+				pos++;
+			}
+			if (more() && peek() == ']')
+				throw new Unsupported();
+			final List<int[]> parts = new ArrayList<int[]>();
+			while (true) {
+				if (!more())
+					throw new Unsupported();
+				int c = peek();
+				if (c == ']') {
+					pos++;
+					break;
+				}
+				if (c == '[')
+					throw new Unsupported();
+				if (c == '&' && pos + 1 < end && cps[pos + 1] == '&')
+					throw new Unsupported();
+				pos++;
+				int[] single;
+				if (c == '\\') {
+					single = parseEscape(true);
+					if (!(single.length == 2 && single[0] == single[1])) {
+						// a predefined class, which can not start a range
+						parts.add(single);
+						continue;
+					}
+					c = single[0];
+				}
+				if (more() && peek() == '-' && pos + 1 < end && cps[pos + 1] != ']') {
+					pos++;
+					int hi = cps[pos++];
+					if (hi == '[' || hi == '&')
+						throw new Unsupported();
+					if (hi == '\\') {
+						final int[] esc = parseEscape(true);
+						if (!(esc.length == 2 && esc[0] == esc[1]))
+							throw new Unsupported();
+						hi = esc[0];
+					}
+					if (hi < c)
+						throw new Unsupported();
+					parts.add(new int[] { c, hi });
+				} else {
+					parts.add(new int[] { c, c });
+				}
+			}
+			int total = 0;
+			for (final int[] part : parts)
+				total += part.length;
+			final int[] all = new int[total];
+			int n = 0;
+			for (final int[] part : parts) {
+				System.arraycopy(part, 0, all, n, part.length);
+				n += part.length;
+			}
+			final int[] set = caseVariants(normalise(all));
+			return negate ? complement(set) : set;
+		}
+
+		/**
+		 * @return the ranges of the character or predefined class escaped
+		 */
+		private int[] parseEscape(boolean inClass) throws Unsupported {
+			if (!more())
+				throw new Unsupported();
+			final int c = cps[pos++];
+			switch (c) {
+			case 'd':
+				return new int[] { '0', '9' };
+			case 'D':
+				return complement(new int[] { '0', '9' });
+			case 'w':
+				return new int[] { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+			case 'W':
+				return complement(new int[] { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' });
+			case 's':
+				return new int[] { '\t', '\r', ' ', ' ' };
+			case 'S':
+				return complement(new int[] { '\t', '\r', ' ', ' ' });
+			case 't':
+				return new int[] { '\t', '\t' };
+			case 'n':
+				return new int[] { '\n', '\n' };
+			case 'r':
+				return new int[] { '\r', '\r' };
+			case 'f':
+				return new int[] { '\f', '\f' };
+			case 'a':
+				return new int[] { 0x07, 0x07 };
+			case 'e':
+				return new int[] { 0x1B, 0x1B };
+			case 'x': {
+				final int v = parseHex(2);
+				return new int[] { v, v };
+			}
+			case 'u': {
+				final int v = parseHex(4);
+				return new int[] { v, v };
+			}
+			default:
+				if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))
+					throw new Unsupported();
+				return new int[] { c, c };
+			}
+		}
+
+		private int parseHex(int digits) throws Unsupported {
+			int v = 0;
+			for (int i = 0; i < digits; i++) {
+				if (!more())
+					throw new Unsupported();
+				final int d = Character.digit(cps[pos++], 16);
+				if (d < 0)
+					throw new Unsupported();
+				v = v * 16 + d;
+			}
+			// surrogates written as escapes pair up in java, keep it simple
+			if (v >= Character.MIN_SURROGATE && v <= Character.MAX_SURROGATE)
+				throw new Unsupported();
+			return v;
+		}
+
+		/**
+		 * Without {@link Pattern#UNICODE_CASE} java folds the case of ASCII
+		 * letters only
+		 */
+		private int[] caseVariants(int[] set) {
+			if (!caseInsensitive)
+				return set;
+			final List<Integer> extra = new ArrayList<Integer>();
+			for (int c = 'A'; c <= 'Z'; c++) {
+				final int lower = c + ('a' - 'A');
+				final boolean hasUpper = contains(set, c);
+				final boolean hasLower = contains(set, lower);
+				if (hasUpper && !hasLower)
+					extra.add(lower);
+				if (hasLower && !hasUpper)
+					extra.add(c);
+			}
+			if (extra.isEmpty())
+				return set;
+			final int[] all = Arrays.copyOf(set, set.length + extra.size() * 2);
+			int n = set.length;
+			for (final int c : extra) {
+				all[n++] = c;
+				all[n++] = c;
+			}
+			return normalise(all);
+		}
+	}
+
+	/*
+	 * Sets of code points as sorted, disjoint, inclusive [lo, hi] pairs
+	 */
+
+	private static boolean contains(int[] ranges, int c) {
+		for (int i = 0; i < ranges.length; i += 2) {
+			if (c >= ranges[i] && c <= ranges[i + 1])
+				return true;
+		}
+		return false;
+	}
+
+	private static int[] normalise(int[] ranges) {
+		final int n = ranges.length / 2;
+		final long[] packed = new long[n];
+		for (int i = 0; i < n; i++)
+			packed[i] = ((long) ranges[2 * i] << 32) | ranges[2 * i + 1];
+		Arrays.sort(packed);
+		final int[] out = new int[ranges.length];
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			final int lo = (int) (packed[i] >>> 32);
+			final int hi = (int) packed[i];
+			if (m > 0 && lo <= out[m - 1] + 1) {
+				out[m - 1] = Math.max(out[m - 1], hi);
+			} else {
+				out[m++] = lo;
+				out[m++] = hi;
+			}
+		}
+		return Arrays.copyOf(out, m);
+	}
+
+	private static int[] complement(int[] ranges) {
+		final int[] out = new int[ranges.length + 2];
+		int m = 0;
+		int from = 0;
+		for (int i = 0; i < ranges.length; i += 2) {
+			if (ranges[i] > from) {
+				out[m++] = from;
+				out[m++] = ranges[i] - 1;
+			}
+			from = ranges[i + 1] + 1;
+		}
+		if (from <= MAX_CODE_POINT) {
+			out[m++] = from;
+			out[m++] = MAX_CODE_POINT;
+		}
+		return Arrays.copyOf(out, m);
+	}
+}
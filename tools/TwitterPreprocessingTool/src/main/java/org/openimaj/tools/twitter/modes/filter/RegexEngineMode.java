@@ -47,6 +47,15 @@ public enum RegexEngineMode implements CmdLineOptionsProvider{
 		public RegexEngine getOptions() {
 			return new JavaRegexEngine();
 		}
+	},
+	/**
+	 * All regexes compiled into one lazily built DFA, see {@link RegexAutomaton}
+	 */
+	AUTOMATON {
+		@Override
+		public RegexEngine getOptions() {
+			return new AutomatonRegexEngine();
+		}
 	};
 
 	@Override
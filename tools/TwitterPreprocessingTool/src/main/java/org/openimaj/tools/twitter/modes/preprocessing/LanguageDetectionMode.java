@@ -56,12 +56,13 @@ public class LanguageDetectionMode extends TwitterPreprocessingMode<Map<String,
 	final static String LANGUAGES = "langid";
 
 	/**
-	 * Loads the language detector
+	 * Loads the language detector. The detector keeps its own workspace but
+	 * the language model itself is shared through {@link PreprocessingModels}
 	 * 
 	 * @throws IOException
 	 */
 	public LanguageDetectionMode() throws IOException {
-		detector = new LanguageDetector();
+		detector = new LanguageDetector(PreprocessingModels.languageModel());
 	}
 
 	@Override
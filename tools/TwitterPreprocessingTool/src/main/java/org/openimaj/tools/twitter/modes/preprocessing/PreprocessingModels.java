@@ -0,0 +1,75 @@
+package org.openimaj.tools.twitter.modes.preprocessing;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.openimaj.text.nlp.language.LanguageDetector;
+import org.openimaj.text.nlp.language.LanguageModel;
+import org.openimaj.text.nlp.namedentity.IgnoreTokenClassifier;
+import org.openimaj.text.nlp.sentiment.BillMPQASentiment;
+
+/**
+ * The models used by the {@link TwitterPreprocessingMode}s, loaded once per
+ * JVM and shared by every mode instance. Nothing returned here is modified
+ * after it is loaded, so the models may be used from any number of threads;
+ * the modes themselves hold only cheap per-thread state (workspaces,
+ * stemmers) on top of these. This means a multithreaded mapper holds one copy
+ * of each model however many threads it runs, and a reused JVM keeps its
+ * models loaded between tasks.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ *
+ */
+public final class PreprocessingModels {
+	private static LanguageModel languageModel;
+	private static Map<String, IgnoreTokenClassifier> stopwords;
+	private static BillMPQASentiment sentiment;
+
+	private PreprocessingModels() {
+	}
+
+	/**
+	 * @return the language model used by {@link LanguageDetector}s, loaded on
+	 *         first use
+	 * @throws IOException
+	 */
+	public static synchronized LanguageModel languageModel() throws IOException {
+		if (languageModel == null) {
+			languageModel = new LanguageDetector().getLanguageModel();
+		}
+		return languageModel;
+	}
+
+	/**
+	 * @return stopword classifiers keyed by language, loaded on first use
+	 */
+	public static synchronized Map<String, IgnoreTokenClassifier> stopwords() {
+		if (stopwords == null) {
+			stopwords = Collections.unmodifiableMap(StopwordMode.loadStopwords());
+		}
+		return stopwords;
+	}
+
+	/**
+	 * @return the sentiment word lists
+	 */
+	public static synchronized BillMPQASentiment sentiment() {
+		if (sentiment == null) {
+			sentiment = new BillMPQASentiment();
+		}
+		return sentiment;
+	}
+
+	/**
+	 * Load every model now rather than on first use, so the first tweets
+	 * processed are not slowed and any load failure happens up front
+	 *
+	 * @throws IOException
+	 */
+	public static void prewarm() throws IOException {
+		languageModel();
+		stopwords();
+		sentiment();
+	}
+}
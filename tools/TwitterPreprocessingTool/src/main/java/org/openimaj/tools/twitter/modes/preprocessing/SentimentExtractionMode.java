@@ -11,7 +11,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openimaj.ml.annotation.ScoredAnnotation;
-import org.openimaj.text.nlp.sentiment.BillMPQASentiment;
 import org.openimaj.text.nlp.sentiment.SentimentExtractor;
 import org.openimaj.text.nlp.sentiment.model.wordlist.MPQAToken;
 import org.openimaj.text.nlp.sentiment.model.wordlist.MPQATokenList;
@@ -31,7 +30,7 @@ public class SentimentExtractionMode extends TwitterPreprocessingMode<Map<String
     public SentimentExtractionMode() throws IOException {
         try {
             tokMode = new TokeniseMode();
-            this.mpqaTokenList = new BillMPQASentiment();
+            this.mpqaTokenList = PreprocessingModels.sentiment();
         }
         catch (Exception e) {
             throw new IOException("Couldn't create required language detector and tokeniser", e);
@@ -6,9 +6,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.openimaj.io.FileUtils;
 import org.openimaj.text.nlp.language.LanguageDetector.WeightedLocale;
+import org.openimaj.text.nlp.namedentity.IgnoreTokenClassifier;
 import org.openimaj.twitter.USMFStatus;
 
 /**
@@ -36,19 +38,20 @@ public class StopwordMode extends TwitterPreprocessingMode<List<String>> {
 	};
 	private LanguageDetectionMode langMode;
 	private TokeniseMode tokMode;
-	private HashMap<String, HashSet<String>> languageStopwords;
+	private Map<String, IgnoreTokenClassifier> languageStopwords;
 
 	/**
+	 * Uses the stopwords shared through {@link PreprocessingModels}
 	 * @throws IOException
 	 */
 	public StopwordMode() throws IOException {
 		langMode = new LanguageDetectionMode();
 		tokMode = new TokeniseMode();
-		languageStopwords = loadStopwords();
+		languageStopwords = PreprocessingModels.stopwords();
 	}
 
-	private HashMap<String, HashSet<String>> loadStopwords() {
-		HashMap<String,HashSet<String>> retMap = new HashMap<String,HashSet<String>>();
+	static HashMap<String, IgnoreTokenClassifier> loadStopwords() {
+		HashMap<String,HashSet<String>> swMap = new HashMap<String,HashSet<String>>();
 		for (String[] swLangFile: STOPWORD_FILES) {
 			try {
 				HashSet<String> ret = new HashSet<String>();
@@ -57,9 +60,13 @@ public class StopwordMode extends TwitterPreprocessingMode<List<String>> {
 					if(sw.startsWith("#")) continue;
 					ret.add(sw.toLowerCase().trim());
 				}
-				retMap.put(swLangFile[0], ret);
+				swMap.put(swLangFile[0], ret);
 			} catch (IOException e) {	}
 		}
+		HashMap<String,IgnoreTokenClassifier> retMap = new HashMap<String,IgnoreTokenClassifier>();
+		for (Entry<String, HashSet<String>> langStopwords : swMap.entrySet()) {
+			retMap.put(langStopwords.getKey(), new IgnoreTokenClassifier(langStopwords.getValue(), true, false));
+		}
 		return retMap;
 	}
 
@@ -79,10 +86,10 @@ public class StopwordMode extends TwitterPreprocessingMode<List<String>> {
 			else{
 				HashSet<String> protectedToks = new HashSet<String>();
 				protectedToks.addAll(tokens.get(TokeniseMode.TOKENS_PROTECTED));
-				HashSet<String> stopwords = languageStopwords.get(country);
+				IgnoreTokenClassifier stopwords = languageStopwords.get(country);
 				for (String token : tokens.get(TokeniseMode.TOKENS_ALL)) {
 					if(!protectedToks.contains(token)) {
-						if(!stopwords.contains(token.toLowerCase()))
+						if(!stopwords.isIgnoreToken(token))
 							nonstopwords.add(token);
 					}
 					else{
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2012, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.tools.twitter.modes.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Checks the {@link RegexAutomaton} agrees with {@link Pattern}
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class RegexAutomatonTest {
+	private static final String[] ATOMS = { "a", "b", "c", "A", ".", "\\d", "\\w", "\\s", "\\W", "[a-c]", "[^ab]",
+			"[\\dx-z]", "\\.", "\\n", "\\u00e9", " " };
+	private static final String ALPHABET = "abcABCxyz019 .\n\ré _-";
+
+	/**
+	 * Single patterns with and without flags
+	 */
+	@Test
+	public void testSinglePatterns() {
+		final String[] patterns = { "abc", "a*b+c?", "(ab|cd)*", "(?:x|y){2,3}z", "^hello.*world$", "[^a-z]+",
+				"\\d{3}-\\d{4}", "a.b", "\\w+@\\w+\\.com", "a{0}b", "(a|)b", "a??b*?", "" };
+		final String[] inputs = { "abc", "abbb", "", "ababcd", "xyz", "xyxyz", "hello big world", "HELLO WORLD",
+				"123-4567", "a\nb", "a.b", "me@you.com", "b", "ab", "ABC" };
+		final int[] flags = { 0, Pattern.CASE_INSENSITIVE, Pattern.DOTALL, Pattern.MULTILINE };
+		for (final int flag : flags) {
+			for (final String regex : patterns) {
+				final RegexAutomaton automaton = new RegexAutomaton();
+				if (regex.startsWith("^") && flag == Pattern.MULTILINE) {
+					// a multiline ^ does not match at the end of the input
+					assertFalse(regex, automaton.add(regex, flag));
+					continue;
+				}
+				assertTrue(regex, automaton.add(regex, flag));
+				final Pattern pattern = Pattern.compile(regex, flag);
+				for (final String input : inputs)
+					assertEquals(regex + " ~ " + input, pattern.matcher(input).matches(), automaton.matches(input));
+			}
+		}
+	}
+
+	/**
+	 * Patterns the automaton can't do are refused rather than misread
+	 */
+	@Test
+	public void testUnsupported() {
+		final String[] patterns = { "(a)\\1", "a(?=b)", "a*+", "\\bword", "\\p{Lu}", "(?i)abc", "a$b", "[a-z&&[^b]]",
+				"\\Qa.b\\E" };
+		for (final String regex : patterns) {
+			Pattern.compile(regex);
+			assertFalse(regex, new RegexAutomaton().add(regex, 0));
+		}
+		assertFalse(new RegexAutomaton().add("abc", Pattern.UNICODE_CASE));
+	}
+
+	/**
+	 * Many random patterns in one automaton against each pattern on its own
+	 */
+	@Test
+	public void testRandomPatterns() {
+		final Random random = new Random(1);
+		for (int round = 0; round < 50; round++) {
+			final int flag = random.nextBoolean() ? 0 : Pattern.CASE_INSENSITIVE;
+			final RegexAutomaton automaton = new RegexAutomaton();
+			final List<Pattern> patterns = new ArrayList<Pattern>();
+			for (int i = 0; i < 1 + random.nextInt(20); i++) {
+				final String regex = randomRegex(random, 3);
+				assertTrue(regex, automaton.add(regex, flag));
+				patterns.add(Pattern.compile(regex, flag));
+			}
+			for (int i = 0; i < 200; i++) {
+				final StringBuilder input = new StringBuilder();
+				final int len = random.nextInt(8);
+				for (int j = 0; j < len; j++)
+					input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+				boolean expected = false;
+				for (final Pattern pattern : patterns)
+					expected |= pattern.matcher(input).matches();
+				assertEquals(patterns + " ~ " + input, expected, automaton.matches(input));
+			}
+		}
+	}
+
+	/**
+	 * One automaton shared by several threads, each building its own DFA
+	 * states, agrees with {@link Pattern} in every thread
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSharedBetweenThreads() throws Exception {
+		final Random random = new Random(2);
+		final RegexAutomaton automaton = new RegexAutomaton();
+		final List<Pattern> patterns = new ArrayList<Pattern>();
+		for (int i = 0; i < 20; i++) {
+			final String regex = randomRegex(random, 3);
+			assertTrue(regex, automaton.add(regex, 0));
+			patterns.add(Pattern.compile(regex));
+		}
+
+		final ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int t = 0; t < 4; t++) {
+				final long seed = t;
+				results.add(pool.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						final Random inputs = new Random(seed);
+						int wrong = 0;
+						for (int i = 0; i < 5000; i++) {
+							final StringBuilder input = new StringBuilder();
+							final int len = inputs.nextInt(8);
+							for (int j = 0; j < len; j++)
+								input.append(ALPHABET.charAt(inputs.nextInt(ALPHABET.length())));
+							boolean expected = false;
+							for (final Pattern pattern : patterns)
+								expected |= pattern.matcher(input).matches();
+							if (expected != automaton.matches(input))
+								wrong++;
+						}
+						return wrong;
+					}
+				}));
+			}
+			for (final Future<Integer> result : results)
+				assertEquals(0, (int) result.get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static String randomRegex(Random random, int depth) {
+		final StringBuilder regex = new StringBuilder();
+		final int parts = 1 + random.nextInt(3);
+		for (int i = 0; i < parts; i++) {
+			if (depth > 0 && random.nextInt(4) == 0) {
+				regex.append("(").append(randomRegex(random, depth - 1));
+				if (random.nextBoolean())
+					regex.append("|").append(randomRegex(random, depth - 1));
+				regex.append(")");
+			} else {
+				regex.append(ATOMS[random.nextInt(ATOMS.length)]);
+			}
+			switch (random.nextInt(6)) {
+			case 0:
+				regex.append("*");
+				break;
+			case 1:
+				regex.append("+?");
+				break;
+			case 2:
+				regex.append("?");
+				break;
+			case 3:
+				regex.append("{1,2}");
+				break;
+			default:
+				break;
+			}
+		}
+		return regex.toString();
+	}
+}
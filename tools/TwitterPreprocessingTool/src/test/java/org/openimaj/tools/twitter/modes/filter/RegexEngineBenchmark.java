@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2012, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.tools.twitter.modes.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the {@link RegexEngineMode#JAVA} and
+ * {@link RegexEngineMode#AUTOMATON} engines on synthetic tweets with 10, 100
+ * and 1000 regexes of the sort handed to the grep filter.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class RegexEngineBenchmark {
+	private static final String[] WORDS = { "the", "olympics", "london", "game", "win", "gold", "team", "watch",
+			"great", "today", "football", "match", "news", "vote", "election", "rt", "lol", "http", "love", "new" };
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		final Random random = new Random(1);
+		final List<String> tweets = new ArrayList<String>();
+		for (int i = 0; i < 20000; i++) {
+			final StringBuilder tweet = new StringBuilder();
+			final int len = 5 + random.nextInt(15);
+			for (int j = 0; j < len; j++)
+				tweet.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? "! " : " ");
+			tweets.add(tweet.toString().trim());
+		}
+		for (final int count : new int[] { 10, 100, 1000 }) {
+			final RegexEngine java = RegexEngineMode.JAVA.getOptions();
+			final RegexEngine automaton = RegexEngineMode.AUTOMATON.getOptions();
+			for (int i = 0; i < count; i++) {
+				final String regex = ".*" + WORDS[random.nextInt(WORDS.length)] + "\\s+(" +
+						WORDS[random.nextInt(WORDS.length)] + "|" + WORDS[random.nextInt(WORDS.length)] + ")[0-9]*" +
+						WORDS[random.nextInt(WORDS.length)].charAt(0) + ".*";
+				java.add(regex);
+				automaton.add(regex);
+			}
+			final long javaTime = time(java, tweets);
+			final long automatonTime = time(automaton, tweets);
+			System.out.println(count + " regexes: java " + javaTime + "ms, automaton " + automatonTime + "ms");
+		}
+	}
+
+	private static long time(RegexEngine engine, List<String> tweets) {
+		// once to warm up, once to time
+		int matched = 0;
+		for (final String tweet : tweets)
+			matched += engine.matches(tweet) ? 1 : 0;
+		final long start = System.currentTimeMillis();
+		for (final String tweet : tweets)
+			matched -= engine.matches(tweet) ? 1 : 0;
+		if (matched != 0)
+			throw new IllegalStateException();
+		return System.currentTimeMillis() - start;
+	}
+}
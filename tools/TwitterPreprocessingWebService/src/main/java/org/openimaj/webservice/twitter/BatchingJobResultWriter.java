@@ -0,0 +1,147 @@
+package org.openimaj.webservice.twitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Collects the items of a job and writes them to a {@link JobResultStore} in
+ * batches. A batch is written once it is full or once the flush interval has
+ * passed since the last write, whichever comes first, so readers of a slow
+ * job still see items promptly.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class BatchingJobResultWriter {
+	private static Logger logger = Logger.getLogger(BatchingJobResultWriter.class);
+
+	/**
+	 * The default number of items in a batch
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	/**
+	 * The default longest time an item waits before it is written
+	 */
+	public static final long DEFAULT_FLUSH_MILLIS = 1000;
+
+	private static final ScheduledExecutorService FLUSHER = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			final Thread t = new Thread(r, "job-result-flusher");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private final JobResultStore store;
+	private final String job;
+	private final int batchSize;
+	private final long flushMillis;
+	private final ScheduledFuture<?> flusher;
+	private List<String> batch;
+	private long count = 0;
+	private long lastWrite;
+	private IOException failure;
+
+	/**
+	 * @param store
+	 * @param job
+	 * @param batchSize
+	 *            the number of items in a batch
+	 * @param flushMillis
+	 *            the longest time an item waits before it is written
+	 * @throws IOException
+	 */
+	public BatchingJobResultWriter(JobResultStore store, String job, int batchSize, long flushMillis) throws IOException {
+		this.store = store;
+		this.job = job;
+		this.batchSize = batchSize;
+		this.flushMillis = flushMillis;
+		this.batch = new ArrayList<String>(batchSize);
+		this.lastWrite = System.currentTimeMillis();
+		store.create(job);
+		this.flusher = FLUSHER.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				flushIfDue();
+			}
+		}, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param store
+	 * @param job
+	 * @throws IOException
+	 */
+	public BatchingJobResultWriter(JobResultStore store, String job) throws IOException {
+		this(store, job, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_MILLIS);
+	}
+
+	/**
+	 * Add an item, writing the batch if it is full
+	 *
+	 * @param item
+	 * @throws IOException
+	 */
+	public synchronized void add(String item) throws IOException {
+		if (failure != null)
+			throw failure;
+		batch.add(item);
+		if (batch.size() >= batchSize)
+			flush();
+	}
+
+	/**
+	 * Write any waiting items
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		lastWrite = System.currentTimeMillis();
+		if (batch.isEmpty())
+			return;
+		final List<String> toWrite = batch;
+		batch = new ArrayList<String>(batchSize);
+		store.append(job, count, toWrite);
+		count += toWrite.size();
+	}
+
+	private synchronized void flushIfDue() {
+		if (failure != null || System.currentTimeMillis() - lastWrite < flushMillis)
+			return;
+		try {
+			flush();
+		} catch (final IOException e) {
+			logger.error("Failed to write results of job " + job, e);
+			failure = e;
+		}
+	}
+
+	/**
+	 * @return the number of items added
+	 */
+	public synchronized long count() {
+		return count + batch.size();
+	}
+
+	/**
+	 * Write any waiting items and mark the job complete. If any batch could
+	 * not be written the job is left incomplete and the failure is thrown.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		flusher.cancel(false);
+		if (failure != null)
+			throw failure;
+		flush();
+		store.finish(job, count);
+	}
+}
@@ -0,0 +1,304 @@
+package org.openimaj.webservice.twitter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
+
+/**
+ * Links a thread producing text to an http response. Text is handed to the
+ * response in line sized chunks through a bounded queue, so the producer only
+ * blocks if the client falls a whole queue behind. The response side writes
+ * through a large buffer (optionally gzipped) and flushes once enough bytes
+ * are waiting or enough time has passed since the last flush.
+ * <p>
+ * A gzipped response can only be flushed part way through on a Java 7 or
+ * later runtime, whose {@link GZIPOutputStream} can sync flush the deflater.
+ * Older runtimes have no way to push out the compressed bytes of a partial
+ * stream, so there the gzipped response reaches the client when it ends.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class ChunkedResponseWriter extends Writer {
+	/**
+	 * Number of chunks which may be waiting for the response
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 1024;
+	/**
+	 * Characters held before a chunk is handed over even without a newline
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+	/**
+	 * Size of the response write buffer
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	/**
+	 * Bytes written to the response before it is flushed
+	 */
+	public static final int DEFAULT_FLUSH_BYTES = 32 * 1024;
+	/**
+	 * Longest time written bytes wait before the response is flushed
+	 */
+	public static final long DEFAULT_FLUSH_MILLIS = 200;
+
+	private static final byte[] END = new byte[0];
+	private static final long OFFER_MILLIS = 100;
+	private static final Constructor<GZIPOutputStream> SYNC_FLUSH_GZIP = syncFlushGZIP();
+
+	private final BlockingQueue<byte[]> chunks;
+	private final Charset charset;
+	private final StringBuilder pending;
+	private final int chunkSize;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private int flushBytes = DEFAULT_FLUSH_BYTES;
+	private long flushMillis = DEFAULT_FLUSH_MILLIS;
+	private boolean closed = false;
+	private volatile IOException responseFailure = null;
+
+	/**
+	 * A UTF-8 writer with the default queue and chunk sizes
+	 */
+	public ChunkedResponseWriter() {
+		this(Charset.forName("UTF-8"), DEFAULT_QUEUE_SIZE, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param charset
+	 *            the encoding of the response
+	 * @param queueSize
+	 *            the number of chunks which may wait for the response
+	 * @param chunkSize
+	 *            the number of characters held before a chunk is handed over
+	 *            without a newline
+	 */
+	public ChunkedResponseWriter(Charset charset, int queueSize, int chunkSize) {
+		this.charset = charset;
+		this.chunkSize = chunkSize;
+		this.chunks = new ArrayBlockingQueue<byte[]>(queueSize);
+		this.pending = new StringBuilder(chunkSize);
+	}
+
+	/**
+	 * Set when the response is flushed
+	 *
+	 * @param flushBytes
+	 *            flush once this many bytes are written
+	 * @param flushMillis
+	 *            flush written bytes at least this often
+	 */
+	public void setFlushPolicy(int flushBytes, long flushMillis) {
+		this.flushBytes = flushBytes;
+		this.flushMillis = flushMillis;
+	}
+
+	/**
+	 * @param bufferSize
+	 *            the size of the response write buffer
+	 */
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public synchronized void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		final int start = pending.length();
+		pending.append(cbuf, off, len);
+		handOff(start);
+	}
+
+	@Override
+	public synchronized void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+		final int start = pending.length();
+		pending.append(str, off, off + len);
+		handOff(start);
+	}
+
+	@Override
+	public synchronized void write(int c) throws IOException {
+		ensureOpen();
+		pending.append((char) c);
+		if (c == '\n' || pending.length() >= chunkSize)
+			put(takePending(pending.length()));
+	}
+
+	/**
+	 * Hand over everything up to the last complete line, or everything if
+	 * the chunk is full
+	 */
+	private void handOff(int start) throws IOException {
+		if (pending.length() >= chunkSize) {
+			put(takePending(pending.length()));
+			return;
+		}
+		for (int i = pending.length() - 1; i >= start; i--) {
+			if (pending.charAt(i) == '\n') {
+				put(takePending(i + 1));
+				return;
+			}
+		}
+	}
+
+	private byte[] takePending(int end) {
+		final byte[] chunk = pending.substring(0, end).getBytes(charset);
+		pending.delete(0, end);
+		return chunk;
+	}
+
+	private void put(byte[] chunk) throws IOException {
+		try {
+			while (!chunks.offer(chunk, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+				if (responseFailure != null)
+					throw responseFailure;
+			}
+		} catch (final InterruptedException e) {
+			throw new IOException("Interrupted while waiting for the response");
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed)
+			throw new IOException("Writer closed");
+		if (responseFailure != null)
+			throw responseFailure;
+	}
+
+	/**
+	 * Hands any partial line to the response
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		ensureOpen();
+		if (pending.length() > 0)
+			put(takePending(pending.length()));
+	}
+
+	/**
+	 * Hands any partial line to the response and ends the response
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		try {
+			if (responseFailure == null && pending.length() > 0)
+				put(takePending(pending.length()));
+			if (responseFailure == null)
+				put(END);
+		} finally {
+			closed = true;
+		}
+	}
+
+	/**
+	 * Write everything handed over by the producer to the response until the
+	 * producer closes this writer.
+	 *
+	 * @param out
+	 *            the response
+	 * @param gzip
+	 *            whether to gzip the response
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream out, boolean gzip) throws IOException {
+		final BufferedOutputStream buffered = new BufferedOutputStream(out, bufferSize);
+		final GZIPOutputStream zipped = gzip ? gzipStream(buffered) : null;
+		final OutputStream os = gzip ? zipped : buffered;
+		final boolean flushable = !gzip || SYNC_FLUSH_GZIP != null;
+		try {
+			long lastFlush = System.currentTimeMillis();
+			int unflushed = 0;
+			while (true) {
+				final byte[] chunk = chunks.poll(flushMillis, TimeUnit.MILLISECONDS);
+				if (chunk == END)
+					break;
+				if (chunk != null) {
+					os.write(chunk);
+					unflushed += chunk.length;
+				}
+				final long now = System.currentTimeMillis();
+				if (flushable && unflushed > 0 && (unflushed >= flushBytes || now - lastFlush >= flushMillis)) {
+					os.flush();
+					unflushed = 0;
+					lastFlush = now;
+				}
+			}
+			if (zipped != null)
+				zipped.finish();
+			os.flush();
+		} catch (final IOException e) {
+			responseFailure = e;
+			chunks.clear();
+			throw e;
+		} catch (final InterruptedException e) {
+			responseFailure = new IOException("Interrupted while writing the response");
+			chunks.clear();
+			throw responseFailure;
+		}
+	}
+
+	/**
+	 * @return a gzip stream whose flush pushes out everything written so far
+	 *         if the runtime supports it
+	 */
+	private GZIPOutputStream gzipStream(OutputStream out) throws IOException {
+		if (SYNC_FLUSH_GZIP == null)
+			return new GZIPOutputStream(out, bufferSize);
+		try {
+			return SYNC_FLUSH_GZIP.newInstance(out, bufferSize, true);
+		} catch (final Exception e) {
+			throw new IOException("Could not create the gzip stream: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the Java 7 syncFlush constructor of {@link GZIPOutputStream} or
+	 *         null if this runtime doesn't have it
+	 */
+	private static Constructor<GZIPOutputStream> syncFlushGZIP() {
+		try {
+			return GZIPOutputStream.class.getConstructor(OutputStream.class, int.class, boolean.class);
+		} catch (final NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if gzipped responses are flushed as they are written
+	 *         rather than only when they end
+	 */
+	public static boolean canFlushGZIP() {
+		return SYNC_FLUSH_GZIP != null;
+	}
+
+	/**
+	 * @param mediaType
+	 *            the type of the response
+	 * @param gzip
+	 *            whether to gzip the response
+	 * @return a representation which streams this writer's output
+	 */
+	public Representation representation(MediaType mediaType, final boolean gzip) {
+		final Representation rep = new OutputRepresentation(mediaType) {
+			@Override
+			public void write(OutputStream realOutput) throws IOException {
+				writeTo(realOutput, gzip);
+			}
+		};
+		if (gzip)
+			rep.getEncodings().add(Encoding.GZIP);
+		return rep;
+	}
+}
@@ -0,0 +1,160 @@
+package org.openimaj.webservice.twitter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds each job in a directory of local files, so jobs can be run and tested
+ * without a database. Items are written one per line to an items file, the
+ * byte offset of each item to an offsets file of longs (so a page starting at
+ * any item is a single seek) and a job is marked complete by a finished file.
+ * Items must not contain newlines, which holds for the json lines produced by
+ * the preprocessing tool.
+ * <p>
+ * Offsets are written after their items, so a reader never sees an offset
+ * pointing past the written items. Each job must have a single writer.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class FileJobResultStore implements JobResultStore {
+	private static final String ITEMS = "items.json";
+	private static final String OFFSETS = "items.offsets";
+	private static final String FINISHED = "finished";
+	private static final String UTF8 = "UTF-8";
+
+	private File root;
+
+	/**
+	 * @param root
+	 *            the directory holding the jobs
+	 */
+	public FileJobResultStore(File root) {
+		this.root = root;
+	}
+
+	private File jobDir(String job) throws IOException {
+		final File dir = new File(root, job);
+		if (!dir.getCanonicalFile().getParentFile().equals(root.getCanonicalFile()))
+			throw new IOException("Invalid job name: " + job);
+		return dir;
+	}
+
+	@Override
+	public void create(String job) throws IOException {
+		final File dir = jobDir(job);
+		if (dir.exists()) {
+			for (final File f : dir.listFiles()) {
+				if (!f.delete())
+					throw new IOException("Could not remove old results: " + f);
+			}
+			dir.delete();
+		}
+		if (!dir.mkdirs())
+			throw new IOException("Could not create job directory: " + dir);
+		new File(dir, ITEMS).createNewFile();
+		new File(dir, OFFSETS).createNewFile();
+	}
+
+	@Override
+	public void append(String job, long firstCount, List<String> items) throws IOException {
+		final File dir = jobDir(job);
+		final File itemsFile = new File(dir, ITEMS);
+		final long expected = new File(dir, OFFSETS).length() / 8;
+		if (expected != firstCount)
+			throw new IOException(String.format("Expected item %d, got %d", expected, firstCount));
+
+		long offset = itemsFile.length();
+		final long[] offsets = new long[items.size()];
+		final BufferedOutputStream itemStream = new BufferedOutputStream(new FileOutputStream(itemsFile, true), 1 << 16);
+		try {
+			for (int i = 0; i < offsets.length; i++) {
+				final byte[] bytes = items.get(i).getBytes(UTF8);
+				offsets[i] = offset;
+				itemStream.write(bytes);
+				itemStream.write('\n');
+				offset += bytes.length + 1;
+			}
+		} finally {
+			itemStream.close();
+		}
+		final DataOutputStream offsetStream = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(new File(dir, OFFSETS), true)));
+		try {
+			for (final long o : offsets)
+				offsetStream.writeLong(o);
+		} finally {
+			offsetStream.close();
+		}
+	}
+
+	@Override
+	public void finish(String job, long count) throws IOException {
+		final FileOutputStream fos = new FileOutputStream(new File(jobDir(job), FINISHED));
+		try {
+			fos.write(Long.toString(count).getBytes(UTF8));
+		} finally {
+			fos.close();
+		}
+	}
+
+	@Override
+	public JobResultPage read(String job, long after, int limit) throws IOException {
+		final File dir = jobDir(job);
+		final long first = after + 1;
+		final List<String> items = new ArrayList<String>();
+		if (!dir.exists())
+			return new JobResultPage(items, first, false);
+		// check before reading so that a job finishing mid read is not missed
+		final boolean finished = new File(dir, FINISHED).exists();
+
+		final RandomAccessFile offsets = new RandomAccessFile(new File(dir, OFFSETS), "r");
+		long available;
+		long start;
+		try {
+			available = offsets.length() / 8;
+			if (first >= available)
+				return new JobResultPage(items, first, finished && first >= available);
+			offsets.seek(first * 8);
+			start = offsets.readLong();
+		} finally {
+			offsets.close();
+		}
+
+		final long n = Math.min(limit, available - first);
+		final RandomAccessFile itemFile = new RandomAccessFile(new File(dir, ITEMS), "r");
+		try {
+			itemFile.seek(start);
+			final byte[] buf = new byte[1 << 16];
+			final ByteArrayOutputStream line = new ByteArrayOutputStream();
+			int read;
+			outer: while (items.size() < n && (read = itemFile.read(buf)) != -1) {
+				int lineStart = 0;
+				for (int i = 0; i < read; i++) {
+					if (buf[i] == '\n') {
+						line.write(buf, lineStart, i - lineStart);
+						items.add(line.toString(UTF8));
+						line.reset();
+						lineStart = i + 1;
+						if (items.size() == n)
+							break outer;
+					}
+				}
+				line.write(buf, lineStart, read - lineStart);
+			}
+		} finally {
+			itemFile.close();
+		}
+		return new JobResultPage(items, first, finished && first + items.size() >= available);
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,42 @@
+package org.openimaj.webservice.twitter;
+
+import java.util.List;
+
+/**
+ * A page of the items of a job read from a {@link JobResultStore}
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class JobResultPage {
+	/**
+	 * the items, in order
+	 */
+	public final List<String> items;
+	/**
+	 * the number of the first item in {@link #items}
+	 */
+	public final long firstCount;
+	/**
+	 * whether the job is complete and this page holds its last items
+	 */
+	public final boolean finished;
+
+	/**
+	 * @param items
+	 * @param firstCount
+	 * @param finished
+	 */
+	public JobResultPage(List<String> items, long firstCount, boolean finished) {
+		this.items = items;
+		this.firstCount = firstCount;
+		this.finished = finished;
+	}
+
+	/**
+	 * @return the number of the last item in this page, or the item before the
+	 *         page if it is empty
+	 */
+	public long lastCount() {
+		return firstCount + items.size() - 1;
+	}
+}
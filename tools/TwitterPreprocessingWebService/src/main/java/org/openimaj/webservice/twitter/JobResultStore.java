@@ -0,0 +1,62 @@
+package org.openimaj.webservice.twitter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Holds the processed items of identified preprocessing jobs. Items of a job
+ * are numbered from 0 in the order they were produced, are written in batches
+ * and read back in pages by their number.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public interface JobResultStore {
+	/**
+	 * Start a job, removing any results already held under its name
+	 *
+	 * @param job
+	 * @throws IOException
+	 */
+	public void create(String job) throws IOException;
+
+	/**
+	 * Add a batch of items to a job
+	 *
+	 * @param job
+	 * @param firstCount
+	 *            the number of the first item in the batch
+	 * @param items
+	 *            the items
+	 * @throws IOException
+	 */
+	public void append(String job, long firstCount, List<String> items) throws IOException;
+
+	/**
+	 * Mark a job as complete, no more items will be added
+	 *
+	 * @param job
+	 * @param count
+	 *            the number of items in the job
+	 * @throws IOException
+	 */
+	public void finish(String job, long count) throws IOException;
+
+	/**
+	 * Read the items which follow a given item
+	 *
+	 * @param job
+	 * @param after
+	 *            the number of the last item already read, -1 to start at the
+	 *            beginning
+	 * @param limit
+	 *            the most items to return
+	 * @return the next page of items
+	 * @throws IOException
+	 */
+	public JobResultPage read(String job, long after, int limit) throws IOException;
+
+	/**
+	 * Release any connections or files
+	 */
+	public void close();
+}
@@ -0,0 +1,119 @@
+package org.openimaj.webservice.twitter;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+
+/**
+ * Holds each job in a mongodb collection named after the job. Items are
+ * documents holding their number in "count" and the item in "json"; the
+ * collection is indexed on count. A document marked "final" follows the last
+ * item of a complete job.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class MongoJobResultStore implements JobResultStore {
+	private MongoClient mongoClient;
+	private DB db;
+
+	/**
+	 * Use the tweetprocdb database on localhost
+	 *
+	 * @throws UnknownHostException
+	 */
+	public MongoJobResultStore() throws UnknownHostException {
+		this("localhost", "tweetprocdb");
+	}
+
+	/**
+	 * @param host
+	 * @param database
+	 * @throws UnknownHostException
+	 */
+	public MongoJobResultStore(String host, String database) throws UnknownHostException {
+		this.mongoClient = new MongoClient(host);
+		this.db = mongoClient.getDB(database);
+	}
+
+	@Override
+	public void create(String job) throws IOException {
+		try {
+			final DBCollection collection = db.getCollection(job);
+			collection.drop();
+			collection.ensureIndex("count");
+		} catch (final MongoException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void append(String job, long firstCount, List<String> items) throws IOException {
+		final List<DBObject> objs = new ArrayList<DBObject>(items.size());
+		long count = firstCount;
+		for (final String item : items) {
+			final DBObject obj = new BasicDBObject(2);
+			obj.put("count", count++);
+			obj.put("json", item);
+			objs.add(obj);
+		}
+		try {
+			db.getCollection(job).insert(objs);
+		} catch (final MongoException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void finish(String job, long count) throws IOException {
+		final BasicDBObject finalitem = new BasicDBObject("final", true);
+		finalitem.put("count", count);
+		try {
+			db.getCollection(job).insert(finalitem);
+		} catch (final MongoException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public JobResultPage read(String job, long after, int limit) throws IOException {
+		final List<String> items = new ArrayList<String>();
+		boolean finished = false;
+		try {
+			final DBCursor cursor = db.getCollection(job)
+					.find(new BasicDBObject("count", new BasicDBObject("$gt", after)))
+					.sort(new BasicDBObject("count", 1))
+					.limit(limit + 1);
+			try {
+				while (cursor.hasNext()) {
+					final DBObject obj = cursor.next();
+					if (obj.containsField("final")) {
+						finished = true;
+						break;
+					}
+					if (items.size() == limit)
+						break;
+					items.add((String) obj.get("json"));
+				}
+			} finally {
+				cursor.close();
+			}
+		} catch (final MongoException e) {
+			throw new IOException(e);
+		}
+		return new JobResultPage(items, after + 1, finished);
+	}
+
+	@Override
+	public void close() {
+		mongoClient.close();
+	}
+}
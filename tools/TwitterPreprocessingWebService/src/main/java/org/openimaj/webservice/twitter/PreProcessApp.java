@@ -1,13 +1,10 @@
 package org.openimaj.webservice.twitter;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.jws.WebService;
 
@@ -15,10 +12,12 @@ import org.apache.log4j.Logger;
 import org.kohsuke.args4j.CmdLineException;
 import org.openimaj.util.pair.IndependentPair;
 import org.restlet.Application;
+import org.restlet.Request;
 import org.restlet.Restlet;
+import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
+import org.restlet.data.Preference;
 import org.restlet.data.Status;
-import org.restlet.representation.OutputRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.Post;
@@ -30,10 +29,30 @@ import org.restlet.routing.Router;
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  */
 @WebService(targetNamespace = "http")
-public class PreProcessApp extends Application {
+public class PreProcessApp extends Application implements PreProcessResources.Holder {
 
 	private static Logger logger = Logger.getLogger(PreProcessApp.class);
 
+	private PreProcessResources resources;
+
+	/**
+	 * An app with its own {@link PreProcessResources}
+	 */
+	public PreProcessApp() {
+		this(new PreProcessResources());
+	}
+
+	/**
+	 * @param resources the modes, workers and metrics shared with other apps
+	 */
+	public PreProcessApp(PreProcessResources resources) {
+		this.resources = resources;
+	}
+
+	@Override
+	public PreProcessResources getResources() {
+		return resources;
+	}
 	
 	/**
 	 * @param e
@@ -43,56 +62,51 @@ public class PreProcessApp extends Application {
 		StringWriter writer = new StringWriter();
 		PrintWriter pw = new PrintWriter(writer);
 		e.printStackTrace(pw);
-		e.getParser().printUsage(pw,null);
+		if(e.getParser() != null) e.getParser().printUsage(pw,null);
 		pw.flush();
 		StringRepresentation stringRepresentation = new StringRepresentation(writer.toString());
 		return stringRepresentation;
 	}
 	
 	/**
-	 * @return a representation and outputstreamwriter which will reply to the user after this method returns
+	 * @return a representation and writer which will reply to the user after this method returns
 	 */
-	public static IndependentPair<? extends Representation, OutputStreamWriter> prepareOutputPipe() {
+	public static IndependentPair<? extends Representation, Writer> prepareOutputPipe() {
+		return prepareOutputPipe(false);
+	}
+
+	/**
+	 * @param gzip whether the reply should be gzipped
+	 * @return a representation and writer which will reply to the user after this method returns
+	 */
+	public static IndependentPair<? extends Representation, Writer> prepareOutputPipe(boolean gzip) {
 		logger.debug("Preparing output pipes");
-		final PipedInputStream pi = new PipedInputStream();
-		PipedOutputStream po = null;
-		try {
-			po = new PipedOutputStream(pi);
-		} catch (IOException e) {
-			logger.error("Failed to create output pipe",e);
-			return IndependentPair.pair(new StringRepresentation("Could not open output pipe"),null);
-		}
-		Representation ir = new OutputRepresentation(MediaType.APPLICATION_JSON) {
-			@Override
-			public void write(OutputStream realOutput) throws IOException {
-				byte[] b = new byte[8];
-				int read;
-				while ((read = pi.read(b)) != -1) {
-					realOutput.write(b, 0, read);
-					realOutput.flush();
-				}
-			}
-		};
-		OutputStreamWriter ow = null;
-		try {
-			ow = new OutputStreamWriter(po,"UTF-8");
-		} catch (UnsupportedEncodingException e) {
-			try {
-				ow.close();
-			} catch (IOException e1) {
-				logger.error("Failed to create output pipe",e1);
-				return IndependentPair.pair(new StringRepresentation("Could not open output pipe"),null);
-			}
+		ChunkedResponseWriter ow = new ChunkedResponseWriter();
+		return IndependentPair.pair(ow.representation(MediaType.APPLICATION_JSON, gzip), ow);
+	}
+
+	/**
+	 * @param request
+	 * @return whether the client accepts gzipped replies
+	 */
+	public static boolean acceptsGzip(Request request) {
+		for (Preference<Encoding> pref : request.getClientInfo().getAcceptedEncodings()) {
+			if (Encoding.GZIP.equals(pref.getMetadata()) && pref.getQuality() > 0) return true;
 		}
-		
-		return IndependentPair.pair(ir,ow);
+		return false;
 	}
+
 	/**
 	 * 
 	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
 	 */
 	public static class PreProcessService extends AppTypedResource<PreProcessApp> {
 		
+		/**
+		 * Whether this request was handed to a worker, which then records its metrics
+		 */
+		protected boolean submitted = false;
+
 		/**
 		 * @param entity
 		 * @return rep
@@ -100,6 +114,48 @@ public class PreProcessApp extends Application {
 		@Post
 		public Representation represent(Representation entity) {
 			logger.debug("Starting request");
+			PreProcessResources resources = resources();
+			long start = resources.getMetrics().requestStarted();
+			try {
+				return startProcessing(entity, resources, start);
+			} finally {
+				unsubmitted(resources, start);
+			}
+		}
+
+		/**
+		 * @return the resources shared by the services
+		 */
+		protected PreProcessResources resources() {
+			return ((PreProcessResources.Holder) getApplication()).getResources();
+		}
+
+		/**
+		 * Record the metrics of a request which never reached a worker
+		 * @param resources
+		 * @param start
+		 */
+		protected void unsubmitted(PreProcessResources resources, long start) {
+			if(submitted) return;
+			if(Status.SERVER_ERROR_SERVICE_UNAVAILABLE.equals(getStatus()))
+				resources.getMetrics().requestRejected();
+			else
+				resources.getMetrics().requestFinished(start, 0, true);
+		}
+
+		/**
+		 * Reply to a request turned away because all workers are busy
+		 * @param options
+		 * @return rep
+		 */
+		protected Representation reject(PreProcessAppOptions options) {
+			logger.error("Too many concurrent requests, rejecting");
+			options.close();
+			this.setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+			return new StringRepresentation("Too many concurrent requests, try again later");
+		}
+
+		private Representation startProcessing(Representation entity, PreProcessResources resources, long start) {
 			logger.debug("Parsing options");
 			PreProcessAppOptions options;
 			try {
@@ -111,9 +167,9 @@ public class PreProcessApp extends Application {
 				this.setStatus(Status.SERVER_ERROR_INTERNAL);
 				return errorRep(e);
 			}
-			IndependentPair<? extends Representation, OutputStreamWriter> irow = prepareOutputPipe();
+			IndependentPair<? extends Representation, Writer> irow = prepareOutputPipe(acceptsGzip(getRequest()));
 			Representation ir = irow.firstObject();
-			OutputStreamWriter ow = irow.secondObject();
+			Writer ow = irow.secondObject();
 			if(ow == null) {
 				this.setStatus(Status.SERVER_ERROR_INTERNAL);
 				return ir;
@@ -125,13 +181,15 @@ public class PreProcessApp extends Application {
 				
 				if (MediaType.MULTIPART_FORM_DATA.equals(entity.getMediaType(),true)) {
 					try {
-						logger.debug("Starting input thread");
-						new Thread(new PreProcessTask(getRequest(), options)).start();
-//						new Thread(new PreProcessFileUploadTask(getRequest(), options)).start();
+						logger.debug("Queueing input task");
+						resources.submit(new PreProcessTask(getRequest(), options, resources, start));
+						submitted = true;
 					} catch (IOException e) {
 						logger.error("No input data found");
 						this.setStatus(Status.SERVER_ERROR_INTERNAL);
 						return new StringRepresentation("No valid file provided, use variable 'data'");
+					} catch (RejectedExecutionException e) {
+						return reject(options);
 					}
 				} else {
 					logger.error("Not a multipart request");
@@ -157,6 +215,7 @@ public class PreProcessApp extends Application {
 	@Override
 	public Restlet createInboundRoot() {
 		Router router = new Router(getContext());
+		router.attach("/stats", PreProcessStatsService.class);
 		router.attach("/{intype}.{outtype}", PreProcessService.class);
 		return router;
 	}
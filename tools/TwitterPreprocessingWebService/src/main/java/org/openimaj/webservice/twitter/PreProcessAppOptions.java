@@ -8,16 +8,22 @@ import java.util.Map;
 import java.util.Set;
 
 import org.kohsuke.args4j.CmdLineException;
+import org.openimaj.tools.twitter.modes.preprocessing.TwitterPreprocessingMode;
+import org.openimaj.tools.twitter.modes.preprocessing.TwitterPreprocessingModeOption;
 import org.openimaj.tools.twitter.options.AbstractTwitterPreprocessingToolOptions;
+import org.openimaj.tools.twitter.options.StatusType;
+import org.openimaj.twitter.GeneralJSONRDF;
 import org.restlet.data.Form;
 
 class PreProcessAppOptions extends
 		AbstractTwitterPreprocessingToolOptions {
 
 	private PrintWriter writer = null;
+	private List<TwitterPreprocessingModeOption> modeConfiguration;
 
 	public PreProcessAppOptions(Form query, Map<String, Object> reqAttr) throws CmdLineException {
 		super(constructArgs(query,reqAttr));
+		this.modeConfiguration = constructModes(query);
 	}
 
 	@Override
@@ -36,10 +42,57 @@ class PreProcessAppOptions extends
 	public void close() {
 		this.writer.close();
 	}
+
+	/**
+	 * @return the modes requested, the key for the {@link PreProcessModeRegistry}
+	 */
+	public List<TwitterPreprocessingModeOption> getModeConfiguration() {
+		return modeConfiguration;
+	}
+
+	/**
+	 * Process with the given instances of {@link #getModeConfiguration()}
+	 * @param modes
+	 */
+	public void useModes(List<TwitterPreprocessingMode<?>> modes) {
+		this.modeOptionsOp.clear();
+		this.modeOptionsOp.addAll(modes);
+		if (this.outputStatusType == StatusType.RDF) {
+			for (final TwitterPreprocessingMode<?> mode : modes) {
+				GeneralJSONRDF.registerRDFAnalysisProvider(mode.getAnalysisKey(), mode.rdfAnalysisProvider());
+			}
+		}
+	}
+
+	/**
+	 * Modes are not handed to the option parser, which would create new
+	 * instances of them, they are taken from the {@link PreProcessModeRegistry}
+	 */
+	private static boolean isModeArg(String argName) {
+		return argName.equals("m") || argName.equals("-mode");
+	}
+
+	private List<TwitterPreprocessingModeOption> constructModes(Form query) throws CmdLineException {
+		List<TwitterPreprocessingModeOption> modes = new ArrayList<TwitterPreprocessingModeOption>();
+		for (String argName : query.getNames()) {
+			if(!isModeArg(argName)) continue;
+			for (String argval : query.getValuesArray(argName)) {
+				TwitterPreprocessingModeOption mode = null;
+				for (TwitterPreprocessingModeOption option : TwitterPreprocessingModeOption.values()) {
+					if(option.name().equalsIgnoreCase(argval)) mode = option;
+				}
+				if(mode == null) throw new CmdLineException(null, String.format("Unknown mode: %s", argval));
+				if(!modes.contains(mode)) modes.add(mode);
+			}
+		}
+		return modes;
+	}
+
 	private static String[] constructArgs(Form query, Map<String, Object> reqAttr) {
 		List<String> arglist = new ArrayList<String>();
 		Set<String> argNames = query.getNames();
 		for (String argName : argNames) {
+			if(isModeArg(argName)) continue;
 			String[] argvals = query.getValuesArray(argName);
 			for (String argval : argvals) {
 				arglist.add(String.format("-%s", argName));
@@ -54,4 +107,4 @@ class PreProcessAppOptions extends
 		arglist.add(outtype);
 		return arglist.toArray(new String[arglist.size()]);
 	}
-}
\ No newline at end of file
+}
@@ -36,24 +36,37 @@ class PreProcessFileUploadTask extends FileUpload implements Runnable {
 	private PreProcessAppOptions options;
 //	private List<FileItem> items;
 //	private FileItem fi;
+	private PreProcessResources resources;
+	private long requestStart;
+	private long seen = 0;
 	private static Logger logger = Logger.getLogger(PreProcessFileUploadTask.class);
 
-	public PreProcessFileUploadTask(Request request, PreProcessAppOptions options) throws IOException {
+	public PreProcessFileUploadTask(Request request, PreProcessAppOptions options, PreProcessResources resources, long requestStart) throws IOException {
 		this.req = request;
 		this.options = options;
+		this.resources = resources;
+		this.requestStart = requestStart;
 	}
 
 	@Override
 	public void run() {
+		PreProcessModeRegistry registry = resources.getModeRegistry();
+		List<TwitterPreprocessingMode<?>> modes = null;
+		boolean failed = false;
 		try{
+			modes = registry.borrow(options.getModeConfiguration());
+			options.useModes(modes);
 			logger.debug("Parsing the request");
 			parseRequest(new RepresentationContext(req.getEntity()));
 			
 		} catch(Exception e){
+			failed = true;
 			e.printStackTrace();
-			return;
+		} finally {
+			if(modes != null) registry.release(options.getModeConfiguration(), modes);
+			resources.getMetrics().requestFinished(requestStart, seen, failed);
+			options.close();
 		}
-		options.close();
 	}
 	
 	
@@ -89,7 +102,6 @@ class PreProcessFileUploadTask extends FileUpload implements Runnable {
 
 	private void consumeStream(InputStream fi) throws Exception {
 		List<USMFStatus> list = StreamTwitterStatusList.readUSMF(fi, options.getInputClass().type(), "UTF-8");
-		long seen = 0;
 		for (USMFStatus usmfStatus : list) {
 			LoggerUtils.debug(logger, String.format("Processing item: %d",seen++), seen%1000==0);
 			processStatus(usmfStatus, options);
@@ -1,81 +1,145 @@
 package org.openimaj.webservice.twitter;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.log4j.Logger;
-import org.json.JSONArray;
 import org.kohsuke.args4j.CmdLineException;
-import org.openimaj.util.function.Function;
-import org.openimaj.util.function.Operation;
 import org.openimaj.util.pair.IndependentPair;
-import org.openimaj.util.stream.BufferedReaderStream;
 import org.openimaj.webservice.twitter.PreProcessApp.PreProcessService;
 import org.restlet.Application;
 import org.restlet.Restlet;
 import org.restlet.data.MediaType;
 import org.restlet.data.Status;
 import org.restlet.ext.json.JsonRepresentation;
-import org.restlet.representation.OutputRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.Get;
 import org.restlet.resource.ResourceException;
 import org.restlet.routing.Router;
 
-import com.mongodb.BasicDBObject;
-import com.mongodb.DB;
-import com.mongodb.DBCollection;
-import com.mongodb.DBCursor;
-import com.mongodb.DBObject;
-import com.mongodb.MongoClient;
-
 /**
  *
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  */
-public class PreProcessJobApp extends Application {
+public class PreProcessJobApp extends Application implements PreProcessResources.Holder {
 	private final static Logger logger = Logger.getLogger(PreProcessJobApp.class);
+
+	private PreProcessResources resources;
+	private JobResultStore store;
+	private int batchSize = BatchingJobResultWriter.DEFAULT_BATCH_SIZE;
+	private long flushMillis = BatchingJobResultWriter.DEFAULT_FLUSH_MILLIS;
+	private int pageSize = 1000;
+
+	/**
+	 * An app with its own {@link PreProcessResources} holding results in the
+	 * tweetprocdb mongodb on localhost
+	 * @throws UnknownHostException
+	 */
+	public PreProcessJobApp() throws UnknownHostException {
+		this(new PreProcessResources());
+	}
+
+	/**
+	 * Hold results in the tweetprocdb mongodb on localhost
+	 * @param resources the modes, workers and metrics shared with other apps
+	 * @throws UnknownHostException
+	 */
+	public PreProcessJobApp(PreProcessResources resources) throws UnknownHostException {
+		this(resources, new MongoJobResultStore());
+	}
+
+	/**
+	 * @param resources the modes, workers and metrics shared with other apps
+	 * @param store holds the results of the jobs
+	 */
+	public PreProcessJobApp(PreProcessResources resources, JobResultStore store) {
+		this.resources = resources;
+		this.store = store;
+	}
+
+	@Override
+	public PreProcessResources getResources() {
+		return resources;
+	}
+
+	/**
+	 * @return holds the results of the jobs
+	 */
+	public JobResultStore getResultStore() {
+		return store;
+	}
+
+	/**
+	 * Set how results are batched into the {@link JobResultStore}
+	 * @param batchSize the number of results written at once
+	 * @param flushMillis the longest a result waits before it is written
+	 */
+	public void setBatching(int batchSize, long flushMillis) {
+		this.batchSize = batchSize;
+		this.flushMillis = flushMillis;
+	}
+
+	/**
+	 * @return the number of results read from the {@link JobResultStore} at once
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * @param pageSize the number of results read from the {@link JobResultStore} at once
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Start a job, removing any old results under the same name
+	 * @param job
+	 * @return a writer for the results of the job
+	 * @throws IOException
+	 */
+	public BatchingJobResultWriter resultWriter(String job) throws IOException {
+		return new BatchingJobResultWriter(store, job, batchSize, flushMillis);
+	}
+
 	/**
 	 * 
 	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
 	 */
 	public static class IdentifiedPreProcessService extends PreProcessService{
-		private MongoClient mongoClient;
-		private DB db;
+		private static final int PIPE_SIZE = 1 << 16;
 		
 		@Override
 		protected Representation post(Representation entity)throws ResourceException {
 			return super.post(entity);
 		}
 		
-		/**
-		 * @throws UnknownHostException 
-		 * 
-		 */
-		public IdentifiedPreProcessService() throws UnknownHostException {
-			this.mongoClient = new MongoClient("localhost");
-			this.db = mongoClient.getDB( "tweetprocdb" );
-		}
 		@Override
 		public Representation represent(Representation entity) {
-			final int[] count = new int[1];
 			String id = (String) getRequestAttributes().get("identifier");
-			final DBCollection collection = db.getCollection(id);
-			collection.drop();
-			collection.ensureIndex("count");
+			final BatchingJobResultWriter results;
+			try {
+				results = ((PreProcessJobApp) getApplication()).resultWriter(id);
+			} catch (IOException e) {
+				logger.error("Could not start job " + id, e);
+				this.setStatus(Status.SERVER_ERROR_INTERNAL);
+				return new StringRepresentation("Could not create the job result store");
+			}
+			PreProcessResources resources = resources();
+			long start = resources.getMetrics().requestStarted();
+			PipedInputStream pis = null;
 			try{				
 				logger.debug("Starting request");
 				logger.debug("Parsing options");
@@ -89,26 +153,28 @@ public class PreProcessJobApp extends Application {
 					return PreProcessApp.errorRep(e);
 				}
 				PipedOutputStream pos = new PipedOutputStream();
-				PipedInputStream pis;
 				try {
-					pis = new PipedInputStream(pos);
+					pis = new PipedInputStream(pos, PIPE_SIZE);
+					options.setOutputWriter(new OutputStreamWriter(pos, "UTF-8"));
 				} catch (IOException e1) {
 					this.setStatus(Status.SERVER_ERROR_INTERNAL);
 					return new StringRepresentation("Could not create piped input streamstream");
 				}
-				options.setOutputWriter(new OutputStreamWriter(pos));
 				
 				logger.debug("Preparing input data");
 				if (entity != null) {
 					
 					if (MediaType.MULTIPART_FORM_DATA.equals(entity.getMediaType(),true)) {
 						try {
-							logger.debug("Starting input thread");
-							new Thread(new PreProcessFileUploadTask(getRequest(), options)).start();
+							logger.debug("Queueing input task");
+							resources.submit(new PreProcessFileUploadTask(getRequest(), options, resources, start));
+							submitted = true;
 						} catch (IOException e) {
 							logger.error("No input data found");
 							this.setStatus(Status.SERVER_ERROR_INTERNAL);
 							return new StringRepresentation("No valid file provided, use variable 'data'");
+						} catch (RejectedExecutionException e) {
+							return reject(options);
 						}
 					} else {
 						logger.error("Not a multipart request");
@@ -119,36 +185,34 @@ public class PreProcessJobApp extends Application {
 					this.setStatus(Status.SERVER_ERROR_INTERNAL);
 					return new StringRepresentation("No valid file provided, use variable 'data'");
 				}
-				logger.debug("Success! starting output");
+				logger.debug("Success! storing output");
 				this.setStatus(Status.SUCCESS_OK);
-				new BufferedReaderStream(new BufferedReader(new InputStreamReader(pis)))
-				.map(new Function<String, DBObject>() {
-					
-					@Override
-					public DBObject apply(String in) {
-						DBObject obj = new BasicDBObject(2);
-						obj.put("count", count[0]++);
-						obj.put("json", in);
-						return obj;
-					}
-				})
-				.forEach(new Operation<DBObject>() {
-					@Override
-					public void perform(DBObject object) {
-						logger.debug("Writing object: " + object.get("count"));
-						collection.insert(object);
-					}
-				})
-				;
+				BufferedReader reader = new BufferedReader(new InputStreamReader(pis, "UTF-8"), PIPE_SIZE);
+				String line;
+				while ((line = reader.readLine()) != null) {
+					results.add(line);
+				}
 				Map<String,Object> confirm = new HashMap<String, Object>();
 				confirm.put("message", "items added");
-				confirm.put("count", count[0]);
+				confirm.put("count", results.count());
 				return new JsonRepresentation(confirm);
+			} catch (IOException e) {
+				logger.error("Failed to store results of job " + id, e);
+				this.setStatus(Status.SERVER_ERROR_INTERNAL);
+				return new StringRepresentation("Failed to store the job results");
 			}
 			finally{
-				BasicDBObject finalitem = new BasicDBObject("final", true);
-				finalitem.put("count", count[0]+1);
-				collection.insert(finalitem);
+				unsubmitted(resources, start);
+				try {
+					// let a processing task blocked on the pipe fail rather than hang
+					if (pis != null) pis.close();
+				} catch (IOException e) {
+				}
+				try {
+					results.close();
+				} catch (IOException e) {
+					logger.error("Failed to finish job " + id, e);
+				}
 			}
 			
 		}
@@ -159,25 +223,16 @@ public class PreProcessJobApp extends Application {
 	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
 	 */
 	public static class IdentifiedPreProcessServiceRead extends AppTypedResource<PreProcessJobApp> {
+		
 		/**
-		 * @throws UnknownHostException 
-		 * 
+		 * @param entity
+		 * @return the items of the job, following the job until it completes
 		 */
-		public IdentifiedPreProcessServiceRead() throws UnknownHostException {
-			
-		}
-		
-		
 		@Get
 		public Representation readall(Representation entity) {
-			MongoClient mongoClient;
-			try {
-				mongoClient = new MongoClient("localhost");
-			} catch (UnknownHostException e1) {
-				this.setStatus(Status.SERVER_ERROR_INTERNAL);
-				return new StringRepresentation("Failed to open a connection to mongodb");
-			}
-			final DB db = mongoClient.getDB( "tweetprocdb" );
+			final PreProcessJobApp jobApp = (PreProcessJobApp) getApplication();
+			final JobResultStore store = jobApp.getResultStore();
+			final int pageSize = jobApp.getPageSize();
 			final String id = (String) getRequestAttributes().get("identifier");
 			
 			final int start;
@@ -190,9 +245,9 @@ public class PreProcessJobApp extends Application {
 				start = -1;
 				end = -1;
 			}
-			IndependentPair<? extends Representation, OutputStreamWriter> irow = PreProcessApp.prepareOutputPipe();
+			IndependentPair<? extends Representation, Writer> irow = PreProcessApp.prepareOutputPipe(PreProcessApp.acceptsGzip(getRequest()));
 			Representation ir = irow.firstObject();
-			OutputStreamWriter ow = irow.secondObject();
+			Writer ow = irow.secondObject();
 			if(ow == null){
 				this.setStatus(Status.SERVER_ERROR_INTERNAL);
 				return ir;
@@ -202,55 +257,41 @@ public class PreProcessJobApp extends Application {
 
 				@Override
 				public void run() {
-					int lastCount = start-1;
-					boolean finalfound = false;
-					while(!finalfound){
-						if(pw.checkError()){
-							pw.close();
-							break;
-						}
-						DBCollection collection = db.getCollection(id);
-						if(collection.count() == 0){
-							try {
-								Thread.sleep(1000); // Wait for the input stream to catch up
-								continue;
-							} catch (InterruptedException e) {
-								
-							}
-						}
-						DBCursor ret = collection.find(fromLastCount(lastCount)).sort(new BasicDBObject("count", 1));
-						logger.debug("Query performed, found: " + ret.count());
-						while(ret.hasNext()){
-							DBObject obj = ret.next();
-							int ccount = (Integer) obj.get("count");
-							if(obj.containsField("final") || (end != -1 && ccount >= end)){
-								logger.debug("Query performed, found: " + ret.count());
-								finalfound = true;
+					long lastCount = Math.max(start, 0) - 1;
+					boolean finished = false;
+					try {
+						while(!finished){
+							if(pw.checkError()){
 								break;
-							}else{							
-								lastCount = Math.max(ccount,lastCount);
-								pw.println(obj.get("json"));
 							}
-						}
-						if(ret.count() == 0){							
-							try {
-								Thread.sleep(1000); // Wait for the input stream to catch up
-							} catch (InterruptedException e) {
-								
+							JobResultPage page = store.read(id, lastCount, pageSize);
+							logger.debug("Page read, found: " + page.items.size());
+							for (String item : page.items) {
+								if(end != -1 && lastCount + 1 >= end){
+									finished = true;
+									break;
+								}
+								pw.println(item);
+								lastCount++;
+							}
+							if(page.finished){
+								finished = true;
+							}
+							else if(page.items.isEmpty()){
+								try {
+									Thread.sleep(1000); // Wait for the input stream to catch up
+								} catch (InterruptedException e) {
+									
+								}
 							}
 						}
+					} catch (IOException e) {
+						logger.error("Failed to read results of job " + id, e);
 					}
 					pw.close();
 				}
-
-				private DBObject fromLastCount(int lastCount) {
-					
-					return new BasicDBObject("count", new BasicDBObject("$gt", lastCount));
-				}
-				
 			})
 			.start();
-//			return new JsonRepresentation("{}");
 			return ir;
 		}
 	}
@@ -258,6 +299,7 @@ public class PreProcessJobApp extends Application {
 	@Override
 	public Restlet createInboundRoot() {
 		Router router = new Router(getContext());
+		router.attach("/stats", PreProcessStatsService.class);
 		router.attach("/p/{identifier}.{intype}.{outtype}", IdentifiedPreProcessService.class);
 		router.attach("/r/{identifier}", IdentifiedPreProcessServiceRead.class);
 		router.attach("/r/{start}/{end}/{identifier}", IdentifiedPreProcessServiceRead.class);
@@ -0,0 +1,85 @@
+package org.openimaj.webservice.twitter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request counts, latency and throughput of the preprocessing services
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class PreProcessMetrics {
+	private final long created = System.nanoTime();
+	private final AtomicLong started = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong finished = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong inFlight = new AtomicLong();
+	private final AtomicLong items = new AtomicLong();
+	private final AtomicLong totalLatency = new AtomicLong();
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	/**
+	 * Record the start of a request
+	 *
+	 * @return the start time to hand to {@link #requestFinished(long, long, boolean)}
+	 */
+	public long requestStarted() {
+		started.incrementAndGet();
+		inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record a request that was started but turned away
+	 */
+	public void requestRejected() {
+		rejected.incrementAndGet();
+		inFlight.decrementAndGet();
+	}
+
+	/**
+	 * Record the end of a request
+	 *
+	 * @param start
+	 *            the time returned by {@link #requestStarted()}
+	 * @param processed
+	 *            the number of items the request processed
+	 * @param failure
+	 *            whether the request failed
+	 */
+	public void requestFinished(long start, long processed, boolean failure) {
+		final long latency = System.nanoTime() - start;
+		inFlight.decrementAndGet();
+		finished.incrementAndGet();
+		if (failure)
+			failed.incrementAndGet();
+		items.addAndGet(processed);
+		totalLatency.addAndGet(latency);
+		long max;
+		while (latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency))
+			;
+	}
+
+	/**
+	 * @return the current metrics as a map, suitable for a json reply
+	 */
+	public Map<String, Object> toMap() {
+		final Map<String, Object> ret = new HashMap<String, Object>();
+		final long nFinished = finished.get();
+		final long nItems = items.get();
+		final double uptime = (System.nanoTime() - created) / 1e9;
+		ret.put("requests_started", started.get());
+		ret.put("requests_rejected", rejected.get());
+		ret.put("requests_finished", nFinished);
+		ret.put("requests_failed", failed.get());
+		ret.put("requests_in_flight", inFlight.get());
+		ret.put("items_processed", nItems);
+		ret.put("latency_mean_ms", nFinished == 0 ? 0 : totalLatency.get() / 1e6 / nFinished);
+		ret.put("latency_max_ms", maxLatency.get() / 1e6);
+		ret.put("items_per_second", uptime == 0 ? 0 : nItems / uptime);
+		ret.put("uptime_seconds", uptime);
+		return ret;
+	}
+}
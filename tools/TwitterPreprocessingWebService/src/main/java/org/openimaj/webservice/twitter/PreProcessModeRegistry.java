@@ -0,0 +1,131 @@
+package org.openimaj.webservice.twitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+import org.openimaj.tools.twitter.modes.preprocessing.TwitterPreprocessingMode;
+import org.openimaj.tools.twitter.modes.preprocessing.TwitterPreprocessingModeOption;
+
+/**
+ * A pool of instantiated preprocessing modes keyed by the (ordered) modes a
+ * request asked for. Creating a mode loads language models, stopword lists
+ * and lexicons so requests borrow an already warm set of modes and hand it
+ * back when they are done. A borrowed set is used by a single request at a
+ * time.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class PreProcessModeRegistry {
+	private static Logger logger = Logger.getLogger(PreProcessModeRegistry.class);
+
+	private final int maxIdle;
+	private final ConcurrentMap<String, BlockingQueue<List<TwitterPreprocessingMode<?>>>> idle;
+
+	/**
+	 * @param maxIdle
+	 *            the maximum number of idle mode sets held for each mode
+	 *            configuration
+	 */
+	public PreProcessModeRegistry(int maxIdle) {
+		this.maxIdle = maxIdle;
+		this.idle = new ConcurrentHashMap<String, BlockingQueue<List<TwitterPreprocessingMode<?>>>>();
+	}
+
+	/**
+	 * Instantiate some mode sets ahead of any request
+	 *
+	 * @param config
+	 *            the modes
+	 * @param instances
+	 *            how many sets to create
+	 * @throws IOException
+	 */
+	public void prewarm(List<TwitterPreprocessingModeOption> config, int instances) throws IOException {
+		final BlockingQueue<List<TwitterPreprocessingMode<?>>> pool = pool(config);
+		for (int i = 0; i < instances; i++) {
+			if (!pool.offer(create(config)))
+				break;
+		}
+	}
+
+	/**
+	 * Take a set of modes from the pool, creating a new set if none is idle.
+	 * The set must be given back with {@link #release(List, List)}.
+	 *
+	 * @param config
+	 *            the modes
+	 * @return instances of the modes, in order
+	 * @throws IOException
+	 *             if a mode could not be created
+	 */
+	public List<TwitterPreprocessingMode<?>> borrow(List<TwitterPreprocessingModeOption> config) throws IOException {
+		final List<TwitterPreprocessingMode<?>> modes = pool(config).poll();
+		if (modes != null)
+			return modes;
+		return create(config);
+	}
+
+	/**
+	 * Give back a set of modes taken with {@link #borrow(List)}
+	 *
+	 * @param config
+	 *            the modes
+	 * @param modes
+	 *            the instances
+	 */
+	public void release(List<TwitterPreprocessingModeOption> config, List<TwitterPreprocessingMode<?>> modes) {
+		pool(config).offer(modes);
+	}
+
+	/**
+	 * @return the number of idle mode sets held for each mode configuration
+	 */
+	public List<String> describe() {
+		final List<String> ret = new ArrayList<String>();
+		for (final String key : idle.keySet()) {
+			ret.add(String.format("%s=%d", key, idle.get(key).size()));
+		}
+		return ret;
+	}
+
+	private BlockingQueue<List<TwitterPreprocessingMode<?>>> pool(List<TwitterPreprocessingModeOption> config) {
+		final String key = key(config);
+		BlockingQueue<List<TwitterPreprocessingMode<?>>> pool = idle.get(key);
+		if (pool == null) {
+			final BlockingQueue<List<TwitterPreprocessingMode<?>>> newPool =
+					new ArrayBlockingQueue<List<TwitterPreprocessingMode<?>>>(maxIdle);
+			pool = idle.putIfAbsent(key, newPool);
+			if (pool == null)
+				pool = newPool;
+		}
+		return pool;
+	}
+
+	private List<TwitterPreprocessingMode<?>> create(List<TwitterPreprocessingModeOption> config) throws IOException {
+		logger.debug("Creating modes: " + key(config));
+		final List<TwitterPreprocessingMode<?>> modes = new ArrayList<TwitterPreprocessingMode<?>>();
+		for (final TwitterPreprocessingModeOption option : config) {
+			final TwitterPreprocessingMode<?> mode = option.getOptions();
+			if (mode == null)
+				throw new IOException("Could not create mode: " + option);
+			modes.add(mode);
+		}
+		return modes;
+	}
+
+	static String key(List<TwitterPreprocessingModeOption> config) {
+		final StringBuilder sb = new StringBuilder();
+		for (final TwitterPreprocessingModeOption option : config) {
+			if (sb.length() != 0)
+				sb.append(",");
+			sb.append(option.name());
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,111 @@
+package org.openimaj.webservice.twitter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The state shared by all requests to the preprocessing services: the pool of
+ * warm preprocessing modes, a bounded pool of workers which process uploads
+ * and the request metrics.
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class PreProcessResources {
+	/**
+	 * Applications which hold a {@link PreProcessResources}
+	 *
+	 * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+	 */
+	public static interface Holder {
+		/**
+		 * @return the shared resources
+		 */
+		public PreProcessResources getResources();
+	}
+
+	/**
+	 * The default number of workers, one per processor
+	 */
+	public static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+	/**
+	 * The default number of requests which may wait for a worker before
+	 * requests are rejected
+	 */
+	public static final int DEFAULT_QUEUE = 64;
+
+	private final PreProcessModeRegistry registry;
+	private final PreProcessMetrics metrics;
+	private final ThreadPoolExecutor workers;
+
+	/**
+	 * Use {@link #DEFAULT_WORKERS} workers and a queue of {@link #DEFAULT_QUEUE}
+	 */
+	public PreProcessResources() {
+		this(DEFAULT_WORKERS, DEFAULT_QUEUE);
+	}
+
+	/**
+	 * @param nWorkers
+	 *            the number of uploads processed at once
+	 * @param queueSize
+	 *            the number of uploads which may wait for a worker
+	 */
+	public PreProcessResources(int nWorkers, int queueSize) {
+		this.registry = new PreProcessModeRegistry(nWorkers);
+		this.metrics = new PreProcessMetrics();
+		this.workers = new ThreadPoolExecutor(nWorkers, nWorkers, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						final Thread t = new Thread(r, "preprocess-worker-" + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Run a task on a worker
+	 *
+	 * @param task
+	 * @throws RejectedExecutionException
+	 *             if all workers are busy and the queue is full
+	 */
+	public void submit(Runnable task) throws RejectedExecutionException {
+		workers.execute(task);
+	}
+
+	/**
+	 * @return the pool of warm modes
+	 */
+	public PreProcessModeRegistry getModeRegistry() {
+		return registry;
+	}
+
+	/**
+	 * @return the request metrics
+	 */
+	public PreProcessMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return the number of uploads waiting for a worker
+	 */
+	public int getQueued() {
+		return workers.getQueue().size();
+	}
+
+	/**
+	 * Stop accepting work
+	 */
+	public void shutdown() {
+		workers.shutdown();
+	}
+}
@@ -0,0 +1,27 @@
+package org.openimaj.webservice.twitter;
+
+import java.util.Map;
+
+import org.restlet.ext.json.JsonRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+
+/**
+ * Reports the {@link PreProcessMetrics} of the services as json
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class PreProcessStatsService extends ServerResource {
+	/**
+	 * @return the current metrics
+	 */
+	@Get
+	public Representation stats() {
+		final PreProcessResources resources = ((PreProcessResources.Holder) getApplication()).getResources();
+		final Map<String, Object> stats = resources.getMetrics().toMap();
+		stats.put("queued", resources.getQueued());
+		stats.put("idle_modes", resources.getModeRegistry().describe());
+		return new JsonRepresentation(stats);
+	}
+}
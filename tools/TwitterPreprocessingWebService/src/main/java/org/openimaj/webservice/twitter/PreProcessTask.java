@@ -24,11 +24,15 @@ class PreProcessTask implements Runnable {
 	private PreProcessAppOptions options;
 	private List<FileItem> items;
 	private FileItem fi;
+	private PreProcessResources resources;
+	private long requestStart;
 	private static Logger logger = Logger.getLogger(PreProcessApp.class);
 
-	public PreProcessTask(Request request, PreProcessAppOptions options) throws IOException {
+	public PreProcessTask(Request request, PreProcessAppOptions options, PreProcessResources resources, long requestStart) throws IOException {
 		this.req = request;
 		this.options = options;
+		this.resources = resources;
+		this.requestStart = requestStart;
 		logger.debug("Creating disk file item factory");
 		// 1/ Create a factory for disk-based file items
         DiskFileItemFactory factory = new DiskFileItemFactory();
@@ -57,19 +61,27 @@ class PreProcessTask implements Runnable {
 
 	@Override
 	public void run() {
+		PreProcessModeRegistry registry = resources.getModeRegistry();
+		List<TwitterPreprocessingMode<?>> modes = null;
+		long seen = 0;
+		boolean failed = false;
 		try{
+			modes = registry.borrow(options.getModeConfiguration());
+			options.useModes(modes);
 			logger.debug("Processing all requests");
 			List<USMFStatus> list = StreamTwitterStatusList.readUSMF(fi.getInputStream(), options.getInputClass().type(), "UTF-8");
-			long seen = 0;
 			for (USMFStatus usmfStatus : list) {
 				LoggerUtils.debug(logger, String.format("Processing item: %d",seen++), seen%1000==0);
 				processStatus(usmfStatus, options);
 			}
 		} catch(Exception e){
+			failed = true;
 			e.printStackTrace();
-			return;
+		} finally {
+			if(modes != null) registry.release(options.getModeConfiguration(), modes);
+			resources.getMetrics().requestFinished(requestStart, seen, failed);
+			options.close();
 		}
-		options.close();
 	}
 
 	private void processStatus(USMFStatus usmfStatus,PreProcessAppOptions options) throws Exception {
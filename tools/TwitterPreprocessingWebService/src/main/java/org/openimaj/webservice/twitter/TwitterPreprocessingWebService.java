@@ -1,5 +1,9 @@
 package org.openimaj.webservice.twitter;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openimaj.tools.twitter.modes.preprocessing.TwitterPreprocessingModeOption;
 import org.restlet.Component;
 import org.restlet.data.Protocol;
 
@@ -11,6 +15,9 @@ import org.restlet.data.Protocol;
  */
 public class TwitterPreprocessingWebService extends Component{
 
+	private PreProcessResources resources;
+	private JobResultStore store;
+
 	/**
 	 * Default port 8080
 	 * @throws Exception
@@ -23,15 +30,63 @@ public class TwitterPreprocessingWebService extends Component{
 	 * @throws Exception
 	 */
 	public TwitterPreprocessingWebService(int port) throws Exception {
+		this(port, new PreProcessResources());
+	}
+
+	/**
+	 * @param port
+	 * @param resources the modes, workers and metrics shared by the apps
+	 * @throws Exception
+	 */
+	public TwitterPreprocessingWebService(int port, PreProcessResources resources) throws Exception {
+		this(port, resources, new MongoJobResultStore());
+	}
+
+	/**
+	 * @param port
+	 * @param resources the modes, workers and metrics shared by the apps
+	 * @param store holds the results of identified jobs
+	 * @throws Exception
+	 */
+	public TwitterPreprocessingWebService(int port, PreProcessResources resources, JobResultStore store) throws Exception {
+		this.resources = resources;
+		this.store = store;
 		getServers().add(Protocol.HTTP,port);
-		getDefaultHost().attach("/process", new PreProcessApp());
-		getDefaultHost().attach("/job", new PreProcessJobApp());
+		getDefaultHost().attach("/process", new PreProcessApp(resources));
+		getDefaultHost().attach("/job", new PreProcessJobApp(resources, store));
+	}
+
+	/**
+	 * @return the modes, workers and metrics shared by the apps
+	 */
+	public PreProcessResources getResources() {
+		return resources;
 	}
-	
+
+	@Override
+	public synchronized void stop() throws Exception {
+		super.stop();
+		resources.shutdown();
+		store.close();
+	}
+
+	/**
+	 * Start the service. The first argument is the port, any further
+	 * arguments are comma separated lists of modes (e.g. TOKENISE,LANG_ID)
+	 * which are created before the first request arrives.
+	 * @param args
+	 * @throws Exception
+	 */
 	public static void main(String[] args) throws Exception {
-		if(args.length == 0)
-			new TwitterPreprocessingWebService(8181).start();
-		else
-			new TwitterPreprocessingWebService(Integer.parseInt(args[0])).start();
+		int port = args.length == 0 ? 8181 : Integer.parseInt(args[0]);
+		PreProcessResources resources = new PreProcessResources();
+		for (int i = 1; i < args.length; i++) {
+			List<TwitterPreprocessingModeOption> config = new ArrayList<TwitterPreprocessingModeOption>();
+			for (String mode : args[i].split(",")) {
+				config.add(TwitterPreprocessingModeOption.valueOf(mode.trim()));
+			}
+			resources.getModeRegistry().prewarm(config, 1);
+		}
+		new TwitterPreprocessingWebService(port, resources).start();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package org.openimaj.webservice.twitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+/**
+ * Lines written to a {@link ChunkedResponseWriter} reach the client while the
+ * response is still open
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class ChunkedResponseWriterTest {
+	/**
+	 * Plain responses are readable as they are flushed
+	 *
+	 * @throws Exception
+	 */
+	@Test(timeout = 10000)
+	public void testPlainFlush() throws Exception {
+		assertReadBeforeClose(false);
+	}
+
+	/**
+	 * Gzipped responses are sync flushed, so a client can inflate each line
+	 * before the stream is finished
+	 *
+	 * @throws Exception
+	 */
+	@Test(timeout = 10000)
+	public void testGZIPFlush() throws Exception {
+		assumeTrue(ChunkedResponseWriter.canFlushGZIP());
+		assertReadBeforeClose(true);
+	}
+
+	private static void assertReadBeforeClose(final boolean gzip) throws Exception {
+		final ChunkedResponseWriter writer = new ChunkedResponseWriter();
+		writer.setFlushPolicy(1, 10);
+		final PipedInputStream client = new PipedInputStream(64 * 1024);
+		final PipedOutputStream response = new PipedOutputStream(client);
+		final IOException[] failure = new IOException[1];
+		final Thread responder = new Thread() {
+			@Override
+			public void run() {
+				try {
+					writer.writeTo(response, gzip);
+					response.close();
+				} catch (final IOException e) {
+					failure[0] = e;
+				}
+			}
+		};
+		responder.start();
+
+		writer.write("first line\n");
+		final InputStream in = gzip ? new GZIPInputStream(client) : client;
+		// the writer is still open, so this only returns if the line was flushed
+		assertEquals("first line", readLine(in));
+
+		writer.write("second line\n");
+		assertEquals("second line", readLine(in));
+
+		writer.close();
+		assertNull(readLine(in));
+		responder.join();
+		assertNull(failure[0]);
+	}
+
+	/**
+	 * Read a byte at a time, as readers fill their buffers from an inflating
+	 * stream, which always claims to have more available
+	 */
+	private static String readLine(InputStream in) throws IOException {
+		final ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != -1 && b != '\n')
+			line.write(b);
+		if (b == -1 && line.size() == 0)
+			return null;
+		return line.toString("UTF-8");
+	}
+}
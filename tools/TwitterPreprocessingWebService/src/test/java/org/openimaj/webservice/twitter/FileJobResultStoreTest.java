@@ -0,0 +1,148 @@
+package org.openimaj.webservice.twitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Batched writes and paged reads through the {@link FileJobResultStore}
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class FileJobResultStoreTest {
+	/**
+	 * the store folder
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Write a job in batches and read it back in pages
+	 * @throws IOException
+	 */
+	@Test
+	public void testBatchedWritePagedRead() throws IOException {
+		final FileJobResultStore store = new FileJobResultStore(folder.newFolder("jobs"));
+		final BatchingJobResultWriter writer = new BatchingJobResultWriter(store, "job", 7, 60000);
+		for (int i = 0; i < 100; i++) {
+			writer.add(String.format("{\"id\":%d,\"text\":\"tweet é %d\"}", i, i));
+		}
+		// only complete batches have been written
+		JobResultPage page = store.read("job", -1, 1000);
+		assertEquals(98, page.items.size());
+		assertFalse(page.finished);
+		writer.close();
+
+		long last = -1;
+		int pages = 0;
+		do {
+			page = store.read("job", last, 30);
+			for (int i = 0; i < page.items.size(); i++) {
+				assertEquals(String.format("{\"id\":%d,\"text\":\"tweet é %d\"}", last + 1 + i, last + 1 + i), page.items.get(i));
+			}
+			last = page.lastCount();
+			pages++;
+		} while (!page.finished);
+		assertEquals(99, last);
+		assertEquals(4, pages);
+
+		page = store.read("job", 99, 30);
+		assertTrue(page.finished);
+		assertTrue(page.items.isEmpty());
+	}
+
+	/**
+	 * Restarting a job removes its old results
+	 * @throws IOException
+	 */
+	@Test
+	public void testRecreate() throws IOException {
+		final FileJobResultStore store = new FileJobResultStore(folder.newFolder("jobs"));
+		BatchingJobResultWriter writer = new BatchingJobResultWriter(store, "job");
+		writer.add("one");
+		writer.add("two");
+		writer.close();
+		writer = new BatchingJobResultWriter(store, "job");
+		writer.add("three");
+		final JobResultPage unfinished = store.read("job", -1, 10);
+		assertTrue(unfinished.items.isEmpty());
+		assertFalse(unfinished.finished);
+		writer.close();
+		final JobResultPage page = store.read("job", -1, 10);
+		assertEquals(1, page.items.size());
+		assertEquals("three", page.items.get(0));
+		assertTrue(page.finished);
+	}
+
+	/**
+	 * A job whose final batch could not be written is not marked complete
+	 * @throws IOException
+	 */
+	@Test
+	public void testFailedFlushLeavesJobUnfinished() throws IOException {
+		final FailingStore store = new FailingStore(folder.newFolder("jobs"));
+		final BatchingJobResultWriter writer = new BatchingJobResultWriter(store, "job", 10, 60000);
+		writer.add("one");
+		store.failing = true;
+		try {
+			writer.close();
+			fail("the failed write should be thrown");
+		} catch (final IOException e) {
+			assertEquals("append failed", e.getMessage());
+		}
+		store.failing = false;
+		assertFalse(store.read("job", -1, 10).finished);
+	}
+
+	/**
+	 * A job whose batch failed to be written in the background is not marked
+	 * complete when it is closed
+	 * @throws Exception
+	 */
+	@Test
+	public void testFailedBackgroundFlushLeavesJobUnfinished() throws Exception {
+		final FailingStore store = new FailingStore(folder.newFolder("jobs"));
+		final BatchingJobResultWriter writer = new BatchingJobResultWriter(store, "job", 10, 50);
+		store.failing = true;
+		writer.add("one");
+		while (store.failures == 0)
+			Thread.sleep(10);
+		store.failing = false;
+		try {
+			writer.close();
+			fail("the failed write should be thrown");
+		} catch (final IOException e) {
+			assertEquals("append failed", e.getMessage());
+		}
+		final JobResultPage page = store.read("job", -1, 10);
+		assertTrue(page.items.isEmpty());
+		assertFalse(page.finished);
+	}
+
+	private static class FailingStore extends FileJobResultStore {
+		volatile boolean failing = false;
+		volatile int failures = 0;
+
+		FailingStore(File root) {
+			super(root);
+		}
+
+		@Override
+		public void append(String job, long firstCount, List<String> items) throws IOException {
+			if (failing) {
+				failures++;
+				throw new IOException("append failed");
+			}
+			super.append(job, firstCount, items);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package org.openimaj.webservice.twitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.openimaj.tools.twitter.modes.preprocessing.TwitterPreprocessingMode;
+import org.openimaj.tools.twitter.modes.preprocessing.TwitterPreprocessingModeOption;
+
+/**
+ * Mode sets borrowed from a {@link PreProcessModeRegistry} are reused for the
+ * same ordered modes
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class PreProcessModeRegistryTest {
+	private static final List<TwitterPreprocessingModeOption> TOKENISE_STOPWORDS = Arrays.asList(
+			TwitterPreprocessingModeOption.TOKENISE, TwitterPreprocessingModeOption.REMOVE_STOPWORDS);
+	private static final List<TwitterPreprocessingModeOption> STOPWORDS_TOKENISE = Arrays.asList(
+			TwitterPreprocessingModeOption.REMOVE_STOPWORDS, TwitterPreprocessingModeOption.TOKENISE);
+
+	/**
+	 * A released set is handed out again for the same modes in the same order
+	 * and never for another order
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testBorrowRelease() throws IOException {
+		final PreProcessModeRegistry registry = new PreProcessModeRegistry(2);
+		final List<TwitterPreprocessingMode<?>> first = registry.borrow(TOKENISE_STOPWORDS);
+		assertEquals(2, first.size());
+		registry.release(TOKENISE_STOPWORDS, first);
+
+		final List<TwitterPreprocessingMode<?>> again = registry.borrow(Arrays.asList(
+				TwitterPreprocessingModeOption.TOKENISE, TwitterPreprocessingModeOption.REMOVE_STOPWORDS));
+		assertSame(first, again);
+		assertSame(first.get(0), again.get(0));
+		assertSame(first.get(1), again.get(1));
+		registry.release(TOKENISE_STOPWORDS, again);
+
+		final List<TwitterPreprocessingMode<?>> reordered = registry.borrow(STOPWORDS_TOKENISE);
+		assertNotSame(first, reordered);
+		assertNotSame(first.get(0), reordered.get(1));
+		assertNotSame(first.get(1), reordered.get(0));
+
+		// while a set is borrowed another request gets its own
+		final List<TwitterPreprocessingMode<?>> borrowed = registry.borrow(TOKENISE_STOPWORDS);
+		final List<TwitterPreprocessingMode<?>> concurrent = registry.borrow(TOKENISE_STOPWORDS);
+		assertSame(first, borrowed);
+		assertNotSame(borrowed, concurrent);
+	}
+
+	/**
+	 * Only maxIdle sets are kept for each mode list, releasing more drops the
+	 * extra sets
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMaxIdle() throws IOException {
+		final PreProcessModeRegistry registry = new PreProcessModeRegistry(2);
+		final List<TwitterPreprocessingMode<?>> a = registry.borrow(TOKENISE_STOPWORDS);
+		final List<TwitterPreprocessingMode<?>> b = registry.borrow(TOKENISE_STOPWORDS);
+		final List<TwitterPreprocessingMode<?>> c = registry.borrow(TOKENISE_STOPWORDS);
+		registry.release(TOKENISE_STOPWORDS, a);
+		registry.release(TOKENISE_STOPWORDS, b);
+		registry.release(TOKENISE_STOPWORDS, c);
+		assertEquals(Arrays.asList(PreProcessModeRegistry.key(TOKENISE_STOPWORDS) + "=2"), registry.describe());
+
+		assertSame(a, registry.borrow(TOKENISE_STOPWORDS));
+		assertSame(b, registry.borrow(TOKENISE_STOPWORDS));
+		final List<TwitterPreprocessingMode<?>> fresh = registry.borrow(TOKENISE_STOPWORDS);
+		assertNotSame(c, fresh);
+		assertNotSame(a, fresh);
+		assertNotSame(b, fresh);
+	}
+}
@@ -0,0 +1,180 @@
+package org.openimaj.webservice.twitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.multipart.FilePart;
+import org.apache.commons.httpclient.methods.multipart.FilePartSource;
+import org.apache.commons.httpclient.methods.multipart.MultipartRequestEntity;
+import org.apache.commons.httpclient.methods.multipart.Part;
+import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openimaj.io.FileUtils;
+import org.openimaj.twitter.GeneralJSONTwitter;
+import org.openimaj.twitter.USMFStatus;
+import org.openimaj.twitter.collection.StreamTwitterStatusList;
+
+/**
+ * Uploads rejected when the workers are busy and the request metrics served
+ * from /stats
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class PreProcessServiceTest {
+	private static final int PORT = 8182;
+	private static final String JSON_TWITTER = "/org/openimaj/twitter/json_tweets.txt";
+
+	/**
+	 * the upload and job store folder
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PreProcessResources resources;
+	private TwitterPreprocessingWebService server;
+	private File tweets;
+
+	/**
+	 * Start a service with one worker and room for one waiting upload
+	 *
+	 * @throws Exception
+	 */
+	@Before
+	public void createServer() throws Exception {
+		tweets = FileUtils.copyStreamToFile(PreProcessServiceTest.class.getResourceAsStream(JSON_TWITTER),
+				folder.newFile("tweets.json"));
+		resources = new PreProcessResources(1, 1);
+		server = new TwitterPreprocessingWebService(PORT, resources, new FileJobResultStore(folder.newFolder("jobs")));
+		server.start();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void shutdownServer() throws Exception {
+		server.stop();
+	}
+
+	/**
+	 * With the worker busy and the queue full an upload is answered with 503
+	 * and counted as rejected
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRejectedWhenQueueFull() throws Exception {
+		final CountDownLatch running = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Runnable block = new Runnable() {
+			@Override
+			public void run() {
+				running.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		resources.submit(block);
+		running.await();
+		resources.submit(block);
+		assertEquals(1, resources.getQueued());
+
+		try {
+			final PostMethod method = upload("TOKENISE");
+			try {
+				assertEquals(503, new HttpClient().executeMethod(method));
+			} finally {
+				method.releaseConnection();
+			}
+		} finally {
+			release.countDown();
+		}
+
+		final JSONObject stats = stats();
+		assertEquals(1, stats.getLong("requests_started"));
+		assertEquals(1, stats.getLong("requests_rejected"));
+		assertEquals(0, stats.getLong("requests_finished"));
+		assertEquals(0, stats.getLong("requests_in_flight"));
+	}
+
+	/**
+	 * After one upload is processed and one fails /stats reports both
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testStats() throws Exception {
+		final PostMethod processed = upload("TOKENISE");
+		try {
+			assertEquals(200, new HttpClient().executeMethod(processed));
+			// the request is counted before the reply ends
+			processed.getResponseBodyAsString();
+		} finally {
+			processed.releaseConnection();
+		}
+		long expected = 0;
+		final FileInputStream in = new FileInputStream(tweets);
+		try {
+			for (@SuppressWarnings("unused")
+			final USMFStatus status : StreamTwitterStatusList.readUSMF(in, GeneralJSONTwitter.class, "UTF-8"))
+				expected++;
+		} finally {
+			in.close();
+		}
+
+		final PostMethod failed = upload("NOT_A_MODE");
+		try {
+			assertEquals(500, new HttpClient().executeMethod(failed));
+		} finally {
+			failed.releaseConnection();
+		}
+
+		final JSONObject stats = stats();
+		assertEquals(2, stats.getLong("requests_started"));
+		assertEquals(0, stats.getLong("requests_rejected"));
+		assertEquals(2, stats.getLong("requests_finished"));
+		assertEquals(1, stats.getLong("requests_failed"));
+		assertEquals(0, stats.getLong("requests_in_flight"));
+		assertEquals(expected, stats.getLong("items_processed"));
+		assertEquals(0, stats.getLong("queued"));
+		assertTrue(stats.getDouble("latency_max_ms") > 0);
+		assertEquals(1, stats.getJSONArray("idle_modes").length());
+		assertEquals("TOKENISE=1", stats.getJSONArray("idle_modes").getString(0));
+	}
+
+	private PostMethod upload(String mode) throws IOException {
+		final PostMethod method = new PostMethod(String.format(
+				"http://localhost:%d/process/twitter.usmf?m=%s", PORT, mode));
+		final Part[] parts = new Part[] {
+				new FilePart("data", new FilePartSource(tweets), "application/json", "UTF-8")
+		};
+		method.setRequestEntity(new MultipartRequestEntity(parts, new HttpMethodParams()));
+		return method;
+	}
+
+	private JSONObject stats() throws Exception {
+		final GetMethod method = new GetMethod(String.format("http://localhost:%d/process/stats", PORT));
+		try {
+			assertEquals(200, new HttpClient().executeMethod(method));
+			return new JSONObject(method.getResponseBodyAsString());
+		} finally {
+			method.releaseConnection();
+		}
+	}
+}
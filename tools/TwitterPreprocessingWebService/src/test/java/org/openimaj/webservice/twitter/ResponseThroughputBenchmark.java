@@ -0,0 +1,139 @@
+package org.openimaj.webservice.twitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.openimaj.util.pair.IndependentPair;
+import org.restlet.Application;
+import org.restlet.Component;
+import org.restlet.Restlet;
+import org.restlet.data.MediaType;
+import org.restlet.data.Protocol;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+import org.restlet.routing.Router;
+
+/**
+ * Measures how fast lines of json written by a producer thread reach a local
+ * http client, through the old 8 byte piped copy and through the
+ * {@link ChunkedResponseWriter} (plain and gzipped).
+ *
+ * @author Sina Samangooei (ss@ecs.soton.ac.uk)
+ */
+public class ResponseThroughputBenchmark {
+	private static final int PORT = 8182;
+	private static final int LINES = 200000;
+	private static final String LINE = "{\"id\":\"123456789\",\"text\":\"this is a moderately long tweet about nothing in particular #benchmark\",\"analysis\":{\"langid\":{\"language\":\"en\",\"confidence\":0.9}}}";
+
+	/**
+	 * Streams through a pipe, copying 8 bytes at a time
+	 */
+	public static class PipedService extends ServerResource {
+		@Get
+		public Representation stream() throws IOException {
+			final PipedInputStream pi = new PipedInputStream();
+			final PipedOutputStream po = new PipedOutputStream(pi);
+			produce(new OutputStreamWriter(po, "UTF-8"));
+			return new OutputRepresentation(MediaType.APPLICATION_JSON) {
+				@Override
+				public void write(OutputStream realOutput) throws IOException {
+					final byte[] b = new byte[8];
+					int read;
+					while ((read = pi.read(b)) != -1) {
+						realOutput.write(b, 0, read);
+						realOutput.flush();
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Streams through a {@link ChunkedResponseWriter}
+	 */
+	public static class ChunkedService extends ServerResource {
+		@Get
+		public Representation stream() {
+			final IndependentPair<? extends Representation, Writer> irow =
+					PreProcessApp.prepareOutputPipe(PreProcessApp.acceptsGzip(getRequest()));
+			produce(irow.secondObject());
+			return irow.firstObject();
+		}
+	}
+
+	private static void produce(final Writer ow) {
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				final PrintWriter pw = new PrintWriter(ow);
+				for (int i = 0; i < LINES; i++) {
+					pw.println(LINE);
+					pw.flush();
+				}
+				pw.close();
+			}
+		}).start();
+	}
+
+	/**
+	 * The benchmark app
+	 */
+	public static class BenchmarkApp extends Application {
+		@Override
+		public Restlet createInboundRoot() {
+			final Router router = new Router(getContext());
+			router.attach("/piped", PipedService.class);
+			router.attach("/chunked", ChunkedService.class);
+			return router;
+		}
+	}
+
+	/**
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		final Component server = new Component();
+		server.getServers().add(Protocol.HTTP, PORT);
+		server.getDefaultHost().attach("/bench", new BenchmarkApp());
+		server.start();
+		try {
+			for (int repeat = 0; repeat < 3; repeat++) {
+				read("piped", false);
+				read("chunked", false);
+				read("chunked", true);
+			}
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static void read(String path, boolean gzip) throws IOException {
+		final URL url = new URL(String.format("http://localhost:%d/bench/%s", PORT, path));
+		final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		if (gzip)
+			conn.setRequestProperty("Accept-Encoding", "gzip");
+		final long start = System.currentTimeMillis();
+		final InputStream is = conn.getInputStream();
+		final byte[] buf = new byte[64 * 1024];
+		long bytes = 0;
+		int read;
+		while ((read = is.read(buf)) != -1)
+			bytes += read;
+		is.close();
+		final long took = Math.max(1, System.currentTimeMillis() - start);
+		final double sent = (double) LINES * (LINE.length() + 1) / (1024 * 1024);
+		System.out.println(String.format("%s%s: %d bytes on the wire, %.1f MB of json in %dms, %.1f MB/s",
+				path, gzip ? " (gzip)" : "", bytes, sent, took, sent * 1000 / took));
+	}
+}